@@ -0,0 +1,53 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.color.AnsiColor;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnsiColorBenchmark {
+
+    @Param({"plain", "colored"})
+    public String text;
+
+    private String input;
+    private String ansiInput;
+
+    @Setup
+    public void setUp() {
+        this.input = this.text.equals("plain") ?
+                "[12:00:00:000] [main] INFO Gracz IndianBartonka dołączył do serwera z 127.0.0.1" :
+                "&a[12:00:00:000] &e[&7main&r&e] &1INFO &rGracz&b IndianBartonka&a dołączył do serwera z&e 127.0.0.1";
+        this.ansiInput = AnsiColor.convertMinecraftColors(this.input);
+    }
+
+    @Benchmark
+    public String convertMinecraftColors() {
+        return AnsiColor.convertMinecraftColors(this.input);
+    }
+
+    @Benchmark
+    public String removeColors() {
+        return AnsiColor.removeColors(this.ansiInput);
+    }
+
+    @Benchmark
+    public String removeMinecraftColors() {
+        return AnsiColor.removeMinecraftColors(this.input);
+    }
+}
@@ -0,0 +1,101 @@
+package pl.indianbartonka.util.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Porównuje dwa pliki JSON z wynikami JMH i wypisuje zmianę każdego benchmarku.
+ * <p>
+ * {@code java -cp benchmarks.jar pl.indianbartonka.util.benchmark.BenchmarkComparator stary.json nowy.json [próg%]}
+ * </p>
+ * Kończy się kodem {@code 1} gdy któryś benchmark pogorszył się bardziej niż o próg (domyślnie 10%),
+ * więc można go użyć w CI do wyłapywania regresji
+ */
+public final class BenchmarkComparator {
+
+    private BenchmarkComparator() {
+
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Użycie: BenchmarkComparator <stary.json> <nowy.json> [próg%]");
+            return;
+        }
+
+        final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        final Map<String, Result> oldResults = read(Path.of(args[0]));
+        final Map<String, Result> newResults = read(Path.of(args[1]));
+
+        int regressions = 0;
+
+        for (final Map.Entry<String, Result> entry : newResults.entrySet()) {
+            final Result oldResult = oldResults.get(entry.getKey());
+            final Result newResult = entry.getValue();
+
+            if (oldResult == null) {
+                System.out.printf("%-90s %14.3f %s (nowy)%n", entry.getKey(), newResult.score(), newResult.unit());
+                continue;
+            }
+
+            final double change = newResult.changePercent(oldResult);
+            final boolean regression = change < -threshold;
+            if (regression) regressions++;
+
+            System.out.printf("%-90s %14.3f -> %14.3f %s %+7.2f%%%s%n", entry.getKey(), oldResult.score(), newResult.score(),
+                    newResult.unit(), change, regression ? "  REGRESJA" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.println("Regresje: " + regressions);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Result> read(final Path path) throws IOException {
+        final Map<String, Result> results = new LinkedHashMap<>();
+
+        try (final Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            final JsonArray array = JsonParser.parseReader(reader).getAsJsonArray();
+
+            for (final JsonElement element : array) {
+                final JsonObject benchmark = element.getAsJsonObject();
+                final StringBuilder name = new StringBuilder(benchmark.get("benchmark").getAsString());
+
+                if (benchmark.has("params")) {
+                    for (final Map.Entry<String, JsonElement> param : benchmark.getAsJsonObject("params").entrySet()) {
+                        name.append(' ').append(param.getKey()).append('=').append(param.getValue().getAsString());
+                    }
+                }
+
+                final JsonObject metric = benchmark.getAsJsonObject("primaryMetric");
+                results.put(name.toString(), new Result(benchmark.get("mode").getAsString(),
+                        metric.get("score").getAsDouble(), metric.get("scoreUnit").getAsString()));
+            }
+        }
+
+        return results;
+    }
+
+    private record Result(String mode, double score, String unit) {
+
+        /**
+         * @return zmiana w procentach, dodatnia oznacza poprawę niezależnie od trybu pomiaru
+         */
+        private double changePercent(final Result oldResult) {
+            if (oldResult.score == 0) return 0;
+
+            final double change = (this.score - oldResult.score) / oldResult.score * 100;
+            return this.mode.equals("thrpt") ? change : -change;
+        }
+    }
+}
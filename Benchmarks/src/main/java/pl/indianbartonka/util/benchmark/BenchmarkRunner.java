@@ -0,0 +1,35 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import org.openjdk.jmh.Main;
+import pl.indianbartonka.util.IndianUtils;
+
+/**
+ * Uruchamia wszystkie benchmarki i zapisuje wyniki w formacie JSON do {@code results/benchmarks-<wersja>.json}.
+ * <p>
+ * Podane argumenty są przekazywane bez zmian do {@link Main}, np. {@code java -jar benchmarks.jar AnsiColor -rf json -rff wynik.json}.
+ * Dwa pliki z wynikami można porównać przez {@link BenchmarkComparator}.
+ * </p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 0) {
+            Main.main(args);
+            return;
+        }
+
+        final File resultsDir = new File("results");
+        if (!resultsDir.exists() && !resultsDir.mkdirs()) {
+            throw new IOException("Nie można utworzyć folderu na wyniki: " + resultsDir.getAbsolutePath());
+        }
+
+        final File resultFile = new File(resultsDir, "benchmarks-" + IndianUtils.version + ".json");
+        Main.main(new String[]{"-rf", "json", "-rff", resultFile.getPath()});
+    }
+}
@@ -0,0 +1,106 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.BufferUtil;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.encrypt.ChannelCipherEngine;
+import pl.indianbartonka.util.encrypt.aes.AESSettings;
+
+/**
+ * Porównuje szyfrowanie pliku przez {@link CipherInputStream} z tablicą na stercie i przez {@link ChannelCipherEngine}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChannelCipherBenchmark {
+
+    @Param({"CTR", "CBC"})
+    public String mode;
+
+    @Param({"67108864"})
+    public int fileSize;
+
+    private Path workDir;
+    private AESSettings.AESMode aesMode;
+    private AESSettings.AESPadding aesPadding;
+    private SecretKey secretKey;
+    private IvParameterSpec ivParameterSpec;
+    private File plainFile;
+    private File encryptedFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.aesMode = AESSettings.AESMode.valueOf(this.mode);
+        this.aesPadding = this.aesMode == AESSettings.AESMode.CTR ? AESSettings.AESPadding.NO_PADDING : AESSettings.AESPadding.PKCS5_PADDING;
+        this.secretKey = AESSettings.generateKey(AESSettings.AESKeySize.AES_256);
+        this.ivParameterSpec = AESSettings.generateIV(this.aesMode);
+
+        this.workDir = Files.createTempDirectory("IndianUtils-ChannelCipherBenchmark");
+        this.plainFile = new File(this.workDir.toFile(), "plain.dat");
+        this.encryptedFile = new File(this.workDir.toFile(), "plain.dat.aes");
+
+        final byte[] content = new byte[this.fileSize];
+        new Random(42).nextBytes(content);
+        Files.write(this.plainFile.toPath(), content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtil.deleteFile(this.workDir.toFile());
+    }
+
+    @Benchmark
+    public long cipherInputStream() throws IOException, GeneralSecurityException {
+        final Cipher cipher = AESSettings.createCipher(this.aesMode, this.aesPadding, this.secretKey, this.ivParameterSpec, true);
+        long written = 0;
+
+        try (final FileInputStream in = new FileInputStream(this.plainFile);
+             final CipherInputStream cipherIn = new CipherInputStream(in, cipher);
+             final FileOutputStream out = new FileOutputStream(this.encryptedFile)) {
+
+            final byte[] buffer = new byte[BufferUtil.calculateOptimalBufferSize(FileUtil.getFileSize(this.plainFile))];
+            int bytesRead;
+
+            while ((bytesRead = cipherIn.read(buffer)) != -1) {
+                out.write(buffer, 0, bytesRead);
+                written += bytesRead;
+            }
+        }
+
+        return written;
+    }
+
+    @Benchmark
+    public long channelEngine() throws IOException, GeneralSecurityException {
+        final Cipher cipher = AESSettings.createCipher(this.aesMode, this.aesPadding, this.secretKey, this.ivParameterSpec, true);
+        return ChannelCipherEngine.process(this.plainFile, this.encryptedFile, cipher);
+    }
+}
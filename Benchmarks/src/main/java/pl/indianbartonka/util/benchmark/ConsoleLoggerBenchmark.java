@@ -0,0 +1,61 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.logger.Logger;
+import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+
+/**
+ * Koszt jednego logu tylko na konsolę po stronie wątku logującego, konsola jest przekierowana do pustego strumienia
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsoleLoggerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    private PrintStream originalOut;
+    private Logger consoleLogger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        this.consoleLogger = new Logger(LoggerConfiguration.builder()
+                .setLoggingToFile(false)
+                .setAsync(this.async)
+                .build()) {
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.consoleLogger.close();
+        System.setOut(this.originalOut);
+    }
+
+    @Benchmark
+    public void console() {
+        this.consoleLogger.info("&aGracz&b {}&a dołączył do serwera z&e {}", "IndianBartonka", "127.0.0.1");
+    }
+}
@@ -0,0 +1,114 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.encrypt.EncryptedFile;
+import pl.indianbartonka.util.encrypt.Encryptor;
+import pl.indianbartonka.util.encrypt.aes.AESEncryptor;
+import pl.indianbartonka.util.encrypt.aes.AESSettings;
+import pl.indianbartonka.util.encrypt.cha.ChaChaEncryptor;
+import pl.indianbartonka.util.encrypt.cha.ChaChaSettings;
+import pl.indianbartonka.util.exception.encryption.DecryptException;
+import pl.indianbartonka.util.exception.encryption.EncryptException;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptorBenchmark {
+
+    @Param({"AES_GCM", "AES_CTR", "CHACHA20", "CHACHA20_POLY1305"})
+    public String algorithm;
+
+    @Param({"1048576"})
+    public int fileSize;
+
+    private Path workDir;
+    private Encryptor encryptor;
+    private SecretKey secretKey;
+    private File plainFile;
+    private File encryptedFile;
+    private String text;
+    private String encryptedText;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, EncryptException {
+        switch (this.algorithm) {
+            case "AES_GCM" -> {
+                this.encryptor = new AESEncryptor(AESSettings.AESMode.GCM, AESSettings.AESPadding.NO_PADDING, AESSettings.generateIV(AESSettings.AESMode.GCM));
+                this.secretKey = AESSettings.generateKey(AESSettings.AESKeySize.AES_256);
+            }
+            case "AES_CTR" -> {
+                this.encryptor = new AESEncryptor(AESSettings.AESMode.CTR, AESSettings.AESPadding.NO_PADDING, AESSettings.generateIV(AESSettings.AESMode.CTR));
+                this.secretKey = AESSettings.generateKey(AESSettings.AESKeySize.AES_256);
+            }
+            case "CHACHA20" -> {
+                this.encryptor = new ChaChaEncryptor(ChaChaSettings.ChaChaMode.CHACHA20, ChaChaSettings.generateIV(ChaChaSettings.ChaChaMode.CHACHA20));
+                this.secretKey = ChaChaSettings.generateKey();
+            }
+            case "CHACHA20_POLY1305" -> {
+                this.encryptor = new ChaChaEncryptor(ChaChaSettings.ChaChaMode.CHACHA20_POLY1305, ChaChaSettings.generateIV(ChaChaSettings.ChaChaMode.CHACHA20_POLY1305));
+                this.secretKey = ChaChaSettings.generateKey();
+            }
+            default -> throw new IllegalArgumentException("Nieznany algorytm: " + this.algorithm);
+        }
+
+        this.workDir = Files.createTempDirectory("IndianUtils-EncryptorBenchmark");
+        this.plainFile = new File(this.workDir.toFile(), "plain.dat");
+
+        final byte[] content = new byte[this.fileSize];
+        new Random(42).nextBytes(content);
+        Files.write(this.plainFile.toPath(), content);
+
+        this.encryptedFile = this.encryptor.encryptFile(this.plainFile, this.secretKey).encryptedFile();
+
+        this.text = "Gracz IndianBartonka dołączył do serwera z 127.0.0.1";
+        this.encryptedText = this.encryptor.encryptText(this.text, this.secretKey);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtil.deleteFile(this.workDir.toFile());
+    }
+
+    @Benchmark
+    public EncryptedFile encryptFile() throws EncryptException {
+        return this.encryptor.encryptFile(this.plainFile, this.secretKey);
+    }
+
+    @Benchmark
+    public File decryptFile() throws DecryptException {
+        return this.encryptor.decryptFile(this.encryptedFile, this.secretKey);
+    }
+
+    @Benchmark
+    public String encryptText() throws EncryptException {
+        return this.encryptor.encryptText(this.text, this.secretKey);
+    }
+
+    @Benchmark
+    public String decryptText() throws DecryptException {
+        return this.encryptor.decryptText(this.encryptedText, this.secretKey);
+    }
+}
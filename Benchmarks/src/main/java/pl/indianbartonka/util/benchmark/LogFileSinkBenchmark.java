@@ -0,0 +1,100 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.logger.LogState;
+import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+import pl.indianbartonka.util.logger.file.LogFileSink;
+
+/**
+ * Zapis jednej linii logu przez {@link LogFileSink} w porównaniu do {@link PrintStream} na {@link FileOutputStream}.
+ * Strumień nie zależy od {@code flushBytes} więc ma osobny stan i jest mierzony tylko raz
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogFileSinkBenchmark {
+
+    private static final String LINE = "[12:00:00:000] [main] INFO Linia testowa do porównania szybkości zapisu logów";
+
+    @Benchmark
+    public void logFileSink(final SinkState state) throws IOException {
+        state.sink.writeLine(LINE);
+        state.sink.endRecord(LogState.INFO);
+    }
+
+    @Benchmark
+    public void printStream(final PrintStreamState state) {
+        state.printStream.println(LINE);
+    }
+
+    @State(Scope.Benchmark)
+    public static class SinkState {
+
+        @Param({"0", "65536", "1048576"})
+        public int flushBytes;
+
+        private Path logsDir;
+        private LogFileSink sink;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            this.logsDir = Files.createTempDirectory("IndianUtils-LogFileSinkBenchmark");
+
+            final LoggerConfiguration loggerConfiguration = LoggerConfiguration.builder()
+                    .setLogName("Sink")
+                    .setLogsPath(this.logsDir.toString())
+                    .setFlushBytes(this.flushBytes)
+                    .build();
+
+            this.sink = new LogFileSink(new File(this.logsDir.toFile(), "Sink-Channel.log"), loggerConfiguration);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            this.sink.close();
+            FileUtil.deleteFile(this.logsDir.toFile());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PrintStreamState {
+
+        private Path logsDir;
+        private PrintStream printStream;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            this.logsDir = Files.createTempDirectory("IndianUtils-LogFileSinkBenchmark");
+            this.printStream = new PrintStream(new FileOutputStream(new File(this.logsDir.toFile(), "Sink-PrintStream.log"), true), false, StandardCharsets.UTF_8);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            this.printStream.close();
+            FileUtil.deleteFile(this.logsDir.toFile());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.logger.Logger;
+import pl.indianbartonka.util.logger.config.LogFormat;
+import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+
+/**
+ * Koszt jednego logu do pliku po stronie wątku logującego, konsola jest przekierowana do pustego strumienia.
+ * Log tylko na konsolę nie zależy od {@code logFormat} więc jest w {@link ConsoleLoggerBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean async;
+
+    @Param({"TEXT", "JSON", "BINARY"})
+    public LogFormat logFormat;
+
+    private PrintStream originalOut;
+    private Path logsDir;
+    private Logger fileLogger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        this.logsDir = Files.createTempDirectory("IndianUtils-LoggerBenchmark");
+
+        this.fileLogger = new Logger(LoggerConfiguration.builder()
+                .setLogName("Benchmark")
+                .setLogsPath(this.logsDir.toString())
+                .setLoggingToFile(true)
+                .setLogFormat(this.logFormat)
+                .setFlushBytes(64 * 1024)
+                .setAsync(this.async)
+                .build()) {
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.fileLogger.close();
+        System.setOut(this.originalOut);
+        FileUtil.deleteFile(this.logsDir.toFile());
+    }
+
+    @Benchmark
+    public void file() {
+        this.fileLogger.instantLogToFile("&aGracz&b IndianBartonka&a dołączył do serwera z&e 127.0.0.1");
+    }
+
+    @Benchmark
+    public void consoleAndFile() {
+        this.fileLogger.info("&aGracz&b {}&a dołączył do serwera z&e {}", "IndianBartonka", "127.0.0.1");
+    }
+}
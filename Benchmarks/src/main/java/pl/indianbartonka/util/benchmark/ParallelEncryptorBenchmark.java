@@ -0,0 +1,88 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.encrypt.EncryptedFile;
+import pl.indianbartonka.util.encrypt.aes.AESEncryptor;
+import pl.indianbartonka.util.encrypt.aes.AESSettings;
+import pl.indianbartonka.util.encrypt.cha.ChaChaEncryptor;
+import pl.indianbartonka.util.encrypt.cha.ChaChaSettings;
+import pl.indianbartonka.util.exception.encryption.EncryptException;
+
+/**
+ * Porównuje szyfrowanie dużego pliku jednym wątkiem i równolegle po segmentach (AES-CTR, ChaCha20).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelEncryptorBenchmark {
+
+    @Param({"AES_CTR", "CHACHA20"})
+    public String algorithm;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    @Param({"67108864"})
+    public int fileSize;
+
+    private Path workDir;
+    private AESEncryptor aesEncryptor;
+    private ChaChaEncryptor chaChaEncryptor;
+    private SecretKey secretKey;
+    private File plainFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (this.algorithm.equals("AES_CTR")) {
+            this.aesEncryptor = new AESEncryptor(AESSettings.AESMode.CTR, AESSettings.AESPadding.NO_PADDING, AESSettings.generateIV(AESSettings.AESMode.CTR));
+            this.aesEncryptor.setParallelism(this.parallelism);
+            this.secretKey = AESSettings.generateKey(AESSettings.AESKeySize.AES_256);
+        } else {
+            this.chaChaEncryptor = new ChaChaEncryptor(ChaChaSettings.ChaChaMode.CHACHA20, ChaChaSettings.generateIV(ChaChaSettings.ChaChaMode.CHACHA20));
+            this.chaChaEncryptor.setParallelism(this.parallelism);
+            this.secretKey = ChaChaSettings.generateKey();
+        }
+
+        this.workDir = Files.createTempDirectory("IndianUtils-ParallelEncryptorBenchmark");
+        this.plainFile = new File(this.workDir.toFile(), "plain.dat");
+
+        final byte[] content = new byte[this.fileSize];
+        new Random(42).nextBytes(content);
+        Files.write(this.plainFile.toPath(), content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtil.deleteFile(this.workDir.toFile());
+    }
+
+    @Benchmark
+    public EncryptedFile encryptFile() throws EncryptException {
+        return this.aesEncryptor != null
+                ? this.aesEncryptor.encryptFile(this.plainFile, this.secretKey)
+                : this.chaChaEncryptor.encryptFile(this.plainFile, this.secretKey);
+    }
+}
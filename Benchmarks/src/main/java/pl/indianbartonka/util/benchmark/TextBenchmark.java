@@ -0,0 +1,65 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.indianbartonka.util.MathUtil;
+import pl.indianbartonka.util.MessageUtil;
+import pl.indianbartonka.util.http.ContentType;
+import pl.indianbartonka.util.http.HttpStatusCode;
+
+/**
+ * Małe i często wywoływane metody pomocnicze
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+
+    private final long[] sizes = {512L, 1536L, 5L * 1024 * 1024, 3L * 1024 * 1024 * 1024, 7L * 1024 * 1024 * 1024 * 1024};
+    private final int[] statusCodes = {200, 204, 301, 404, 500, 503, 799};
+
+    @Benchmark
+    public String formatMessage() {
+        return MessageUtil.formatMessage("Gracz %s dołączył do serwera z %s o %s", "IndianBartonka", "127.0.0.1", "12:00");
+    }
+
+    @Benchmark
+    public void formatBytesDynamic(final Blackhole blackhole) {
+        for (final long size : this.sizes) {
+            blackhole.consume(MathUtil.formatBytesDynamic(size));
+        }
+    }
+
+    @Benchmark
+    public void httpStatusCodeByCode(final Blackhole blackhole) {
+        for (final int code : this.statusCodes) {
+            blackhole.consume(HttpStatusCode.getByCode(code));
+        }
+    }
+
+    @Benchmark
+    public void contentTypeByMimeType(final Blackhole blackhole) {
+        blackhole.consume(ContentType.getContentType("application/json"));
+        blackhole.consume(ContentType.getContentType("IMAGE/PNG"));
+        blackhole.consume(ContentType.getContentType("application/x-unknown"));
+    }
+
+    @Benchmark
+    public void contentTypeByExtension(final Blackhole blackhole) {
+        blackhole.consume(ContentType.getContentTypeByExtension("json"));
+        blackhole.consume(ContentType.getMimeTypeByExtension("PNG"));
+        blackhole.consume(ContentType.getContentTypeByExtension("unknown"));
+    }
+}
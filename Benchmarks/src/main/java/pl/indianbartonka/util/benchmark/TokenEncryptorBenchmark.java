@@ -0,0 +1,68 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.encrypt.aes.AESEncryptor;
+import pl.indianbartonka.util.encrypt.aes.AESSettings;
+import pl.indianbartonka.util.exception.encryption.EncryptException;
+
+/**
+ * Porównuje szyfrowanie małych tokenów z nowym {@link Cipher} przy każdym wywołaniu i z szyfrem z pamięci podręcznej wątku.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenEncryptorBenchmark {
+
+    @Param({"64"})
+    public int tokenSize;
+
+    private AESEncryptor encryptor;
+    private SecretKey secretKey;
+    private IvParameterSpec ivParameterSpec;
+    private ByteBuffer token;
+    private ByteBuffer output;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.ivParameterSpec = AESSettings.generateIV(AESSettings.AESMode.CBC);
+        this.encryptor = new AESEncryptor(AESSettings.AESMode.CBC, AESSettings.AESPadding.PKCS5_PADDING, this.ivParameterSpec);
+        this.secretKey = AESSettings.generateKey(AESSettings.AESKeySize.AES_256);
+
+        final byte[] content = new byte[this.tokenSize];
+        new Random(42).nextBytes(content);
+        this.token = ByteBuffer.wrap(content);
+        this.output = ByteBuffer.allocate(this.encryptor.getOutputSize(this.tokenSize, true));
+    }
+
+    @Benchmark
+    public byte[] newCipherPerCall() throws GeneralSecurityException {
+        return AESSettings.createCipher(AESSettings.AESMode.CBC, AESSettings.AESPadding.PKCS5_PADDING, this.secretKey, this.ivParameterSpec, true)
+                .doFinal(this.token.array());
+    }
+
+    @Benchmark
+    public int cachedCipherIntoBuffer() throws EncryptException {
+        return this.encryptor.encrypt(this.token.clear(), this.output.clear(), this.secretKey);
+    }
+}
@@ -0,0 +1,96 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.ZipUtil;
+import pl.indianbartonka.util.zip.ZipResourcePool;
+
+/**
+ * Pakowanie i rozpakowywanie tysięcy małych plików z włączoną i wyłączoną pulą {@link ZipResourcePool}.
+ * Ilość alokowanej pamięci najlepiej sprawdzić profilerem GC:
+ * {@code java -jar target/benchmarks.jar ZipPoolingBenchmark -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipPoolingBenchmark {
+
+    @Param({"true", "false"})
+    public boolean pooling;
+
+    @Param({"2000"})
+    public int fileCount;
+
+    private Path workDir;
+    private File sourceDir;
+    private File zipFile;
+    private File unzipDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ZipUtil.init(5);
+        ZipResourcePool.shared().setEnabled(this.pooling);
+
+        this.workDir = Files.createTempDirectory("IndianUtils-ZipPoolingBenchmark");
+        this.sourceDir = new File(this.workDir.toFile(), "source");
+        this.zipFile = new File(this.workDir.toFile(), "source.zip");
+        this.unzipDir = new File(this.workDir.toFile(), "unzip");
+
+        final Random random = new Random(42);
+
+        for (int i = 0; i < this.fileCount; i++) {
+            final File dir = new File(this.sourceDir, "dir" + (i % 32));
+            Files.createDirectories(dir.toPath());
+
+            final String line = "key" + i + "=value" + random.nextInt(1000) + "\n";
+            Files.write(new File(dir, "config" + i + ".properties").toPath(),
+                    line.repeat(1 + random.nextInt(200)).getBytes(StandardCharsets.UTF_8));
+        }
+
+        ZipUtil.zipFolder(this.sourceDir.getPath(), this.zipFile.getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ZipResourcePool.shared().setEnabled(true);
+        FileUtil.deleteFile(this.workDir.toFile());
+    }
+
+    @Benchmark
+    public File zipFolder() throws IOException {
+        return ZipUtil.zipFolder(this.sourceDir.getPath(), new File(this.workDir.toFile(), "benchmark.zip").getPath());
+    }
+
+    @Benchmark
+    public File zipFolderParallel() throws IOException {
+        return ZipUtil.zipFolderParallel(this.sourceDir.getPath(), new File(this.workDir.toFile(), "benchmark-parallel.zip").getPath());
+    }
+
+    @Benchmark
+    public File unzipFile() throws IOException {
+        ZipUtil.unzipFile(this.zipFile.getPath(), this.unzipDir.getPath(), false);
+        return this.unzipDir;
+    }
+}
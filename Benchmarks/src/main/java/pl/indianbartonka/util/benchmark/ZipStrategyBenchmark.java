@@ -0,0 +1,120 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.ZipUtil;
+import pl.indianbartonka.util.zip.AdaptiveCompressionStrategy;
+
+/**
+ * Pakowanie folderu przypominającego serwer: logi i konfiguracje, tekstury {@code .png}, paczki {@code .jar}
+ * oraz pliki regionów z częściowo losowymi danymi, raz ze stałym poziomem kompresji a raz z {@link AdaptiveCompressionStrategy}.
+ * Rozmiar archiwum jest wypisywany po każdym pomiarze.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipStrategyBenchmark {
+
+    @Param({"fixed", "adaptive"})
+    public String strategy;
+
+    @Param({"6", "9"})
+    public int compressionLevel;
+
+    private Path workDir;
+    private File sourceDir;
+    private File zipFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ZipUtil.init(this.compressionLevel);
+        ZipUtil.setCompressionStrategy(this.strategy.equals("adaptive") ? new AdaptiveCompressionStrategy(this.compressionLevel) : null);
+
+        this.workDir = Files.createTempDirectory("IndianUtils-ZipStrategyBenchmark");
+        this.sourceDir = new File(this.workDir.toFile(), "server");
+        this.zipFile = new File(this.workDir.toFile(), "benchmark.zip");
+
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 8; i++) {
+            final StringBuilder log = new StringBuilder();
+            for (int line = 0; line < 20_000; line++) {
+                log.append("[12:00:").append(line % 60).append(" INFO] Gracz").append(random.nextInt(100))
+                        .append(" dołączył do gry z ").append(random.nextInt(255)).append(".0.0.1\n");
+            }
+            this.write("logs/latest-" + i + ".log", log.toString().getBytes(StandardCharsets.UTF_8));
+            this.write("config/plugin-" + i + ".yml", ("enabled: true\nport: 1913" + i + "\nmotd: Serwer\n").repeat(200).getBytes(StandardCharsets.UTF_8));
+        }
+
+        for (int i = 0; i < 64; i++) {
+            this.write("textures/block-" + i + ".png", this.randomBytes(random, 64 * 1024));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            this.write("plugins/plugin-" + i + ".jar", this.randomBytes(random, 2 * 1024 * 1024));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            //Region: losowe sektory przeplatane zerami, jak w prawdziwych plikach świata
+            final byte[] region = new byte[4 * 1024 * 1024];
+            for (int sector = 0; sector < region.length; sector += 4096) {
+                if (random.nextBoolean()) {
+                    final byte[] data = this.randomBytes(random, 4096);
+                    System.arraycopy(data, 0, region, sector, data.length);
+                }
+            }
+            this.write("world/region/r." + i + ".0.mca", region);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println(this.strategy + " level " + this.compressionLevel + ": " + this.zipFile.length() + " bytes");
+        ZipUtil.setCompressionStrategy(null);
+        FileUtil.deleteFile(this.workDir.toFile());
+    }
+
+    @Benchmark
+    public File zipFolder() throws IOException {
+        return ZipUtil.zipFolder(this.sourceDir.getPath(), this.zipFile.getPath());
+    }
+
+    @Benchmark
+    public File zipFolderParallel() throws IOException {
+        return ZipUtil.zipFolderParallel(this.sourceDir.getPath(), this.zipFile.getPath());
+    }
+
+    private void write(final String path, final byte[] content) throws IOException {
+        final File file = new File(this.sourceDir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+    }
+
+    private byte[] randomBytes(final Random random, final int size) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
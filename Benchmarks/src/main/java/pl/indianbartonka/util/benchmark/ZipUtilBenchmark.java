@@ -0,0 +1,95 @@
+package pl.indianbartonka.util.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.ZipUtil;
+
+/**
+ * Pakowanie i rozpakowywanie folderu z plikami tekstowymi (dobrze się kompresują) i losowymi (prawie wcale)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipUtilBenchmark {
+
+    @Param({"16", "256"})
+    public int fileCount;
+
+    @Param({"65536"})
+    public int fileSize;
+
+    @Param({"5"})
+    public int compressionLevel;
+
+    private Path workDir;
+    private File sourceDir;
+    private File zipFile;
+    private File unzipDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ZipUtil.init(this.compressionLevel);
+
+        this.workDir = Files.createTempDirectory("IndianUtils-ZipUtilBenchmark");
+        this.sourceDir = new File(this.workDir.toFile(), "source");
+        this.zipFile = new File(this.workDir.toFile(), "source.zip");
+        this.unzipDir = new File(this.workDir.toFile(), "unzip");
+
+        final Random random = new Random(42);
+        final byte[] content = new byte[this.fileSize];
+
+        for (int i = 0; i < this.fileCount; i++) {
+            final File dir = new File(this.sourceDir, "dir" + (i % 8));
+            Files.createDirectories(dir.toPath());
+
+            if (i % 2 == 0) {
+                for (int j = 0; j < content.length; j++) {
+                    content[j] = (byte) ('a' + random.nextInt(6));
+                }
+            } else {
+                random.nextBytes(content);
+            }
+
+            Files.write(new File(dir, "file" + i + ".dat").toPath(), content);
+        }
+
+        ZipUtil.zipFolder(this.sourceDir.getPath(), this.zipFile.getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtil.deleteFile(this.workDir.toFile());
+    }
+
+    @Benchmark
+    public File zipFolder() throws IOException {
+        return ZipUtil.zipFolder(this.sourceDir.getPath(), new File(this.workDir.toFile(), "benchmark.zip").getPath());
+    }
+
+    @Benchmark
+    public File unzipFile() throws IOException {
+        ZipUtil.unzipFile(this.zipFile.getPath(), this.unzipDir.getPath(), false);
+        return this.unzipDir;
+    }
+}
@@ -38,8 +38,13 @@ public final class BufferUtil {
      * @return The optimal buffer size in bytes.
      */
     public static int calculateOptimalBufferSize(final long fileSize) {
+        final long fileBuffer = (long) (fileSize * (fileSizePercent / 100.0));
+
+        //Small files always get the minimum, the memory check (two MXBean queries) would not change the result
+        if (fileBuffer <= MIN_BUFFER) return MIN_BUFFER;
+
         final long bufferPerRequest = getJvmUsableRam() / RAM_USAGE_DIVISOR;
-        final long bufferSize = Math.min((long) (fileSize * (fileSizePercent / 100.0)), bufferPerRequest);
+        final long bufferSize = Math.min(fileBuffer, bufferPerRequest);
 
         return Math.toIntExact(MathUtil.getCorrectNumber(bufferSize, MIN_BUFFER, MAX_BUFFER));
     }
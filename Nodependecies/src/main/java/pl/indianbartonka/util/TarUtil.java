@@ -0,0 +1,392 @@
+package pl.indianbartonka.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.annotation.UtilityClass;
+import pl.indianbartonka.util.logger.Logger;
+import pl.indianbartonka.util.tar.ParallelGzipOutputStream;
+import pl.indianbartonka.util.tar.TarEntry;
+import pl.indianbartonka.util.tar.TarReader;
+import pl.indianbartonka.util.tar.TarWriter;
+import pl.indianbartonka.util.zip.ZipResourcePool;
+
+/**
+ * <p>
+ * Utility class for creating and extracting tar and tar.gz archives.
+ * Unlike ZIP files, tar archives keep POSIX permissions, owners and symbolic links, which makes them the format
+ * of choice for Linux server images.
+ * </p>
+ * <p>
+ * Archives are written with ustar headers and pax extended headers when needed, GZIP compression runs on all
+ * available processors using {@link ParallelGzipOutputStream}. Only the JDK is used.
+ * </p>
+ */
+@UtilityClass
+@Since("0.0.9.5")
+public final class TarUtil {
+
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    private static Logger logger;
+    private static int compressionLevel = 5;
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private TarUtil() {
+    }
+
+    /**
+     * Initializes the TarUtil class with a logger instance and sets the GZIP compression level.
+     *
+     * @param parent           The Logger instance used for logging, can be null.
+     * @param compressionLevel The compression level to be used, ranging from 0 (no compression) to 9 (maximum compression).
+     *                         If the specified level is outside this range, it will be adjusted to fit within the limits.
+     */
+    public static void init(final @Nullable Logger parent, final int compressionLevel) {
+        if (parent != null) {
+            TarUtil.logger = parent.prefixed("TarUtil");
+        }
+        TarUtil.compressionLevel = MathUtil.getCorrectNumber(compressionLevel, 0, 9);
+    }
+
+    /**
+     * Initializes the TarUtil class with a default logger and sets the GZIP compression level.
+     *
+     * @param compressionLevel The compression level to be used, ranging from 0 to 9.
+     */
+    public static void init(final int compressionLevel) {
+        init(null, compressionLevel);
+    }
+
+    /**
+     * Packs a folder and all its contents into a tar archive using all available processors for compression.
+     * Archives whose name ends with {@code .gz} or {@code .tgz} are compressed with GZIP.
+     *
+     * @param sourceFolderPath The path to the folder to be packed.
+     * @param tarFilePath      The path where the archive will be created.
+     * @return The created archive.
+     * @throws IOException              If an error occurs during the packing process.
+     * @throws IllegalArgumentException If the source folder is empty.
+     * @see #tarFolder(String, String, int)
+     */
+    public static File tarFolder(final String sourceFolderPath, final String tarFilePath) throws IOException {
+        return tarFolder(sourceFolderPath, tarFilePath, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Packs a folder and all its contents into a tar archive, entries are named like in {@link ZipUtil#zipFolder(String, String)}.
+     * Archives whose name ends with {@code .gz} or {@code .tgz} are compressed with GZIP on {@code parallelism} threads.
+     * If anything fails the partially written archive is deleted.
+     *
+     * @param sourceFolderPath The path to the folder to be packed.
+     * @param tarFilePath      The path where the archive will be created.
+     * @param parallelism      The number of compression threads.
+     * @return The created archive.
+     * @throws IOException              If an error occurs during the packing process.
+     * @throws IllegalArgumentException If the source folder is empty.
+     */
+    public static File tarFolder(final String sourceFolderPath, final String tarFilePath, final int parallelism) throws IOException {
+        final File sourceFolder = new File(sourceFolderPath);
+        final File tarFile = new File(tarFilePath);
+
+        if (FileUtil.directoryIsEmpty(sourceFolder)) {
+            throw new IllegalArgumentException("You can't pack empty folders.");
+        }
+
+        try (final OutputStream outputStream = Files.newOutputStream(tarFile.toPath())) {
+            writeArchive(sourceFolder, outputStream, isGzipName(tarFile.getName()), parallelism);
+        } catch (final IOException | RuntimeException exception) {
+            Files.deleteIfExists(tarFile.toPath());
+            throw exception;
+        }
+
+        return tarFile;
+    }
+
+    /**
+     * Streams a folder and all its contents as a tar archive into the given stream, without creating a file.
+     * The stream is flushed but not closed.
+     *
+     * @param sourceFolderPath The path to the folder to be packed.
+     * @param outputStream     The stream the archive is written to.
+     * @param gzip             Whether to compress the archive with GZIP.
+     * @return The number of bytes written.
+     * @throws IOException If an error occurs during the packing process.
+     */
+    public static long tarFolder(final String sourceFolderPath, final OutputStream outputStream, final boolean gzip) throws IOException {
+        return writeArchive(new File(sourceFolderPath), outputStream, gzip, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the GZIP compression level used for tar.gz archives.
+     *
+     * @return The compression level.
+     * @see #init(Logger, int)
+     */
+    public static int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Extracts a tar or tar.gz archive to the specified target directory.
+     *
+     * @param tarFilePath     The path to the archive to be extracted.
+     * @param targetDirectory The directory where the contents will be extracted.
+     * @param deleteOnEnd     Whether to delete the archive after extraction.
+     * @throws IOException If an error occurs during the extraction process.
+     */
+    public static void untarFile(final String tarFilePath, final String targetDirectory, final boolean deleteOnEnd) throws IOException {
+        untarFile(tarFilePath, targetDirectory, deleteOnEnd, null);
+    }
+
+    /**
+     * Extracts a tar or tar.gz archive to the specified target directory, with options to skip certain files and delete the archive after extraction.
+     * GZIP compression is detected from the content, not from the file name.
+     *
+     * @param tarFilePath     The path to the archive to be extracted.
+     * @param targetDirectory The directory where the contents will be extracted.
+     * @param deleteOnEnd     Whether to delete the archive after extraction.
+     * @param skipFiles       List of file paths to skip during extraction, existing files on this list are left untouched.
+     * @throws IOException If an error occurs during the extraction process.
+     */
+    public static void untarFile(final String tarFilePath, final String targetDirectory, final boolean deleteOnEnd, final @Nullable List<String> skipFiles) throws IOException {
+        final Path path = Path.of(tarFilePath);
+
+        try (final InputStream inputStream = Files.newInputStream(path)) {
+            untar(inputStream, targetDirectory, skipFiles);
+        }
+
+        if (deleteOnEnd) ZipUtil.deleteArchive(path);
+    }
+
+    /**
+     * Extracts a tar or tar.gz archive read from a stream, for example a download, to the specified target directory.
+     * Permissions are restored on POSIX file systems, owners are kept in the archive but not restored.
+     * Entries pointing outside the target directory are rejected, also when they would be written through a symbolic link,
+     * and so are symbolic links with an absolute target or a target outside the target directory. The stream is not closed.
+     *
+     * @param inputStream     The stream with the archive.
+     * @param targetDirectory The directory where the contents will be extracted.
+     * @param skipFiles       File paths to skip during extraction, can be null.
+     * @throws IOException If an error occurs during the extraction process.
+     */
+    public static void untar(final InputStream inputStream, final String targetDirectory, final @Nullable Collection<String> skipFiles) throws IOException {
+        final Path root = Path.of(targetDirectory).toAbsolutePath().normalize();
+        final Set<Path> skipPaths = ZipUtil.toPathSet(skipFiles);
+        final List<Path> directories = new ArrayList<>();
+        final List<TarEntry> directoryEntries = new ArrayList<>();
+
+        Files.createDirectories(root);
+        final Path realRoot = root.toRealPath();
+
+        final TarReader tarReader = new TarReader(decompressIfNeeded(inputStream));
+        final byte[] buffer = ZipResourcePool.shared().acquireBuffer(64 * 1024);
+
+        try {
+            TarEntry entry;
+            while ((entry = tarReader.nextEntry()) != null) {
+                final Path outputPath = resolve(root, entry.name());
+                final File outputFile = outputPath.toFile();
+
+                //  Skip files specified in the skipFiles list
+                if (ZipUtil.isSkipped(outputFile, skipPaths)) {
+                    if (logger != null) logger.infoLazy(() -> "Skipping file: " + outputFile.getAbsolutePath());
+                    continue;
+                }
+
+                if (logger != null) logger.debugLazy(() -> "Extracting: " + outputFile.getAbsolutePath());
+
+                if (entry.isDirectory()) {
+                    checkRealPath(realRoot, outputPath, entry.name());
+                    Files.createDirectories(outputPath);
+                    directories.add(outputPath);
+                    directoryEntries.add(entry);
+                } else if (entry.isSymbolicLink()) {
+                    final Path linkTarget = Path.of(entry.linkName());
+                    if (linkTarget.isAbsolute() || !outputPath.getParent().resolve(linkTarget).normalize().startsWith(root)) {
+                        throw new IOException("Symbolic link points outside of the target directory: " + entry.name() + " -> " + entry.linkName());
+                    }
+
+                    createParent(realRoot, outputPath, entry.name());
+                    Files.deleteIfExists(outputPath);
+                    Files.createSymbolicLink(outputPath, linkTarget);
+                } else if (entry.isHardLink()) {
+                    final Path existing = resolve(root, entry.linkName());
+                    checkRealPath(realRoot, existing, entry.linkName());
+
+                    createParent(realRoot, outputPath, entry.name());
+                    Files.deleteIfExists(outputPath);
+                    createHardLink(outputPath, existing);
+                } else if (entry.isFile()) {
+                    createParent(realRoot, outputPath, entry.name());
+                    if (Files.isSymbolicLink(outputPath)) Files.delete(outputPath);
+
+                    try (final OutputStream outputStream = Files.newOutputStream(outputPath)) {
+                        int length;
+                        while ((length = tarReader.read(buffer, 0, buffer.length)) > 0) {
+                            outputStream.write(buffer, 0, length);
+                        }
+                    }
+
+                    applyAttributes(outputPath, entry);
+                } else {
+                    final TarEntry skipped = entry;
+                    if (logger != null) logger.debugLazy(() -> "Unsupported entry type '" + skipped.type() + "': " + skipped.name());
+                }
+            }
+        } finally {
+            ZipResourcePool.shared().releaseBuffer(buffer);
+        }
+
+        //Directories are finished last and deepest first, creating their content would change the modification time again
+        for (int i = directories.size() - 1; i >= 0; i--) {
+            applyAttributes(directories.get(i), directoryEntries.get(i));
+        }
+    }
+
+    private static long writeArchive(final File sourceFolder, final OutputStream outputStream, final boolean gzip, final int parallelism) throws IOException {
+        final CountingStream countingStream = new CountingStream(outputStream);
+        final OutputStream archiveStream = gzip
+                ? new ParallelGzipOutputStream(countingStream, compressionLevel, parallelism)
+                : new BufferedOutputStream(countingStream, 64 * 1024);
+
+        try (final TarWriter tarWriter = new TarWriter(archiveStream)) {
+            addToTar(sourceFolder.toPath(), sourceFolder.getName(), tarWriter);
+        }
+
+        return countingStream.count;
+    }
+
+    private static void addToTar(final Path path, final String entryName, final TarWriter tarWriter) throws IOException {
+        if (logger != null) logger.debug("Packing: {}", path);
+        tarWriter.putPath(path, entryName);
+
+        if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) return;
+
+        final List<Path> children = new ArrayList<>();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            stream.forEach(children::add);
+        }
+        children.sort(null);
+
+        for (final Path child : children) {
+            addToTar(child, entryName + "/" + child.getFileName(), tarWriter);
+        }
+    }
+
+    private static InputStream decompressIfNeeded(final InputStream inputStream) throws IOException {
+        final BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream, 64 * 1024);
+        bufferedInputStream.mark(2);
+        final int first = bufferedInputStream.read();
+        final int second = bufferedInputStream.read();
+        bufferedInputStream.reset();
+
+        if (first == 0x1f && second == 0x8b) return new GZIPInputStream(bufferedInputStream, 64 * 1024);
+        return bufferedInputStream;
+    }
+
+    /**
+     * Resolves an entry name against the target directory, rejecting names like {@code ../../etc/passwd}.
+     *
+     * @param root The normalized absolute target directory.
+     * @param name The name of the entry.
+     * @return The path the entry is extracted to.
+     * @throws IOException If the entry points outside the target directory.
+     */
+    private static Path resolve(final Path root, final String name) throws IOException {
+        final Path path = root.resolve(name.startsWith("/") ? name.substring(1) : name).normalize();
+        if (!path.startsWith(root)) throw new IOException("Entry is outside of the target directory: " + name);
+
+        return path;
+    }
+
+    /**
+     * Checks the real path of the nearest existing part of {@code path}, a symbolic link created by an earlier entry
+     * or already present on disk must not lead the extraction outside the target directory.
+     *
+     * @param realRoot The real path of the target directory.
+     * @param path     The path which is going to be written or created.
+     * @param name     The name of the entry, used in the error message.
+     * @throws IOException If the path leads outside the target directory.
+     */
+    private static void checkRealPath(final Path realRoot, final Path path, final String name) throws IOException {
+        Path existing = path;
+        while (existing != null && !Files.exists(existing)) existing = existing.getParent();
+
+        if (existing == null || !existing.toRealPath().startsWith(realRoot)) {
+            throw new IOException("Entry is outside of the target directory: " + name);
+        }
+    }
+
+    private static void createHardLink(final Path link, final Path existing) throws IOException {
+        try {
+            Files.createLink(link, existing);
+        } catch (final UnsupportedOperationException | IOException exception) {
+            Files.copy(existing, link, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void applyAttributes(final Path path, final TarEntry entry) throws IOException {
+        if (POSIX) Files.setPosixFilePermissions(path, entry.permissions());
+        Files.setLastModifiedTime(path, FileTime.fromMillis(entry.lastModified()));
+    }
+
+    private static void createParent(final Path realRoot, final Path path, final String name) throws IOException {
+        final Path parent = path.getParent();
+        checkRealPath(realRoot, parent, name);
+        if (Files.notExists(parent)) Files.createDirectories(parent);
+    }
+
+    private static boolean isGzipName(final String name) {
+        return name.endsWith(".gz") || name.endsWith(".tgz");
+    }
+
+    private static final class CountingStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingStream(final OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(final int value) throws IOException {
+            this.out.write(value);
+            this.count++;
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            this.out.write(bytes, offset, length);
+            this.count += length;
+        }
+
+        /**
+         * The caller owns the stream, closing the archive must only flush it
+         */
+        @Override
+        public void close() throws IOException {
+            this.flush();
+        }
+    }
+}
@@ -1,18 +1,52 @@
 package pl.indianbartonka.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
 import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
 import pl.indianbartonka.util.annotation.UtilityClass;
+import pl.indianbartonka.util.encrypt.SegmentedAeadCipher;
 import pl.indianbartonka.util.logger.Logger;
+import pl.indianbartonka.util.zip.CompressionStrategy;
+import pl.indianbartonka.util.zip.ParallelZipWriter;
+import pl.indianbartonka.util.zip.ZipResourcePool;
+import pl.indianbartonka.util.zip.ZipStreamTask;
 
 /**
  * <p>
@@ -26,8 +60,10 @@ import pl.indianbartonka.util.logger.Logger;
 @UtilityClass
 public final class ZipUtil {
 
+    private static final int ENCRYPTED_STREAM_BUFFER = 64 * 1024;
     private static Logger logger;
     private static int compressionLevel = 5;
+    private static CompressionStrategy compressionStrategy;
 
     /**
      * Private constructor to prevent instantiation of the utility class.
@@ -84,6 +120,116 @@ public final class ZipUtil {
         return zipFile;
     }
 
+    /**
+     * Zips a folder and all its contents into a ZIP file using all available processors.
+     *
+     * @param sourceFolderPath The path to the folder to be zipped.
+     * @param zipFilePath      The path where the ZIP file will be created.
+     * @return The created ZIP file.
+     * @throws IOException              If an error occurs during the zipping process.
+     * @throws IllegalArgumentException If the source folder is empty.
+     * @see #zipFolderParallel(String, String, int)
+     */
+    @Since("0.0.9.5")
+    public static File zipFolderParallel(final String sourceFolderPath, final String zipFilePath) throws IOException {
+        return zipFolderParallel(sourceFolderPath, zipFilePath, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Zips a folder and all its contents into a ZIP file, deflating files (and 1 MiB chunks of large files)
+     * on {@code parallelism} threads while a single thread assembles the archive.
+     * The result has the same entry names as {@link #zipFolder(String, String)} and is a standard ZIP readable by any tool.
+     * If anything fails the partially written archive is deleted.
+     *
+     * @param sourceFolderPath The path to the folder to be zipped.
+     * @param zipFilePath      The path where the ZIP file will be created.
+     * @param parallelism      The number of compression threads.
+     * @return The created ZIP file.
+     * @throws IOException              If an error occurs during the zipping process.
+     * @throws IllegalArgumentException If the source folder is empty.
+     */
+    @Since("0.0.9.5")
+    public static File zipFolderParallel(final String sourceFolderPath, final String zipFilePath, final int parallelism) throws IOException {
+        final File sourceFolder = new File(sourceFolderPath);
+        final File zipFile = new File(zipFilePath);
+
+        if (FileUtil.directoryIsEmpty(sourceFolder)) {
+            throw new IllegalArgumentException("You can't pack empty folders.");
+        }
+
+        try (final ParallelZipWriter zipWriter = new ParallelZipWriter(new FileOutputStream(zipFile), getCompressionStrategy(), parallelism)) {
+            addDirectoryToZip(sourceFolder, sourceFolder.getName(), zipWriter);
+        } catch (final IOException | RuntimeException exception) {
+            Files.deleteIfExists(zipFile.toPath());
+            throw exception;
+        }
+
+        return zipFile;
+    }
+
+    /**
+     * Streams a folder and all its contents as a ZIP archive into the given stream, without creating a file.
+     * The stream is flushed but not closed.
+     *
+     * @param sourceFolderPath The path to the folder to be zipped.
+     * @param outputStream     The stream the archive is written to, for example an HTTP request body.
+     * @return The number of bytes written.
+     * @throws IOException If an error occurs during the zipping process.
+     * @see ZipStreamTask
+     */
+    @Since("0.0.9.5")
+    public static long zipFolder(final String sourceFolderPath, final OutputStream outputStream) throws IOException {
+        return new ZipStreamTask(List.of(new File(sourceFolderPath)), outputStream, null).zip();
+    }
+
+    /**
+     * Streams a folder and all its contents as a ZIP archive into the given channel, without creating a file.
+     * The channel is not closed.
+     *
+     * @param sourceFolderPath The path to the folder to be zipped.
+     * @param channel          The channel the archive is written to.
+     * @return The number of bytes written.
+     * @throws IOException If an error occurs during the zipping process.
+     * @see ZipStreamTask
+     */
+    @Since("0.0.9.5")
+    public static long zipFolder(final String sourceFolderPath, final WritableByteChannel channel) throws IOException {
+        return new ZipStreamTask(List.of(new File(sourceFolderPath)), channel, null).zip();
+    }
+
+    /**
+     * Compresses a single file into a GZIP file using the configured compression level.
+     * The result is written to a temporary file first and moved into place once complete,
+     * so an interrupted compression never leaves a truncated archive behind.
+     *
+     * @param sourceFile The file to be compressed.
+     * @param gzipFile   The GZIP file to be created.
+     * @return The created GZIP file.
+     * @throws IOException If an error occurs during the compression process.
+     */
+    @Since("0.0.9.5")
+    public static File gzipFile(final File sourceFile, final File gzipFile) throws IOException {
+        final File tempFile = new File(gzipFile.getPath() + ".tmp");
+        final byte[] buffer = new byte[BufferUtil.calculateOptimalBufferSize(sourceFile.length())];
+
+        try (final FileInputStream fis = new FileInputStream(sourceFile);
+             final GZIPOutputStream gzipOut = new GZIPOutputStream(new FileOutputStream(tempFile), buffer.length) {
+                 {
+                     this.def.setLevel(compressionLevel);
+                 }
+             }) {
+            int length;
+            while ((length = fis.read(buffer)) > 0) {
+                gzipOut.write(buffer, 0, length);
+            }
+        }
+
+        Files.move(tempFile.toPath(), gzipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (logger != null) logger.debug("Compressed: {}", gzipFile);
+
+        return gzipFile;
+    }
+
     /**
      * Returns the compression level used in zip operations.
      *
@@ -101,6 +247,28 @@ public final class ZipUtil {
         return compressionLevel;
     }
 
+    /**
+     * Sets the strategy deciding the compression method and level of every ZIP entry,
+     * for example {@link pl.indianbartonka.util.zip.AdaptiveCompressionStrategy} to store already compressed files.
+     *
+     * @param strategy The strategy to use, or null to deflate every entry with the level set in {@link #init(Logger, int)}.
+     */
+    @Since("0.0.9.5")
+    public static void setCompressionStrategy(final @Nullable CompressionStrategy strategy) {
+        compressionStrategy = strategy;
+    }
+
+    /**
+     * Returns the strategy used in zip operations.
+     *
+     * @return The strategy set with {@link #setCompressionStrategy(CompressionStrategy)},
+     * or a fixed strategy using {@link #getCompressionLevel()} if none was set.
+     */
+    @Since("0.0.9.5")
+    public static CompressionStrategy getCompressionStrategy() {
+        return compressionStrategy != null ? compressionStrategy : CompressionStrategy.fixed(compressionLevel);
+    }
+
     /**
      * Adds a directory and its contents to the ZIP output stream.
      *
@@ -110,7 +278,7 @@ public final class ZipUtil {
      * @throws IOException If an error occurs during the zipping process.
      */
     private static void addDirectoryToZip(final File folder, final String parentName, final ZipOutputStream zos) throws IOException {
-        if (logger != null) logger.debug("Packing: " + folder.getPath());
+        if (logger != null) logger.debug("Packing: {}", folder);
 
         final File[] files = folder.listFiles();
         if (files != null) {
@@ -124,6 +292,30 @@ public final class ZipUtil {
         }
     }
 
+    /**
+     * Schedules a directory and its contents on the parallel ZIP writer, using the same entry names as the sequential version.
+     *
+     * @param folder     The directory to add.
+     * @param parentName The name of the parent directory in the ZIP file.
+     * @param zipWriter  The ParallelZipWriter to write to.
+     * @throws IOException If an error occurs during the zipping process.
+     */
+    private static void addDirectoryToZip(final File folder, final String parentName, final ParallelZipWriter zipWriter) throws IOException {
+        if (logger != null) logger.debug("Packing: {}", folder);
+
+        final File[] files = folder.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                if (file.isDirectory()) {
+                    addDirectoryToZip(file, parentName + File.separator + file.getName(), zipWriter);
+                } else {
+                    if (logger != null) logger.debug("Packing: {}", file);
+                    zipWriter.addFile(file, parentName.replace("\\", "/") + "/" + file.getName());
+                }
+            }
+        }
+    }
+
     /**
      * Unzips a ZIP file to the specified target directory.
      *
@@ -147,21 +339,49 @@ public final class ZipUtil {
      */
     public static void unzipFile(final String zipFilePath, final String targetDirectory, final boolean deleteOnEnd, final List<String> skipFiles) throws IOException {
         final Path path = Path.of(zipFilePath);
-        createDirectoryIfNotExists(Path.of(targetDirectory));
 
-        try (final ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(path))) {
+        try (final InputStream inputStream = Files.newInputStream(path)) {
+            unzip(inputStream, targetDirectory, skipFiles);
+        }
+
+        if (deleteOnEnd) deleteArchive(path);
+    }
+
+    /**
+     * Extracts a ZIP archive read from a stream, for example a download or a decrypting stream, to the specified target directory.
+     * Reading stops after the last entry, the stream is not closed.
+     * Entries pointing outside the target directory, like {@code ../../etc/passwd} or absolute paths, are rejected.
+     *
+     * @param inputStream     The stream with the archive.
+     * @param targetDirectory The directory where the contents will be extracted.
+     * @param skipFiles       File paths to skip during extraction, can be null.
+     * @throws IOException If an error occurs during the extraction process.
+     */
+    @Since("0.0.9.5")
+    public static void unzip(final InputStream inputStream, final String targetDirectory, final @Nullable Collection<String> skipFiles) throws IOException {
+        final Path root = Path.of(targetDirectory).toAbsolutePath().normalize();
+        final Set<Path> skipPaths = toPathSet(skipFiles);
+        createDirectoryIfNotExists(root);
+
+        //  Closing the ZipInputStream releases its inflater, the stream itself belongs to the caller
+        final InputStream notClosing = new FilterInputStream(inputStream) {
+            @Override
+            public void close() {
+            }
+        };
+
+        try (final ZipInputStream zipInputStream = new ZipInputStream(notClosing)) {
             ZipEntry zipEntry;
             while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                final String entryName = zipEntry.getName().replace("/", File.separator);
-                final File outputFile = new File(targetDirectory + File.separator + entryName);
+                final File outputFile = resolveEntry(root, zipEntry.getName());
 
                 //  Skip files specified in the skipFiles list
-                if (outputFile.exists() && skipFiles != null && skipFiles.contains(outputFile.getAbsolutePath())) {
-                    if (logger != null) logger.info("Skipping file: " + outputFile.getAbsolutePath());
+                if (isSkipped(outputFile, skipPaths)) {
+                    if (logger != null) logger.infoLazy(() -> "Skipping file: " + outputFile.getAbsolutePath());
                     continue;
                 }
 
-                if (logger != null) logger.debug("Extracting: " + outputFile.getAbsolutePath());
+                if (logger != null) logger.debugLazy(() -> "Extracting: " + outputFile.getAbsolutePath());
 
                 if (zipEntry.isDirectory()) {
                     createDirectoryIfNotExists(outputFile.toPath());
@@ -171,24 +391,232 @@ public final class ZipUtil {
                         createDirectoryIfNotExists(parentDir.toPath());
                     }
 
+                    final byte[] buffer = acquireBuffer(zipEntry.getSize());
                     try (final FileOutputStream outputStream = new FileOutputStream(outputFile)) {
-                        final byte[] buffer = new byte[BufferUtil.calculateOptimalBufferSize(zipEntry.getSize())];
                         int length;
                         while ((length = zipInputStream.read(buffer)) > 0) {
                             outputStream.write(buffer, 0, length);
                         }
+                    } finally {
+                        ZipResourcePool.shared().releaseBuffer(buffer);
                     }
                 }
             }
+        }
+    }
+
+    /**
+     * Zips a folder straight into an encrypted file in one pass, the plain archive never touches the disk.
+     * <p>
+     * Compression runs on {@code parallelism} threads like {@link #zipFolderParallel(String, String, int)} and the
+     * archive is encrypted in authenticated segments, so memory use stays bounded for any folder size.
+     * The file is written to a temporary file first and moved into place once complete.
+     * </p>
+     *
+     * @param sourceFolderPath The path to the folder to be zipped.
+     * @param encryptedFile    The encrypted archive to be created.
+     * @param cipher           The cipher encrypting the archive.
+     * @param parallelism      The number of compression threads.
+     * @return The created encrypted archive.
+     * @throws IOException If an error occurs during zipping or encryption.
+     * @see #unzipEncrypted(File, String, SegmentedAeadCipher, Collection)
+     */
+    @Since("0.0.9.5")
+    public static File zipFolderEncrypted(final String sourceFolderPath, final File encryptedFile, final SegmentedAeadCipher cipher,
+                                          final int parallelism) throws IOException {
+        final File tempFile = new File(encryptedFile.getPath() + ".tmp");
+
+        try {
+            try (final OutputStream outputStream = cipher.newEncryptingStream(new BufferedOutputStream(new FileOutputStream(tempFile), ENCRYPTED_STREAM_BUFFER))) {
+                new ZipStreamTask(List.of(new File(sourceFolderPath)), outputStream, getCompressionStrategy(), parallelism, null).zip();
+            }
+            Files.move(tempFile.toPath(), encryptedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException exception) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw exception;
+        }
+
+        if (logger != null) logger.debug("Compressed and encrypted: {}", encryptedFile);
+        return encryptedFile;
+    }
+
+    /**
+     * Same as {@link #zipFolderEncrypted(String, File, SegmentedAeadCipher, int)} with a plain JCE cipher, for example AES-CTR.
+     * The cipher does not authenticate the archive and single-tag AEAD ciphers buffer the whole archive when decrypting.
+     *
+     * @param sourceFolderPath The path to the folder to be zipped.
+     * @param encryptedFile    The encrypted archive to be created.
+     * @param cipher           A cipher initialized for encryption.
+     * @param parallelism      The number of compression threads.
+     * @return The created encrypted archive.
+     * @throws IOException If an error occurs during zipping or encryption.
+     */
+    @Since("0.0.9.5")
+    public static File zipFolderEncrypted(final String sourceFolderPath, final File encryptedFile, final Cipher cipher,
+                                          final int parallelism) throws IOException {
+        final File tempFile = new File(encryptedFile.getPath() + ".tmp");
+
+        try {
+            try (final OutputStream outputStream = new CipherOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), ENCRYPTED_STREAM_BUFFER), cipher)) {
+                new ZipStreamTask(List.of(new File(sourceFolderPath)), outputStream, getCompressionStrategy(), parallelism, null).zip();
+            }
+            Files.move(tempFile.toPath(), encryptedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException exception) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw exception;
+        }
+
+        if (logger != null) logger.debug("Compressed and encrypted: {}", encryptedFile);
+        return encryptedFile;
+    }
+
+    /**
+     * Decrypts and extracts an archive created by {@link #zipFolderEncrypted(String, File, SegmentedAeadCipher, int)} in one pass.
+     * <p>
+     * Only authenticated data is extracted. The rest of the archive after the last entry is still read and verified,
+     * so a truncated or modified file fails even when all entries were extracted before the damaged part.
+     * </p>
+     *
+     * @param encryptedFile   The encrypted archive.
+     * @param targetDirectory The directory where the contents will be extracted.
+     * @param cipher          The cipher the archive was encrypted with.
+     * @param skipFiles       File paths to skip during extraction, can be null.
+     * @throws IOException If decryption, verification or extraction fails.
+     */
+    @Since("0.0.9.5")
+    public static void unzipEncrypted(final File encryptedFile, final String targetDirectory, final SegmentedAeadCipher cipher,
+                                      final @Nullable Collection<String> skipFiles) throws IOException {
+        try (final InputStream inputStream = cipher.newDecryptingStream(new BufferedInputStream(new FileInputStream(encryptedFile), ENCRYPTED_STREAM_BUFFER))) {
+            unzip(inputStream, targetDirectory, skipFiles);
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Decrypts and extracts an archive created by {@link #zipFolderEncrypted(String, File, Cipher, int)} in one pass
+     *
+     * @param encryptedFile   The encrypted archive.
+     * @param targetDirectory The directory where the contents will be extracted.
+     * @param cipher          A cipher initialized for decryption.
+     * @param skipFiles       File paths to skip during extraction, can be null.
+     * @throws IOException If decryption or extraction fails.
+     */
+    @Since("0.0.9.5")
+    public static void unzipEncrypted(final File encryptedFile, final String targetDirectory, final Cipher cipher,
+                                      final @Nullable Collection<String> skipFiles) throws IOException {
+        try (final InputStream inputStream = new CipherInputStream(new BufferedInputStream(new FileInputStream(encryptedFile), ENCRYPTED_STREAM_BUFFER), cipher)) {
+            unzip(inputStream, targetDirectory, skipFiles);
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Unzips a ZIP file to the specified target directory using all available processors.
+     *
+     * @param zipFilePath     The path to the ZIP file to be extracted.
+     * @param targetDirectory The directory where the contents will be extracted.
+     * @param deleteOnEnd     Whether to delete the ZIP file after extraction.
+     * @param skipFiles       File paths to skip during extraction, can be null.
+     * @throws IOException If an error occurs during the extraction process.
+     * @see #unzipFileParallel(String, String, boolean, Collection, int)
+     */
+    @Since("0.0.9.5")
+    public static void unzipFileParallel(final String zipFilePath, final String targetDirectory, final boolean deleteOnEnd, final @Nullable Collection<String> skipFiles) throws IOException {
+        unzipFileParallel(zipFilePath, targetDirectory, deleteOnEnd, skipFiles, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Unzips a ZIP file to the specified target directory, extracting entries on {@code parallelism} threads.
+     * <p>
+     * Unlike {@link #unzipFile(String, String, boolean, List)} the archive is opened through its central directory,
+     * so entries are read independently of each other. All directories are created up front,
+     * output files are pre-sized from the entry metadata and the largest entries are extracted first.
+     * Entries pointing outside the target directory and entries extracting to the same file twice are rejected.
+     * </p>
+     *
+     * @param zipFilePath     The path to the ZIP file to be extracted.
+     * @param targetDirectory The directory where the contents will be extracted.
+     * @param deleteOnEnd     Whether to delete the ZIP file after extraction.
+     * @param skipFiles       File paths to skip during extraction, can be null.
+     * @param parallelism     The number of extraction threads.
+     * @throws IOException If an error occurs during the extraction process.
+     */
+    @Since("0.0.9.5")
+    public static void unzipFileParallel(final String zipFilePath, final String targetDirectory, final boolean deleteOnEnd,
+                                         final @Nullable Collection<String> skipFiles, final int parallelism) throws IOException {
+        final Path path = Path.of(zipFilePath);
+        final Path root = Path.of(targetDirectory).toAbsolutePath().normalize();
+        final Set<Path> skipPaths = toPathSet(skipFiles);
+        createDirectoryIfNotExists(root);
+
+        try (final ZipFile zipFile = new ZipFile(path.toFile())) {
+            final Set<Path> directories = new LinkedHashSet<>();
+            final Set<Path> filePaths = new HashSet<>();
+            final List<ZipEntry> fileEntries = new ArrayList<>();
+            final List<File> outputFiles = new ArrayList<>();
+
+            final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                final ZipEntry zipEntry = zipEntries.nextElement();
+                final File outputFile = resolveEntry(root, zipEntry.getName());
+
+                if (isSkipped(outputFile, skipPaths)) {
+                    if (logger != null) logger.infoLazy(() -> "Skipping file: " + outputFile.getAbsolutePath());
+                    continue;
+                }
+
+                if (zipEntry.isDirectory()) {
+                    directories.add(outputFile.toPath());
+                } else {
+                    //  Two workers must never write the same file at once
+                    if (!filePaths.add(outputFile.toPath())) throw new IOException("Duplicate entry in the archive: " + zipEntry.getName());
+
+                    final File parentDir = outputFile.getParentFile();
+                    if (parentDir != null) directories.add(parentDir.toPath());
+
+                    fileEntries.add(zipEntry);
+                    outputFiles.add(outputFile);
+                }
+            }
+
+            for (final Path directory : directories) {
+                createDirectoryIfNotExists(directory);
+            }
+
+            //  Largest entries first, so one big file does not end up running alone at the end
+            final List<Integer> order = new ArrayList<>(fileEntries.size());
+            for (int i = 0; i < fileEntries.size(); i++) order.add(i);
+            order.sort(Comparator.comparingLong((Integer index) -> fileEntries.get(index).getSize()).reversed());
 
-            if (deleteOnEnd) {
-                try {
-                    Files.deleteIfExists(path);
-                } catch (final Exception exception) {
-                    FileUtil.deleteFile(path.toFile());
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), new ThreadUtil("Unzip-Worker", true));
+            try {
+                final List<Future<?>> futures = new ArrayList<>(order.size());
+                for (final int index : order) {
+                    final ZipEntry zipEntry = fileEntries.get(index);
+                    final File outputFile = outputFiles.get(index);
+
+                    futures.add(executor.submit(() -> {
+                        extractEntry(zipFile, zipEntry, outputFile);
+                        return null;
+                    }));
+                }
+
+                for (final Future<?> future : futures) {
+                    future.get();
                 }
+            } catch (final ExecutionException exception) {
+                final Throwable cause = exception.getCause();
+                if (cause instanceof final IOException ioException) throw ioException;
+                throw new IOException("Extracting a ZIP entry failed", cause);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Extraction was interrupted", exception);
+            } finally {
+                executor.shutdownNow();
             }
         }
+
+        if (deleteOnEnd) deleteArchive(path);
     }
 
     /**
@@ -200,20 +628,181 @@ public final class ZipUtil {
      * @throws IOException If an error occurs during the zipping process.
      */
     private static void addFileToZip(final File file, final String folderName, final ZipOutputStream zos) throws IOException {
-        if (logger != null) logger.debug("Packing: " + file.getPath());
+        if (logger != null) logger.debug("Packing: {}", file);
 
-        final byte[] buffer = new byte[BufferUtil.calculateOptimalBufferSize(file.length())];
+        final byte[] buffer = acquireBuffer(file.length());
+        final ZipEntry zipEntry = new ZipEntry(folderName.replace("\\", "/") + "/" + file.getName());
 
-        try (final FileInputStream fis = new FileInputStream(file)) {
-            final ZipEntry zipEntry = new ZipEntry(folderName.replace("\\", "/") + "/" + file.getName());
+        try {
+            final int level = selectLevel(zipEntry.getName(), file, buffer);
+
+            if (level == CompressionStrategy.STORED) {
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(file.length());
+                zipEntry.setCompressedSize(file.length());
+                zipEntry.setCrc(crc32(file, buffer));
+            } else {
+                zos.setLevel(level);
+            }
+
+            try (final FileInputStream fis = new FileInputStream(file)) {
+                zos.putNextEntry(zipEntry);
+                int length;
+                while ((length = fis.read(buffer)) > 0) {
+                    zos.write(buffer, 0, length);
+                }
+                zos.closeEntry();
+            }
+        } finally {
+            ZipResourcePool.shared().releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * Extracts a single entry, pre-sizing the output file to the uncompressed size from the central directory.
+     *
+     * @param zipFile    The archive the entry belongs to.
+     * @param zipEntry   The entry to extract.
+     * @param outputFile The file to write the entry to.
+     * @throws IOException If an error occurs during the extraction process.
+     */
+    private static void extractEntry(final ZipFile zipFile, final ZipEntry zipEntry, final File outputFile) throws IOException {
+        if (logger != null) logger.debugLazy(() -> "Extracting: " + outputFile.getAbsolutePath());
+
+        final long size = zipEntry.getSize();
+        final byte[] buffer = acquireBuffer(size);
+
+        try (final InputStream inputStream = zipFile.getInputStream(zipEntry);
+             final RandomAccessFile randomAccessFile = new RandomAccessFile(outputFile, "rw");
+             final FileChannel channel = randomAccessFile.getChannel()) {
+            if (size > 0) randomAccessFile.setLength(size);
+
+            long written = 0;
+            int length;
+            while ((length = inputStream.read(buffer)) > 0) {
+                final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+                while (byteBuffer.hasRemaining()) {
+                    written += channel.write(byteBuffer);
+                }
+            }
+
+            channel.truncate(written);
+        } finally {
+            ZipResourcePool.shared().releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * Takes an I/O buffer for a file of the given size from the shared {@link ZipResourcePool}.
+     * The size comes from {@link BufferUtil#calculateOptimalBufferSize(long)}, capped at {@link ZipResourcePool#MAX_BUFFER_SIZE}
+     * because larger buffers do not make copying any faster.
+     *
+     * @param size The size of the file, or -1 if unknown.
+     * @return The buffer, which should be returned with {@link ZipResourcePool#releaseBuffer(byte[])}.
+     */
+    private static byte[] acquireBuffer(final long size) {
+        return ZipResourcePool.shared().acquireBuffer(Math.min(BufferUtil.calculateOptimalBufferSize(size), ZipResourcePool.MAX_BUFFER_SIZE));
+    }
+
+    /**
+     * Resolves an entry name against the target directory, rejecting names like {@code ../../etc/passwd} or absolute paths.
+     *
+     * @param root      The normalized absolute target directory.
+     * @param entryName The name of the entry.
+     * @return The file the entry is extracted to.
+     * @throws IOException If the entry points outside the target directory.
+     */
+    static File resolveEntry(final Path root, final String entryName) throws IOException {
+        final Path path = root.resolve(entryName).normalize();
+        if (!path.startsWith(root)) throw new IOException("Entry is outside of the target directory: " + entryName);
+
+        return path.toFile();
+    }
+
+    /**
+     * Converts the paths to skip into a set of normalized absolute paths, so every lookup is a single hash check.
+     *
+     * @param skipFiles The paths to skip, can be null.
+     * @return The set of paths to skip.
+     */
+    static Set<Path> toPathSet(final @Nullable Collection<String> skipFiles) {
+        if (skipFiles == null || skipFiles.isEmpty()) return Set.of();
 
-            zos.putNextEntry(zipEntry);
+        final Set<Path> paths = new HashSet<>();
+        for (final String skipFile : skipFiles) {
+            paths.add(Path.of(skipFile).toAbsolutePath().normalize());
+        }
+
+        return paths;
+    }
+
+    /**
+     * Checks whether an already existing output file was marked to be skipped.
+     *
+     * @param outputFile The file an entry would be extracted to.
+     * @param skipPaths  The set returned by {@link #toPathSet(Collection)}.
+     * @return {@code true} if the entry should not be extracted.
+     */
+    static boolean isSkipped(final File outputFile, final Set<Path> skipPaths) {
+        return !skipPaths.isEmpty() && skipPaths.contains(outputFile.toPath().toAbsolutePath().normalize()) && outputFile.exists();
+    }
+
+    /**
+     * Deletes the extracted archive, falling back to {@link FileUtil#deleteFile(File)} if a plain delete fails.
+     *
+     * @param path The path to the archive.
+     * @throws IOException If the archive cannot be deleted.
+     */
+    static void deleteArchive(final Path path) throws IOException {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final Exception exception) {
+            FileUtil.deleteFile(path.toFile());
+        }
+    }
+
+    /**
+     * Asks the compression strategy how to compress a file, reading the sample it needs into the buffer.
+     *
+     * @param entryName The name of the entry in the ZIP file.
+     * @param file      The file to be compressed.
+     * @param buffer    The buffer used for the sample, it must not be smaller than the sample.
+     * @return The deflate level or {@link CompressionStrategy#STORED}.
+     * @throws IOException If the sample cannot be read.
+     */
+    private static int selectLevel(final String entryName, final File file, final byte[] buffer) throws IOException {
+        final CompressionStrategy strategy = getCompressionStrategy();
+        int sampleLength = 0;
+
+        if (strategy.getSampleSize() > 0) {
+            try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                sampleLength = CompressionStrategy.readSample(channel, buffer, strategy.getSampleSize());
+            }
+        }
+
+        final int level = strategy.selectLevel(entryName, file.length(), buffer, sampleLength);
+        return level == CompressionStrategy.STORED ? level : MathUtil.getCorrectNumber(level, 0, 9);
+    }
+
+    /**
+     * Computes the CRC-32 of a file, stored entries need it before their data is written.
+     *
+     * @param file   The file to checksum.
+     * @param buffer The buffer used for reading.
+     * @return The CRC-32 of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long crc32(final File file, final byte[] buffer) throws IOException {
+        final CRC32 crc32 = new CRC32();
+
+        try (final FileInputStream fis = new FileInputStream(file)) {
             int length;
             while ((length = fis.read(buffer)) > 0) {
-                zos.write(buffer, 0, length);
+                crc32.update(buffer, 0, length);
             }
-            zos.closeEntry();
         }
+
+        return crc32.getValue();
     }
 
     /**
@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import pl.indianbartonka.util.annotation.Since;
 import pl.indianbartonka.util.annotation.UtilityClass;
 
 @UtilityClass
@@ -85,6 +86,13 @@ public final class AnsiColor {
     private static final Map<String, String> COLOR_MAP = new HashMap<>();
     private static final Map<String, Color> COLORS = new HashMap<>();
 
+    /**
+     * Tablice kodów dla jednego przejścia po tekście, indeksem jest znak po {@code &} lub {@code ##}
+     */
+    private static final char ESCAPE = '\u001B';
+    private static final String[] AMPERSAND_CODES = new String[128];
+    private static final String[] HASH_CODES = new String[128];
+
     static {
         COLOR_MAP.put("&r", RESET);
         COLOR_MAP.put("&k", OBFUSCATED);
@@ -137,6 +145,15 @@ public final class AnsiColor {
         COLOR_MAP.put("##e", YELLOW_BACKGROUND);
         COLOR_MAP.put("##f", WHITE_BACKGROUND);
 
+        COLOR_MAP.forEach((code, ansi) -> {
+            final char codeChar = code.charAt(code.length() - 1);
+            if (code.startsWith("##")) {
+                HASH_CODES[codeChar] = ansi;
+            } else {
+                AMPERSAND_CODES[codeChar] = ansi;
+            }
+        });
+
         COLORS.put(BLACK, Color.BLACK);
         COLORS.put(BLUE, Color.BLUE);
         COLORS.put(DARK_BLUE, new Color(0, 0, 170));
@@ -201,42 +218,152 @@ public final class AnsiColor {
 
     public static String convertMinecraftColors(final Object input) {
         if (input instanceof String in) {
-            for (final Map.Entry<String, String> entry : COLOR_MAP.entrySet()) {
-                in = in.replaceAll(entry.getKey(), entry.getValue());
-            }
-            return in + RESET;
+            final int first = indexOfMarker(in);
+            if (first == -1) return in;
+
+            final StringBuilder builder = new StringBuilder(in.length() + 32);
+            builder.append(in, 0, first);
+            translate(in, first, builder, Mode.CONVERT);
+            return builder.append(RESET).toString();
         }
         return input.toString();
     }
 
+    /**
+     * Zamienia kody kolorów minecraft na kody ANSI w jednym przejściu, dopisując wynik do podanego bufora
+     * <p>
+     * W przeciwieństwie do {@link #convertMinecraftColors(Object)} nie dopisuje {@link #RESET} na końcu
+     * </p>
+     *
+     * @param input  tekst z kodami kolorów
+     * @param output bufor do którego dopisany zostanie wynik
+     * @return {@code true} jeśli tekst zawierał choć jeden kod koloru
+     */
+    @Since("0.0.9.5")
+    public static boolean convertMinecraftColors(final CharSequence input, final StringBuilder output) {
+        return translate(input, 0, output, Mode.CONVERT);
+    }
+
     public static String removeColors(final Object input) {
         if (input instanceof String in) {
-            for (final Map.Entry<String, String> entry : COLOR_MAP.entrySet()) {
-                in = in.replace(entry.getValue(), "")
-                        .replaceAll(entry.getKey(), "");
-            }
-            return in;
+            return strip(in, Mode.STRIP_ALL);
         }
         return input.toString();
     }
 
+    /**
+     * Usuwa kody kolorów minecraft oraz sekwencje kolorów ANSI w jednym przejściu, dopisując wynik do podanego bufora
+     *
+     * @param input  tekst z kolorami
+     * @param output bufor do którego dopisany zostanie wynik
+     * @return {@code true} jeśli tekst zawierał choć jeden kolor
+     */
+    @Since("0.0.9.5")
+    public static boolean removeColors(final CharSequence input, final StringBuilder output) {
+        return translate(input, 0, output, Mode.STRIP_ALL);
+    }
+
     public static String removeMinecraftColors(final Object input) {
         if (input instanceof String in) {
-            for (final Map.Entry<String, String> entry : COLOR_MAP.entrySet()) {
-                in = in.replace(entry.getKey(), "");
-            }
-            return in;
+            return strip(in, Mode.STRIP_MINECRAFT);
         }
         return input.toString();
     }
 
     public static String removeAnsiColors(final Object input) {
         if (input instanceof String in) {
-            for (final Map.Entry<String, String> entry : COLOR_MAP.entrySet()) {
-                in = in.replace(entry.getValue(), "");
-            }
-            return in;
+            return strip(in, Mode.STRIP_ANSI);
         }
         return input.toString();
     }
-}
\ No newline at end of file
+
+    private static String strip(final String input, final Mode mode) {
+        final int first = indexOfMarker(input);
+        if (first == -1) return input;
+
+        final StringBuilder builder = new StringBuilder(input.length());
+        builder.append(input, 0, first);
+        translate(input, first, builder, mode);
+        return builder.toString();
+    }
+
+    private static int indexOfMarker(final String input) {
+        for (int i = 0; i < input.length(); i++) {
+            final char character = input.charAt(i);
+            if (character == '&' || character == '#' || character == ESCAPE) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Jedno przejście po tekście od podanego indeksu, zależnie od trybu zamienia lub usuwa kody kolorów
+     */
+    private static boolean translate(final CharSequence input, final int from, final StringBuilder output, final Mode mode) {
+        final boolean minecraft = mode != Mode.STRIP_ANSI;
+        final boolean convert = mode == Mode.CONVERT;
+        final boolean ansi = mode == Mode.STRIP_ALL || mode == Mode.STRIP_ANSI;
+        final int length = input.length();
+        boolean found = false;
+        int i = from;
+
+        while (i < length) {
+            final char character = input.charAt(i);
+
+            if (minecraft && character == '&' && i + 1 < length) {
+                final String code = codeFor(AMPERSAND_CODES, input.charAt(i + 1));
+                if (code != null) {
+                    if (convert) output.append(code);
+                    found = true;
+                    i += 2;
+                    continue;
+                }
+            } else if (minecraft && character == '#' && i + 2 < length && input.charAt(i + 1) == '#') {
+                final String code = codeFor(HASH_CODES, input.charAt(i + 2));
+                if (code != null) {
+                    if (convert) output.append(code);
+                    found = true;
+                    i += 3;
+                    continue;
+                }
+            } else if (ansi && character == ESCAPE) {
+                final int end = ansiSequenceEnd(input, i);
+                if (end != -1) {
+                    found = true;
+                    i = end;
+                    continue;
+                }
+            }
+
+            output.append(character);
+            i++;
+        }
+
+        return found;
+    }
+
+    private static String codeFor(final String[] codes, final char character) {
+        return character < codes.length ? codes[character] : null;
+    }
+
+    /**
+     * @return indeks zaraz za sekwencją {@code ESC[cyfry;...m} albo {@code -1} jeśli to nie jest kolor ANSI
+     */
+    private static int ansiSequenceEnd(final CharSequence input, final int start) {
+        final int length = input.length();
+        if (start + 2 >= length || input.charAt(start + 1) != '[') return -1;
+
+        for (int i = start + 2; i < length; i++) {
+            final char character = input.charAt(i);
+            if (character == 'm') return i + 1;
+            if (character != ';' && (character < '0' || character > '9')) return -1;
+        }
+        return -1;
+    }
+
+    private enum Mode {
+        CONVERT,
+        STRIP_ALL,
+        STRIP_MINECRAFT,
+        STRIP_ANSI
+    }
+}
@@ -0,0 +1,251 @@
+package pl.indianbartonka.util.encrypt;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.SecretKey;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.ThreadUtil;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.exception.encryption.DecryptException;
+import pl.indianbartonka.util.exception.encryption.EncryptException;
+
+/**
+ * Encrypts or decrypts every file of a directory tree with an {@link Encryptor} on a bounded thread pool.
+ * <p>
+ * Files are scheduled from the largest to the smallest, so small files fill the gaps while large ones are still running.
+ * Every finished file is appended to a journal in the directory. When a batch is interrupted, the next run skips the files
+ * listed there whose size and modification time did not change, the journal is removed once the whole batch succeeded.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class BatchEncryptor {
+
+    public static final String JOURNAL_PREFIX = ".indian-utils-";
+
+    private final Encryptor encryptor;
+    private final int parallelism;
+    private BatchListener listener;
+
+    /**
+     * @param encryptor   encryptor used for every file, it has to be safe to use from several threads
+     * @param parallelism number of files processed at the same time
+     */
+    public BatchEncryptor(final Encryptor encryptor, final int parallelism) {
+        this.encryptor = encryptor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Encrypts all files of the directory which are not encrypted yet, the encrypted files are created next to the originals
+     *
+     * @param directory directory to encrypt
+     * @param key       key to use
+     * @return Manifest of the encrypted files sorted by path, including files finished by an earlier interrupted run.
+     * @throws EncryptException If listing, encrypting or journaling fails, finished files stay in the journal.
+     */
+    public List<EncryptedFile> encryptDirectory(final File directory, final SecretKey key) throws EncryptException {
+        try {
+            return this.process(directory, true, file -> this.encryptor.encryptFile(file, key).encryptedFile());
+        } catch (final IOException exception) {
+            throw new EncryptException("An error occurred while encrypting the directory " + directory.getName(), exception);
+        }
+    }
+
+    /**
+     * Decrypts all files of the directory with the extension of the encryptor
+     *
+     * @param directory directory to decrypt
+     * @param key       key to use
+     * @return Decrypted files sorted by path, including files finished by an earlier interrupted run.
+     * @throws DecryptException If listing, decrypting or journaling fails, finished files stay in the journal.
+     */
+    public List<File> decryptDirectory(final File directory, final SecretKey key) throws DecryptException {
+        try {
+            return this.process(directory, false, file -> this.encryptor.decryptFile(file, key)).stream()
+                    .map(EncryptedFile::encryptedFile)
+                    .toList();
+        } catch (final IOException exception) {
+            throw new DecryptException("An error occurred while decrypting the directory " + directory.getName(), exception);
+        }
+    }
+
+    /**
+     * @param directory directory of a batch
+     * @param encrypt   {@code true} for the journal of encryption
+     * @return Journal of an unfinished batch, it does not exist when no batch was interrupted.
+     */
+    public File getJournalFile(final File directory, final boolean encrypt) {
+        return new File(directory, JOURNAL_PREFIX + (encrypt ? "encrypt" : "decrypt") + this.encryptor.getFileExtension() + ".journal");
+    }
+
+    @Nullable
+    public BatchListener getListener() {
+        return this.listener;
+    }
+
+    public void setListener(@Nullable final BatchListener listener) {
+        this.listener = listener;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    private List<EncryptedFile> process(final File directory, final boolean encrypt, final FileTask task) throws IOException {
+        if (!directory.isDirectory()) throw new IOException(directory + " is not a directory");
+
+        final String extension = this.encryptor.getFileExtension();
+        final File journalFile = this.getJournalFile(directory, encrypt);
+        final Map<String, JournalEntry> journal = readJournal(journalFile);
+
+        final List<File> files = new ArrayList<>();
+        long totalBytes = 0;
+        for (final File file : FileUtil.listAllFiles(directory)) {
+            if (!file.isFile() || file.getName().startsWith(JOURNAL_PREFIX)) continue;
+            if (file.getName().endsWith(extension) == encrypt) continue;
+
+            files.add(file);
+            totalBytes += file.length();
+        }
+
+        // Largest first, a large file started last would keep one thread busy after all others are done
+        files.sort(Comparator.comparingLong(File::length).reversed());
+
+        final BatchListener batchListener = this.listener;
+        if (batchListener != null) batchListener.onStart(files.size(), totalBytes);
+
+        final List<EncryptedFile> manifest = new ArrayList<>(files.size());
+        final AtomicInteger doneFiles = new AtomicInteger();
+        final AtomicLong doneBytes = new AtomicLong();
+        final long finalTotalBytes = totalBytes;
+        final List<File> pending = new ArrayList<>();
+
+        for (final File file : files) {
+            final String path = relativePath(directory, file);
+            final JournalEntry entry = journal.get(path);
+
+            if (entry != null && entry.size() == file.length() && entry.lastModified() == file.lastModified() && entry.output(directory).exists()) {
+                final EncryptedFile result = new EncryptedFile(entry.timestamp(), entry.size(), entry.output(directory), this.encryptor.getAlgorithm());
+                manifest.add(result);
+                if (batchListener != null) {
+                    batchListener.onProgress(file, doneFiles.incrementAndGet(), files.size(), doneBytes.addAndGet(file.length()), finalTotalBytes);
+                }
+            } else {
+                pending.add(file);
+            }
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, new ThreadUtil("Batch-Encryptor", true));
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        try (final BufferedWriter journalWriter = Files.newBufferedWriter(journalFile.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+
+            final List<Future<EncryptedFile>> futures = new ArrayList<>(pending.size());
+            for (final File file : pending) {
+                futures.add(executor.submit(() -> {
+                    // After the first failure the remaining files are left for the next run
+                    if (failed.get()) return null;
+
+                    final long size = file.length();
+                    final long lastModified = file.lastModified();
+                    final File output;
+                    try {
+                        output = task.run(file);
+                    } catch (final Exception exception) {
+                        failed.set(true);
+                        throw exception;
+                    }
+
+                    final EncryptedFile result = new EncryptedFile(System.currentTimeMillis(), size, output, this.encryptor.getAlgorithm());
+                    final String line = result.encryptMillisTime() + "\t" + size + "\t" + lastModified + "\t"
+                            + relativePath(directory, output) + "\t" + relativePath(directory, file);
+
+                    synchronized (journalWriter) {
+                        journalWriter.write(line);
+                        journalWriter.newLine();
+                        journalWriter.flush();
+                    }
+
+                    if (batchListener != null) {
+                        batchListener.onProgress(file, doneFiles.incrementAndGet(), files.size(), doneBytes.addAndGet(size), finalTotalBytes);
+                    }
+                    return result;
+                }));
+            }
+
+            IOException failure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    final EncryptedFile result = futures.get(i).get();
+                    if (result != null) manifest.add(result);
+                } catch (final ExecutionException exception) {
+                    if (failure == null) failure = new IOException("Processing " + pending.get(i) + " failed", exception.getCause());
+                }
+            }
+
+            if (failure != null) throw failure;
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch was interrupted", exception);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Files.deleteIfExists(journalFile.toPath());
+
+        manifest.sort(Comparator.comparing(result -> result.encryptedFile().getPath()));
+        return manifest;
+    }
+
+    private static Map<String, JournalEntry> readJournal(final File journalFile) throws IOException {
+        final Map<String, JournalEntry> journal = new HashMap<>();
+        if (!journalFile.exists()) return journal;
+
+        for (final String line : Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            final String[] parts = line.split("\t", 5);
+            // A line cut off by a crash is ignored, its file is processed again
+            if (parts.length != 5) continue;
+
+            try {
+                journal.put(parts[4], new JournalEntry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
+            } catch (final NumberFormatException ignored) {
+            }
+        }
+
+        return journal;
+    }
+
+    private static String relativePath(final File directory, final File file) {
+        return directory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    @FunctionalInterface
+    private interface FileTask {
+        File run(File file) throws Exception;
+    }
+
+    private record JournalEntry(long timestamp, long size, long lastModified, String outputPath) {
+
+        private File output(final File directory) {
+            return new File(directory, this.outputPath);
+        }
+    }
+}
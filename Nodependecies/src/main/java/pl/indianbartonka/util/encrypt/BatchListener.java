@@ -0,0 +1,22 @@
+package pl.indianbartonka.util.encrypt;
+
+import java.io.File;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Receives the progress of {@link BatchEncryptor}, {@link #onProgress} is called from the worker threads
+ */
+@Since("0.0.9.5")
+public interface BatchListener {
+
+    void onStart(int fileCount, long totalBytes);
+
+    /**
+     * @param file      source file that was processed, or skipped because the journal lists it as done
+     * @param doneFiles number of files finished so far
+     * @param fileCount number of files in the batch
+     * @param doneBytes size of the finished source files
+     * @param totalBytes size of all source files
+     */
+    void onProgress(File file, int doneFiles, int fileCount, long doneBytes, long totalBytes);
+}
@@ -0,0 +1,205 @@
+package pl.indianbartonka.util.encrypt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.crypto.Cipher;
+import pl.indianbartonka.util.ThreadUtil;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.annotation.UtilityClass;
+
+/**
+ * Encrypts or decrypts a file through {@link FileChannel} and {@link Cipher#update(ByteBuffer, ByteBuffer)} with pooled direct buffers.
+ * <p>
+ * Compared with {@code CipherInputStream} over a heap array this avoids copying data between the Java heap and native I/O
+ * buffers and keeps the memory use at a few fixed-size buffers independent of the file size. Files larger than one buffer
+ * are read ahead on a second thread into two rotating buffers, so reading the next part overlaps with encrypting the current one.
+ * </p>
+ * <p>
+ * Single-tag AEAD decryption (AES-GCM, ChaCha20-Poly1305) is the exception: the provider keeps the whole ciphertext until
+ * the tag is verified, the output buffer then grows to the file size. {@link SegmentedAeadCipher} avoids that.
+ * </p>
+ */
+@UtilityClass
+@Since("0.0.9.5")
+public final class ChannelCipherEngine {
+
+    /**
+     * Bytes read and processed at once, large enough to amortize system calls and small enough to stay in the CPU cache
+     */
+    public static final int BUFFER_SIZE = 512 * 1024;
+
+    /**
+     * Room for the padding or tag a cipher adds on top of the processed bytes
+     */
+    private static final int OUTPUT_SLACK = 64;
+    private static final ByteBuffer END_OF_FILE = ByteBuffer.allocate(0);
+    private static final BlockingQueue<ByteBuffer> POOL = new ArrayBlockingQueue<>(Math.max(6, Runtime.getRuntime().availableProcessors() * 3));
+
+    private ChannelCipherEngine() {
+    }
+
+    /**
+     * @param inputFile  file to read
+     * @param outputFile file to write, it is replaced
+     * @param cipher     initialized cipher, {@link Cipher#doFinal()} is called at the end of the file
+     * @return Number of bytes written.
+     * @throws IOException If reading or writing fails, or the cipher rejects the data (bad padding, failed authentication).
+     */
+    public static long process(final File inputFile, final File outputFile, final Cipher cipher) throws IOException {
+        try (final FileChannel input = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+             final FileChannel output = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            return process(input, output, cipher);
+        }
+    }
+
+    /**
+     * @param input  channel read to its end
+     * @param output channel receiving the processed data
+     * @param cipher initialized cipher, {@link Cipher#doFinal()} is called at the end of the input
+     * @return Number of bytes written.
+     * @throws IOException If reading or writing fails, or the cipher rejects the data (bad padding, failed authentication).
+     */
+    public static long process(final FileChannel input, final FileChannel output, final Cipher cipher) throws IOException {
+        final ByteBuffer first = acquire();
+        final ByteBuffer second = acquire();
+        ByteBuffer outputBuffer = acquire();
+
+        try {
+            long written = 0;
+
+            if (input.size() - input.position() <= BUFFER_SIZE) {
+                readChunk(input, first);
+                if (first.hasRemaining()) {
+                    outputBuffer = update(cipher, first, outputBuffer);
+                    written += writeAll(output, outputBuffer);
+                }
+            } else {
+                final ReadAhead readAhead = new ReadAhead(input, first, second);
+                final Thread reader = new ThreadUtil("Cipher-ReadAhead", readAhead, true).newThread();
+                reader.start();
+
+                try {
+                    ByteBuffer chunk;
+                    while ((chunk = readAhead.full.take()) != END_OF_FILE) {
+                        outputBuffer = update(cipher, chunk, outputBuffer);
+                        readAhead.free.put(chunk);
+                        written += writeAll(output, outputBuffer);
+                    }
+                } catch (final InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Processing was interrupted", exception);
+                } finally {
+                    reader.interrupt();
+                    joinQuietly(reader);
+                }
+
+                if (readAhead.failure != null) throw readAhead.failure;
+            }
+
+            outputBuffer = ensureCapacity(outputBuffer, cipher.getOutputSize(0));
+            outputBuffer.clear();
+            cipher.doFinal(END_OF_FILE.duplicate(), outputBuffer);
+            outputBuffer.flip();
+
+            return written + writeAll(output, outputBuffer);
+        } catch (final GeneralSecurityException exception) {
+            throw new IOException("Cipher failed to process the data", exception);
+        } finally {
+            release(first);
+            release(second);
+            release(outputBuffer);
+        }
+    }
+
+    private static ByteBuffer update(final Cipher cipher, final ByteBuffer chunk, final ByteBuffer outputBuffer) throws GeneralSecurityException {
+        final ByteBuffer target = ensureCapacity(outputBuffer, cipher.getOutputSize(chunk.remaining()));
+        target.clear();
+        cipher.update(chunk, target);
+        return target.flip();
+    }
+
+    /**
+     * Replaces the buffer with a larger heap buffer, only single-tag AEAD decryption needs more than the pooled size
+     */
+    private static ByteBuffer ensureCapacity(final ByteBuffer buffer, final int size) {
+        if (buffer.capacity() >= size) return buffer;
+
+        release(buffer);
+        return ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+    }
+
+    private static void readChunk(final FileChannel input, final ByteBuffer buffer) throws IOException {
+        buffer.clear().limit(BUFFER_SIZE);
+        while (buffer.hasRemaining() && input.read(buffer) >= 0) {
+            //Read until the buffer is full or the file ends
+        }
+        buffer.flip();
+    }
+
+    private static long writeAll(final FileChannel output, final ByteBuffer buffer) throws IOException {
+        final long length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        return length;
+    }
+
+    private static ByteBuffer acquire() {
+        final ByteBuffer buffer = POOL.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(BUFFER_SIZE + OUTPUT_SLACK);
+    }
+
+    private static void release(final ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == BUFFER_SIZE + OUTPUT_SLACK) POOL.offer(buffer);
+    }
+
+    private static void joinQuietly(final Thread thread) {
+        try {
+            thread.join();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fills the free buffers from the channel and hands them over in order, ends with {@link #END_OF_FILE}
+     */
+    private static final class ReadAhead implements Runnable {
+
+        private final FileChannel input;
+        private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(2);
+        private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(3);
+        private volatile IOException failure;
+
+        private ReadAhead(final FileChannel input, final ByteBuffer first, final ByteBuffer second) {
+            this.input = input;
+            this.free.add(first);
+            this.free.add(second);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final ByteBuffer buffer = this.free.take();
+                    readChunk(this.input, buffer);
+                    if (!buffer.hasRemaining()) break;
+                    this.full.put(buffer);
+                }
+            } catch (final IOException exception) {
+                this.failure = exception;
+            } catch (final InterruptedException exception) {
+                return;
+            }
+
+            this.full.offer(END_OF_FILE);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package pl.indianbartonka.util.encrypt;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.annotation.UtilityClass;
+
+/**
+ * Per-thread cache of {@link Cipher} instances keyed by transformation, provider and key.
+ * <p>
+ * {@link Cipher#getInstance(String)} looks up the provider on every call and a new instance has to expand the key again.
+ * A cached instance is only initialized again, which providers do without recomputing the key schedule of an unchanged key.
+ * A cipher returned by this class may only be used on the calling thread and only until the next call for the same key.
+ * </p>
+ */
+@UtilityClass
+@Since("0.0.9.5")
+public final class CipherCache {
+
+    private static final int MAX_ENTRIES_PER_THREAD = 16;
+
+    private static final ThreadLocal<Map<CacheKey, Entry>> CACHE = ThreadLocal.withInitial(() -> new LinkedHashMap<>(MAX_ENTRIES_PER_THREAD, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<CacheKey, Entry> eldest) {
+            return this.size() > MAX_ENTRIES_PER_THREAD;
+        }
+    });
+
+    private CipherCache() {
+    }
+
+    /**
+     * @param transformation cipher transformation, for example {@code AES/CBC/PKCS5Padding}
+     * @param provider       provider name or {@code null} for the default one
+     * @param key            key to initialize the cipher with
+     * @param cipherMode     {@link Cipher#ENCRYPT_MODE} or {@link Cipher#DECRYPT_MODE}
+     * @param parameters     algorithm parameters or {@code null} when the mode has none
+     * @param nonce          IV or nonce contained in the parameters, {@code null} when there is none
+     * @param singleUseNonce {@code true} if the provider refuses to initialize one instance twice with the same key and nonce
+     *                       (GCM encryption, ChaCha20), a new instance is created in that case
+     * @return Initialized cipher owned by the calling thread.
+     */
+    public static Cipher getCipher(final String transformation, @Nullable final String provider, final SecretKey key,
+                                   final int cipherMode, @Nullable final AlgorithmParameterSpec parameters,
+                                   @Nullable final byte[] nonce, final boolean singleUseNonce)
+            throws NoSuchPaddingException, NoSuchAlgorithmException, NoSuchProviderException,
+            InvalidKeyException, InvalidAlgorithmParameterException {
+
+        final Map<CacheKey, Entry> cache = CACHE.get();
+        final CacheKey cacheKey = new CacheKey(transformation, provider, key);
+        Entry entry = cache.get(cacheKey);
+
+        if (entry == null || (singleUseNonce && Arrays.equals(entry.nonce, nonce))) {
+            final Cipher cipher = (provider == null) ?
+                    Cipher.getInstance(transformation) :
+                    Cipher.getInstance(transformation, provider);
+
+            entry = new Entry(cipher);
+            cache.put(cacheKey, entry);
+        }
+
+        try {
+            if (parameters == null) {
+                entry.cipher.init(cipherMode, key);
+            } else {
+                entry.cipher.init(cipherMode, key, parameters);
+            }
+        } catch (final InvalidKeyException | InvalidAlgorithmParameterException exception) {
+            cache.remove(cacheKey);
+            throw exception;
+        }
+
+        entry.nonce = (nonce == null ? null : nonce.clone());
+        return entry.cipher;
+    }
+
+    /**
+     * Removes all ciphers, and with them the keys, cached by the calling thread
+     */
+    public static void clear() {
+        CACHE.remove();
+    }
+
+    private record CacheKey(String transformation, String provider, SecretKey key) {
+    }
+
+    private static final class Entry {
+
+        private final Cipher cipher;
+        private byte[] nonce;
+
+        private Entry(final Cipher cipher) {
+            this.cipher = cipher;
+        }
+    }
+}
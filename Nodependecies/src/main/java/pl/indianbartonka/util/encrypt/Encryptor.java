@@ -1,10 +1,15 @@
 package pl.indianbartonka.util.encrypt;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+import java.util.List;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
 import pl.indianbartonka.util.exception.encryption.DecryptException;
 import pl.indianbartonka.util.exception.encryption.EncryptException;
 import pl.indianbartonka.util.logger.Logger;
@@ -15,10 +20,112 @@ public interface Encryptor {
 
     File decryptFile(@NotNull File inputFile, @NotNull SecretKey key) throws DecryptException;
 
+    /**
+     * Opens an encrypted file for random access, only the parts that are read get decrypted
+     *
+     * @param inputFile encrypted file
+     * @param key       key to use
+     * @return Read-only channel with the plaintext, see {@link SeekableDecryptingChannel}.
+     * @throws DecryptException              If the file cannot be opened or its header is invalid.
+     * @throws UnsupportedOperationException If the mode cannot start decrypting in the middle of a file
+     *                                       or the implementation does not override this method.
+     */
+    @Since("0.0.9.5")
+    default SeekableByteChannel openDecryptingChannel(@NotNull final File inputFile, @NotNull final SecretKey key) throws DecryptException {
+        throw new UnsupportedOperationException(this.getAlgorithm() + " does not support random access decryption");
+    }
+
     String encryptText(@NotNull String text, @NotNull SecretKey key) throws EncryptException;
 
     String decryptText(@NotNull String encryptedText, @NotNull SecretKey key) throws DecryptException;
 
+    /**
+     * Encrypts the remaining bytes of {@code input} into {@code output}, the cipher is reused between calls on the same thread.
+     * The byte array variants delegate here, implementations supporting them must override this method and
+     * {@link #getOutputSize(int, boolean)}.
+     *
+     * @param input  data to encrypt, its position is moved to the limit
+     * @param output buffer receiving the encrypted data, needs at least {@link #getOutputSize(int, boolean)} bytes remaining
+     * @param key    key to use
+     * @return Number of bytes written to {@code output}.
+     * @throws EncryptException              If encrypting fails or {@code output} is too small.
+     * @throws UnsupportedOperationException If the implementation does not override this method.
+     */
+    @Since("0.0.9.5")
+    default int encrypt(@NotNull final ByteBuffer input, @NotNull final ByteBuffer output, @NotNull final SecretKey key) throws EncryptException {
+        throw new UnsupportedOperationException(this.getAlgorithm() + " does not support buffer encryption");
+    }
+
+    /**
+     * Decrypts the remaining bytes of {@code input} into {@code output}, the cipher is reused between calls on the same thread.
+     * The byte array variants delegate here, implementations supporting them must override this method and
+     * {@link #getOutputSize(int, boolean)}.
+     *
+     * @param input  data to decrypt, its position is moved to the limit
+     * @param output buffer receiving the decrypted data, needs at least {@link #getOutputSize(int, boolean)} bytes remaining
+     * @param key    key to use
+     * @return Number of bytes written to {@code output}.
+     * @throws DecryptException              If decrypting or verifying fails or {@code output} is too small.
+     * @throws UnsupportedOperationException If the implementation does not override this method.
+     */
+    @Since("0.0.9.5")
+    default int decrypt(@NotNull final ByteBuffer input, @NotNull final ByteBuffer output, @NotNull final SecretKey key) throws DecryptException {
+        throw new UnsupportedOperationException(this.getAlgorithm() + " does not support buffer decryption");
+    }
+
+    /**
+     * @param inputLength number of bytes to encrypt or decrypt
+     * @param encrypt     {@code true} for encryption
+     * @return Maximum number of bytes {@link #encrypt(ByteBuffer, ByteBuffer, SecretKey)} or {@link #decrypt(ByteBuffer, ByteBuffer, SecretKey)} writes.
+     * @throws UnsupportedOperationException If the implementation does not support buffer encryption.
+     */
+    @Since("0.0.9.5")
+    default int getOutputSize(final int inputLength, final boolean encrypt) {
+        throw new UnsupportedOperationException(this.getAlgorithm() + " does not support buffer encryption");
+    }
+
+    @Since("0.0.9.5")
+    default int encrypt(@NotNull final byte[] input, final int offset, final int length, @NotNull final byte[] output,
+                        final int outputOffset, @NotNull final SecretKey key) throws EncryptException {
+        return this.encrypt(ByteBuffer.wrap(input, offset, length), ByteBuffer.wrap(output, outputOffset, output.length - outputOffset), key);
+    }
+
+    @Since("0.0.9.5")
+    default int decrypt(@NotNull final byte[] input, final int offset, final int length, @NotNull final byte[] output,
+                        final int outputOffset, @NotNull final SecretKey key) throws DecryptException {
+        return this.decrypt(ByteBuffer.wrap(input, offset, length), ByteBuffer.wrap(output, outputOffset, output.length - outputOffset), key);
+    }
+
+    @Since("0.0.9.5")
+    default byte[] encrypt(@NotNull final byte[] data, @NotNull final SecretKey key) throws EncryptException {
+        final byte[] output = new byte[this.getOutputSize(data.length, true)];
+        final int length = this.encrypt(data, 0, data.length, output, 0, key);
+        return (length == output.length ? output : Arrays.copyOf(output, length));
+    }
+
+    @Since("0.0.9.5")
+    default byte[] decrypt(@NotNull final byte[] data, @NotNull final SecretKey key) throws DecryptException {
+        final byte[] output = new byte[this.getOutputSize(data.length, false)];
+        final int length = this.decrypt(data, 0, data.length, output, 0, key);
+        return (length == output.length ? output : Arrays.copyOf(output, length));
+    }
+
+    /**
+     * Encrypts all files of a directory tree on {@code parallelism} threads, see {@link BatchEncryptor}
+     */
+    @Since("0.0.9.5")
+    default List<EncryptedFile> encryptDirectory(@NotNull final File directory, @NotNull final SecretKey key, final int parallelism) throws EncryptException {
+        return new BatchEncryptor(this, parallelism).encryptDirectory(directory, key);
+    }
+
+    /**
+     * Decrypts all files of a directory tree on {@code parallelism} threads, see {@link BatchEncryptor}
+     */
+    @Since("0.0.9.5")
+    default List<File> decryptDirectory(@NotNull final File directory, @NotNull final SecretKey key, final int parallelism) throws DecryptException {
+        return new BatchEncryptor(this, parallelism).decryptDirectory(directory, key);
+    }
+
     void setDebugLogger(@NotNull Logger logger);
 
     String getAlgorithm();
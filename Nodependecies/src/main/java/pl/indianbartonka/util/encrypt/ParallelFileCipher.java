@@ -0,0 +1,140 @@
+package pl.indianbartonka.util.encrypt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.Cipher;
+import pl.indianbartonka.util.ThreadUtil;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.annotation.UtilityClass;
+
+/**
+ * Encrypts or decrypts a file with a counter based stream cipher (AES-CTR, ChaCha20) on several threads.
+ * <p>
+ * The file is split into segments of equal size and every segment gets its own cipher, initialized with the counter
+ * the sequential cipher would have reached at the start of that segment. Segments are read and written with positional
+ * {@link FileChannel} calls, so the output is byte-identical to processing the whole file with a single cipher.
+ * </p>
+ */
+@UtilityClass
+@Since("0.0.9.5")
+public final class ParallelFileCipher {
+
+    /**
+     * Size of the part of a file processed by one cipher, a multiple of the AES and ChaCha20 block sizes
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private ParallelFileCipher() {
+    }
+
+    /**
+     * @param inputFile     file to read
+     * @param outputFile    file to write, it is replaced
+     * @param cipherFactory creates the cipher for the segment starting at the given offset
+     * @param parallelism   number of threads
+     * @throws IOException If reading, writing or creating a cipher fails.
+     */
+    public static void process(final File inputFile, final File outputFile, final SegmentCipherFactory cipherFactory, final int parallelism) throws IOException {
+        process(inputFile, outputFile, cipherFactory, parallelism, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param inputFile     file to read
+     * @param outputFile    file to write, it is replaced
+     * @param cipherFactory creates the cipher for the segment starting at the given offset
+     * @param parallelism   number of threads
+     * @param segmentSize   bytes processed by one cipher, a positive multiple of 64
+     * @throws IOException If reading, writing or creating a cipher fails.
+     */
+    public static void process(final File inputFile, final File outputFile, final SegmentCipherFactory cipherFactory,
+                               final int parallelism, final int segmentSize) throws IOException {
+        if (segmentSize <= 0 || segmentSize % 64 != 0) throw new IllegalArgumentException("Segment size must be a positive multiple of 64");
+
+        try (final FileChannel input = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+             final FileChannel output = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final long size = input.size();
+            final long segments = (size + segmentSize - 1) / segmentSize;
+            final int threads = (int) Math.max(1, Math.min(parallelism, segments));
+
+            final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadUtil("Cipher-Worker", true));
+            try {
+                final List<Future<?>> futures = new ArrayList<>(threads);
+                for (int thread = 0; thread < threads; thread++) {
+                    final int first = thread;
+                    futures.add(executor.submit(() -> {
+                        processSegments(input, output, cipherFactory, size, segmentSize, first, threads);
+                        return null;
+                    }));
+                }
+
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (final ExecutionException exception) {
+                final Throwable cause = exception.getCause();
+                if (cause instanceof final IOException ioException) throw ioException;
+                throw new IOException("Processing a segment failed", cause);
+            } catch (final InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Processing was interrupted", exception);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Processes every {@code step}-th segment starting with {@code first}, segments have equal size so this spreads the work evenly
+     */
+    private static void processSegments(final FileChannel input, final FileChannel output, final SegmentCipherFactory cipherFactory,
+                                        final long size, final int segmentSize, final int first, final int step)
+            throws IOException, GeneralSecurityException {
+        final ByteBuffer inputBuffer = ByteBuffer.allocate(segmentSize);
+        final ByteBuffer outputBuffer = ByteBuffer.allocate(segmentSize);
+
+        for (long segment = first; segment * segmentSize < size; segment += step) {
+            final long offset = segment * segmentSize;
+            final int length = (int) Math.min(segmentSize, size - offset);
+
+            inputBuffer.clear().limit(length);
+            while (inputBuffer.hasRemaining()) {
+                if (input.read(inputBuffer, offset + inputBuffer.position()) < 0) {
+                    throw new IOException("File ended before " + (offset + length) + " bytes");
+                }
+            }
+
+            inputBuffer.flip();
+            outputBuffer.clear();
+            cipherFactory.create(offset).doFinal(inputBuffer, outputBuffer);
+            outputBuffer.flip();
+
+            long position = offset;
+            while (outputBuffer.hasRemaining()) {
+                position += output.write(outputBuffer, position);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface SegmentCipherFactory {
+
+        /**
+         * @param offset position of the first byte of the segment in the file, a multiple of the segment size
+         * @return Cipher initialized for the segment starting at {@code offset}
+         * @throws GeneralSecurityException If the cipher cannot be created.
+         */
+        Cipher create(long offset) throws GeneralSecurityException;
+    }
+}
@@ -0,0 +1,275 @@
+package pl.indianbartonka.util.encrypt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Read-only {@link SeekableByteChannel} returning the plaintext of an encrypted file, only the parts that are read get decrypted.
+ * <p>
+ * Two layouts can be read at any position: counter based stream ciphers (AES-CTR, ChaCha20), where a cipher can start
+ * at any block, and the {@link SegmentedAeadCipher} format, where the segment holding the position is verified and decrypted.
+ * Together with the central directory of a ZIP archive this allows extracting one entry of a large encrypted backup.
+ * The channel is not thread-safe.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class SeekableDecryptingChannel implements SeekableByteChannel {
+
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final BlockReader reader;
+    private final long size;
+    private long position;
+
+    private SeekableDecryptingChannel(final FileChannel channel, final BlockReader reader, final long size) {
+        this.channel = channel;
+        this.reader = reader;
+        this.size = size;
+    }
+
+    /**
+     * Opens a file encrypted with a counter based stream cipher, the plaintext has the size of the file
+     *
+     * @param file          encrypted file
+     * @param cipherFactory creates a decrypting cipher positioned at a multiple of {@code blockSize}
+     * @param blockSize     block size of the cipher, 16 for AES-CTR and 64 for ChaCha20
+     * @return Channel decrypting the file on demand.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static SeekableDecryptingChannel openStreamCipher(final File file, final ParallelFileCipher.SegmentCipherFactory cipherFactory,
+                                                             final int blockSize) throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        return new SeekableDecryptingChannel(channel, new StreamCipherReader(channel, cipherFactory, blockSize), channel.size());
+    }
+
+    /**
+     * Opens a file in the {@link SegmentedAeadCipher} format
+     *
+     * @param file   encrypted file
+     * @param cipher cipher with the key the file was encrypted with
+     * @return Channel verifying and decrypting one segment at a time.
+     * @throws IOException If the file cannot be opened, the header is invalid or the file is truncated.
+     */
+    public static SeekableDecryptingChannel openSegmented(final File file, final SegmentedAeadCipher cipher) throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+            final SegmentedReader reader = new SegmentedReader(channel, cipher);
+            return new SeekableDecryptingChannel(channel, reader, reader.plainSize);
+        } catch (final IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+        if (!this.channel.isOpen()) throw new ClosedChannelException();
+        if (this.position >= this.size) return -1;
+        if (!dst.hasRemaining()) return 0;
+
+        final int length = (int) Math.min(dst.remaining(), this.size - this.position);
+        final int read = this.reader.read(this.position, dst, length);
+        this.position += read;
+
+        return read;
+    }
+
+    @Override
+    public int write(final ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        if (!this.channel.isOpen()) throw new ClosedChannelException();
+        return this.position;
+    }
+
+    @Override
+    public SeekableByteChannel position(final long newPosition) throws IOException {
+        if (newPosition < 0) throw new IllegalArgumentException("Position cannot be negative: " + newPosition);
+        if (!this.channel.isOpen()) throw new ClosedChannelException();
+
+        this.position = newPosition;
+        return this;
+    }
+
+    /**
+     * @return Size of the plaintext.
+     */
+    @Override
+    public long size() throws IOException {
+        if (!this.channel.isOpen()) throw new ClosedChannelException();
+        return this.size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Encrypted file ended unexpectedly");
+        }
+    }
+
+    private interface BlockReader {
+
+        /**
+         * Decrypts up to {@code length} bytes starting at {@code position} into {@code dst}
+         */
+        int read(long position, ByteBuffer dst, int length) throws IOException;
+    }
+
+    /**
+     * Keeps the cipher between sequential reads and only creates a new one positioned at the enclosing block after a seek
+     */
+    private static final class StreamCipherReader implements BlockReader {
+
+        private final FileChannel channel;
+        private final ParallelFileCipher.SegmentCipherFactory cipherFactory;
+        private final int blockSize;
+        private final ByteBuffer encrypted;
+        private final ByteBuffer decrypted;
+        private Cipher cipher;
+        private long cipherPosition;
+
+        private StreamCipherReader(final FileChannel channel, final ParallelFileCipher.SegmentCipherFactory cipherFactory, final int blockSize) {
+            this.channel = channel;
+            this.cipherFactory = cipherFactory;
+            this.blockSize = blockSize;
+            this.encrypted = ByteBuffer.allocate(READ_SIZE + blockSize);
+            this.decrypted = ByteBuffer.allocate(READ_SIZE + blockSize);
+            this.cipherPosition = -1;
+        }
+
+        @Override
+        public int read(final long position, final ByteBuffer dst, final int length) throws IOException {
+            try {
+                if (this.cipher == null || this.cipherPosition != position) {
+                    final long blockStart = position - position % this.blockSize;
+                    this.cipher = this.cipherFactory.create(blockStart);
+                    this.cipherPosition = blockStart;
+                }
+
+                final int skip = (int) (position - this.cipherPosition);
+                final int chunk = Math.min(length, READ_SIZE);
+
+                this.encrypted.clear().limit(skip + chunk);
+                readFully(this.channel, this.encrypted, this.cipherPosition);
+                this.decrypted.clear();
+                this.cipher.update(this.encrypted.flip(), this.decrypted);
+                this.decrypted.flip().position(skip);
+
+                dst.put(this.decrypted);
+                this.cipherPosition = position + chunk;
+
+                return chunk;
+            } catch (final GeneralSecurityException exception) {
+                this.cipher = null;
+                throw new IOException("Cannot decrypt the data at position " + position, exception);
+            }
+        }
+    }
+
+    /**
+     * Keeps the last verified segment, reads inside one segment do not decrypt it again
+     */
+    private static final class SegmentedReader implements BlockReader {
+
+        private final FileChannel channel;
+        private final SegmentedAeadCipher segmentedCipher;
+        private final byte[] header;
+        private final int segmentSize;
+        private final long segments;
+        private final long plainSize;
+        private final Cipher cipher;
+        private final ByteBuffer encrypted;
+        private final ByteBuffer decrypted;
+        private long cachedSegment;
+
+        private SegmentedReader(final FileChannel channel, final SegmentedAeadCipher segmentedCipher) throws IOException {
+            this.channel = channel;
+            this.segmentedCipher = segmentedCipher;
+
+            if (channel.size() < SegmentedAeadCipher.HEADER_SIZE) throw new IOException("Encrypted file is truncated, the header is incomplete");
+            final ByteBuffer headerBuffer = ByteBuffer.allocate(SegmentedAeadCipher.HEADER_SIZE);
+            readFully(channel, headerBuffer, 0);
+            this.header = headerBuffer.array();
+            this.segmentSize = segmentedCipher.parseSegmentSize(this.header);
+
+            final long encryptedSegmentSize = this.segmentSize + (long) SegmentedAeadCipher.TAG_SIZE;
+            final long body = channel.size() - SegmentedAeadCipher.HEADER_SIZE;
+            this.segments = (body + encryptedSegmentSize - 1) / encryptedSegmentSize;
+            if (this.segments == 0 || body - (this.segments - 1) * encryptedSegmentSize < SegmentedAeadCipher.TAG_SIZE) {
+                throw new IOException("Encrypted file is truncated");
+            }
+
+            this.plainSize = body - this.segments * SegmentedAeadCipher.TAG_SIZE;
+            this.encrypted = ByteBuffer.allocate((int) encryptedSegmentSize);
+            this.decrypted = ByteBuffer.allocate((int) encryptedSegmentSize);
+            this.cachedSegment = -1;
+
+            try {
+                this.cipher = Cipher.getInstance(segmentedCipher.getAlgorithm().getTransformation());
+            } catch (final GeneralSecurityException exception) {
+                throw new IOException("Cannot create " + segmentedCipher.getAlgorithm() + " cipher", exception);
+            }
+        }
+
+        @Override
+        public int read(final long position, final ByteBuffer dst, final int length) throws IOException {
+            final long segment = position / this.segmentSize;
+
+            if (segment != this.cachedSegment) {
+                this.cachedSegment = -1;
+                final long offset = SegmentedAeadCipher.HEADER_SIZE + segment * (this.segmentSize + (long) SegmentedAeadCipher.TAG_SIZE);
+
+                this.encrypted.clear().limit((int) Math.min(this.encrypted.capacity(), this.channel.size() - offset));
+                readFully(this.channel, this.encrypted, offset);
+                this.decrypted.clear();
+
+                try {
+                    this.segmentedCipher.initCipher(this.cipher, Cipher.DECRYPT_MODE, this.header, segment, segment == this.segments - 1);
+                    this.cipher.doFinal(this.encrypted.flip(), this.decrypted);
+                } catch (final AEADBadTagException exception) {
+                    throw new IOException("Segment " + segment + " failed authentication, the file was tampered with, truncated or the key is wrong", exception);
+                } catch (final GeneralSecurityException exception) {
+                    throw new IOException("Decrypting segment " + segment + " failed", exception);
+                }
+
+                this.decrypted.flip();
+                this.cachedSegment = segment;
+            }
+
+            final int offsetInSegment = (int) (position - segment * this.segmentSize);
+            final int chunk = Math.min(length, this.decrypted.limit() - offsetInSegment);
+            dst.put(this.decrypted.array(), offsetInSegment, chunk);
+
+            return chunk;
+        }
+    }
+}
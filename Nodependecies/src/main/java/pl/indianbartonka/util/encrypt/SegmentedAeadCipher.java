@@ -0,0 +1,520 @@
+package pl.indianbartonka.util.encrypt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import pl.indianbartonka.util.ThreadUtil;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Authenticated encryption of large files and streams in independently authenticated segments (the STREAM construction).
+ * <p>
+ * A single AES-GCM or ChaCha20-Poly1305 tag over a whole file forces the decrypting side to buffer everything before the tag
+ * can be checked. This format instead starts with a header and splits the plaintext into segments of {@link #getSegmentSize()}
+ * bytes, each encrypted with its own 16 byte tag:
+ * </p>
+ * <pre>
+ * header:  "IUSE" | version (1) | algorithm (1) | segment size (4, big-endian) | nonce prefix (7)
+ * segment: ciphertext (segment size, the last one may be shorter) | tag (16)
+ * </pre>
+ * <p>
+ * The nonce of a segment is the random prefix, the 32-bit segment index and a byte which is {@code 1} only for the last segment,
+ * the header is the additional authenticated data of every segment. Reordered, modified, truncated or extended data is
+ * therefore detected at the first bad segment, memory use is one segment and segments can be processed in parallel.
+ * A new random nonce prefix is drawn for every encrypted stream, so one key can safely encrypt many files.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class SegmentedAeadCipher {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+    /**
+     * Largest accepted segment, the size is read from the header before anything is authenticated and sizes the buffers
+     */
+    public static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int TAG_SIZE = 16;
+    public static final int HEADER_SIZE = 17;
+
+    private static final byte[] MAGIC = {'I', 'U', 'S', 'E'};
+    private static final byte VERSION = 1;
+    private static final int NONCE_PREFIX_SIZE = 7;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Algorithm algorithm;
+    private final SecretKey key;
+    private final int segmentSize;
+
+    /**
+     * @param algorithm AEAD used for every segment
+     * @param key       key suitable for the algorithm
+     */
+    public SegmentedAeadCipher(final Algorithm algorithm, final SecretKey key) {
+        this(algorithm, key, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param algorithm   AEAD used for every segment
+     * @param key         key suitable for the algorithm
+     * @param segmentSize plaintext bytes per segment up to {@link #MAX_SEGMENT_SIZE}, only used for encryption,
+     *                    decryption reads it from the header
+     */
+    public SegmentedAeadCipher(final Algorithm algorithm, final SecretKey key, final int segmentSize) {
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be between 1 and " + MAX_SEGMENT_SIZE + ": " + segmentSize);
+        }
+
+        this.algorithm = algorithm;
+        this.key = key;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Checks whether a file starts with the header of this format
+     *
+     * @param file file to check
+     * @return {@code true} if the file was most likely written by this class
+     */
+    public static boolean isSegmented(final File file) {
+        try (final InputStream inputStream = new FileInputStream(file)) {
+            final byte[] header = inputStream.readNBytes(HEADER_SIZE);
+            return header.length == HEADER_SIZE && Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)
+                    && header[4] == VERSION && Algorithm.byId(header[5]) != null;
+        } catch (final IOException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates a stream encrypting everything written to it, the last segment and the tag are written by {@link OutputStream#close()}
+     *
+     * @param outputStream stream the encrypted data is written to, it is closed together with the returned stream
+     * @return Encrypting stream holding at most one segment in memory.
+     * @throws IOException If writing the header fails.
+     */
+    public OutputStream newEncryptingStream(final OutputStream outputStream) throws IOException {
+        final byte[] header = this.newHeader();
+        outputStream.write(header);
+        return new EncryptingOutputStream(outputStream, header);
+    }
+
+    /**
+     * Creates a stream returning the plaintext, data of a segment is only returned after its tag has been verified
+     *
+     * @param inputStream stream with the encrypted data, it is closed together with the returned stream
+     * @return Decrypting stream, reads fail with an {@link IOException} as soon as tampering or truncation is detected.
+     * @throws IOException If the header is missing or does not match the algorithm.
+     */
+    public InputStream newDecryptingStream(final InputStream inputStream) throws IOException {
+        final byte[] header = inputStream.readNBytes(HEADER_SIZE);
+        return new DecryptingInputStream(inputStream, header, this.parseSegmentSize(header));
+    }
+
+    /**
+     * Encrypts a file, segments are encrypted on {@code parallelism} threads
+     *
+     * @param inputFile   file to encrypt
+     * @param outputFile  file to write, it is replaced
+     * @param parallelism number of threads
+     * @throws IOException If reading, writing or encrypting fails.
+     */
+    public void encryptFile(final File inputFile, final File outputFile, final int parallelism) throws IOException {
+        final byte[] header = this.newHeader();
+
+        try (final FileChannel input = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+             final FileChannel output = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            writeFully(output, ByteBuffer.wrap(header), 0);
+
+            final long size = input.size();
+            final long segments = Math.max(1, (size + this.segmentSize - 1) / this.segmentSize);
+            checkSegmentCount(segments);
+
+            this.runSegments(segments, parallelism, (cipher, inputBuffer, outputBuffer, segment) -> {
+                final long offset = segment * this.segmentSize;
+                final int length = (int) Math.min(this.segmentSize, size - offset);
+
+                readFully(input, inputBuffer.clear().limit(length), offset);
+                this.initCipher(cipher, Cipher.ENCRYPT_MODE, header, segment, segment == segments - 1);
+                cipher.doFinal(inputBuffer.flip(), outputBuffer.clear());
+                writeFully(output, outputBuffer.flip(), HEADER_SIZE + segment * (this.segmentSize + (long) TAG_SIZE));
+            });
+        }
+    }
+
+    /**
+     * Decrypts a file, segments are verified and decrypted on {@code parallelism} threads.
+     * If any segment fails verification the output file is deleted.
+     *
+     * @param inputFile   file to decrypt
+     * @param outputFile  file to write, it is replaced
+     * @param parallelism number of threads
+     * @throws IOException If reading or writing fails, or the file was tampered with or truncated.
+     */
+    public void decryptFile(final File inputFile, final File outputFile, final int parallelism) throws IOException {
+        try (final FileChannel input = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+             final FileChannel output = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+            if (input.size() < HEADER_SIZE) throw new IOException("Encrypted file is truncated, the header is incomplete");
+            readFully(input, headerBuffer, 0);
+
+            final byte[] header = headerBuffer.array();
+            final int fileSegmentSize = this.parseSegmentSize(header);
+            final long encryptedSegmentSize = fileSegmentSize + (long) TAG_SIZE;
+            final long body = input.size() - HEADER_SIZE;
+            final long segments = (body + encryptedSegmentSize - 1) / encryptedSegmentSize;
+            final long lastLength = body - (segments - 1) * encryptedSegmentSize;
+
+            if (segments == 0 || lastLength < TAG_SIZE) throw new IOException("Encrypted file is truncated");
+            checkSegmentCount(segments);
+
+            this.runSegments(segments, parallelism, fileSegmentSize, (cipher, inputBuffer, outputBuffer, segment) -> {
+                final long offset = HEADER_SIZE + segment * encryptedSegmentSize;
+                final int length = (int) Math.min(encryptedSegmentSize, input.size() - offset);
+
+                readFully(input, inputBuffer.clear().limit(length), offset);
+                this.initCipher(cipher, Cipher.DECRYPT_MODE, header, segment, segment == segments - 1);
+                try {
+                    cipher.doFinal(inputBuffer.flip(), outputBuffer.clear());
+                } catch (final AEADBadTagException exception) {
+                    throw new IOException("Segment " + segment + " failed authentication, the file was tampered with, truncated or the key is wrong", exception);
+                }
+                writeFully(output, outputBuffer.flip(), segment * fileSegmentSize);
+            });
+        } catch (final IOException exception) {
+            Files.deleteIfExists(outputFile.toPath());
+            throw exception;
+        }
+    }
+
+    public Algorithm getAlgorithm() {
+        return this.algorithm;
+    }
+
+    public int getSegmentSize() {
+        return this.segmentSize;
+    }
+
+    private byte[] newHeader() {
+        final byte[] header = new byte[HEADER_SIZE];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[4] = VERSION;
+        header[5] = this.algorithm.id;
+        ByteBuffer.wrap(header, 6, 4).putInt(this.segmentSize);
+
+        final byte[] noncePrefix = new byte[NONCE_PREFIX_SIZE];
+        RANDOM.nextBytes(noncePrefix);
+        System.arraycopy(noncePrefix, 0, header, 10, NONCE_PREFIX_SIZE);
+
+        return header;
+    }
+
+    int parseSegmentSize(final byte[] header) throws IOException {
+        if (header.length < HEADER_SIZE || !Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a segmented encrypted stream or the header is truncated");
+        }
+        if (header[4] != VERSION) throw new IOException("Unsupported segmented encryption version " + header[4]);
+        if (header[5] != this.algorithm.id) {
+            throw new IOException("Stream was encrypted with " + Algorithm.byId(header[5]) + " instead of " + this.algorithm);
+        }
+
+        final int size = ByteBuffer.wrap(header, 6, 4).getInt();
+        //Header is authenticated only together with the first segment, the size must be checked before it sizes any buffer
+        if (size <= 0 || size > MAX_SEGMENT_SIZE) throw new IOException("Invalid segment size " + size + ", the header is corrupted");
+
+        return size;
+    }
+
+    void initCipher(final Cipher cipher, final int mode, final byte[] header, final long segment, final boolean last)
+            throws GeneralSecurityException {
+        final byte[] nonce = new byte[12];
+        System.arraycopy(header, 10, nonce, 0, NONCE_PREFIX_SIZE);
+        nonce[7] = (byte) (segment >>> 24);
+        nonce[8] = (byte) (segment >>> 16);
+        nonce[9] = (byte) (segment >>> 8);
+        nonce[10] = (byte) segment;
+        nonce[11] = (byte) (last ? 1 : 0);
+
+        cipher.init(mode, this.key, this.algorithm.parameters(nonce));
+        cipher.updateAAD(header);
+    }
+
+    private void runSegments(final long segments, final int parallelism, final SegmentTask task) throws IOException {
+        this.runSegments(segments, parallelism, this.segmentSize, task);
+    }
+
+    /**
+     * Runs the task for every segment, each thread takes every {@code threads}-th segment with its own cipher and buffers
+     */
+    private void runSegments(final long segments, final int parallelism, final int plainSegmentSize, final SegmentTask task) throws IOException {
+        final int threads = (int) Math.max(1, Math.min(parallelism, segments));
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadUtil("Aead-Worker", true));
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>(threads);
+            for (int thread = 0; thread < threads; thread++) {
+                final int first = thread;
+                futures.add(executor.submit(() -> {
+                    final Cipher cipher = Cipher.getInstance(this.algorithm.transformation);
+                    final ByteBuffer inputBuffer = ByteBuffer.allocate(plainSegmentSize + TAG_SIZE);
+                    final ByteBuffer outputBuffer = ByteBuffer.allocate(plainSegmentSize + TAG_SIZE);
+
+                    for (long segment = first; segment < segments; segment += threads) {
+                        task.run(cipher, inputBuffer, outputBuffer, segment);
+                    }
+                    return null;
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final ExecutionException exception) {
+            final Throwable cause = exception.getCause();
+            if (cause instanceof final IOException ioException) throw ioException;
+            throw new IOException("Processing a segment failed", cause);
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Processing was interrupted", exception);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void checkSegmentCount(final long segments) throws IOException {
+        if (segments > 0xFFFFFFFFL) throw new IOException("Too many segments, use a larger segment size");
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("File ended unexpectedly");
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        long written = position;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, written);
+        }
+    }
+
+    public enum Algorithm {
+        AES_GCM((byte) 1, "AES/GCM/NoPadding"),
+        CHACHA20_POLY1305((byte) 2, "ChaCha20-Poly1305");
+
+        private final byte id;
+        private final String transformation;
+
+        Algorithm(final byte id, final String transformation) {
+            this.id = id;
+            this.transformation = transformation;
+        }
+
+        private static Algorithm byId(final byte id) {
+            for (final Algorithm algorithm : values()) {
+                if (algorithm.id == id) return algorithm;
+            }
+            return null;
+        }
+
+        private AlgorithmParameterSpec parameters(final byte[] nonce) {
+            return this == AES_GCM ? new GCMParameterSpec(TAG_SIZE * 8, nonce) : new IvParameterSpec(nonce);
+        }
+
+        public String getTransformation() {
+            return this.transformation;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SegmentTask {
+        void run(Cipher cipher, ByteBuffer inputBuffer, ByteBuffer outputBuffer, long segment) throws IOException, GeneralSecurityException;
+    }
+
+    private final class EncryptingOutputStream extends OutputStream {
+
+        private final OutputStream outputStream;
+        private final byte[] header;
+        private final Cipher cipher;
+        private final byte[] segment;
+        private final byte[] encrypted;
+        private int length;
+        private long index;
+        private boolean closed;
+
+        private EncryptingOutputStream(final OutputStream outputStream, final byte[] header) throws IOException {
+            this.outputStream = outputStream;
+            this.header = header;
+            this.segment = new byte[SegmentedAeadCipher.this.segmentSize];
+            this.encrypted = new byte[SegmentedAeadCipher.this.segmentSize + TAG_SIZE];
+
+            try {
+                this.cipher = Cipher.getInstance(SegmentedAeadCipher.this.algorithm.transformation);
+            } catch (final GeneralSecurityException exception) {
+                throw new IOException("Cannot create " + SegmentedAeadCipher.this.algorithm + " cipher", exception);
+            }
+        }
+
+        @Override
+        public void write(final int value) throws IOException {
+            this.write(new byte[]{(byte) value}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] bytes, int offset, int length) throws IOException {
+            if (this.closed) throw new IOException("Stream is closed");
+
+            while (length > 0) {
+                //A full segment is only written once more data arrives, the last segment must carry the final flag
+                if (this.length == this.segment.length) this.writeSegment(false);
+
+                final int copied = Math.min(length, this.segment.length - this.length);
+                System.arraycopy(bytes, offset, this.segment, this.length, copied);
+                this.length += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed) return;
+            this.closed = true;
+
+            try {
+                this.writeSegment(true);
+            } finally {
+                this.outputStream.close();
+            }
+        }
+
+        private void writeSegment(final boolean last) throws IOException {
+            if (this.index > 0xFFFFFFFFL) throw new IOException("Too many segments, use a larger segment size");
+
+            try {
+                SegmentedAeadCipher.this.initCipher(this.cipher, Cipher.ENCRYPT_MODE, this.header, this.index, last);
+                final int encryptedLength = this.cipher.doFinal(this.segment, 0, this.length, this.encrypted, 0);
+                this.outputStream.write(this.encrypted, 0, encryptedLength);
+            } catch (final GeneralSecurityException exception) {
+                throw new IOException("Encrypting segment " + this.index + " failed", exception);
+            }
+
+            this.index++;
+            this.length = 0;
+        }
+    }
+
+    private final class DecryptingInputStream extends InputStream {
+
+        private final InputStream inputStream;
+        private final byte[] header;
+        private final Cipher cipher;
+        private final byte[] encrypted;
+        private final byte[] segment;
+        private int encryptedLength;
+        private int position;
+        private int length;
+        private long index;
+        private boolean last;
+
+        private DecryptingInputStream(final InputStream inputStream, final byte[] header, final int segmentSize) throws IOException {
+            this.inputStream = inputStream;
+            this.header = header;
+            //One extra byte tells whether another segment follows
+            this.encrypted = new byte[segmentSize + TAG_SIZE + 1];
+            this.segment = new byte[segmentSize];
+
+            try {
+                this.cipher = Cipher.getInstance(SegmentedAeadCipher.this.algorithm.transformation);
+            } catch (final GeneralSecurityException exception) {
+                throw new IOException("Cannot create " + SegmentedAeadCipher.this.algorithm + " cipher", exception);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return this.read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (length == 0) return 0;
+
+            while (this.position == this.length) {
+                if (this.last) return -1;
+                this.readSegment();
+            }
+
+            final int copied = Math.min(length, this.length - this.position);
+            System.arraycopy(this.segment, this.position, bytes, offset, copied);
+            this.position += copied;
+
+            return copied;
+        }
+
+        @Override
+        public int available() {
+            return this.length - this.position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.inputStream.close();
+        }
+
+        private void readSegment() throws IOException {
+            final int wanted = this.encrypted.length - this.encryptedLength;
+            this.encryptedLength += this.inputStream.readNBytes(this.encrypted, this.encryptedLength, wanted);
+
+            final int segmentLength = this.encrypted.length - 1;
+            this.last = this.encryptedLength <= segmentLength;
+            final int currentLength = Math.min(this.encryptedLength, segmentLength);
+
+            if (currentLength < TAG_SIZE) throw new IOException("Encrypted stream is truncated at segment " + this.index);
+
+            try {
+                SegmentedAeadCipher.this.initCipher(this.cipher, Cipher.DECRYPT_MODE, this.header, this.index, this.last);
+                this.length = this.cipher.doFinal(this.encrypted, 0, currentLength, this.segment, 0);
+            } catch (final AEADBadTagException exception) {
+                throw new IOException("Segment " + this.index + " failed authentication, the stream was tampered with, truncated or the key is wrong", exception);
+            } catch (final GeneralSecurityException exception) {
+                throw new IOException("Decrypting segment " + this.index + " failed", exception);
+            }
+
+            this.position = 0;
+            this.index++;
+
+            //Keep the look-ahead byte as the start of the next segment
+            if (!this.last) {
+                this.encrypted[0] = this.encrypted[segmentLength];
+                this.encryptedLength = 1;
+            } else {
+                this.encryptedLength = 0;
+            }
+        }
+    }
+}
@@ -13,6 +13,8 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.encrypt.CipherCache;
 
 public final class AESSettings {
 
@@ -83,6 +85,59 @@ public final class AESSettings {
         return createCipher(mode, padding, key, ivSpec, null, encrypt);
     }
 
+    /**
+     * Same as {@link #createCipher(AESMode, AESPadding, SecretKey, IvParameterSpec, String, boolean)} but reuses a cipher
+     * cached by {@link CipherCache} for the calling thread, the cipher must not be passed to other threads
+     */
+    @Since("0.0.9.5")
+    public static Cipher getCachedCipher(final AESMode mode, final AESPadding padding, final SecretKey key,
+                                         final IvParameterSpec ivSpec, final String provider, final boolean encrypt)
+            throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException,
+            InvalidAlgorithmParameterException, NoSuchProviderException {
+
+        if (provider != null && provider.trim().isEmpty()) {
+            throw new IllegalArgumentException("Provider cannot be an empty string.");
+        }
+
+        final String transformation = "AES/" + mode.getMode() + "/" + padding.getPadding();
+        final int encryptMode = (encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE);
+
+        if (mode == AESMode.ECB) {
+            return CipherCache.getCipher(transformation, provider, key, encryptMode, null, null, false);
+        } else if (mode == AESMode.GCM) {
+            // GCM refuses to encrypt twice with the same key and IV
+            return CipherCache.getCipher(transformation, provider, key, encryptMode, new GCMParameterSpec(128, ivSpec.getIV()), ivSpec.getIV(), encrypt);
+        } else {
+            return CipherCache.getCipher(transformation, provider, key, encryptMode, ivSpec, ivSpec.getIV(), false);
+        }
+    }
+
+    /**
+     * Creates an AES-CTR cipher positioned at {@code offset} bytes of the stream, its output is identical to the part
+     * of the output of {@link #createCipher(AESMode, AESPadding, SecretKey, IvParameterSpec, String, boolean)} starting at that offset
+     *
+     * @param offset position in the stream, a multiple of 16
+     */
+    @Since("0.0.9.5")
+    public static Cipher createCipherAt(final SecretKey key, final IvParameterSpec ivSpec, final String provider,
+                                        final boolean encrypt, final long offset)
+            throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException,
+            InvalidAlgorithmParameterException, NoSuchProviderException {
+
+        if (offset % 16 != 0) throw new IllegalArgumentException("Offset must be a multiple of the AES block size");
+
+        // The counter block is a 128-bit big-endian number increased by one for every block
+        final byte[] counter = ivSpec.getIV().clone();
+        long carry = offset / 16;
+        for (int i = counter.length - 1; i >= 0 && carry != 0; i--) {
+            final long sum = (counter[i] & 0xFF) + (carry & 0xFF);
+            counter[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+
+        return createCipher(AESMode.CTR, AESPadding.NO_PADDING, key, new IvParameterSpec(counter), provider, encrypt);
+    }
+
     public static byte[] decodeIv(final String ivBase64) {
         return Base64.getDecoder().decode(ivBase64);
     }
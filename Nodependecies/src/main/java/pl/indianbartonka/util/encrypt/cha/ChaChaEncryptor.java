@@ -1,9 +1,10 @@
 package pl.indianbartonka.util.encrypt.cha;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -11,18 +12,20 @@ import java.security.NoSuchProviderException;
 import java.util.Base64;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import pl.indianbartonka.util.BufferUtil;
-import pl.indianbartonka.util.FileUtil;
 import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.encrypt.ChannelCipherEngine;
 import pl.indianbartonka.util.encrypt.EncryptedFile;
 import pl.indianbartonka.util.encrypt.Encryptor;
+import pl.indianbartonka.util.encrypt.ParallelFileCipher;
+import pl.indianbartonka.util.encrypt.SeekableDecryptingChannel;
+import pl.indianbartonka.util.encrypt.SegmentedAeadCipher;
 import pl.indianbartonka.util.exception.encryption.DecryptException;
 import pl.indianbartonka.util.exception.encryption.EncryptException;
 import pl.indianbartonka.util.logger.Logger;
@@ -35,6 +38,8 @@ public final class ChaChaEncryptor implements Encryptor {
     private IvParameterSpec ivParameterSpec;
     private String provider;
     private Logger logger;
+    private int parallelism;
+    private boolean segmented;
 
     public ChaChaEncryptor(final ChaChaSettings.ChaChaMode chaChaMode, final IvParameterSpec ivParameterSpec) {
         this(chaChaMode, ivParameterSpec, null);
@@ -45,6 +50,7 @@ public final class ChaChaEncryptor implements Encryptor {
         this.ivParameterSpec = ivParameterSpec;
         this.provider = provider;
         this.fileExtension = ".cha";
+        this.parallelism = 1;
     }
 
     @Override
@@ -52,10 +58,9 @@ public final class ChaChaEncryptor implements Encryptor {
         try {
             // Append .cha extension to the encrypted file
             final File encryptedFile = new File(inputFile.getParentFile(), inputFile.getName() + this.fileExtension);
-            final Cipher cipher = ChaChaSettings.createCipher(this.chaChaMode, key, this.ivParameterSpec, this.provider, true);
-            if (this.logger != null) this.logger.debug("Encrypting file: " + inputFile.getPath());
-            this.processFile(cipher, inputFile, encryptedFile);
-            if (this.logger != null) this.logger.debug("Encrypted file created: " + encryptedFile.getPath());
+            if (this.logger != null) this.logger.debug("Encrypting file: {}", inputFile);
+            this.processFile(key, inputFile, encryptedFile, true);
+            if (this.logger != null) this.logger.debug("Encrypted file created: {}", encryptedFile);
             return new EncryptedFile(System.currentTimeMillis(), inputFile.length(), encryptedFile, "ChaCha");
         } catch (final IOException | InvalidAlgorithmParameterException | NoSuchPaddingException |
                        NoSuchAlgorithmException | InvalidKeyException | NoSuchProviderException exception) {
@@ -68,10 +73,9 @@ public final class ChaChaEncryptor implements Encryptor {
         try {
             // Create decrypted file without .cha extension
             final File decryptedFile = new File(inputFile.getParentFile(), inputFile.getName().replace(this.fileExtension, ""));
-            final Cipher cipher = ChaChaSettings.createCipher(this.chaChaMode, key, this.ivParameterSpec, this.provider, false);
-            if (this.logger != null) this.logger.debug("Decrypting file: " + inputFile.getPath());
-            this.processFile(cipher, inputFile, decryptedFile);
-            if (this.logger != null) this.logger.debug("Decrypted file created: " + decryptedFile.getPath());
+            if (this.logger != null) this.logger.debug("Decrypting file: {}", inputFile);
+            this.processFile(key, inputFile, decryptedFile, false);
+            if (this.logger != null) this.logger.debug("Decrypted file created: {}", decryptedFile);
             return decryptedFile;
         } catch (final IOException | InvalidAlgorithmParameterException | NoSuchPaddingException |
                        NoSuchAlgorithmException | InvalidKeyException | NoSuchProviderException exception) {
@@ -79,48 +83,100 @@ public final class ChaChaEncryptor implements Encryptor {
         }
     }
 
-    private void processFile(final Cipher cipher, final File inputFile, final File outputFile) throws IOException {
-        try (final FileInputStream in = new FileInputStream(inputFile);
-             final CipherInputStream cipherIn = new CipherInputStream(in, cipher);
-             final FileOutputStream out = new FileOutputStream(outputFile)) {
+    @Override
+    public SeekableByteChannel openDecryptingChannel(final @NotNull File inputFile, final @NotNull SecretKey key) throws DecryptException {
+        try {
+            if (this.chaChaMode == ChaChaSettings.ChaChaMode.CHACHA20_POLY1305 && SegmentedAeadCipher.isSegmented(inputFile)) {
+                return SeekableDecryptingChannel.openSegmented(inputFile, new SegmentedAeadCipher(SegmentedAeadCipher.Algorithm.CHACHA20_POLY1305, key));
+            }
+            if (this.chaChaMode == ChaChaSettings.ChaChaMode.CHACHA20) {
+                return SeekableDecryptingChannel.openStreamCipher(inputFile, offset -> ChaChaSettings.createCipherAt(key, this.ivParameterSpec, this.provider, false, offset), 64);
+            }
+        } catch (final IOException exception) {
+            throw new DecryptException("An error occurred while opening the file " + inputFile.getName(), exception);
+        }
 
-            final byte[] buffer = new byte[BufferUtil.calculateOptimalBufferSize(FileUtil.getFileSize(inputFile))];
-            int bytesRead;
+        throw new UnsupportedOperationException("Random access needs ChaCha20 or segmented ChaCha20-Poly1305, not " + inputFile.getName() + " in the current mode");
+    }
 
-            while ((bytesRead = cipherIn.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
+    private void processFile(final SecretKey key, final File inputFile, final File outputFile, final boolean encrypt)
+            throws IOException, InvalidAlgorithmParameterException, NoSuchPaddingException, NoSuchAlgorithmException,
+            InvalidKeyException, NoSuchProviderException {
+        if (this.isSegmented(inputFile, encrypt)) {
+            final SegmentedAeadCipher segmentedCipher = new SegmentedAeadCipher(SegmentedAeadCipher.Algorithm.CHACHA20_POLY1305, key);
+            if (encrypt) {
+                segmentedCipher.encryptFile(inputFile, outputFile, this.parallelism);
+            } else {
+                segmentedCipher.decryptFile(inputFile, outputFile, this.parallelism);
             }
+            return;
+        }
+
+        if (this.isParallel(inputFile)) {
+            ParallelFileCipher.process(inputFile, outputFile,
+                    offset -> ChaChaSettings.createCipherAt(key, this.ivParameterSpec, this.provider, encrypt, offset), this.parallelism);
+            return;
         }
+
+        final Cipher cipher = ChaChaSettings.createCipher(this.chaChaMode, key, this.ivParameterSpec, this.provider, encrypt);
+
+        ChannelCipherEngine.process(inputFile, outputFile, cipher);
+    }
+
+    /**
+     * Only counter based modes can start in the middle of a file, splitting small files is not worth the threads
+     */
+    private boolean isParallel(final File inputFile) {
+        return this.parallelism > 1 && this.chaChaMode == ChaChaSettings.ChaChaMode.CHACHA20
+                && inputFile.length() > ParallelFileCipher.DEFAULT_SEGMENT_SIZE;
+    }
+
+    /**
+     * New files use the segmented format only when enabled, files already in that format are always recognized by their header
+     */
+    private boolean isSegmented(final File inputFile, final boolean encrypt) {
+        if (this.chaChaMode != ChaChaSettings.ChaChaMode.CHACHA20_POLY1305) return false;
+        return encrypt ? this.segmented : SegmentedAeadCipher.isSegmented(inputFile);
     }
 
     @Override
     public String encryptText(final @NotNull String text, final @NotNull SecretKey key) throws EncryptException {
-        try {
-            final Cipher cipher = ChaChaSettings.createCipher(this.chaChaMode, key, this.ivParameterSpec, this.provider, true);
-            final byte[] encryptedBytes = cipher.doFinal(text.getBytes());
-            return Base64.getEncoder().encodeToString(encryptedBytes);
+        return Base64.getEncoder().encodeToString(this.encrypt(text.getBytes(StandardCharsets.UTF_8), key));
+    }
+
+    @Override
+    public String decryptText(final @NotNull String encryptedText, final @NotNull SecretKey key) throws DecryptException {
+        return new String(this.decrypt(Base64.getDecoder().decode(encryptedText), key), StandardCharsets.UTF_8);
+    }
 
+    @Override
+    public int encrypt(final @NotNull ByteBuffer input, final @NotNull ByteBuffer output, final @NotNull SecretKey key) throws EncryptException {
+        try {
+            return ChaChaSettings.getCachedCipher(this.chaChaMode, key, this.ivParameterSpec, this.provider, true).doFinal(input, output);
         } catch (final InvalidAlgorithmParameterException | NoSuchPaddingException | NoSuchAlgorithmException |
                        InvalidKeyException | NoSuchProviderException | IllegalBlockSizeException |
-                       BadPaddingException exception) {
-            throw new EncryptException("An error occurred while encrypting the text " + text, exception);
+                       BadPaddingException | ShortBufferException exception) {
+            throw new EncryptException("An error occurred while encrypting the data", exception);
         }
     }
 
     @Override
-    public String decryptText(final @NotNull String encryptedText, final @NotNull SecretKey key) throws DecryptException {
+    public int decrypt(final @NotNull ByteBuffer input, final @NotNull ByteBuffer output, final @NotNull SecretKey key) throws DecryptException {
         try {
-            final Cipher cipher = ChaChaSettings.createCipher(this.chaChaMode, key, this.ivParameterSpec, this.provider, false);
-            final byte[] decodedBytes = Base64.getDecoder().decode(encryptedText);
-            final byte[] decryptedBytes = cipher.doFinal(decodedBytes);
-            return new String(decryptedBytes);
+            return ChaChaSettings.getCachedCipher(this.chaChaMode, key, this.ivParameterSpec, this.provider, false).doFinal(input, output);
         } catch (final InvalidAlgorithmParameterException | NoSuchPaddingException | NoSuchAlgorithmException |
                        InvalidKeyException | NoSuchProviderException | IllegalBlockSizeException |
-                       BadPaddingException exception) {
-            throw new DecryptException("An error occurred while decrypting the text " + encryptedText, exception);
+                       BadPaddingException | ShortBufferException exception) {
+            throw new DecryptException("An error occurred while decrypting the data", exception);
         }
     }
 
+    @Override
+    public int getOutputSize(final int inputLength, final boolean encrypt) {
+        if (this.chaChaMode == ChaChaSettings.ChaChaMode.CHACHA20_POLY1305) return encrypt ? inputLength + 16 : Math.max(0, inputLength - 16);
+        return inputLength;
+    }
+
     @Override
     public void setDebugLogger(final @NotNull Logger logger) {
         if (this.logger == null) this.logger = logger;
@@ -164,4 +220,35 @@ public final class ChaChaEncryptor implements Encryptor {
     public void setChaChaMode(final ChaChaSettings.ChaChaMode chaChaMode) {
         this.chaChaMode = chaChaMode;
     }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets the number of threads used for files, values above 1 enable parallel processing of large files in ChaCha20 mode.
+     * The output is identical to the single-threaded one.
+     *
+     * @param parallelism number of threads
+     */
+    @Since("0.0.9.5")
+    public void setParallelism(final int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public boolean isSegmented() {
+        return this.segmented;
+    }
+
+    /**
+     * Enables the {@link SegmentedAeadCipher} file format in ChaCha20-Poly1305 mode. Files are then authenticated in segments,
+     * so decryption needs constant memory, stops at the first tampered segment and uses {@link #getParallelism()} threads.
+     * Each file gets a random nonce, the IV of this encryptor is not used for such files.
+     *
+     * @param segmented {@code true} to encrypt files in the segmented format
+     */
+    @Since("0.0.9.5")
+    public void setSegmented(final boolean segmented) {
+        this.segmented = segmented;
+    }
 }
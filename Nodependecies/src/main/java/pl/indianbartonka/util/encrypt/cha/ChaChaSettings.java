@@ -5,6 +5,7 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
 import java.util.Base64;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -13,6 +14,8 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.ChaCha20ParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.encrypt.CipherCache;
 
 public final class ChaChaSettings {
 
@@ -66,6 +69,55 @@ public final class ChaChaSettings {
         return cipher;
     }
 
+    /**
+     * Same as {@link #createCipher(ChaChaMode, SecretKey, IvParameterSpec, String, boolean)} but reuses a cipher
+     * cached by {@link CipherCache} for the calling thread, the cipher must not be passed to other threads
+     */
+    @Since("0.0.9.5")
+    public static Cipher getCachedCipher(final ChaChaMode mode,
+                                         final SecretKey key,
+                                         final IvParameterSpec ivSpec,
+                                         final String provider,
+                                         final boolean encrypt)
+            throws NoSuchPaddingException, NoSuchAlgorithmException,
+            InvalidKeyException, InvalidAlgorithmParameterException, NoSuchProviderException {
+
+        final int cipherMode = encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE;
+        final AlgorithmParameterSpec parameters = (mode == ChaChaMode.CHACHA20) ? new ChaCha20ParameterSpec(ivSpec.getIV(), 1) : ivSpec;
+
+        // ChaCha20 refuses to be initialized twice with the same key and nonce, in both directions
+        return CipherCache.getCipher(mode.getTransformation(), provider, key, cipherMode, parameters, ivSpec.getIV(), true);
+    }
+
+    /**
+     * Creates a ChaCha20 cipher positioned at {@code offset} bytes of the stream, its output is identical to the part
+     * of the output of {@link #createCipher(ChaChaMode, SecretKey, IvParameterSpec, String, boolean)} starting at that offset
+     *
+     * @param offset position in the stream, a multiple of 64
+     */
+    @Since("0.0.9.5")
+    public static Cipher createCipherAt(final SecretKey key,
+                                        final IvParameterSpec ivSpec,
+                                        final String provider,
+                                        final boolean encrypt,
+                                        final long offset)
+            throws NoSuchPaddingException, NoSuchAlgorithmException,
+            InvalidKeyException, InvalidAlgorithmParameterException, NoSuchProviderException {
+
+        if (offset % 64 != 0) throw new IllegalArgumentException("Offset must be a multiple of the ChaCha20 block size");
+
+        // The block counter starts at 1 and is an unsigned 32-bit number
+        final long counter = 1 + offset / 64;
+        if (counter > 0xFFFFFFFFL) throw new IllegalArgumentException("Offset exceeds the ChaCha20 counter range");
+
+        final Cipher cipher = (provider == null) ?
+                Cipher.getInstance(ChaChaMode.CHACHA20.getTransformation()) :
+                Cipher.getInstance(ChaChaMode.CHACHA20.getTransformation(), provider);
+
+        cipher.init(encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, key, new ChaCha20ParameterSpec(ivSpec.getIV(), (int) counter));
+        return cipher;
+    }
+
     public static byte[] decodeIv(final String ivBase64) {
         return Base64.getDecoder().decode(ivBase64);
     }
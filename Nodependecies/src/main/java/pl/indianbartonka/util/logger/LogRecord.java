@@ -0,0 +1,31 @@
+package pl.indianbartonka.util.logger;
+
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Pojedynczy log, tworzony przy każdym wywołaniu loggera i niezależny od jego stanu
+ *
+ * @param logState     poziom logu
+ * @param epochNanos   czas utworzenia logu w nanosekundach od epoki
+ * @param threadName   nazwa wątku który wywołał log
+ * @param threadId     id wątku który wywołał log
+ * @param loggerPrefix prefix loggera, {@code null} dla głównego loggera
+ * @param message      wiadomość, {@code null} gdy log zawiera tylko wyjątek
+ * @param throwable    wyjątek do wypisania po wiadomości
+ * @param prefixed     czy przed wiadomością ma zostać wypisany prefix z czasem, wątkiem i poziomem
+ * @param newLine      czy konsola ma przejść do nowej linii, {@code false} oznacza nadpisanie obecnej linii
+ * @param console      czy log ma trafić do konsoli, {@code false} oznacza zapis tylko do pliku
+ */
+@Since("0.0.9.5")
+public record LogRecord(LogState logState, long epochNanos, String threadName, long threadId,
+                        @Nullable String loggerPrefix, @Nullable String message, @Nullable Throwable throwable,
+                        boolean prefixed, boolean newLine, boolean console) {
+
+    /**
+     * @return czas utworzenia logu w milisekundach od epoki
+     */
+    public long timestamp() {
+        return Math.floorDiv(this.epochNanos, 1_000_000L);
+    }
+}
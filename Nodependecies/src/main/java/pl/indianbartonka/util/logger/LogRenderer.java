@@ -0,0 +1,226 @@
+package pl.indianbartonka.util.logger;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.DateUtil;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.annotation.UtilityClass;
+import pl.indianbartonka.util.color.AnsiColor;
+
+/**
+ * Składa {@link LogRecord} w linie tekstu w buforze wielokrotnego użytku, jednym dla każdego wątku.
+ * <p>
+ * Zwracany {@link StringBuilder} jest nadpisywany przy następnym renderowaniu na tym samym wątku,
+ * trzeba go wykorzystać zanim wywoła się kolejną metodę tej klasy.
+ * </p>
+ */
+@Since("0.0.9.5")
+@UtilityClass
+public final class LogRenderer {
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<RenderBuffer> BUFFERS = ThreadLocal.withInitial(RenderBuffer::new);
+
+    private LogRenderer() {
+
+    }
+
+    /**
+     * Składa linie logu razem z kodami kolorów minecraft
+     *
+     * @param logRecord log do złożenia
+     * @return bufor wątku zawierający linie logu
+     */
+    public static StringBuilder render(final LogRecord logRecord) {
+        final RenderBuffer renderBuffer = BUFFERS.get();
+        final StringBuilder builder = renderBuffer.reset();
+
+        if (logRecord.prefixed()) {
+            appendPrefix(renderBuffer, logRecord, builder);
+        }
+
+        final String message = logRecord.message();
+        if (message != null) builder.append(message);
+
+        return builder;
+    }
+
+    /**
+     * Składa linie logu dla konsoli, kody kolorów minecraft są już zamienione na ANSI
+     *
+     * @param logRecord log do złożenia
+     * @return bufor wątku zawierający linie logu
+     */
+    public static StringBuilder renderConsole(final LogRecord logRecord) {
+        final RenderBuffer renderBuffer = BUFFERS.get();
+        final StringBuilder builder = renderBuffer.reset();
+        boolean colored = false;
+
+        if (logRecord.prefixed()) {
+            final StringBuilder scratch = renderBuffer.scratch();
+            appendPrefix(renderBuffer, logRecord, scratch);
+            colored = AnsiColor.convertMinecraftColors(scratch, builder);
+        }
+
+        final String message = logRecord.message();
+        if (message != null && AnsiColor.convertMinecraftColors(message, builder)) colored = true;
+        if (colored) builder.append(AnsiColor.RESET);
+
+        return builder;
+    }
+
+    /**
+     * Składa linie logu dla pliku, bez żadnych kolorów
+     *
+     * @param logRecord log do złożenia
+     * @return bufor wątku zawierający linie logu
+     */
+    public static StringBuilder renderFile(final LogRecord logRecord) {
+        final RenderBuffer renderBuffer = BUFFERS.get();
+        final StringBuilder builder = renderBuffer.reset();
+
+        if (logRecord.prefixed()) {
+            final StringBuilder scratch = renderBuffer.scratch();
+            appendPrefix(renderBuffer, logRecord, scratch);
+            AnsiColor.removeColors(scratch, builder);
+        }
+
+        final String message = logRecord.message();
+        if (message != null) AnsiColor.removeColors(message, builder);
+
+        return builder;
+    }
+
+    /**
+     * Wstawia argumenty w miejsca {@code {}} w kolejności ich podania, nadmiarowe {@code {}} zostają bez zmian
+     *
+     * @param template  wiadomość z miejscami {@code {}}
+     * @param arguments argumenty do wstawienia
+     * @return sformatowana wiadomość
+     */
+    public static String format(final String template, final Object... arguments) {
+        if (arguments == null || arguments.length == 0) return template;
+
+        final StringBuilder builder = BUFFERS.get().scratch();
+        int argument = 0;
+        int from = 0;
+        int index;
+
+        while (argument < arguments.length && (index = template.indexOf("{}", from)) != -1) {
+            builder.append(template, from, index).append(arguments[argument++]);
+            from = index + 2;
+        }
+
+        return builder.append(template, from, template.length()).toString();
+    }
+
+    /**
+     * Zwraca ostatni argument jeśli jest wyjątkiem, jego stack trace jest wypisywany po wiadomości.
+     * Gdy w wiadomości zostało dla niego miejsce {@code {}} to {@link #format(String, Object...)} wstawia tam jeszcze jego opis
+     *
+     * @param template  wiadomość z miejscami {@code {}}
+     * @param arguments argumenty wiadomości
+     * @return wyjątek albo {@code null}
+     */
+    @Nullable
+    public static Throwable extractThrowable(final String template, final Object... arguments) {
+        if (arguments == null || arguments.length == 0) return null;
+        return arguments[arguments.length - 1] instanceof final Throwable throwable ? throwable : null;
+    }
+
+    /**
+     * Dopisuje prefix w postaci {@code &a[HH:mm:ss:SSS] &e[&7wątek&r&e] (&fprefix&e) POZIOM &r}
+     *
+     * @param logRecord log z którego brane są dane
+     * @param builder   bufor do którego dopisany zostanie prefix
+     */
+    public static void appendPrefix(final LogRecord logRecord, final StringBuilder builder) {
+        appendPrefix(BUFFERS.get(), logRecord, builder);
+    }
+
+    /**
+     * Dopisuje czas w formacie {@code HH:mm:ss:SSS} dla strefy z {@link DateUtil#getDefaultZone()}
+     *
+     * @param timestamp czas w milisekundach od epoki
+     * @param builder   bufor do którego dopisany zostanie czas
+     */
+    public static void appendTime(final long timestamp, final StringBuilder builder) {
+        BUFFERS.get().appendTime(timestamp, builder);
+    }
+
+    private static void appendPrefix(final RenderBuffer renderBuffer, final LogRecord logRecord, final StringBuilder builder) {
+        final LogState logState = logRecord.logState();
+
+        builder.append("&a[");
+        renderBuffer.appendTime(logRecord.timestamp(), builder);
+        builder.append("] &e[&7").append(logRecord.threadName());
+
+        final String loggerPrefix = logRecord.loggerPrefix();
+        if (loggerPrefix == null) {
+            builder.append("&r&e]&r ");
+        } else {
+            builder.append("&r&e] (&f").append(loggerPrefix).append("&e) ");
+        }
+
+        builder.append(logState.getColorCode()).append(logState.name()).append(" &r");
+    }
+
+    private static final class RenderBuffer {
+
+        private final char[] secondChars = new char[8];
+        private StringBuilder builder = new StringBuilder(256);
+        private StringBuilder scratch = new StringBuilder(128);
+        private long cachedSecond = Long.MIN_VALUE;
+        private ZoneId cachedZone;
+
+        private StringBuilder reset() {
+            if (this.builder.capacity() > MAX_RETAINED_CAPACITY) {
+                this.builder = new StringBuilder(256);
+            } else {
+                this.builder.setLength(0);
+            }
+            return this.builder;
+        }
+
+        private StringBuilder scratch() {
+            if (this.scratch.capacity() > MAX_RETAINED_CAPACITY) {
+                this.scratch = new StringBuilder(128);
+            } else {
+                this.scratch.setLength(0);
+            }
+            return this.scratch;
+        }
+
+        private void appendTime(final long timestamp, final StringBuilder target) {
+            final long second = Math.floorDiv(timestamp, 1000);
+            final ZoneId zone = DateUtil.getDefaultZone();
+
+            if (second != this.cachedSecond || zone != this.cachedZone) {
+                final int offset = zone.getRules().getOffset(Instant.ofEpochSecond(second)).getTotalSeconds();
+                final int secondOfDay = (int) Math.floorMod(second + offset, 86_400L);
+
+                putTwoDigits(this.secondChars, 0, secondOfDay / 3600);
+                this.secondChars[2] = ':';
+                putTwoDigits(this.secondChars, 3, (secondOfDay / 60) % 60);
+                this.secondChars[5] = ':';
+                putTwoDigits(this.secondChars, 6, secondOfDay % 60);
+
+                this.cachedSecond = second;
+                this.cachedZone = zone;
+            }
+
+            final int millis = (int) Math.floorMod(timestamp, 1000L);
+
+            target.append(this.secondChars).append(':')
+                    .append((char) ('0' + millis / 100))
+                    .append((char) ('0' + (millis / 10) % 10))
+                    .append((char) ('0' + millis % 10));
+        }
+
+        private static void putTwoDigits(final char[] chars, final int index, final int value) {
+            chars[index] = (char) ('0' + value / 10);
+            chars[index + 1] = (char) ('0' + value % 10);
+        }
+    }
+}
@@ -1,93 +1,120 @@
 package pl.indianbartonka.util.logger;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
-import pl.indianbartonka.util.DateUtil;
+import org.jetbrains.annotations.Nullable;
 import pl.indianbartonka.util.FileUtil;
 import pl.indianbartonka.util.IndianUtils;
 import pl.indianbartonka.util.annotation.Since;
-import pl.indianbartonka.util.color.AnsiColor;
 import pl.indianbartonka.util.exception.LoggerException;
-import pl.indianbartonka.util.logger.config.FileLogFormatter;
+import pl.indianbartonka.util.logger.async.AsyncLogWriter;
+import pl.indianbartonka.util.logger.config.LogFormat;
 import pl.indianbartonka.util.logger.config.LoggerConfiguration;
-
-public abstract class Logger {
+import pl.indianbartonka.util.logger.file.LogFileSink;
+import pl.indianbartonka.util.logger.file.LogSinkHandler;
+import pl.indianbartonka.util.logger.format.BinaryLogEncoder;
+import pl.indianbartonka.util.logger.format.JsonLogEncoder;
+import pl.indianbartonka.util.logger.format.LogEncoder;
+import pl.indianbartonka.util.logger.limit.LogLimiter;
+import pl.indianbartonka.util.logger.metrics.LoggerMetrics;
+import pl.indianbartonka.util.logger.metrics.MetricsSnapshot;
+import pl.indianbartonka.util.logger.metrics.PrometheusExporter;
+
+public abstract class Logger implements AutoCloseable {
 
     protected final LoggerConfiguration configuration;
+    @Since("0.0.9.5")
+    protected final String loggerPrefix;
     private final List<Logger> children;
+    private final LoggerMetrics metrics;
     protected File logFile;
-    protected String prefix;
-    protected LogState logState;
     protected PrintStream printStream;
+    @Since("0.0.9.5")
+    protected LogFileSink fileSink;
+    @Since("0.0.9.5")
+    protected LogEncoder logEncoder;
+    protected AsyncLogWriter asyncWriter;
+    @Since("0.0.9.5")
+    protected LogLimiter limiter;
     private Logger parent;
     private boolean debug;
+    private boolean ownsFileSink;
+    private boolean ownsAsyncWriter;
 
     protected Logger(final Logger parent) {
+        this(parent, null);
+    }
+
+    @Since("0.0.9.5")
+    protected Logger(final Logger parent, @Nullable final String loggerPrefix) {
         this.parent = parent;
         this.configuration = parent.configuration;
+        this.loggerPrefix = loggerPrefix;
         this.children = new ArrayList<>();
-        this.logState = LogState.NONE;
-        this.updatePrefix();
+        this.metrics = new LoggerMetrics();
 
         parent.children.add(this);
         this.debug = parent.configuration.isDebug();
 
         this.initializeLogFile();
+        this.initializeLimiter();
+        this.initializeAsyncWriter();
     }
 
     protected Logger(final LoggerConfiguration loggerConfiguration) {
+        this(loggerConfiguration, null);
+    }
+
+    @Since("0.0.9.5")
+    protected Logger(final LoggerConfiguration loggerConfiguration, @Nullable final String loggerPrefix) {
         this.configuration = loggerConfiguration;
+        this.loggerPrefix = loggerPrefix;
         this.children = new ArrayList<>();
-        this.logState = LogState.NONE;
-        this.updatePrefix();
+        this.metrics = new LoggerMetrics();
         this.debug = loggerConfiguration.isDebug();
         this.initializeLogFile();
+        this.initializeLimiter();
+        this.initializeAsyncWriter();
     }
 
     public Logger prefixed(final String loggerPrefix) {
-        return new Logger(this) {
-            @Override
-            protected void updatePrefix() {
-                final String logStateColor = this.logState.getColorCode();
-                this.prefix = "&a[" + DateUtil.getTimeHMSMS() + "] &e[&7" +
-                        Thread.currentThread().getName() + "&r&e] (&f" + loggerPrefix + "&e) "
-                        + logStateColor + this.logState.name().toUpperCase() + " &r";
-            }
+        return new Logger(this, loggerPrefix) {
         };
     }
 
     public Logger tempLogger(final String loggerPrefix) {
         final Logger parent = this;
-        return new Logger(Logger.this.configuration) {
+        return new Logger(Logger.this.configuration, loggerPrefix) {
 
             @Override
             protected void initializeLogFile() {
                 this.logFile = parent.getLogFile();
                 this.printStream = parent.printStream;
+                this.fileSink = parent.fileSink;
+                this.logEncoder = parent.logEncoder;
             }
 
             @Override
-            protected void updatePrefix() {
-                final String logStateColor = this.logState.getColorCode();
-                this.prefix = "&a[" + DateUtil.getTimeHMSMS() + "] &e[&7" +
-                        Thread.currentThread().getName() + "&r&e] (&f" + loggerPrefix + "&e) "
-                        + logStateColor + this.logState.name().toUpperCase() + " &r";
+            protected void initializeLimiter() {
+                this.limiter = parent.limiter;
             }
-        };
-    }
 
-    protected void updatePrefix() {
-        final String logStateColor = this.logState.getColorCode();
-        this.prefix = "&a[" + DateUtil.getTimeHMSMS() + "] &e[&7" +
-                Thread.currentThread().getName() + "&r&e]&r "
-                + logStateColor + this.logState.name().toUpperCase() + " &r";
+            @Override
+            protected void initializeAsyncWriter() {
+                this.asyncWriter = parent.asyncWriter;
+            }
+        };
     }
 
     protected void initializeLogFile() {
@@ -97,6 +124,8 @@ public abstract class Logger {
         if (parent != null) {
             this.logFile = parent.getLogFile();
             this.printStream = parent.printStream;
+            this.fileSink = parent.fileSink;
+            this.logEncoder = parent.logEncoder;
             return;
         }
 
@@ -113,37 +142,75 @@ public abstract class Logger {
                 FileUtil.writeText(this.logFile, List.of(""));
             }
 
-            final FileOutputStream fileOutputStream = new FileOutputStream(this.logFile, true);
-            this.printStream = new PrintStream(fileOutputStream);
-            this.initLoggerFile(this.logFile);
+            this.fileSink = new LogFileSink(this.logFile, this.configuration);
+            this.ownsFileSink = true;
+            this.printStream = new PrintStream(this.fileSink.asOutputStream(), false, StandardCharsets.UTF_8);
+            this.logEncoder = this.createLogEncoder();
+            if (this.logEncoder == null) this.initLoggerFile();
         } catch (final Exception exception) {
             this.error("Nie można utworzyć&1 PrintStreamu&r aby zapisywać logi do pliku ", exception);
         }
     }
 
-    private void initLoggerFile(final File file) {
+    @Since("0.0.9.5")
+    protected void initializeLimiter() {
+        final Logger parent = this.getParent();
+        if (parent != null) {
+            this.limiter = parent.limiter;
+            return;
+        }
+
+        if (LogLimiter.isRequired(this.configuration)) {
+            this.limiter = new LogLimiter(this.configuration);
+        }
+    }
+
+    @Since("0.0.9.5")
+    protected void initializeAsyncWriter() {
+        final Logger parent = this.getParent();
+        if (parent != null) {
+            this.asyncWriter = parent.asyncWriter;
+            return;
+        }
+
+        if (this.configuration.isAsync()) {
+            this.asyncWriter = new AsyncLogWriter(this.configuration, this::writeRecord);
+            this.ownsAsyncWriter = true;
+        }
+    }
+
+    @Nullable
+    private LogEncoder createLogEncoder() {
+        final LogFormat logFormat = this.configuration.getLogFormat();
+        if (logFormat == null) return null;
+
+        return switch (logFormat) {
+            case JSON -> new JsonLogEncoder();
+            case BINARY -> new BinaryLogEncoder();
+            case TEXT -> null;
+        };
+    }
+
+    private void initLoggerFile() {
         if (!this.configuration.isLogJULtoFile()) return;
-        try {
-            final java.util.logging.Logger rootLogger = java.util.logging.Logger.getLogger("");
 
-            boolean hasFileHandler = false;
+        final java.util.logging.Logger rootLogger = java.util.logging.Logger.getLogger("");
 
-            for (final Handler handler : rootLogger.getHandlers()) {
-                if (handler instanceof FileHandler) {
-                    hasFileHandler = true;
-                    break;
-                }
+        boolean hasFileHandler = false;
+
+        for (final Handler handler : rootLogger.getHandlers()) {
+            if (handler instanceof FileHandler || handler instanceof LogSinkHandler) {
+                hasFileHandler = true;
+                break;
             }
+        }
 
-            if (!hasFileHandler) {
-                final FileHandler fileHandler = new FileHandler(file.getAbsolutePath(), true);
-                fileHandler.setFormatter(new FileLogFormatter());
-                rootLogger.addHandler(fileHandler);
+        //Logi JUL idą przez ten sam sink, osobny FileHandler po rotacji pisałby dalej do zarchiwizowanego pliku
+        if (!hasFileHandler) {
+            rootLogger.addHandler(new LogSinkHandler(this.fileSink));
 
-                this.deleteLockFiles();
-            }
-        } catch (final IOException exception) {
-            this.debug("&cNie udało przekazać się logowania do pliku:&b " + file.getName(), exception);
+            //Pliki blokad zostawione przez FileHandler z poprzednich wersji
+            this.deleteLockFiles();
         }
     }
 
@@ -165,19 +232,11 @@ public abstract class Logger {
     }
 
     public void print(final Object log) {
-        this.logState = LogState.NONE;
-        this.updatePrefix();
-        this.instantLogToFile(log);
-
-        System.out.print("\r" + AnsiColor.convertMinecraftColors(log));
+        this.log(LogState.NONE, log, null, false, false, true);
     }
 
     public void print(final Object log, final LogState logState) {
-        this.logState = logState;
-        this.updatePrefix();
-        this.instantLogToFile(log);
-
-        System.out.print("\r" + AnsiColor.convertMinecraftColors(this.prefix + log));
+        this.log(logState, log, null, true, false, true);
     }
 
     public void println() {
@@ -185,94 +244,155 @@ public abstract class Logger {
     }
 
     public void println(final Object log) {
-        this.logState = LogState.NONE;
-        this.updatePrefix();
-        this.instantLogToFile(log);
-
-        System.out.println(AnsiColor.convertMinecraftColors(log));
+        this.log(LogState.NONE, log, null, false, true, true);
     }
 
     public void println(final Object log, final Throwable throwable) {
-        this.println(log);
-        this.logThrowable(throwable);
+        this.log(LogState.NONE, log, throwable, false, true, true);
     }
 
     public void info(final Object log) {
-        this.logState = LogState.INFO;
-        this.updatePrefix();
-        System.out.println(AnsiColor.convertMinecraftColors(this.prefix + log));
-        this.logToFile(log);
+        this.log(LogState.INFO, log, null, true, true, true);
     }
 
     public void info(final Object log, final Throwable throwable) {
-        this.info(log);
-        this.logThrowable(throwable);
+        this.logWithThrowable(LogState.INFO, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void infoLazy(final Supplier<?> log) {
+        this.logLazy(LogState.INFO, log, null);
+    }
+
+    @Since("0.0.9.5")
+    public void infoLazy(final Supplier<?> log, final Throwable throwable) {
+        this.logLazy(LogState.INFO, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void info(final String log, final Object... arguments) {
+        this.logTemplate(LogState.INFO, log, arguments);
     }
 
     public void warning(final Object log) {
-        this.logState = LogState.WARNING;
-        this.updatePrefix();
-        System.out.println(AnsiColor.convertMinecraftColors(this.prefix + log));
-        this.logToFile(log);
+        this.log(LogState.WARNING, log, null, true, true, true);
     }
 
     public void warning(final Object log, final Throwable throwable) {
-        this.warning(log);
-        this.logThrowable(throwable);
+        this.logWithThrowable(LogState.WARNING, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void warningLazy(final Supplier<?> log) {
+        this.logLazy(LogState.WARNING, log, null);
+    }
+
+    @Since("0.0.9.5")
+    public void warningLazy(final Supplier<?> log, final Throwable throwable) {
+        this.logLazy(LogState.WARNING, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void warning(final String log, final Object... arguments) {
+        this.logTemplate(LogState.WARNING, log, arguments);
     }
 
     public void alert(final Object log) {
-        this.logState = LogState.ALERT;
-        this.updatePrefix();
-        System.out.println(AnsiColor.convertMinecraftColors(this.prefix + log));
-        this.logToFile(log);
+        this.log(LogState.ALERT, log, null, true, true, true);
     }
 
     public void alert(final Object log, final Throwable throwable) {
-        this.alert(log);
-        this.logThrowable(throwable);
+        this.logWithThrowable(LogState.ALERT, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void alertLazy(final Supplier<?> log) {
+        this.logLazy(LogState.ALERT, log, null);
+    }
+
+    @Since("0.0.9.5")
+    public void alertLazy(final Supplier<?> log, final Throwable throwable) {
+        this.logLazy(LogState.ALERT, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void alert(final String log, final Object... arguments) {
+        this.logTemplate(LogState.ALERT, log, arguments);
     }
 
     public void critical(final Object log) {
-        this.logState = LogState.CRITICAL;
-        this.updatePrefix();
-        System.out.println(AnsiColor.convertMinecraftColors(this.prefix + log));
-        this.logToFile(log);
+        this.log(LogState.CRITICAL, log, null, true, true, true);
     }
 
     public void critical(final Object log, final Throwable throwable) {
-        this.critical(log);
-        this.logThrowable(throwable);
+        this.logWithThrowable(LogState.CRITICAL, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void criticalLazy(final Supplier<?> log) {
+        this.logLazy(LogState.CRITICAL, log, null);
+    }
+
+    @Since("0.0.9.5")
+    public void criticalLazy(final Supplier<?> log, final Throwable throwable) {
+        this.logLazy(LogState.CRITICAL, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void critical(final String log, final Object... arguments) {
+        this.logTemplate(LogState.CRITICAL, log, arguments);
     }
 
     public void error(final Object log) {
-        this.logState = LogState.ERROR;
-        this.updatePrefix();
-        System.out.println(AnsiColor.convertMinecraftColors(this.prefix + log));
-        this.logToFile(log);
+        this.log(LogState.ERROR, log, null, true, true, true);
     }
 
     public void error(final Object log, final Throwable throwable) {
-        this.error(log);
-        this.logThrowable(throwable);
+        this.logWithThrowable(LogState.ERROR, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void errorLazy(final Supplier<?> log) {
+        this.logLazy(LogState.ERROR, log, null);
+    }
+
+    @Since("0.0.9.5")
+    public void errorLazy(final Supplier<?> log, final Throwable throwable) {
+        this.logLazy(LogState.ERROR, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void error(final String log, final Object... arguments) {
+        this.logTemplate(LogState.ERROR, log, arguments);
     }
 
     public void debug(final Object log) {
         if (this.debug) {
-            this.logState = LogState.DEBUG;
-            this.updatePrefix();
-            this.logToFile(log);
-            System.out.println(AnsiColor.convertMinecraftColors(this.prefix + log));
+            this.log(LogState.DEBUG, log, null, true, true, true);
         }
     }
 
     public void debug(final Object log, final Throwable throwable) {
         if (this.debug) {
-            this.debug(log);
-            this.logThrowable(throwable);
+            this.logWithThrowable(LogState.DEBUG, log, throwable);
         }
     }
 
+    @Since("0.0.9.5")
+    public void debugLazy(final Supplier<?> log) {
+        this.logLazy(LogState.DEBUG, log, null);
+    }
+
+    @Since("0.0.9.5")
+    public void debugLazy(final Supplier<?> log, final Throwable throwable) {
+        this.logLazy(LogState.DEBUG, log, throwable);
+    }
+
+    @Since("0.0.9.5")
+    public void debug(final String log, final Object... arguments) {
+        this.logTemplate(LogState.DEBUG, log, arguments);
+    }
+
     public void logByState(final Object log, final LogState logState) {
         this.logByState(log, null, logState);
     }
@@ -291,29 +411,280 @@ public abstract class Logger {
 
     public void instantLogToFile(final Object log) {
         if (this.printStream != null) {
-            this.printStream.println(AnsiColor.removeColors(log));
+            this.log(LogState.NONE, log, null, false, true, false);
         }
     }
 
-    private void logToFile(final Object log) {
-        if (this.printStream != null) {
-            this.printStream.println(AnsiColor.removeColors(this.prefix + log));
+    public void logThrowable(final Throwable throwable) {
+        if (throwable != null) {
+            this.log(LogState.NONE, null, throwable, false, true, true);
         }
     }
 
-    public void logThrowable(final Throwable throwable) {
+    /**
+     * Sprawdza czy logi o podanym poziomie zostaną zapisane,
+     * pozwala pominąć budowanie wiadomości która i tak nie zostałaby wypisana
+     *
+     * @param logState poziom logu
+     * @return {@code true} jeśli poziom jest włączony
+     */
+    @Since("0.0.9.5")
+    public boolean isEnabled(final LogState logState) {
+        return logState != LogState.DEBUG || this.debug;
+    }
+
+    /**
+     * Czeka aż logi z trybu asynchronicznego zostaną zapisane i zapisuje bufor pliku logów
+     */
+    @Since("0.0.9.5")
+    public void flush() {
+        if (this.asyncWriter != null) this.asyncWriter.flush();
+
+        if (this.limiter != null) {
+            synchronized (this.limiter) {
+                final LogRecord repeated = this.limiter.swapLast(null);
+                if (repeated != null) this.emitRecord(repeated);
+            }
+        }
+
+        if (this.printStream != null) this.printStream.flush();
+
+        if (this.fileSink != null) {
+            try {
+                this.fileSink.flush();
+            } catch (final IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+
+    /**
+     * Zapisuje pozostałe logi i zwalnia plik logów razem z wątkami i shutdown hookami które utworzył ten logger.
+     * Dzieci i loggery tymczasowe współdzielą plik z rodzicem, więc u nich zapisywany jest tylko bufor
+     */
+    @Since("0.0.9.5")
+    @Override
+    public void close() {
+        this.flush();
+
+        if (this.ownsAsyncWriter) this.asyncWriter.shutdown();
+
+        if (this.ownsFileSink) {
+            final java.util.logging.Logger rootLogger = java.util.logging.Logger.getLogger("");
+            for (final Handler handler : rootLogger.getHandlers()) {
+                if (handler instanceof final LogSinkHandler sinkHandler && sinkHandler.getSink() == this.fileSink) {
+                    rootLogger.removeHandler(handler);
+                }
+            }
+
+            try {
+                this.fileSink.close();
+            } catch (final IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+
+    private void logLazy(final LogState logState, final Supplier<?> log, @Nullable final Throwable throwable) {
+        if (this.isEnabled(logState)) {
+            this.log(logState, log.get(), throwable, true, true, true);
+        }
+    }
+
+    /**
+     * Wywołania typu {@code info("Błąd {}", exception)} trafiają do przeciążenia z {@link Throwable},
+     * więc szablon jest tu uzupełniany tak samo jak w {@link #info(String, Object...)}
+     */
+    private void logWithThrowable(final LogState logState, @Nullable final Object log, @Nullable final Throwable throwable) {
+        if (throwable != null && log instanceof final String template && template.contains("{}")) {
+            this.logTemplate(logState, template, throwable);
+        } else {
+            this.log(logState, log, throwable, true, true, true);
+        }
+    }
+
+    private void logTemplate(final LogState logState, final String log, final Object... arguments) {
+        if (!this.isEnabled(logState)) return;
+
+        //Limit liczony jest po szablonie więc przy zalewie logów nie trzeba ich nawet formatować
+        final long suppressed = this.acquire(log);
+        if (suppressed < 0) {
+            this.metrics.recordSuppressed();
+            return;
+        }
+
+        this.log(logState, LogRenderer.format(log, arguments), LogRenderer.extractThrowable(log, arguments), true, true, true, suppressed);
+    }
+
+    private void log(final LogState logState, @Nullable final Object log, @Nullable final Throwable throwable,
+                     final boolean prefixed, final boolean newLine, final boolean console) {
+        final String message = log == null ? null : String.valueOf(log);
+        final long suppressed = message == null ? 0 : this.acquire(message);
+
+        if (suppressed >= 0) {
+            this.log(logState, message, throwable, prefixed, newLine, console, suppressed);
+        } else {
+            this.metrics.recordSuppressed();
+        }
+    }
+
+    private long acquire(final String key) {
+        return this.limiter == null ? 0 : this.limiter.tryAcquire(key);
+    }
+
+    private void log(final LogState logState, @Nullable final String log, @Nullable final Throwable throwable,
+                     final boolean prefixed, final boolean newLine, final boolean console, final long suppressed) {
+        final long start = System.nanoTime();
+        final String message = suppressed > 0 ? log + " &7(pominięto&b " + suppressed + "&7 takich samych logów)" : log;
+        final Thread thread = Thread.currentThread();
+        final Instant now = Instant.now();
+        final LogRecord logRecord = new LogRecord(logState, now.getEpochSecond() * 1_000_000_000L + now.getNano(), thread.getName(), thread.getId(),
+                this.loggerPrefix, message, throwable, prefixed, newLine, console);
+
+        if (this.asyncWriter != null) {
+            this.asyncWriter.write(logRecord);
+        } else {
+            this.writeRecord(logRecord);
+        }
+
+        this.metrics.recordWrite(logState, System.nanoTime() - start);
+    }
+
+    private void writeRecord(final LogRecord logRecord) {
+        if (this.limiter == null) {
+            this.emitRecord(logRecord);
+            return;
+        }
+
+        synchronized (this.limiter) {
+            if (this.limiter.isRepeat(logRecord)) return;
+
+            final LogRecord repeated = this.limiter.swapLast(logRecord);
+            if (repeated != null) this.emitRecord(repeated);
+
+            final Throwable throwable = logRecord.throwable();
+            if (throwable != null && !this.limiter.shouldPrintStackTrace(throwable)) {
+                this.emitRecord(this.withoutStackTrace(logRecord, throwable));
+            } else {
+                this.emitRecord(logRecord);
+            }
+        }
+    }
+
+    private LogRecord withoutStackTrace(final LogRecord logRecord, final Throwable throwable) {
+        final String shortTrace = throwable + " &7(stack trace&b " + Long.toHexString(LogLimiter.fingerprint(throwable)) + "&7 wypisany wcześniej)";
+        final String message = logRecord.message() == null ? shortTrace : logRecord.message() + " " + shortTrace;
+
+        return new LogRecord(logRecord.logState(), logRecord.epochNanos(), logRecord.threadName(), logRecord.threadId(),
+                logRecord.loggerPrefix(), message, null, logRecord.prefixed(), logRecord.newLine(), logRecord.console());
+    }
+
+    private void emitRecord(final LogRecord logRecord) {
+        if (logRecord.message() != null) {
+            if (logRecord.console()) {
+                final StringBuilder line = LogRenderer.renderConsole(logRecord);
+                if (logRecord.newLine()) {
+                    System.out.println(line);
+                } else {
+                    System.out.print(line.insert(0, '\r'));
+                }
+            }
+
+            //Przy formacie JSON i binarnym cały log razem z wyjątkiem zapisuje encoder
+            if (this.logEncoder == null && this.fileSink != null) {
+                this.writeToFile(LogRenderer.renderFile(logRecord));
+            } else if (this.logEncoder == null && this.printStream != null) {
+                this.printStream.println(LogRenderer.renderFile(logRecord));
+            }
+        }
+
+        final Throwable throwable = logRecord.throwable();
         if (throwable != null) {
             throwable.printStackTrace();
-            if (this.printStream != null) {
+            if (this.printStream != null && this.logEncoder == null) {
                 throwable.printStackTrace(this.printStream);
             }
         }
+
+        if (this.fileSink != null) {
+            try {
+                if (this.logEncoder != null) this.logEncoder.encode(logRecord, this.fileSink);
+                this.fileSink.endRecord(logRecord.logState());
+            } catch (final IOException exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    private void writeToFile(final CharSequence line) {
+        try {
+            this.fileSink.writeLine(line);
+        } catch (final IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Liczniki tego loggera, bez jego dzieci
+     */
+    @Since("0.0.9.5")
+    public LoggerMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Liczniki tego loggera zsumowane z wszystkimi jego dziećmi
+     */
+    @Since("0.0.9.5")
+    public MetricsSnapshot snapshotMetrics() {
+        MetricsSnapshot snapshot = this.ownSnapshot(this.getMetricsName());
+        for (final Logger child : this.children) {
+            snapshot = snapshot.merge(child.snapshotMetrics());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Liczniki tego loggera i jego dzieci w formacie tekstowym Prometheusa,
+     * jako etykieta {@code logger} używany jest prefix loggera a dzieci bez prefixu liczone są razem z rodzicem
+     */
+    @Since("0.0.9.5")
+    public String exportMetrics() {
+        final Map<String, MetricsSnapshot> snapshots = new LinkedHashMap<>();
+        this.collectMetrics(snapshots);
+        return PrometheusExporter.export(snapshots.values());
+    }
+
+    private void collectMetrics(final Map<String, MetricsSnapshot> snapshots) {
+        final String name = this.getMetricsName();
+        snapshots.merge(name, this.ownSnapshot(name), MetricsSnapshot::merge);
+
+        for (final Logger child : this.children) {
+            child.collectMetrics(snapshots);
+        }
+    }
+
+    private MetricsSnapshot ownSnapshot(final String name) {
+        return MetricsSnapshot.of(name, this.metrics,
+                this.fileSink == null ? 0 : this.fileSink.getBytesWritten(),
+                this.asyncWriter == null ? 0 : this.asyncWriter.getDroppedEvents());
+    }
+
+    private String getMetricsName() {
+        if (this.loggerPrefix != null) return this.loggerPrefix;
+        return this.parent == null ? "root" : this.parent.getMetricsName();
     }
 
     public List<Logger> getChildren() {
         return this.children;
     }
 
+    @Since("0.0.9.5")
+    @Nullable
+    public String getLoggerPrefix() {
+        return this.loggerPrefix;
+    }
+
     public File getLogFile() {
         return this.logFile;
     }
@@ -329,4 +700,15 @@ public abstract class Logger {
     public void setDebug(final boolean debug) {
         this.debug = debug;
     }
+
+    @Since("0.0.9.5")
+    @Nullable
+    public LogFileSink getFileSink() {
+        return this.fileSink;
+    }
+
+    @Since("0.0.9.5")
+    public AsyncLogWriter getAsyncWriter() {
+        return this.asyncWriter;
+    }
 }
@@ -0,0 +1,246 @@
+package pl.indianbartonka.util.logger.async;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import pl.indianbartonka.util.ThreadUtil;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.LogRecord;
+import pl.indianbartonka.util.logger.LogState;
+import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+import pl.indianbartonka.util.logger.config.OverflowPolicy;
+
+/**
+ * Asynchroniczny zapis logów przez jeden wątek.
+ * <p>
+ * Logi trafiają do ograniczonej kolejki bez blokad (bufor pierścieniowy z numerami sekwencji),
+ * do której może pisać wiele wątków naraz, a opróżnia ją jeden wątek zapisujący.
+ * Wątek logujący robi tylko tyle żeby wstawić wpis, kolorowanie i zapis do konsoli oraz pliku dzieje się już na wątku zapisującym.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class AsyncLogWriter {
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final AtomicReferenceArray<LogRecord> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head;
+    private final AtomicLong tail;
+    private final AtomicLong completed;
+    private final AtomicLong droppedEvents;
+    private final int mask;
+    private final int debugThreshold;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<LogRecord> handler;
+    private final Thread writerThread;
+    private final Thread shutdownHook;
+    private volatile boolean running;
+    private volatile boolean parked;
+
+    public AsyncLogWriter(final LoggerConfiguration configuration, final Consumer<LogRecord> handler) {
+        final int capacity = Integer.highestOneBit(Math.max(2, configuration.getAsyncQueueSize() - 1) << 1);
+
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+
+        this.head = new AtomicLong();
+        this.tail = new AtomicLong();
+        this.completed = new AtomicLong();
+        this.droppedEvents = new AtomicLong();
+        this.mask = capacity - 1;
+        this.debugThreshold = capacity - (capacity >> 2);
+        this.overflowPolicy = configuration.getOverflowPolicy() == null ? OverflowPolicy.BLOCK : configuration.getOverflowPolicy();
+        this.handler = handler;
+        this.running = true;
+
+        this.writerThread = new ThreadUtil("Logger-Writer", this::drainLoop, true).newThread();
+        this.writerThread.start();
+
+        this.shutdownHook = new ThreadUtil("Logger-Shutdown").newThread(this::shutdown);
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    /**
+     * Wstawia log do kolejki zgodnie z ustawionym {@link OverflowPolicy}
+     *
+     * @param logRecord log do zapisania
+     * @return {@code false} jeśli log został odrzucony
+     */
+    public boolean write(final LogRecord logRecord) {
+        if (!this.running || Thread.currentThread() == this.writerThread) {
+            this.handle(logRecord);
+            return true;
+        }
+
+        if (this.overflowPolicy == OverflowPolicy.DROP_DEBUG && logRecord.logState() == LogState.DEBUG
+                && this.size() >= this.debugThreshold) {
+            this.droppedEvents.incrementAndGet();
+            return false;
+        }
+
+        while (!this.offer(logRecord)) {
+            if (this.overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                if (this.poll() != null) {
+                    this.droppedEvents.incrementAndGet();
+                    this.completed.incrementAndGet();
+                }
+                continue;
+            }
+
+            if (!this.running) {
+                this.handle(logRecord);
+                return true;
+            }
+
+            LockSupport.unpark(this.writerThread);
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+
+        if (this.parked) LockSupport.unpark(this.writerThread);
+        return true;
+    }
+
+    /**
+     * Czeka aż wszystkie logi wstawione przed wywołaniem tej metody zostaną zapisane
+     */
+    public void flush() {
+        if (Thread.currentThread() == this.writerThread) return;
+
+        final long target = this.tail.get();
+
+        while (this.completed.get() < target && this.writerThread.isAlive()) {
+            LockSupport.unpark(this.writerThread);
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Zapisuje pozostałe logi i zatrzymuje wątek zapisujący,
+     * kolejne logi będą zapisywane już na wątku który je wywołał
+     */
+    public void shutdown() {
+        if (!this.running) return;
+        this.running = false;
+
+        LockSupport.unpark(this.writerThread);
+
+        try {
+            this.writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        //Logi które trafiły do kolejki w trakcie zatrzymywania wątku
+        LogRecord logRecord;
+        while ((logRecord = this.poll()) != null) {
+            this.handle(logRecord);
+            this.completed.incrementAndGet();
+        }
+
+        try {
+            if (Thread.currentThread() != this.shutdownHook) Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        } catch (final IllegalStateException ignored) {
+            //JVM jest już w trakcie zamykania
+        }
+    }
+
+    public int size() {
+        return (int) Math.max(0, this.tail.get() - this.head.get());
+    }
+
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    public long getDroppedEvents() {
+        return this.droppedEvents.get();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            final LogRecord logRecord = this.poll();
+
+            if (logRecord != null) {
+                this.handle(logRecord);
+                this.completed.incrementAndGet();
+                continue;
+            }
+
+            if (!this.running) {
+                if (this.size() == 0) return;
+                continue;
+            }
+
+            this.parked = true;
+            if (this.size() == 0 && this.running) LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(50));
+            this.parked = false;
+        }
+    }
+
+    private void handle(final LogRecord logRecord) {
+        try {
+            this.handler.accept(logRecord);
+        } catch (final Throwable throwable) {
+            throwable.printStackTrace();
+        }
+    }
+
+    private boolean offer(final LogRecord logRecord) {
+        long position = this.tail.get();
+
+        while (true) {
+            final int index = (int) (position & this.mask);
+            final long difference = this.sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.buffer.set(index, logRecord);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+    }
+
+    private LogRecord poll() {
+        long position = this.head.get();
+
+        while (true) {
+            final int index = (int) (position & this.mask);
+            final long difference = this.sequences.get(index) - (position + 1);
+
+            if (difference == 0) {
+                if (this.head.compareAndSet(position, position + 1)) {
+                    final LogRecord logRecord = this.buffer.getAndSet(index, null);
+                    this.sequences.set(index, position + this.mask + 1);
+                    return logRecord;
+                }
+                position = this.head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = this.head.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package pl.indianbartonka.util.logger.config;
+
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Format w jakim logi są zapisywane do pliku
+ */
+@Since("0.0.9.5")
+public enum LogFormat {
+
+    /**
+     * Czytelny dla człowieka tekst, taki sam jak w konsoli tylko bez kolorów
+     */
+    TEXT,
+
+    /**
+     * Jeden obiekt JSON w linii (JSON Lines)
+     * <p>
+     * Logi z {@code java.util.logging} nie są wtedy zapisywane do pliku
+     */
+    JSON,
+
+    /**
+     * Rekordy binarne poprzedzone swoją długością
+     * <p>
+     * Logi z {@code java.util.logging} nie są wtedy zapisywane do pliku
+     */
+    BINARY
+}
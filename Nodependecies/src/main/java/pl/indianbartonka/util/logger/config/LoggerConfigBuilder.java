@@ -1,5 +1,8 @@
 package pl.indianbartonka.util.logger.config;
 
+import pl.indianbartonka.util.MathUtil;
+import pl.indianbartonka.util.annotation.Since;
+
 public class LoggerConfigBuilder {
 
     private final LoggerConfiguration loggerConfiguration;
@@ -11,6 +14,21 @@ public class LoggerConfigBuilder {
         this.loggerConfiguration.setLogsPath(System.getProperty("user.dir"));
         this.loggerConfiguration.setOneLog(false);
         this.loggerConfiguration.setLogName("Latest");
+        this.loggerConfiguration.setAsync(false);
+        this.loggerConfiguration.setAsyncQueueSize(8192);
+        this.loggerConfiguration.setOverflowPolicy(OverflowPolicy.BLOCK);
+        this.loggerConfiguration.setMaxLogSize(0);
+        this.loggerConfiguration.setDailyRotation(false);
+        this.loggerConfiguration.setMaxArchivedLogs(0);
+        this.loggerConfiguration.setCompressArchivedLogs(true);
+        this.loggerConfiguration.setFlushBytes(0);
+        this.loggerConfiguration.setFlushIntervalMillis(1000);
+        this.loggerConfiguration.setFlushOnError(true);
+        this.loggerConfiguration.setForceOnCritical(false);
+        this.loggerConfiguration.setLogFormat(LogFormat.TEXT);
+        this.loggerConfiguration.setRateLimit(0);
+        this.loggerConfiguration.setCollapseRepeatedLogs(false);
+        this.loggerConfiguration.setStackTraceDedupMillis(0);
     }
 
     public LoggerConfigBuilder setDebug(final boolean debug) {
@@ -43,6 +61,121 @@ public class LoggerConfigBuilder {
         return this;
     }
 
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setAsync(final boolean async) {
+        this.loggerConfiguration.setAsync(async);
+        return this;
+    }
+
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setAsyncQueueSize(final int asyncQueueSize) {
+        this.loggerConfiguration.setAsyncQueueSize(MathUtil.getCorrectNumber(asyncQueueSize, 2, 1 << 30));
+        return this;
+    }
+
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.loggerConfiguration.setOverflowPolicy(overflowPolicy);
+        return this;
+    }
+
+    /**
+     * @param maxLogSize rozmiar pliku logów w bajtach po którym zostanie on zarchiwizowany, {@code 0} wyłącza
+     */
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setMaxLogSize(final long maxLogSize) {
+        this.loggerConfiguration.setMaxLogSize(Math.max(0, maxLogSize));
+        return this;
+    }
+
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setDailyRotation(final boolean dailyRotation) {
+        this.loggerConfiguration.setDailyRotation(dailyRotation);
+        return this;
+    }
+
+    /**
+     * @param maxArchivedLogs ile zarchiwizowanych logów trzymać, {@code 0} oznacza bez limitu
+     */
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setMaxArchivedLogs(final int maxArchivedLogs) {
+        this.loggerConfiguration.setMaxArchivedLogs(Math.max(0, maxArchivedLogs));
+        return this;
+    }
+
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setCompressArchivedLogs(final boolean compressArchivedLogs) {
+        this.loggerConfiguration.setCompressArchivedLogs(compressArchivedLogs);
+        return this;
+    }
+
+    /**
+     * @param flushBytes ilość bajtów w buforze po której zostanie on zapisany do pliku,
+     *                   domyślne {@code 0} zapisuje każdy log od razu tak jak wcześniej {@link java.io.PrintStream}
+     */
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setFlushBytes(final int flushBytes) {
+        this.loggerConfiguration.setFlushBytes(MathUtil.getCorrectNumber(flushBytes, 0, 64 * 1024 * 1024));
+        return this;
+    }
+
+    /**
+     * @param flushIntervalMillis co ile milisekund bufor jest zapisywany do pliku, {@code 0} wyłącza
+     */
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setFlushIntervalMillis(final long flushIntervalMillis) {
+        this.loggerConfiguration.setFlushIntervalMillis(Math.max(0, flushIntervalMillis));
+        return this;
+    }
+
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setFlushOnError(final boolean flushOnError) {
+        this.loggerConfiguration.setFlushOnError(flushOnError);
+        return this;
+    }
+
+    /**
+     * @param forceOnCritical czy po logu {@code CRITICAL} wymusić zapis pliku na dysk (fsync)
+     */
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setForceOnCritical(final boolean forceOnCritical) {
+        this.loggerConfiguration.setForceOnCritical(forceOnCritical);
+        return this;
+    }
+
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setLogFormat(final LogFormat logFormat) {
+        this.loggerConfiguration.setLogFormat(logFormat);
+        return this;
+    }
+
+    /**
+     * @param rateLimit ile takich samych wiadomości (albo logów z tego samego szablonu {@code {}}) może zostać wypisanych na sekundę, {@code 0} wyłącza
+     */
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setRateLimit(final int rateLimit) {
+        this.loggerConfiguration.setRateLimit(Math.max(0, rateLimit));
+        return this;
+    }
+
+    /**
+     * @param collapseRepeatedLogs czy zamiast kolejnych identycznych logów wypisać "Ostatni log powtórzył się N razy"
+     */
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setCollapseRepeatedLogs(final boolean collapseRepeatedLogs) {
+        this.loggerConfiguration.setCollapseRepeatedLogs(collapseRepeatedLogs);
+        return this;
+    }
+
+    /**
+     * @param stackTraceDedupMillis przez ile milisekund ten sam stack trace będzie wypisywany tylko jako jedna linia, {@code 0} wyłącza
+     */
+    @Since("0.0.9.5")
+    public LoggerConfigBuilder setStackTraceDedupMillis(final long stackTraceDedupMillis) {
+        this.loggerConfiguration.setStackTraceDedupMillis(Math.max(0, stackTraceDedupMillis));
+        return this;
+    }
+
     public LoggerConfiguration build() {
         return this.loggerConfiguration;
     }
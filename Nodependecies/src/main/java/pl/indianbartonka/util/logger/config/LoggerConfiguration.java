@@ -1,5 +1,7 @@
 package pl.indianbartonka.util.logger.config;
 
+import pl.indianbartonka.util.annotation.Since;
+
 public class LoggerConfiguration {
 
     private boolean debug;
@@ -8,6 +10,36 @@ public class LoggerConfiguration {
     private boolean logJULtoFile;
     private boolean oneLog;
     private String logName;
+    @Since("0.0.9.5")
+    private boolean async;
+    @Since("0.0.9.5")
+    private int asyncQueueSize;
+    @Since("0.0.9.5")
+    private OverflowPolicy overflowPolicy;
+    @Since("0.0.9.5")
+    private long maxLogSize;
+    @Since("0.0.9.5")
+    private boolean dailyRotation;
+    @Since("0.0.9.5")
+    private int maxArchivedLogs;
+    @Since("0.0.9.5")
+    private boolean compressArchivedLogs;
+    @Since("0.0.9.5")
+    private int flushBytes;
+    @Since("0.0.9.5")
+    private long flushIntervalMillis;
+    @Since("0.0.9.5")
+    private boolean flushOnError;
+    @Since("0.0.9.5")
+    private boolean forceOnCritical;
+    @Since("0.0.9.5")
+    private LogFormat logFormat;
+    @Since("0.0.9.5")
+    private int rateLimit;
+    @Since("0.0.9.5")
+    private boolean collapseRepeatedLogs;
+    @Since("0.0.9.5")
+    private long stackTraceDedupMillis;
 
     public static LoggerConfigBuilder builder() {
         return new LoggerConfigBuilder();
@@ -60,4 +92,159 @@ public class LoggerConfiguration {
     public void setLogName(final String logName) {
         this.logName = logName;
     }
-}
\ No newline at end of file
+
+    @Since("0.0.9.5")
+    public boolean isAsync() {
+        return this.async;
+    }
+
+    @Since("0.0.9.5")
+    public void setAsync(final boolean async) {
+        this.async = async;
+    }
+
+    @Since("0.0.9.5")
+    public int getAsyncQueueSize() {
+        return this.asyncQueueSize;
+    }
+
+    @Since("0.0.9.5")
+    public void setAsyncQueueSize(final int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    @Since("0.0.9.5")
+    public OverflowPolicy getOverflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    @Since("0.0.9.5")
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @Since("0.0.9.5")
+    public long getMaxLogSize() {
+        return this.maxLogSize;
+    }
+
+    @Since("0.0.9.5")
+    public void setMaxLogSize(final long maxLogSize) {
+        this.maxLogSize = maxLogSize;
+    }
+
+    @Since("0.0.9.5")
+    public boolean isDailyRotation() {
+        return this.dailyRotation;
+    }
+
+    @Since("0.0.9.5")
+    public void setDailyRotation(final boolean dailyRotation) {
+        this.dailyRotation = dailyRotation;
+    }
+
+    @Since("0.0.9.5")
+    public int getMaxArchivedLogs() {
+        return this.maxArchivedLogs;
+    }
+
+    @Since("0.0.9.5")
+    public void setMaxArchivedLogs(final int maxArchivedLogs) {
+        this.maxArchivedLogs = maxArchivedLogs;
+    }
+
+    @Since("0.0.9.5")
+    public boolean isCompressArchivedLogs() {
+        return this.compressArchivedLogs;
+    }
+
+    @Since("0.0.9.5")
+    public void setCompressArchivedLogs(final boolean compressArchivedLogs) {
+        this.compressArchivedLogs = compressArchivedLogs;
+    }
+
+    @Since("0.0.9.5")
+    public int getFlushBytes() {
+        return this.flushBytes;
+    }
+
+    @Since("0.0.9.5")
+    public void setFlushBytes(final int flushBytes) {
+        this.flushBytes = flushBytes;
+    }
+
+    @Since("0.0.9.5")
+    public long getFlushIntervalMillis() {
+        return this.flushIntervalMillis;
+    }
+
+    @Since("0.0.9.5")
+    public void setFlushIntervalMillis(final long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @Since("0.0.9.5")
+    public boolean isFlushOnError() {
+        return this.flushOnError;
+    }
+
+    @Since("0.0.9.5")
+    public void setFlushOnError(final boolean flushOnError) {
+        this.flushOnError = flushOnError;
+    }
+
+    @Since("0.0.9.5")
+    public boolean isForceOnCritical() {
+        return this.forceOnCritical;
+    }
+
+    @Since("0.0.9.5")
+    public void setForceOnCritical(final boolean forceOnCritical) {
+        this.forceOnCritical = forceOnCritical;
+    }
+
+    @Since("0.0.9.5")
+    public LogFormat getLogFormat() {
+        return this.logFormat;
+    }
+
+    @Since("0.0.9.5")
+    public void setLogFormat(final LogFormat logFormat) {
+        this.logFormat = logFormat;
+    }
+
+    @Since("0.0.9.5")
+    public int getRateLimit() {
+        return this.rateLimit;
+    }
+
+    @Since("0.0.9.5")
+    public void setRateLimit(final int rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    @Since("0.0.9.5")
+    public boolean isCollapseRepeatedLogs() {
+        return this.collapseRepeatedLogs;
+    }
+
+    @Since("0.0.9.5")
+    public void setCollapseRepeatedLogs(final boolean collapseRepeatedLogs) {
+        this.collapseRepeatedLogs = collapseRepeatedLogs;
+    }
+
+    @Since("0.0.9.5")
+    public long getStackTraceDedupMillis() {
+        return this.stackTraceDedupMillis;
+    }
+
+    @Since("0.0.9.5")
+    public void setStackTraceDedupMillis(final long stackTraceDedupMillis) {
+        this.stackTraceDedupMillis = stackTraceDedupMillis;
+    }
+
+    @Since("0.0.9.5")
+    public boolean isRotationEnabled() {
+        return this.maxLogSize > 0 || this.dailyRotation;
+    }
+}
@@ -0,0 +1,25 @@
+package pl.indianbartonka.util.logger.config;
+
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Określa co ma się stać gdy kolejka asynchronicznego loggera jest pełna
+ */
+@Since("0.0.9.5")
+public enum OverflowPolicy {
+
+    /**
+     * Wątek logujący czeka aż w kolejce zwolni się miejsce
+     */
+    BLOCK,
+
+    /**
+     * Logi {@code DEBUG} są odrzucane gdy kolejka zapełni się w 3/4, pozostałe czekają na miejsce
+     */
+    DROP_DEBUG,
+
+    /**
+     * Najstarszy log w kolejce jest odrzucany aby zrobić miejsce na nowy
+     */
+    DROP_OLDEST
+}
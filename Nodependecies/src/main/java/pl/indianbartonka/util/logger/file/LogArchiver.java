@@ -0,0 +1,165 @@
+package pl.indianbartonka.util.logger.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import pl.indianbartonka.util.FileUtil;
+import pl.indianbartonka.util.ThreadUtil;
+import pl.indianbartonka.util.ZipUtil;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+
+/**
+ * Archiwizuje zrotowane pliki logów na osobnym wątku.
+ * <p>
+ * Pliki mają nazwę {@code <logName>.<yyyy-MM-dd>.<n>.log}, po kompresji dochodzi do niej {@code .gz}.
+ * Po każdej archiwizacji usuwane są najstarsze archiwa ponad limit z {@link LoggerConfiguration#getMaxArchivedLogs()}
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class LogArchiver {
+
+    private final File logsDir;
+    private final String logName;
+    private final Pattern archivePattern;
+    private final int maxArchivedLogs;
+    private final boolean compress;
+    private final ExecutorService executor;
+    private String indexDay;
+    private int lastIndex;
+
+    public LogArchiver(final File logsDir, final LoggerConfiguration configuration) {
+        this.logsDir = logsDir;
+        this.logName = configuration.getLogName();
+        this.archivePattern = Pattern.compile(Pattern.quote(this.logName) + "\\.(\\d{4}-\\d{2}-\\d{2})\\.(\\d+)\\.log(\\.gz)?");
+        this.maxArchivedLogs = configuration.getMaxArchivedLogs();
+        this.compress = configuration.isCompressArchivedLogs();
+        this.executor = Executors.newSingleThreadExecutor(new ThreadUtil("Log-Archiver", true));
+    }
+
+    /**
+     * Zwraca pierwszą wolną nazwę archiwum dla podanego dnia
+     *
+     * @param date dzień z którego pochodzą logi
+     * @return plik do którego należy przenieść obecny log
+     */
+    public synchronized File nextArchiveFile(final LocalDate date) {
+        final String day = date.toString();
+
+        //Katalog jest listowany tylko przy pierwszej rotacji danego dnia, później numer jest zwiększany w pamięci.
+        //Numeracja idzie dalej od najwyższego istniejącego, żeby nowe archiwum nie zostało uznane za najstarsze
+        if (!day.equals(this.indexDay)) {
+            int index = 0;
+            for (final File file : this.getArchivedFiles()) {
+                if (day.equals(this.archiveDate(file))) index = Math.max(index, this.archiveIndex(file));
+            }
+
+            this.indexDay = day;
+            this.lastIndex = index;
+        }
+
+        this.lastIndex++;
+        return new File(this.logsDir, this.logName + "." + day + "." + this.lastIndex + ".log");
+    }
+
+    /**
+     * Kompresuje plik i usuwa nadmiarowe archiwa, nie blokując wątku wywołującego
+     *
+     * @param archivedFile przeniesiony plik logów
+     */
+    public void archive(final File archivedFile) {
+        this.executor.execute(() -> {
+            //Przy szybkich rotacjach wcześniejsze zadanie mogło już usunąć ten plik jako nadmiarowe archiwum
+            if (!archivedFile.exists()) return;
+
+            try {
+                if (this.compress) {
+                    ZipUtil.gzipFile(archivedFile, new File(archivedFile.getPath() + ".gz"));
+                    FileUtil.deleteFile(archivedFile);
+                }
+                this.deleteOldArchives();
+            } catch (final IOException exception) {
+                exception.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Czeka aż wszystkie zlecone archiwizacje się zakończą
+     */
+    public void awaitArchiving() {
+        if (this.executor.isShutdown()) return;
+
+        try {
+            this.executor.submit(() -> {
+            }).get();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Kończy zlecone archiwizacje i zatrzymuje wątek archiwizujący
+     */
+    public void close() {
+        this.awaitArchiving();
+        this.executor.shutdown();
+    }
+
+    /**
+     * Zwraca archiwa od najnowszego, brane są tylko pliki o nazwie {@code <logName>.<yyyy-MM-dd>.<n>.log[.gz]},
+     * więc aktualny plik {@code <logName>.log} nigdy się tu nie znajdzie
+     *
+     * @return zarchiwizowane pliki logów od najnowszego
+     */
+    public List<File> getArchivedFiles() {
+        final File[] files = this.logsDir.listFiles();
+        final List<File> archived = new ArrayList<>();
+        if (files == null) return archived;
+
+        for (final File file : files) {
+            if (file.isFile() && this.archivePattern.matcher(file.getName()).matches()) {
+                archived.add(file);
+            }
+        }
+
+        //Kolejność według daty i numeru z nazwy, czas modyfikacji zmienia się przy kompresji
+        archived.sort(Comparator.comparing((File file) -> this.archiveDate(file))
+                .thenComparingInt(this::archiveIndex)
+                .reversed());
+        return archived;
+    }
+
+    private String archiveDate(final File file) {
+        final Matcher matcher = this.archivePattern.matcher(file.getName());
+        return matcher.matches() ? matcher.group(1) : "";
+    }
+
+    private int archiveIndex(final File file) {
+        final Matcher matcher = this.archivePattern.matcher(file.getName());
+        try {
+            return matcher.matches() ? Integer.parseInt(matcher.group(2)) : 0;
+        } catch (final NumberFormatException exception) {
+            return 0;
+        }
+    }
+
+    private void deleteOldArchives() throws IOException {
+        if (this.maxArchivedLogs <= 0) return;
+
+        final List<File> archived = this.getArchivedFiles();
+        for (int i = this.maxArchivedLogs; i < archived.size(); i++) {
+            FileUtil.deleteFile(archived.get(i));
+        }
+    }
+}
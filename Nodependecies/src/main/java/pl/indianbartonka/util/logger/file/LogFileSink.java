@@ -0,0 +1,367 @@
+package pl.indianbartonka.util.logger.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.DateUtil;
+import pl.indianbartonka.util.ThreadUtil;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.LogState;
+import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+
+/**
+ * Zapis logów do pliku przez {@link FileChannel} w paczkach.
+ * <p>
+ * Linie są kodowane do UTF-8 prosto do bufora poza stertą i zapisywane do pliku dopiero gdy uzbiera się
+ * {@link LoggerConfiguration#getFlushBytes()} bajtów, minie {@link LoggerConfiguration#getFlushIntervalMillis()}
+ * albo pojawi się log {@code ERROR}/{@code CRITICAL} przy włączonym {@link LoggerConfiguration#isFlushOnError()}.
+ * Domyślnie {@code flushBytes} wynosi {@code 0}, więc każdy log trafia do pliku od razu.
+ * </p>
+ * <p>
+ * Sink trzeba zamknąć przez {@link #close()}, zatrzymuje to wątek zapisujący bufor i usuwa shutdown hook
+ * </p>
+ * <p>
+ * Gdy ustawiona jest rotacja, plik jest przenoszony do archiwum tylko na granicy linii,
+ * a kompresją i usuwaniem starych archiwów zajmuje się {@link LogArchiver} na osobnym wątku
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class LogFileSink implements Closeable {
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final long ROLL_OVER_RETRY_MILLIS = 10_000;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private final int flushBytes;
+    private final boolean flushOnError;
+    private final boolean forceOnCritical;
+    private final long maxLogSize;
+    private final boolean dailyRotation;
+    private final LogArchiver archiver;
+    private final ScheduledExecutorService flusher;
+    private final OutputStream outputStream;
+    private final Thread shutdownHook;
+    private char[] chars;
+    private CharBuffer charBuffer;
+    private FileChannel channel;
+    private long size;
+    private long bytesWritten;
+    private LocalDate periodDate;
+    private long nextRolloverMillis;
+    private long rollOverRetryMillis;
+    private boolean lineStart;
+    private boolean rollOverRequested;
+    private boolean closed;
+    private volatile boolean writeThrough;
+
+    public LogFileSink(final File file, final LoggerConfiguration configuration) throws IOException {
+        this.file = file;
+        this.flushBytes = Math.max(0, configuration.getFlushBytes());
+        this.buffer = ByteBuffer.allocateDirect(Math.max(8192, this.flushBytes));
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.flushOnError = configuration.isFlushOnError();
+        this.forceOnCritical = configuration.isForceOnCritical();
+        this.maxLogSize = configuration.getMaxLogSize();
+        this.dailyRotation = configuration.isDailyRotation();
+        this.archiver = configuration.isRotationEnabled() ? new LogArchiver(file.getAbsoluteFile().getParentFile(), configuration) : null;
+        this.chars = new char[256];
+        this.charBuffer = CharBuffer.wrap(this.chars);
+        this.outputStream = new SinkOutputStream();
+        this.lineStart = true;
+
+        this.open();
+
+        final long interval = configuration.getFlushIntervalMillis();
+        if (interval > 0 && this.flushBytes > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadUtil("Log-Flusher", true));
+            this.flusher.scheduleWithFixedDelay(this::scheduledFlush, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+
+        this.shutdownHook = new ThreadUtil("Log-Sink-Shutdown").newThread(this::switchToWriteThrough);
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    /**
+     * Dopisuje linie zakończoną separatorem linii do bufora
+     *
+     * @param line linia bez kolorów
+     */
+    public synchronized void writeLine(final CharSequence line) throws IOException {
+        if (this.closed) throw new ClosedChannelException();
+        if (this.lineStart && this.shouldRollOver()) this.rollOver();
+
+        final int length = line.length();
+        if (this.chars.length < length) {
+            this.chars = new char[Math.max(length, this.chars.length * 2)];
+            this.charBuffer = CharBuffer.wrap(this.chars);
+        }
+
+        if (line instanceof final StringBuilder builder) {
+            builder.getChars(0, length, this.chars, 0);
+        } else if (line instanceof final String string) {
+            string.getChars(0, length, this.chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) this.chars[i] = line.charAt(i);
+        }
+
+        this.charBuffer.clear().limit(length);
+        this.encoder.reset();
+
+        CoderResult result;
+        while ((result = this.encoder.encode(this.charBuffer, this.buffer, true)).isOverflow()) {
+            this.drain();
+        }
+        if (result.isError()) result.throwException();
+        while (this.encoder.flush(this.buffer).isOverflow()) {
+            this.drain();
+        }
+
+        this.putBytes(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        this.lineStart = true;
+    }
+
+    /**
+     * Dopisuje cały zakodowany wpis, rotacja pliku może nastąpić tylko przed nim
+     *
+     * @param bytes  zakodowany wpis
+     * @param offset początek wpisu w tablicy
+     * @param length długość wpisu
+     */
+    public synchronized void writeEntry(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (this.closed) throw new ClosedChannelException();
+        if (this.lineStart && this.shouldRollOver()) this.rollOver();
+
+        this.putBytes(bytes, offset, length);
+        this.lineStart = true;
+    }
+
+    /**
+     * Dopisuje surowe bajty do bufora, używane przez {@link #asOutputStream()}
+     */
+    public synchronized void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length == 0) return;
+        if (this.closed) throw new ClosedChannelException();
+        if (this.lineStart && this.shouldRollOver()) this.rollOver();
+
+        this.putBytes(bytes, offset, length);
+        this.lineStart = bytes[offset + length - 1] == '\n';
+    }
+
+    /**
+     * Kończy zapis jednego logu i zapisuje bufor do pliku jeśli wymaga tego ustawiona polityka
+     *
+     * @param logState poziom zapisanego logu
+     */
+    public synchronized void endRecord(@Nullable final LogState logState) throws IOException {
+        final boolean severe = logState == LogState.ERROR || logState == LogState.CRITICAL;
+
+        if (this.writeThrough || this.buffer.position() >= this.flushBytes || (this.flushOnError && severe)) {
+            this.drain();
+        }
+
+        if (this.forceOnCritical && logState == LogState.CRITICAL) {
+            this.drain();
+            this.channel.force(false);
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        this.drain();
+    }
+
+    /**
+     * Zapisuje bufor i wymusza zapis danych na dysk
+     */
+    public synchronized void force() throws IOException {
+        this.drain();
+        this.channel.force(false);
+    }
+
+    /**
+     * Zapisuje bufor, zamyka plik, zatrzymuje wątek zapisujący bufor i archiwizujący oraz usuwa shutdown hook
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) return;
+
+        if (this.flusher != null) this.flusher.shutdownNow();
+
+        try {
+            if (Thread.currentThread() != this.shutdownHook) Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        } catch (final IllegalStateException ignored) {
+            //JVM jest już w trakcie zamykania
+        }
+
+        try {
+            this.drain();
+            this.channel.close();
+        } finally {
+            this.closed = true;
+            if (this.archiver != null) this.archiver.close();
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Wymusza rotacje pliku przy zapisie następnej linii
+     */
+    public synchronized void requestRollOver() {
+        this.rollOverRequested = true;
+    }
+
+    /**
+     * Strumień zapisujący do tego samego bufora, dla {@link java.io.PrintStream} i wypisywania wyjątków
+     */
+    public OutputStream asOutputStream() {
+        return this.outputStream;
+    }
+
+    @Nullable
+    public LogArchiver getArchiver() {
+        return this.archiver;
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return ilość bajtów zapisanych do plików od utworzenia, razem z plikami które zostały już zarchiwizowane
+     */
+    public synchronized long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    public synchronized long getSize() {
+        return this.size + this.buffer.position();
+    }
+
+    private void putBytes(final byte[] bytes, final int offset, final int length) throws IOException {
+        int position = offset;
+        int remaining = length;
+
+        while (remaining > 0) {
+            if (!this.buffer.hasRemaining()) this.drain();
+
+            final int chunk = Math.min(remaining, this.buffer.remaining());
+            this.buffer.put(bytes, position, chunk);
+            position += chunk;
+            remaining -= chunk;
+        }
+    }
+
+    private void drain() throws IOException {
+        if (this.buffer.position() == 0) return;
+
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            final int written = this.channel.write(this.buffer);
+            this.size += written;
+            this.bytesWritten += written;
+        }
+        this.buffer.clear();
+    }
+
+    private boolean shouldRollOver() {
+        if (this.archiver == null) return false;
+        if (this.rollOverRequested) return true;
+        if (this.maxLogSize > 0 && this.size + this.buffer.position() >= this.maxLogSize) {
+            return System.currentTimeMillis() >= this.rollOverRetryMillis;
+        }
+        return this.dailyRotation && System.currentTimeMillis() >= this.nextRolloverMillis;
+    }
+
+    private void rollOver() throws IOException {
+        this.drain();
+        this.channel.close();
+        this.rollOverRequested = false;
+
+        //Pod blokadą jest tylko zmiana nazwy i otwarcie nowego pliku, kompresja i usuwanie archiwów idą na wątku archiwizującym
+        final File archivedFile = this.archiver.nextArchiveFile(this.periodDate);
+        final boolean moved = this.file.renameTo(archivedFile);
+
+        this.open();
+
+        if (moved) {
+            this.rollOverRetryMillis = 0;
+            this.archiver.archive(archivedFile);
+        } else {
+            //Plik może być używany przez inny proces, rozmiar zostaje prawdziwy a kolejna próba jest dopiero po chwili
+            this.rollOverRetryMillis = System.currentTimeMillis() + ROLL_OVER_RETRY_MILLIS;
+        }
+    }
+
+    private void open() throws IOException {
+        final ZoneId zone = DateUtil.getDefaultZone();
+
+        this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.size = this.channel.size();
+        this.periodDate = LocalDate.now(zone);
+        this.nextRolloverMillis = this.periodDate.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private void scheduledFlush() {
+        try {
+            this.flush();
+        } catch (final IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Przy zamykaniu JVM zapisuje bufor i od tej pory każdy log trafia od razu do pliku,
+     * dzięki temu logi zapisane przez inne shutdown hooki nie zostaną w buforze
+     */
+    private void switchToWriteThrough() {
+        this.writeThrough = true;
+        this.scheduledFlush();
+    }
+
+    private final class SinkOutputStream extends OutputStream {
+
+        @Override
+        public void write(final int b) throws IOException {
+            LogFileSink.this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            LogFileSink.this.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            LogFileSink.this.endRecord(null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            LogFileSink.this.close();
+        }
+    }
+}
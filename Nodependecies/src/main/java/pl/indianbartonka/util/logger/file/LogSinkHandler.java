@@ -0,0 +1,73 @@
+package pl.indianbartonka.util.logger.file;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.LogState;
+import pl.indianbartonka.util.logger.config.FileLogFormatter;
+
+/**
+ * Przekazuje logi z {@code java.util.logging} do {@link LogFileSink} loggera.
+ * <p>
+ * {@link java.util.logging.FileHandler} trzymał własny deskryptor tego samego pliku, więc po rotacji dopisywał
+ * do pliku który został już przeniesiony do archiwum. Przez sink logi JUL są rotowane razem z resztą logów
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class LogSinkHandler extends Handler {
+
+    private final LogFileSink sink;
+
+    public LogSinkHandler(final LogFileSink sink) {
+        this.sink = sink;
+        this.setFormatter(new FileLogFormatter());
+    }
+
+    @Override
+    public void publish(final LogRecord logRecord) {
+        if (!this.isLoggable(logRecord)) return;
+
+        final String line;
+        try {
+            line = this.getFormatter().format(logRecord);
+        } catch (final Exception exception) {
+            this.reportError(null, exception, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+
+        final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        final boolean severe = logRecord.getLevel().intValue() >= Level.SEVERE.intValue();
+
+        try {
+            this.sink.writeEntry(bytes, 0, bytes.length);
+            this.sink.endRecord(severe ? LogState.ERROR : null);
+        } catch (final IOException exception) {
+            this.reportError(null, exception, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            this.sink.flush();
+        } catch (final IOException exception) {
+            this.reportError(null, exception, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Zapisuje bufor, sam sink należy do loggera i jest zamykany razem z nim
+     */
+    @Override
+    public void close() {
+        this.flush();
+    }
+
+    public LogFileSink getSink() {
+        return this.sink;
+    }
+}
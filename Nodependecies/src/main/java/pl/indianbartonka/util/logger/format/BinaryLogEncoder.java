@@ -0,0 +1,144 @@
+package pl.indianbartonka.util.logger.format;
+
+import java.io.IOException;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.color.AnsiColor;
+import pl.indianbartonka.util.logger.LogRecord;
+import pl.indianbartonka.util.logger.file.LogFileSink;
+
+/**
+ * Zapisuje każdy log jako rekord binarny (big-endian):
+ * <pre>
+ * int    długość reszty rekordu w bajtach
+ * long   czas w nanosekundach od epoki
+ * byte   {@link Enum#ordinal()} poziomu
+ * long   id wątku
+ * string nazwa wątku
+ * string prefix loggera
+ * string wiadomość bez kolorów
+ * string stack trace wyjątku
+ * </pre>
+ * Gdzie {@code string} to {@code int} z długością w bajtach ({@code -1} dla {@code null}) i tekst w UTF-8.
+ * Bufory są trzymane per wątek więc zwykły log nie tworzy nowych obiektów
+ */
+@Since("0.0.9.5")
+public final class BinaryLogEncoder implements LogEncoder {
+
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+    @Override
+    public void encode(final LogRecord logRecord, final LogFileSink fileSink) throws IOException {
+        final Buffer buffer = BUFFERS.get();
+        buffer.position = 4;
+
+        buffer.putLong(logRecord.epochNanos());
+        buffer.putByte(logRecord.logState().ordinal());
+        buffer.putLong(logRecord.threadId());
+        buffer.putString(logRecord.threadName());
+        buffer.putString(logRecord.loggerPrefix());
+
+        if (logRecord.message() != null) {
+            buffer.scratch.setLength(0);
+            AnsiColor.removeColors(logRecord.message(), buffer.scratch);
+            buffer.putString(buffer.scratch);
+        } else {
+            buffer.putString(null);
+        }
+
+        if (logRecord.throwable() != null) {
+            buffer.scratch.setLength(0);
+            LogEncoder.appendStackTrace(logRecord.throwable(), buffer.scratch);
+            buffer.putString(buffer.scratch);
+        } else {
+            buffer.putString(null);
+        }
+
+        final int length = buffer.position;
+        buffer.position = 0;
+        buffer.putInt(length - 4);
+
+        fileSink.writeEntry(buffer.bytes, 0, length);
+        buffer.trim();
+    }
+
+    private static final class Buffer {
+
+        private byte[] bytes = new byte[512];
+        private StringBuilder scratch = new StringBuilder(128);
+        private int position;
+
+        private void putByte(final int value) {
+            this.ensureCapacity(1);
+            this.bytes[this.position++] = (byte) value;
+        }
+
+        private void putInt(final int value) {
+            this.ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                this.bytes[this.position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void putLong(final long value) {
+            this.ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                this.bytes[this.position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void putString(final CharSequence value) {
+            if (value == null) {
+                this.putInt(-1);
+                return;
+            }
+
+            final int length = value.length();
+            this.ensureCapacity(4 + length * 3);
+
+            final int lengthPosition = this.position;
+            this.position += 4;
+
+            for (int i = 0; i < length; i++) {
+                final char character = value.charAt(i);
+
+                if (character < 0x80) {
+                    this.bytes[this.position++] = (byte) character;
+                } else if (character < 0x800) {
+                    this.bytes[this.position++] = (byte) (0xC0 | (character >> 6));
+                    this.bytes[this.position++] = (byte) (0x80 | (character & 0x3F));
+                } else if (Character.isHighSurrogate(character) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(character, value.charAt(++i));
+                    this.bytes[this.position++] = (byte) (0xF0 | (codePoint >> 18));
+                    this.bytes[this.position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    this.bytes[this.position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    this.bytes[this.position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(character)) {
+                    this.bytes[this.position++] = (byte) '?';
+                } else {
+                    this.bytes[this.position++] = (byte) (0xE0 | (character >> 12));
+                    this.bytes[this.position++] = (byte) (0x80 | ((character >> 6) & 0x3F));
+                    this.bytes[this.position++] = (byte) (0x80 | (character & 0x3F));
+                }
+            }
+
+            final int end = this.position;
+            this.position = lengthPosition;
+            this.putInt(end - lengthPosition - 4);
+            this.position = end;
+        }
+
+        private void ensureCapacity(final int additional) {
+            final int required = this.position + additional;
+            if (required > this.bytes.length) {
+                final byte[] grown = new byte[Math.max(required, this.bytes.length * 2)];
+                System.arraycopy(this.bytes, 0, grown, 0, this.position);
+                this.bytes = grown;
+            }
+        }
+
+        private void trim() {
+            if (this.bytes.length > 64 * 1024) this.bytes = new byte[512];
+            if (this.scratch.capacity() > 64 * 1024) this.scratch = new StringBuilder(128);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pl.indianbartonka.util.logger.format;
+
+import java.io.IOException;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.color.AnsiColor;
+import pl.indianbartonka.util.logger.LogRecord;
+import pl.indianbartonka.util.logger.file.LogFileSink;
+
+/**
+ * Zapisuje każdy log jako jeden obiekt JSON w linii:
+ * <pre>{"time":1718000000123456000,"level":1,"threadId":1,"thread":"main","prefix":"Test","message":"Hello"}</pre>
+ * Pola {@code prefix}, {@code message} i {@code throwable} są pomijane gdy ich nie ma, {@code level} to {@link Enum#ordinal()} poziomu.
+ * Wiadomość zapisywana jest bez kolorów.
+ * Bufory są trzymane per wątek więc zwykły log nie tworzy nowych obiektów
+ */
+@Since("0.0.9.5")
+public final class JsonLogEncoder implements LogEncoder {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<StringBuilder[]> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder[]{new StringBuilder(256), new StringBuilder(128)});
+
+    @Override
+    public void encode(final LogRecord logRecord, final LogFileSink fileSink) throws IOException {
+        final StringBuilder[] buffers = BUFFERS.get();
+        final StringBuilder builder = buffers[0];
+        final StringBuilder scratch = buffers[1];
+        builder.setLength(0);
+
+        builder.append("{\"time\":").append(logRecord.epochNanos())
+                .append(",\"level\":").append(logRecord.logState().ordinal())
+                .append(",\"threadId\":").append(logRecord.threadId())
+                .append(",\"thread\":");
+        appendString(logRecord.threadName(), builder);
+
+        if (logRecord.loggerPrefix() != null) {
+            builder.append(",\"prefix\":");
+            appendString(logRecord.loggerPrefix(), builder);
+        }
+
+        if (logRecord.message() != null) {
+            scratch.setLength(0);
+            AnsiColor.removeColors(logRecord.message(), scratch);
+            builder.append(",\"message\":");
+            appendString(scratch, builder);
+        }
+
+        if (logRecord.throwable() != null) {
+            scratch.setLength(0);
+            LogEncoder.appendStackTrace(logRecord.throwable(), scratch);
+            builder.append(",\"throwable\":");
+            appendString(scratch, builder);
+        }
+
+        builder.append('}');
+        fileSink.writeLine(builder);
+
+        if (builder.capacity() > 64 * 1024) buffers[0] = new StringBuilder(256);
+        if (scratch.capacity() > 64 * 1024) buffers[1] = new StringBuilder(128);
+    }
+
+    private static void appendString(final CharSequence value, final StringBuilder builder) {
+        builder.append('"');
+
+        int start = 0;
+        final int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            final char character = value.charAt(i);
+            if (character >= 0x20 && character != '"' && character != '\\') continue;
+
+            builder.append(value, start, i);
+            start = i + 1;
+
+            switch (character) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                case '\b' -> builder.append("\\b");
+                case '\f' -> builder.append("\\f");
+                default -> builder.append("\\u00").append(HEX[character >> 4]).append(HEX[character & 0xF]);
+            }
+        }
+
+        builder.append(value, start, length).append('"');
+    }
+}
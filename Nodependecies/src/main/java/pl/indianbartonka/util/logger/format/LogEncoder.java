@@ -0,0 +1,37 @@
+package pl.indianbartonka.util.logger.format;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.LogRecord;
+import pl.indianbartonka.util.logger.file.LogFileSink;
+
+/**
+ * Zapisuje logi do pliku w formacie przeznaczonym dla maszyn
+ */
+@Since("0.0.9.5")
+public interface LogEncoder {
+
+    /**
+     * Zapisuje cały log razem z wyjątkiem jako jeden wpis
+     *
+     * @param logRecord log do zapisania
+     * @param fileSink  plik do którego log ma trafić
+     */
+    void encode(LogRecord logRecord, LogFileSink fileSink) throws IOException;
+
+    /**
+     * Dopisuje stack trace wyjątku w takiej samej postaci jak {@link Throwable#printStackTrace()}
+     */
+    static void appendStackTrace(final Throwable throwable, final StringBuilder builder) {
+        final StringWriter writer = new StringWriter(512);
+        throwable.printStackTrace(new PrintWriter(writer));
+
+        final StringBuffer stackTrace = writer.getBuffer();
+        int length = stackTrace.length();
+        while (length > 0 && (stackTrace.charAt(length - 1) == '\n' || stackTrace.charAt(length - 1) == '\r')) length--;
+
+        builder.append(stackTrace, 0, length);
+    }
+}
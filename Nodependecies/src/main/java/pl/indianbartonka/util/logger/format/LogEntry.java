@@ -0,0 +1,22 @@
+package pl.indianbartonka.util.logger.format;
+
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.LogState;
+
+/**
+ * Log odczytany z pliku przez {@link LogReader}
+ *
+ * @param epochNanos   czas utworzenia logu w nanosekundach od epoki
+ * @param logState     poziom logu
+ * @param threadId     id wątku który wywołał log
+ * @param threadName   nazwa wątku który wywołał log
+ * @param loggerPrefix prefix loggera, {@code null} dla głównego loggera
+ * @param message      wiadomość bez kolorów
+ * @param throwable    stack trace wyjątku
+ */
+@Since("0.0.9.5")
+public record LogEntry(long epochNanos, LogState logState, long threadId, String threadName,
+                       @Nullable String loggerPrefix, @Nullable String message, @Nullable String throwable) {
+
+}
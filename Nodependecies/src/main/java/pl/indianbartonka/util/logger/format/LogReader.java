@@ -0,0 +1,320 @@
+package pl.indianbartonka.util.logger.format;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.LogState;
+import pl.indianbartonka.util.logger.config.LogFormat;
+
+/**
+ * Strumieniowy odczyt logów zapisanych w formacie {@link LogFormat#JSON} lub {@link LogFormat#BINARY},
+ * w pamięci trzymany jest tylko aktualnie czytany log więc nadaje się też do bardzo dużych plików.
+ * <p>
+ * Niepełny ostatni log (np. gdy proces został zabity w trakcie zapisu) jest traktowany jak koniec pliku,
+ * uszkodzony log w środku pliku kończy się {@link IOException} z pozycją na której go znaleziono
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class LogReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    private static final LogState[] LOG_STATES = LogState.values();
+
+    private final LogFormat logFormat;
+    private final DataInputStream dataInput;
+    private final BufferedReader reader;
+    private final StringBuilder scratch;
+    private byte[] record;
+    private int recordLength;
+    private long recordOffset;
+    private long offset;
+    private long lineNumber;
+    private int position;
+
+    public LogReader(final InputStream inputStream, final LogFormat logFormat) {
+        this.logFormat = logFormat;
+        this.scratch = new StringBuilder(128);
+        this.record = new byte[512];
+
+        switch (logFormat) {
+            case BINARY -> {
+                this.dataInput = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+                this.reader = null;
+            }
+            case JSON -> {
+                this.dataInput = null;
+                this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+            }
+            default -> throw new IllegalArgumentException("Format " + logFormat + " nie jest wspierany przez " + LogReader.class.getSimpleName());
+        }
+    }
+
+    /**
+     * Otwiera plik logów, pliki kończące się na {@code .gz} (np. z archiwum) są rozpakowywane w locie
+     */
+    public static LogReader open(final File file, final LogFormat logFormat) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) inputStream = new GZIPInputStream(inputStream, BUFFER_SIZE);
+
+        return new LogReader(inputStream, logFormat);
+    }
+
+    /**
+     * @return następny log albo {@code null} gdy plik się skończył
+     */
+    @Nullable
+    public LogEntry read() throws IOException {
+        return this.logFormat == LogFormat.BINARY ? this.readBinary() : this.readJson();
+    }
+
+    /**
+     * Wywołuje {@code consumer} dla każdego pozostałego logu
+     */
+    public void forEach(final Consumer<LogEntry> consumer) throws IOException {
+        LogEntry logEntry;
+        while ((logEntry = this.read()) != null) {
+            consumer.accept(logEntry);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.dataInput != null) this.dataInput.close();
+        if (this.reader != null) this.reader.close();
+    }
+
+    @Nullable
+    private LogEntry readBinary() throws IOException {
+        this.recordOffset = this.offset;
+
+        final int headerRead = this.dataInput.readNBytes(this.record, 0, 4);
+        if (headerRead < 4) return null;
+
+        final int length = ((this.record[0] & 0xFF) << 24) | ((this.record[1] & 0xFF) << 16)
+                | ((this.record[2] & 0xFF) << 8) | (this.record[3] & 0xFF);
+
+        if (length < 0 || length > MAX_RECORD_SIZE) throw this.malformed("Niepoprawna długość rekordu " + length);
+        if (this.record.length < length) this.record = new byte[Math.max(length, this.record.length * 2)];
+
+        if (this.dataInput.readNBytes(this.record, 0, length) < length) return null;
+
+        this.offset += 4 + length;
+        this.recordLength = length;
+        this.position = 0;
+
+        final long epochNanos = this.readLong();
+        this.require(1);
+        final LogState logState = this.logState(this.record[this.position++] & 0xFF);
+        final long threadId = this.readLong();
+
+        return new LogEntry(epochNanos, logState, threadId, this.readString(), this.readString(),
+                this.readString(), this.readString());
+    }
+
+    private long readLong() throws IOException {
+        this.require(8);
+
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (this.record[this.position++] & 0xFF);
+        }
+        return value;
+    }
+
+    @Nullable
+    private String readString() throws IOException {
+        this.require(4);
+
+        int length = 0;
+        for (int i = 0; i < 4; i++) {
+            length = (length << 8) | (this.record[this.position++] & 0xFF);
+        }
+
+        if (length == -1) return null;
+        if (length < 0) throw this.malformed("Niepoprawna długość tekstu " + length);
+        this.require(length);
+
+        final String value = new String(this.record, this.position, length, StandardCharsets.UTF_8);
+        this.position += length;
+        return value;
+    }
+
+    private void require(final int bytes) throws IOException {
+        if (this.recordLength - this.position < bytes) throw this.malformed("Pole wychodzi poza rekord o długości " + this.recordLength);
+    }
+
+    private LogState logState(final long level) throws IOException {
+        if (level < 0 || level >= LOG_STATES.length) throw this.malformed("Nieznany poziom logu " + level);
+        return LOG_STATES[(int) level];
+    }
+
+    @Nullable
+    private LogEntry readJson() throws IOException {
+        String line;
+        do {
+            line = this.reader.readLine();
+            if (line == null) return null;
+            this.lineNumber++;
+        } while (line.isBlank());
+
+        try {
+            return this.parseJson(line);
+        } catch (final IOException exception) {
+            //Ucięta ostatnia linia to log którego zapis przerwano, a nie uszkodzony plik
+            if (this.isEndOfStream()) return null;
+            throw exception;
+        }
+    }
+
+    private LogEntry parseJson(final String line) throws IOException {
+        long epochNanos = 0;
+        LogState logState = LogState.NONE;
+        long threadId = 0;
+        String threadName = null, loggerPrefix = null, message = null, throwable = null;
+
+        this.position = this.skipWhitespace(line, 0);
+        this.expect(line, '{');
+
+        while (true) {
+            this.position = this.skipWhitespace(line, this.position);
+            if (this.peek(line) == '}') break;
+
+            final String key = this.readJsonString(line);
+            this.position = this.skipWhitespace(line, this.position);
+            this.expect(line, ':');
+            this.position = this.skipWhitespace(line, this.position);
+
+            switch (key) {
+                case "time" -> epochNanos = this.readJsonLong(line);
+                case "level" -> logState = this.logState(this.readJsonLong(line));
+                case "threadId" -> threadId = this.readJsonLong(line);
+                case "thread" -> threadName = this.readJsonValue(line);
+                case "prefix" -> loggerPrefix = this.readJsonValue(line);
+                case "message" -> message = this.readJsonValue(line);
+                case "throwable" -> throwable = this.readJsonValue(line);
+                default -> this.readJsonValue(line);
+            }
+
+            this.position = this.skipWhitespace(line, this.position);
+            if (this.peek(line) == ',') this.position++;
+        }
+
+        return new LogEntry(epochNanos, logState, threadId, threadName, loggerPrefix, message, throwable);
+    }
+
+    @Nullable
+    private String readJsonValue(final String line) throws IOException {
+        if (this.peek(line) == '"') return this.readJsonString(line);
+        if (line.startsWith("null", this.position)) {
+            this.position += 4;
+            return null;
+        }
+
+        final int start = this.position;
+        while (this.position < line.length() && ",}".indexOf(line.charAt(this.position)) == -1) this.position++;
+        return line.substring(start, this.position).trim();
+    }
+
+    private long readJsonLong(final String line) throws IOException {
+        final int start = this.position;
+        if (this.peek(line) == '-') this.position++;
+        while (this.position < line.length() && Character.isDigit(line.charAt(this.position))) this.position++;
+
+        try {
+            return Long.parseLong(line, start, this.position, 10);
+        } catch (final NumberFormatException exception) {
+            throw this.malformed("Niepoprawna liczba");
+        }
+    }
+
+    private String readJsonString(final String line) throws IOException {
+        this.expect(line, '"');
+        this.scratch.setLength(0);
+
+        int index = this.position;
+        while (true) {
+            if (index >= line.length()) {
+                this.position = index;
+                throw this.malformed("Niezakończony tekst");
+            }
+
+            final char character = line.charAt(index++);
+            if (character == '"') break;
+
+            if (character != '\\') {
+                this.scratch.append(character);
+                continue;
+            }
+
+            if (index >= line.length()) {
+                this.position = index;
+                throw this.malformed("Niezakończona sekwencja ucieczki");
+            }
+
+            final char escaped = line.charAt(index++);
+            switch (escaped) {
+                case 'n' -> this.scratch.append('\n');
+                case 'r' -> this.scratch.append('\r');
+                case 't' -> this.scratch.append('\t');
+                case 'b' -> this.scratch.append('\b');
+                case 'f' -> this.scratch.append('\f');
+                case 'u' -> {
+                    this.position = index;
+                    if (index + 4 > line.length()) throw this.malformed("Niezakończona sekwencja \\u");
+
+                    try {
+                        this.scratch.append((char) Integer.parseInt(line, index, index + 4, 16));
+                    } catch (final NumberFormatException exception) {
+                        throw this.malformed("Niepoprawna sekwencja \\u");
+                    }
+                    index += 4;
+                }
+                default -> this.scratch.append(escaped);
+            }
+        }
+
+        this.position = index;
+        return this.scratch.toString();
+    }
+
+    private void expect(final String line, final char expected) throws IOException {
+        if (this.peek(line) != expected) throw this.malformed("Oczekiwano '" + expected + "'");
+        this.position++;
+    }
+
+    private char peek(final String line) throws IOException {
+        if (this.position >= line.length()) throw this.malformed("Nieoczekiwany koniec linii");
+        return line.charAt(this.position);
+    }
+
+    private IOException malformed(final String reason) {
+        if (this.logFormat == LogFormat.BINARY) {
+            return new IOException(reason + ", uszkodzony rekord logu na pozycji " + this.recordOffset);
+        }
+        return new IOException(reason + " w linii " + this.lineNumber + " na pozycji " + this.position);
+    }
+
+    private boolean isEndOfStream() throws IOException {
+        this.reader.mark(1);
+        final boolean end = this.reader.read() == -1;
+        this.reader.reset();
+        return end;
+    }
+
+    private int skipWhitespace(final String line, int index) {
+        while (index < line.length() && Character.isWhitespace(line.charAt(index))) index++;
+        return index;
+    }
+}
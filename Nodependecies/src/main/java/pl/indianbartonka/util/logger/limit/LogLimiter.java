@@ -0,0 +1,177 @@
+package pl.indianbartonka.util.logger.limit;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.LogRecord;
+import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+
+/**
+ * Ogranicza ilość logów gdy ten sam błąd pojawia się tysiące razy na sekundę.
+ * <ul>
+ *     <li>limit takich samych wiadomości na sekundę, pominięte logi są podliczane przy następnym wpuszczonym</li>
+ *     <li>zwijanie powtórzeń, zamiast kolejnych identycznych logów wypisywane jest "Ostatni log powtórzył się N razy"</li>
+ *     <li>stack trace o tym samym odcisku jest wypisywany w całości tylko raz w danym oknie czasu</li>
+ * </ul>
+ * Jeden limiter jest współdzielony przez logger główny i wszystkie jego dzieci
+ */
+@Since("0.0.9.5")
+public final class LogLimiter {
+
+    private static final int MAX_TRACKED_KEYS = 4096;
+    private static final int MAX_CAUSE_DEPTH = 16;
+
+    private final int rateLimit;
+    private final boolean collapseRepeats;
+    private final long stackTraceWindowMillis;
+    private final Map<String, Window> windows;
+    private final Map<Long, Long> printedStackTraces;
+    private LogRecord lastRecord;
+    private int repeats;
+
+    public LogLimiter(final LoggerConfiguration configuration) {
+        this.rateLimit = configuration.getRateLimit();
+        this.collapseRepeats = configuration.isCollapseRepeatedLogs();
+        this.stackTraceWindowMillis = configuration.getStackTraceDedupMillis();
+        this.windows = new ConcurrentHashMap<>();
+        this.printedStackTraces = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return {@code true} jeśli w konfiguracji włączona jest którakolwiek z funkcji limitera
+     */
+    public static boolean isRequired(final LoggerConfiguration configuration) {
+        return configuration.getRateLimit() > 0 || configuration.isCollapseRepeatedLogs() || configuration.getStackTraceDedupMillis() > 0;
+    }
+
+    /**
+     * Sprawdza czy log o danym kluczu zmieści się w limicie na obecną sekundę
+     *
+     * @param key wiadomość albo szablon wiadomości
+     * @return {@code -1} gdy log ma zostać pominięty, w przeciwnym razie ilość logów o tym kluczu pominiętych wcześniej
+     */
+    public long tryAcquire(final String key) {
+        if (this.rateLimit <= 0) return 0;
+
+        if (this.windows.size() > MAX_TRACKED_KEYS) this.windows.clear();
+        final Window window = this.windows.computeIfAbsent(key, ignored -> new Window());
+        final long second = System.currentTimeMillis() / 1000;
+
+        synchronized (window) {
+            long suppressed = 0;
+
+            if (window.second != second) {
+                window.second = second;
+                window.count = 0;
+                suppressed = window.suppressed;
+                window.suppressed = 0;
+            }
+
+            if (++window.count > this.rateLimit) {
+                window.suppressed++;
+                return -1;
+            }
+
+            return suppressed;
+        }
+    }
+
+    /**
+     * Wywoływane przy zapisie, z zablokowanym limiterem
+     *
+     * @return {@code true} jeśli log jest taki sam jak poprzedni i nie powinien zostać wypisany
+     */
+    public boolean isRepeat(final LogRecord logRecord) {
+        if (!this.collapseRepeats || this.lastRecord == null || !isSame(this.lastRecord, logRecord)) return false;
+
+        this.repeats++;
+        return true;
+    }
+
+    /**
+     * Zapamiętuje log jako ostatni wypisany, wywoływane przy zapisie z zablokowanym limiterem
+     *
+     * @param logRecord log który zaraz zostanie wypisany, {@code null} przy {@code flush()}
+     * @return log z informacją ile razy powtórzył się poprzedni, albo {@code null} jeśli się nie powtarzał
+     */
+    @Nullable
+    public LogRecord swapLast(@Nullable final LogRecord logRecord) {
+        if (!this.collapseRepeats) return null;
+
+        final LogRecord previous = this.lastRecord;
+        final int previousRepeats = this.repeats;
+
+        this.lastRecord = logRecord;
+        this.repeats = 0;
+
+        if (previous == null || previousRepeats == 0) return null;
+
+        final long epochNanos = logRecord == null ? previous.epochNanos() : logRecord.epochNanos();
+        return new LogRecord(previous.logState(), epochNanos, previous.threadName(), previous.threadId(), previous.loggerPrefix(),
+                "&7Ostatni log powtórzył się&b " + previousRepeats + "&7 razy", null, previous.prefixed(), true, previous.console());
+    }
+
+    /**
+     * @return {@code true} jeśli stack trace o takim odcisku nie był wypisany w obecnym oknie czasu
+     */
+    public boolean shouldPrintStackTrace(final Throwable throwable) {
+        if (this.stackTraceWindowMillis <= 0) return true;
+
+        if (this.printedStackTraces.size() > MAX_TRACKED_KEYS) this.printedStackTraces.clear();
+
+        final long now = System.currentTimeMillis();
+        final long fingerprint = fingerprint(throwable);
+        final Long printed = this.printedStackTraces.get(fingerprint);
+
+        if (printed != null && now - printed < this.stackTraceWindowMillis) return false;
+
+        this.printedStackTraces.put(fingerprint, now);
+        return true;
+    }
+
+    /**
+     * Odcisk wyjątku liczony z klas i miejsc wywołania całego łańcucha przyczyn, bez wiadomości
+     */
+    public static long fingerprint(final Throwable throwable) {
+        long hash = 1125899906842597L;
+        Throwable current = throwable;
+
+        for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            hash = 31 * hash + current.getClass().getName().hashCode();
+
+            for (final StackTraceElement element : current.getStackTrace()) {
+                hash = 31 * hash + element.getClassName().hashCode();
+                hash = 31 * hash + element.getMethodName().hashCode();
+                hash = 31 * hash + element.getLineNumber();
+            }
+
+            if (current.getCause() == current) break;
+            current = current.getCause();
+        }
+
+        return hash;
+    }
+
+    private static boolean isSame(final LogRecord first, final LogRecord second) {
+        return first.logState() == second.logState()
+                && first.newLine() && second.newLine()
+                && first.console() == second.console()
+                && Objects.equals(first.message(), second.message())
+                && Objects.equals(first.loggerPrefix(), second.loggerPrefix())
+                && sameThrowable(first.throwable(), second.throwable());
+    }
+
+    private static boolean sameThrowable(@Nullable final Throwable first, @Nullable final Throwable second) {
+        if (first == null || second == null) return first == second;
+        return fingerprint(first) == fingerprint(second);
+    }
+
+    private static final class Window {
+
+        private long second;
+        private int count;
+        private long suppressed;
+    }
+}
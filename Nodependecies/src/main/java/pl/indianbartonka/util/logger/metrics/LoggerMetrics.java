@@ -0,0 +1,75 @@
+package pl.indianbartonka.util.logger.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.LogState;
+
+/**
+ * Liczniki jednego loggera, oparte o {@link LongAdder} więc wiele wątków może je zwiększać bez rywalizacji o jedną zmienną
+ */
+@Since("0.0.9.5")
+public final class LoggerMetrics {
+
+    private static final LogState[] LOG_STATES = LogState.values();
+
+    private final LongAdder[] events;
+    private final LongAdder suppressedEvents;
+    private final LongAdder writes;
+    private final LongAdder writeNanos;
+
+    public LoggerMetrics() {
+        this.events = new LongAdder[LOG_STATES.length];
+        for (int i = 0; i < this.events.length; i++) {
+            this.events[i] = new LongAdder();
+        }
+
+        this.suppressedEvents = new LongAdder();
+        this.writes = new LongAdder();
+        this.writeNanos = new LongAdder();
+    }
+
+    /**
+     * Zapisuje wysłanie logu i czas jaki zajęło wątkowi logującemu
+     *
+     * @param logState  poziom logu
+     * @param nanos     czas wywołania zapisu w nanosekundach
+     */
+    public void recordWrite(final LogState logState, final long nanos) {
+        this.events[logState.ordinal()].increment();
+        this.writes.increment();
+        this.writeNanos.add(nanos);
+    }
+
+    /**
+     * Zapisuje log pominięty przez limit logów
+     */
+    public void recordSuppressed() {
+        this.suppressedEvents.increment();
+    }
+
+    public long getEvents(final LogState logState) {
+        return this.events[logState.ordinal()].sum();
+    }
+
+    public long getSuppressedEvents() {
+        return this.suppressedEvents.sum();
+    }
+
+    public long getWrites() {
+        return this.writes.sum();
+    }
+
+    public long getWriteNanos() {
+        return this.writeNanos.sum();
+    }
+
+    /**
+     * Zeruje wszystkie liczniki
+     */
+    public void reset() {
+        for (final LongAdder adder : this.events) adder.reset();
+        this.suppressedEvents.reset();
+        this.writes.reset();
+        this.writeNanos.reset();
+    }
+}
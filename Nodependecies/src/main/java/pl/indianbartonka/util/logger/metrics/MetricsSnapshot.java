@@ -0,0 +1,60 @@
+package pl.indianbartonka.util.logger.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.logger.LogState;
+
+/**
+ * Stan liczników loggera w danej chwili
+ *
+ * @param loggerName       nazwa loggera, prefix albo {@code root}
+ * @param events           ilość logów według poziomu
+ * @param suppressedEvents ilość logów pominiętych przez limit logów
+ * @param writes           ilość wywołań zapisu
+ * @param writeNanos       łączny czas wywołań zapisu po stronie wątku logującego
+ * @param bytesWritten     ilość bajtów zapisanych do pliku logów
+ * @param droppedEvents    ilość logów odrzuconych przez pełną kolejkę w trybie asynchronicznym
+ */
+@Since("0.0.9.5")
+public record MetricsSnapshot(String loggerName, Map<LogState, Long> events, long suppressedEvents, long writes,
+                              long writeNanos, long bytesWritten, long droppedEvents) {
+
+    public static MetricsSnapshot of(final String loggerName, final LoggerMetrics metrics, final long bytesWritten, final long droppedEvents) {
+        final Map<LogState, Long> events = new EnumMap<>(LogState.class);
+        for (final LogState logState : LogState.values()) {
+            events.put(logState, metrics.getEvents(logState));
+        }
+
+        return new MetricsSnapshot(loggerName, events, metrics.getSuppressedEvents(), metrics.getWrites(),
+                metrics.getWriteNanos(), bytesWritten, droppedEvents);
+    }
+
+    /**
+     * Sumuje liczniki logów z innym loggerem, bajty i odrzucone logi są wspólne dla całego drzewa więc bierze większą wartość
+     */
+    public MetricsSnapshot merge(final MetricsSnapshot other) {
+        final Map<LogState, Long> merged = new EnumMap<>(this.events);
+        other.events.forEach((logState, count) -> merged.merge(logState, count, Long::sum));
+
+        return new MetricsSnapshot(this.loggerName, merged, this.suppressedEvents + other.suppressedEvents, this.writes + other.writes,
+                this.writeNanos + other.writeNanos, Math.max(this.bytesWritten, other.bytesWritten), Math.max(this.droppedEvents, other.droppedEvents));
+    }
+
+    public long getEvents(final LogState logState) {
+        return this.events.getOrDefault(logState, 0L);
+    }
+
+    public long getTotalEvents() {
+        long total = 0;
+        for (final long count : this.events.values()) total += count;
+        return total;
+    }
+
+    /**
+     * @return średni czas jednego zapisu w nanosekundach
+     */
+    public double getAverageWriteNanos() {
+        return this.writes == 0 ? 0 : (double) this.writeNanos / this.writes;
+    }
+}
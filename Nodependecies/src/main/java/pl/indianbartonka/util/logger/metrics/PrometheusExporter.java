@@ -0,0 +1,86 @@
+package pl.indianbartonka.util.logger.metrics;
+
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.annotation.UtilityClass;
+import pl.indianbartonka.util.logger.LogState;
+
+/**
+ * Zamienia liczniki loggerów na format tekstowy Prometheusa
+ */
+@Since("0.0.9.5")
+@UtilityClass
+public final class PrometheusExporter {
+
+    private static final String PREFIX = "indianutils_logger_";
+
+    private PrometheusExporter() {
+
+    }
+
+    public static String export(final Collection<MetricsSnapshot> snapshots) {
+        final StringBuilder builder = new StringBuilder(1024);
+
+        header(builder, "events_total", "counter", "Ilość logów według poziomu");
+        for (final MetricsSnapshot snapshot : snapshots) {
+            for (final LogState logState : LogState.values()) {
+                builder.append(PREFIX).append("events_total{logger=\"");
+                appendLabel(snapshot.loggerName(), builder);
+                builder.append("\",level=\"").append(logState.name()).append("\"} ").append(snapshot.getEvents(logState)).append('\n');
+            }
+        }
+
+        sample(builder, snapshots, "suppressed_events_total", "counter", "Logi pominięte przez limit logów", MetricsSnapshot::suppressedEvents);
+        sample(builder, snapshots, "writes_total", "counter", "Ilość wywołań zapisu", MetricsSnapshot::writes);
+
+        header(builder, "write_seconds_total", "counter", "Czas wywołań zapisu po stronie wątku logującego");
+        for (final MetricsSnapshot snapshot : snapshots) {
+            builder.append(PREFIX).append("write_seconds_total{logger=\"");
+            appendLabel(snapshot.loggerName(), builder);
+            builder.append("\"} ").append(snapshot.writeNanos() / 1_000_000_000D).append('\n');
+        }
+
+        //Plik logów i kolejka są wspólne dla całego drzewa loggerów więc te liczniki nie mają etykiety
+        long bytesWritten = 0, droppedEvents = 0;
+        for (final MetricsSnapshot snapshot : snapshots) {
+            bytesWritten = Math.max(bytesWritten, snapshot.bytesWritten());
+            droppedEvents = Math.max(droppedEvents, snapshot.droppedEvents());
+        }
+
+        header(builder, "bytes_written_total", "counter", "Bajty zapisane do pliku logów");
+        builder.append(PREFIX).append("bytes_written_total ").append(bytesWritten).append('\n');
+        header(builder, "dropped_events_total", "counter", "Logi odrzucone przez pełną kolejkę trybu asynchronicznego");
+        builder.append(PREFIX).append("dropped_events_total ").append(droppedEvents).append('\n');
+
+        return builder.toString();
+    }
+
+    private static void sample(final StringBuilder builder, final Collection<MetricsSnapshot> snapshots, final String name,
+                               final String type, final String help, final ToLongFunction<MetricsSnapshot> getter) {
+        header(builder, name, type, help);
+
+        for (final MetricsSnapshot snapshot : snapshots) {
+            builder.append(PREFIX).append(name).append("{logger=\"");
+            appendLabel(snapshot.loggerName(), builder);
+            builder.append("\"} ").append(getter.applyAsLong(snapshot)).append('\n');
+        }
+    }
+
+    private static void header(final StringBuilder builder, final String name, final String type, final String help) {
+        builder.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendLabel(final String value, final StringBuilder builder) {
+        for (int i = 0; i < value.length(); i++) {
+            final char character = value.charAt(i);
+            switch (character) {
+                case '\\' -> builder.append("\\\\");
+                case '"' -> builder.append("\\\"");
+                case '\n' -> builder.append("\\n");
+                default -> builder.append(character);
+            }
+        }
+    }
+}
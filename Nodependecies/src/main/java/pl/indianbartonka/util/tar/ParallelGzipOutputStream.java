@@ -0,0 +1,262 @@
+package pl.indianbartonka.util.tar;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.zip.ZipResourcePool;
+
+/**
+ * GZIP output stream compressing independent blocks on a {@link ForkJoinPool}.
+ * <p>
+ * Written data is cut into blocks of {@link #DEFAULT_BLOCK_SIZE} bytes, every block becomes a complete GZIP member
+ * with its own header, CRC and size. Concatenated members are a valid GZIP file (RFC 1952), {@code gzip -d},
+ * {@code tar -xz} and {@link java.util.zip.GZIPInputStream} read them as one stream. Blocks do not share a dictionary,
+ * so the output is slightly larger than single-threaded GZIP in exchange for near linear speedup.
+ * </p>
+ * <p>
+ * Members are written in order by the thread calling {@link #write(byte[], int, int)}, at most two blocks per worker are kept in memory.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class ParallelGzipOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+
+    private final OutputStream outputStream;
+    private final int compressionLevel;
+    private final int blockSize;
+    private final ForkJoinPool pool;
+    private final ZipResourcePool resourcePool;
+    private final int maxInFlight;
+    private final ArrayDeque<CompletableFuture<Block>> inFlight;
+    private byte[] block;
+    private int blockLength;
+    private long bytesWritten;
+    private boolean membersWritten;
+    private boolean finished;
+
+    /**
+     * @param outputStream     stream the compressed data is written to, it is closed by {@link #close()}
+     * @param compressionLevel deflate level from 0 to 9
+     * @param parallelism      number of compression threads
+     */
+    public ParallelGzipOutputStream(final OutputStream outputStream, final int compressionLevel, final int parallelism) {
+        this(outputStream, compressionLevel, parallelism, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param outputStream     stream the compressed data is written to, it is closed by {@link #close()}
+     * @param compressionLevel deflate level from 0 to 9
+     * @param parallelism      number of compression threads
+     * @param blockSize        uncompressed size of one GZIP member
+     */
+    public ParallelGzipOutputStream(final OutputStream outputStream, final int compressionLevel, final int parallelism, final int blockSize) {
+        if (blockSize <= 0) throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+
+        this.outputStream = outputStream;
+        this.compressionLevel = Math.max(0, Math.min(9, compressionLevel));
+        this.blockSize = blockSize;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), ParallelGzipOutputStream::newWorker, null, false);
+        this.resourcePool = ZipResourcePool.shared();
+        this.maxInFlight = Math.max(1, parallelism) * 2;
+        this.inFlight = new ArrayDeque<>();
+    }
+
+    @Override
+    public void write(final int value) throws IOException {
+        this.write(new byte[]{(byte) value}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, int offset, int length) throws IOException {
+        if (this.finished) throw new IOException("The stream has already been finished");
+
+        while (length > 0) {
+            if (this.block == null) {
+                this.block = this.resourcePool.acquireBuffer(this.blockSize);
+                this.blockLength = 0;
+            }
+
+            final int copied = Math.min(length, this.blockSize - this.blockLength);
+            System.arraycopy(bytes, offset, this.block, this.blockLength, copied);
+            this.blockLength += copied;
+            offset += copied;
+            length -= copied;
+
+            if (this.blockLength == this.blockSize) this.submitBlock();
+        }
+    }
+
+    /**
+     * Compresses the buffered data as a member of its own and writes all pending members
+     *
+     * @throws IOException If compressing or writing failed.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (this.finished) return;
+
+        this.submitBlock();
+        while (!this.inFlight.isEmpty()) {
+            this.writeNext();
+        }
+        this.outputStream.flush();
+    }
+
+    /**
+     * Writes all remaining data without closing the underlying stream
+     *
+     * @throws IOException If compressing or writing failed.
+     */
+    public void finish() throws IOException {
+        if (this.finished) return;
+
+        try {
+            this.flush();
+
+            //Empty input still has to be a valid GZIP file
+            if (!this.membersWritten) this.writeMember(this.compress(new byte[0], 0));
+
+            this.outputStream.flush();
+            this.finished = true;
+        } catch (final IOException | RuntimeException exception) {
+            this.abort();
+            throw exception;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.finish();
+        } finally {
+            this.abort();
+            this.outputStream.close();
+        }
+    }
+
+    /**
+     * @return Number of compressed bytes written to the underlying stream
+     */
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    private void submitBlock() throws IOException {
+        if (this.block == null || this.blockLength == 0) return;
+
+        while (this.inFlight.size() >= this.maxInFlight) {
+            this.writeNext();
+        }
+
+        final byte[] data = this.block;
+        final int length = this.blockLength;
+        this.block = null;
+        this.blockLength = 0;
+
+        this.inFlight.add(CompletableFuture.supplyAsync(() -> this.compress(data, length), this.pool));
+    }
+
+    private void writeNext() throws IOException {
+        final Block member;
+        try {
+            member = this.inFlight.poll().join();
+        } catch (final CompletionException | CancellationException exception) {
+            this.abort();
+            throw new IOException("Compressing a GZIP block failed", exception.getCause() == null ? exception : exception.getCause());
+        }
+
+        this.writeMember(member);
+    }
+
+    private void writeMember(final Block member) throws IOException {
+        try {
+            this.outputStream.write(member.data, 0, member.length);
+            this.bytesWritten += member.length;
+            this.membersWritten = true;
+        } finally {
+            this.resourcePool.releaseBuffer(member.data);
+        }
+    }
+
+    private Block compress(final byte[] input, final int length) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(input, 0, length);
+
+        final Deflater deflater = this.resourcePool.acquireDeflater(this.compressionLevel, true);
+        byte[] output = this.resourcePool.acquireBuffer(length + (length >> 3) + 64);
+
+        try {
+            System.arraycopy(HEADER, 0, output, 0, HEADER.length);
+            int outputLength = HEADER.length;
+
+            deflater.setInput(input, 0, length);
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                if (outputLength == output.length) {
+                    final byte[] grown = this.resourcePool.acquireBuffer(output.length * 2);
+                    System.arraycopy(output, 0, grown, 0, outputLength);
+                    this.resourcePool.releaseBuffer(output);
+                    output = grown;
+                }
+
+                outputLength += deflater.deflate(output, outputLength, output.length - outputLength);
+            }
+
+            if (output.length - outputLength < 8) {
+                final byte[] grown = this.resourcePool.acquireBuffer(outputLength + 8);
+                System.arraycopy(output, 0, grown, 0, outputLength);
+                this.resourcePool.releaseBuffer(output);
+                output = grown;
+            }
+
+            writeIntLE(output, outputLength, crc32.getValue());
+            writeIntLE(output, outputLength + 4, length);
+
+            return new Block(output, outputLength + 8);
+        } catch (final RuntimeException exception) {
+            this.resourcePool.releaseBuffer(output);
+            throw exception;
+        } finally {
+            this.resourcePool.releaseDeflater(deflater, this.compressionLevel, true);
+            this.resourcePool.releaseBuffer(input);
+        }
+    }
+
+    private void abort() {
+        CompletableFuture<Block> future;
+        while ((future = this.inFlight.poll()) != null) {
+            future.cancel(false);
+        }
+
+        this.pool.shutdownNow();
+    }
+
+    private static void writeIntLE(final byte[] bytes, final int offset, final long value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static ForkJoinWorkerThread newWorker(final ForkJoinPool pool) {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Gzip-Worker-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private record Block(byte[] data, int length) {
+    }
+}
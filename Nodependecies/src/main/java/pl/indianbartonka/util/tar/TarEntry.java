@@ -0,0 +1,57 @@
+package pl.indianbartonka.util.tar;
+
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Set;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Metadata of a single tar entry
+ *
+ * @param name         path inside the archive, using {@code /} as separator, directories end with {@code /}
+ * @param type         ustar type flag, see the {@code TYPE_*} constants
+ * @param mode         POSIX permission bits, for example {@code 0755}
+ * @param uid          numeric owner id
+ * @param gid          numeric group id
+ * @param userName     owner name, can be empty
+ * @param groupName    group name, can be empty
+ * @param size         size of the content in bytes, 0 for anything but regular files
+ * @param lastModified modification time in milliseconds
+ * @param linkName     target of a symbolic or hard link, empty for other entries
+ */
+@Since("0.0.9.5")
+public record TarEntry(String name, char type, int mode, long uid, long gid, String userName, String groupName,
+                       long size, long lastModified, String linkName) {
+
+    public static final char TYPE_FILE = '0';
+    public static final char TYPE_HARD_LINK = '1';
+    public static final char TYPE_SYMLINK = '2';
+    public static final char TYPE_DIRECTORY = '5';
+
+    public boolean isFile() {
+        return this.type == TYPE_FILE || this.type == '\0' || this.type == '7';
+    }
+
+    public boolean isDirectory() {
+        return this.type == TYPE_DIRECTORY;
+    }
+
+    public boolean isSymbolicLink() {
+        return this.type == TYPE_SYMLINK;
+    }
+
+    public boolean isHardLink() {
+        return this.type == TYPE_HARD_LINK;
+    }
+
+    /**
+     * @return The permission bits of {@link #mode()} as {@link PosixFilePermission} values
+     */
+    public Set<PosixFilePermission> permissions() {
+        final Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+        for (final PosixFilePermission permission : PosixFilePermission.values()) {
+            if ((this.mode & (1 << (8 - permission.ordinal()))) != 0) permissions.add(permission);
+        }
+        return permissions;
+    }
+}
@@ -0,0 +1,269 @@
+package pl.indianbartonka.util.tar;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Reads a tar archive entry by entry from a stream.
+ * <p>
+ * Understands ustar, pax extended headers ({@code x}, global {@code g} headers are skipped) and GNU long names ({@code L}, {@code K}),
+ * octal as well as base-256 numbers. Content of the current entry is read with {@link #read(byte[], int, int)} or
+ * {@link #getEntryInputStream()}, whatever is left unread is skipped by the next {@link #nextEntry()}.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class TarReader implements Closeable {
+
+    private final InputStream inputStream;
+    private final byte[] header;
+    private final InputStream entryInputStream;
+    private long remaining;
+    private long padding;
+    private boolean ended;
+
+    /**
+     * @param inputStream stream with the uncompressed archive, it is closed by {@link #close()}
+     */
+    public TarReader(final InputStream inputStream) {
+        this.inputStream = inputStream;
+        this.header = new byte[TarWriter.BLOCK_SIZE];
+        this.entryInputStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                final byte[] single = new byte[1];
+                return TarReader.this.read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+                return TarReader.this.read(bytes, offset, length);
+            }
+        };
+    }
+
+    /**
+     * Moves to the next entry, skipping the unread content of the current one
+     *
+     * @return The next entry or {@code null} at the end of the archive
+     * @throws IOException If reading fails or a header is corrupted.
+     */
+    public @Nullable TarEntry nextEntry() throws IOException {
+        if (this.ended) return null;
+
+        this.inputStream.skipNBytes(this.remaining + this.padding);
+        this.remaining = 0;
+        this.padding = 0;
+
+        final Map<String, String> paxRecords = new HashMap<>();
+        String longName = null;
+        String longLinkName = null;
+
+        while (true) {
+            if (!this.readHeader()) {
+                this.ended = true;
+                return null;
+            }
+
+            final char type = (char) this.header[156];
+            final long size = parseNumber(this.header, 124, 12);
+
+            switch (type) {
+                case 'x' -> paxRecords.putAll(parsePax(this.readData(size)));
+                case 'g' -> this.readData(size);
+                case 'L' -> longName = trimNull(new String(this.readData(size), StandardCharsets.UTF_8));
+                case 'K' -> longLinkName = trimNull(new String(this.readData(size), StandardCharsets.UTF_8));
+                default -> {
+                    final TarEntry entry = this.buildEntry(type, size, paxRecords, longName, longLinkName);
+
+                    this.remaining = entry.isFile() ? entry.size() : 0;
+                    this.padding = (TarWriter.BLOCK_SIZE - this.remaining % TarWriter.BLOCK_SIZE) % TarWriter.BLOCK_SIZE;
+
+                    //Directories, links and other entries can still carry data which has to be skipped
+                    if (!entry.isFile() && size > 0) {
+                        this.padding += size + (TarWriter.BLOCK_SIZE - size % TarWriter.BLOCK_SIZE) % TarWriter.BLOCK_SIZE;
+                    }
+                    return entry;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads content of the current entry
+     *
+     * @return Number of bytes read or {@code -1} at the end of the entry
+     * @throws IOException If reading fails or the archive ends in the middle of the entry.
+     */
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (this.remaining <= 0) return -1;
+        if (length == 0) return 0;
+
+        final int read = this.inputStream.read(bytes, offset, (int) Math.min(length, this.remaining));
+        if (read < 0) throw new EOFException("Archive ended in the middle of an entry");
+
+        this.remaining -= read;
+        return read;
+    }
+
+    /**
+     * @return Stream over the content of the current entry, closing it does nothing
+     */
+    public InputStream getEntryInputStream() {
+        return this.entryInputStream;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.inputStream.close();
+    }
+
+    private TarEntry buildEntry(final char type, final long size, final Map<String, String> pax, @Nullable final String longName,
+                                @Nullable final String longLinkName) throws IOException {
+        String name = pax.get("path");
+        if (name == null) name = longName;
+        if (name == null) {
+            name = readString(this.header, 0, 100);
+            final boolean ustar = this.header[257] == 'u' && this.header[258] == 's' && this.header[259] == 't';
+            final String prefix = ustar ? readString(this.header, 345, 155) : "";
+            if (!prefix.isEmpty()) name = prefix + "/" + name;
+        }
+
+        String linkName = pax.get("linkpath");
+        if (linkName == null) linkName = longLinkName;
+        if (linkName == null) linkName = readString(this.header, 157, 100);
+
+        final String userName = pax.getOrDefault("uname", readString(this.header, 265, 32));
+        final String groupName = pax.getOrDefault("gname", readString(this.header, 297, 32));
+
+        try {
+            final long entrySize = pax.containsKey("size") ? Long.parseLong(pax.get("size")) : size;
+            final long uid = pax.containsKey("uid") ? Long.parseLong(pax.get("uid")) : parseNumber(this.header, 108, 8);
+            final long gid = pax.containsKey("gid") ? Long.parseLong(pax.get("gid")) : parseNumber(this.header, 116, 8);
+            final long lastModified = pax.containsKey("mtime")
+                    ? (long) (Double.parseDouble(pax.get("mtime")) * 1000)
+                    : parseNumber(this.header, 136, 12) * 1000;
+
+            //Old archives mark directories only with a trailing slash
+            final char entryType = type == '\0' && name.endsWith("/") ? TarEntry.TYPE_DIRECTORY : type;
+
+            return new TarEntry(name, entryType, (int) parseNumber(this.header, 100, 8) & 07777, uid, gid, userName, groupName,
+                    entrySize, lastModified, linkName);
+        } catch (final NumberFormatException exception) {
+            throw new IOException("Corrupted pax header of " + name, exception);
+        }
+    }
+
+    private boolean readHeader() throws IOException {
+        while (true) {
+            final int read = this.inputStream.readNBytes(this.header, 0, TarWriter.BLOCK_SIZE);
+            if (read == 0) return false;
+            if (read < TarWriter.BLOCK_SIZE) throw new EOFException("Archive ended in the middle of a header");
+
+            if (!isZero(this.header)) break;
+
+            //Two zero blocks end the archive, some writers leave out the second one
+            final int next = this.inputStream.readNBytes(this.header, 0, TarWriter.BLOCK_SIZE);
+            if (next < TarWriter.BLOCK_SIZE || isZero(this.header)) return false;
+            break;
+        }
+
+        long unsigned = 0;
+        long signed = 0;
+        for (int i = 0; i < TarWriter.BLOCK_SIZE; i++) {
+            final byte value = i >= 148 && i < 156 ? (byte) ' ' : this.header[i];
+            unsigned += value & 0xFF;
+            signed += value;
+        }
+
+        final long checksum = parseNumber(this.header, 148, 8);
+        if (checksum != unsigned && checksum != signed) throw new IOException("Corrupted tar header, checksum does not match");
+
+        return true;
+    }
+
+    private byte[] readData(final long size) throws IOException {
+        if (size > Integer.MAX_VALUE - 8) throw new IOException("Extended header is too large: " + size);
+
+        final byte[] data = this.inputStream.readNBytes((int) size);
+        if (data.length < size) throw new EOFException("Archive ended in the middle of an extended header");
+
+        this.inputStream.skipNBytes((TarWriter.BLOCK_SIZE - size % TarWriter.BLOCK_SIZE) % TarWriter.BLOCK_SIZE);
+        return data;
+    }
+
+    private static Map<String, String> parsePax(final byte[] data) throws IOException {
+        final Map<String, String> records = new HashMap<>();
+        int position = 0;
+
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') space++;
+            if (space == data.length) break;
+
+            final int length;
+            try {
+                length = Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII));
+            } catch (final NumberFormatException exception) {
+                throw new IOException("Corrupted pax record", exception);
+            }
+
+            if (length <= 0 || position + length > data.length) throw new IOException("Corrupted pax record length: " + length);
+
+            final String record = new String(data, space + 1, position + length - space - 2, StandardCharsets.UTF_8);
+            final int equals = record.indexOf('=');
+            if (equals > 0) records.put(record.substring(0, equals), record.substring(equals + 1));
+
+            position += length;
+        }
+
+        return records;
+    }
+
+    private static long parseNumber(final byte[] header, final int offset, final int length) {
+        //Base-256, used by GNU tar for values which do not fit in octal
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x3F;
+            for (int i = 1; i < length; i++) {
+                value = (value << 8) | (header[offset + i] & 0xFF);
+            }
+            return (header[offset] & 0x40) != 0 ? -value : value;
+        }
+
+        long value = 0;
+        int i = offset;
+        final int end = offset + length;
+
+        while (i < end && (header[i] == ' ' || header[i] == '0' && value == 0)) i++;
+        for (; i < end && header[i] >= '0' && header[i] <= '7'; i++) {
+            value = (value << 3) + (header[i] - '0');
+        }
+
+        return value;
+    }
+
+    private static String readString(final byte[] header, final int offset, final int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) end++;
+
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String trimNull(final String text) {
+        final int index = text.indexOf('\0');
+        return index < 0 ? text : text.substring(0, index);
+    }
+
+    private static boolean isZero(final byte[] block) {
+        for (final byte value : block) {
+            if (value != 0) return false;
+        }
+        return true;
+    }
+}
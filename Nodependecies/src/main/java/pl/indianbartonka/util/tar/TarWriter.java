@@ -0,0 +1,331 @@
+package pl.indianbartonka.util.tar;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.zip.ZipResourcePool;
+
+/**
+ * Writes a POSIX tar archive (ustar headers with pax extended headers when needed) to a stream.
+ * <p>
+ * Names longer than the ustar fields allow, non-ASCII names, link targets, sizes over 8 GiB and ids or times
+ * out of the octal range are written as pax records, so every entry keeps its exact metadata.
+ * The archive ends with two zero blocks and is padded to the usual 10 KiB record size.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class TarWriter implements Closeable {
+
+    public static final int BLOCK_SIZE = 512;
+    public static final int RECORD_SIZE = 20 * BLOCK_SIZE;
+
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+    private static final long MAX_OCTAL_ID = 07777777L;
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    private final OutputStream outputStream;
+    private final byte[] header;
+    private long bytesWritten;
+    private boolean finished;
+
+    /**
+     * @param outputStream stream the archive is written to, it is closed by {@link #close()}
+     */
+    public TarWriter(final OutputStream outputStream) {
+        this.outputStream = outputStream;
+        this.header = new byte[BLOCK_SIZE];
+    }
+
+    /**
+     * Adds a file, directory or symbolic link with its permissions, owner and modification time.
+     * Symbolic links are stored as links and never followed.
+     *
+     * @param path      The path to add.
+     * @param entryName The name of the entry, using {@code /} as separator.
+     * @return The written entry.
+     * @throws IOException If reading the path or writing the archive fails.
+     */
+    public TarEntry putPath(final Path path, final String entryName) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+        int mode = attributes.isDirectory() ? 0755 : 0644;
+        String userName = "";
+        String groupName = "";
+        long uid = 0;
+        long gid = 0;
+
+        if (POSIX) {
+            final PosixFileAttributes posixAttributes = Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            mode = toMode(posixAttributes.permissions());
+            userName = posixAttributes.owner().getName();
+            groupName = posixAttributes.group().getName();
+            uid = readId(path, "unix:uid");
+            gid = readId(path, "unix:gid");
+        }
+
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+
+        if (attributes.isSymbolicLink()) {
+            final TarEntry entry = new TarEntry(entryName, TarEntry.TYPE_SYMLINK, mode, uid, gid, userName, groupName, 0, lastModified,
+                    Files.readSymbolicLink(path).toString().replace('\\', '/'));
+            this.putEntry(entry, null);
+            return entry;
+        }
+
+        if (attributes.isDirectory()) {
+            final TarEntry entry = new TarEntry(entryName.endsWith("/") ? entryName : entryName + "/", TarEntry.TYPE_DIRECTORY,
+                    mode, uid, gid, userName, groupName, 0, lastModified, "");
+            this.putEntry(entry, null);
+            return entry;
+        }
+
+        final TarEntry entry = new TarEntry(entryName, TarEntry.TYPE_FILE, mode, uid, gid, userName, groupName, attributes.size(), lastModified, "");
+        try (final InputStream inputStream = Files.newInputStream(path)) {
+            this.putEntry(entry, inputStream);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Writes an entry, for regular files exactly {@link TarEntry#size()} bytes are copied from {@code content}
+     *
+     * @param entry   The entry to write.
+     * @param content The content of a regular file, ignored for other entries.
+     * @throws IOException If writing fails or the content is shorter than the entry size.
+     */
+    public void putEntry(final TarEntry entry, @Nullable final InputStream content) throws IOException {
+        if (this.finished) throw new IllegalStateException("The archive has already been finished");
+
+        final Map<String, String> paxRecords = paxRecords(entry);
+        if (!paxRecords.isEmpty()) this.writePaxHeader(entry, paxRecords);
+
+        this.writeHeader(entry.name(), entry.type(), entry.mode(), entry.uid(), entry.gid(), entry.size(),
+                entry.lastModified() / 1000, entry.linkName(), entry.userName(), entry.groupName());
+
+        if (!entry.isFile() || entry.size() == 0) return;
+        if (content == null) throw new IllegalArgumentException("Regular file entry " + entry.name() + " needs content");
+
+        final ZipResourcePool pool = ZipResourcePool.shared();
+        final byte[] buffer = pool.acquireBuffer(64 * 1024);
+
+        try {
+            long remaining = entry.size();
+            while (remaining > 0) {
+                final int read = content.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) throw new EOFException("Content of " + entry.name() + " is shorter than " + entry.size() + " bytes");
+
+                this.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } finally {
+            pool.releaseBuffer(buffer);
+        }
+
+        this.padBlock();
+    }
+
+    /**
+     * Writes the end-of-archive blocks and flushes the stream without closing it
+     *
+     * @throws IOException If writing fails.
+     */
+    public void finish() throws IOException {
+        if (this.finished) return;
+
+        Arrays.fill(this.header, (byte) 0);
+        this.write(this.header, 0, BLOCK_SIZE);
+        this.write(this.header, 0, BLOCK_SIZE);
+
+        while (this.bytesWritten % RECORD_SIZE != 0) {
+            this.write(this.header, 0, BLOCK_SIZE);
+        }
+
+        this.outputStream.flush();
+        this.finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.finish();
+        } finally {
+            this.outputStream.close();
+        }
+    }
+
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    private void writePaxHeader(final TarEntry entry, final Map<String, String> records) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (final Map.Entry<String, String> record : records.entrySet()) {
+            builder.append(paxRecord(record.getKey(), record.getValue()));
+        }
+
+        final byte[] data = builder.toString().getBytes(StandardCharsets.UTF_8);
+        final String baseName = entry.name().substring(entry.name().lastIndexOf('/', entry.name().length() - 2) + 1);
+
+        this.writeHeader("PaxHeaders/" + baseName, 'x', 0644, 0, 0, data.length, 0, "", "", "");
+        this.write(data, 0, data.length);
+        this.padBlock();
+    }
+
+    private void writeHeader(final String name, final char type, final int mode, final long uid, final long gid, final long size,
+                             final long mtime, final String linkName, final String userName, final String groupName) throws IOException {
+        final byte[] header = this.header;
+        Arrays.fill(header, (byte) 0);
+
+        final byte[] nameBytes = asciiOrFallback(name);
+        final int split = ustarSplit(nameBytes);
+        if (split > 0) {
+            System.arraycopy(nameBytes, split + 1, header, 0, nameBytes.length - split - 1);
+            System.arraycopy(nameBytes, 0, header, 345, split);
+        } else {
+            //Too long, the real name is in the pax header
+            final int offset = Math.max(0, nameBytes.length - 100);
+            System.arraycopy(nameBytes, offset, header, 0, nameBytes.length - offset);
+        }
+
+        writeOctal(header, 100, 8, mode & 07777);
+        writeOctal(header, 108, 8, uid <= MAX_OCTAL_ID ? uid : 0);
+        writeOctal(header, 116, 8, gid <= MAX_OCTAL_ID ? gid : 0);
+        writeOctal(header, 124, 12, size <= MAX_OCTAL_SIZE ? size : 0);
+        writeOctal(header, 136, 12, mtime >= 0 && mtime <= MAX_OCTAL_SIZE ? mtime : 0);
+        header[156] = (byte) type;
+        copyField(asciiOrFallback(linkName), header, 157, 100);
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+        copyField(asciiOrFallback(userName), header, 265, 32);
+        copyField(asciiOrFallback(groupName), header, 297, 32);
+
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (final byte value : header) {
+            checksum += value & 0xFF;
+        }
+        writeOctal(header, 148, 7, checksum);
+        header[155] = ' ';
+
+        this.write(header, 0, BLOCK_SIZE);
+    }
+
+    private void padBlock() throws IOException {
+        final int padding = (int) ((BLOCK_SIZE - this.bytesWritten % BLOCK_SIZE) % BLOCK_SIZE);
+        if (padding == 0) return;
+
+        Arrays.fill(this.header, (byte) 0);
+        this.write(this.header, 0, padding);
+    }
+
+    private void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        this.outputStream.write(bytes, offset, length);
+        this.bytesWritten += length;
+    }
+
+    private static Map<String, String> paxRecords(final TarEntry entry) {
+        final Map<String, String> records = new LinkedHashMap<>();
+
+        final byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+        if (!isAscii(entry.name()) || ustarSplit(name) < 0) records.put("path", entry.name());
+        if (!isAscii(entry.linkName()) || entry.linkName().getBytes(StandardCharsets.UTF_8).length > 100) records.put("linkpath", entry.linkName());
+        if (entry.size() > MAX_OCTAL_SIZE) records.put("size", Long.toString(entry.size()));
+        if (entry.uid() > MAX_OCTAL_ID) records.put("uid", Long.toString(entry.uid()));
+        if (entry.gid() > MAX_OCTAL_ID) records.put("gid", Long.toString(entry.gid()));
+        if (!isAscii(entry.userName()) || entry.userName().length() > 32) records.put("uname", entry.userName());
+        if (!isAscii(entry.groupName()) || entry.groupName().length() > 32) records.put("gname", entry.groupName());
+
+        final long seconds = Math.floorDiv(entry.lastModified(), 1000);
+        if (seconds < 0 || seconds > MAX_OCTAL_SIZE) {
+            records.put("mtime", seconds + "." + String.format("%03d", Math.floorMod(entry.lastModified(), 1000)));
+        }
+
+        return records;
+    }
+
+    /**
+     * Builds a pax record {@code "<length> <key>=<value>\n"} where the length counts the whole record including itself
+     */
+    private static String paxRecord(final String key, final String value) {
+        final int contentLength = key.getBytes(StandardCharsets.UTF_8).length + value.getBytes(StandardCharsets.UTF_8).length + 3;
+        int length = contentLength + Integer.toString(contentLength).length();
+        if (Integer.toString(length).length() + contentLength != length) length++;
+
+        return length + " " + key + "=" + value + "\n";
+    }
+
+    /**
+     * @return Index of the {@code /} separating the ustar prefix from the name, 0 if the name fits on its own, -1 if it cannot be stored
+     */
+    private static int ustarSplit(final byte[] name) {
+        if (name.length <= 100) return 0;
+        if (name.length > 256) return -1;
+
+        for (int i = Math.min(155, name.length - 2); i > 0; i--) {
+            if (name[i] == '/' && name.length - i - 1 <= 100) return i;
+        }
+
+        return -1;
+    }
+
+    private static boolean isAscii(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7E || text.charAt(i) < 0x20) return false;
+        }
+        return true;
+    }
+
+    private static byte[] asciiOrFallback(final String text) {
+        return isAscii(text) ? text.getBytes(StandardCharsets.US_ASCII) : text.replaceAll("[^\\x20-\\x7E]", "_").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void copyField(final byte[] value, final byte[] header, final int offset, final int length) {
+        System.arraycopy(value, 0, header, offset, Math.min(value.length, length));
+    }
+
+    private static void writeOctal(final byte[] header, final int offset, final int length, final long value) {
+        final String octal = Long.toOctalString(value);
+        final int digits = length - 1;
+        int position = offset;
+
+        for (int i = octal.length(); i < digits; i++) {
+            header[position++] = '0';
+        }
+        for (int i = Math.max(0, octal.length() - digits); i < octal.length(); i++) {
+            header[position++] = (byte) octal.charAt(i);
+        }
+        header[offset + digits] = 0;
+    }
+
+    private static long readId(final Path path, final String attribute) {
+        try {
+            return ((Number) Files.getAttribute(path, attribute, LinkOption.NOFOLLOW_LINKS)).longValue();
+        } catch (final UnsupportedOperationException | IllegalArgumentException | IOException exception) {
+            return 0;
+        }
+    }
+
+    static int toMode(final Set<PosixFilePermission> permissions) {
+        int mode = 0;
+        for (final PosixFilePermission permission : permissions) {
+            mode |= 1 << (8 - permission.ordinal());
+        }
+        return mode;
+    }
+}
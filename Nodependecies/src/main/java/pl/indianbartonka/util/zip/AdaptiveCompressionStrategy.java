@@ -0,0 +1,128 @@
+package pl.indianbartonka.util.zip;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import pl.indianbartonka.util.annotation.Since;
+import pl.indianbartonka.util.http.ContentType;
+
+/**
+ * Picks the compression of an entry from its content.
+ * <p>
+ * Entries with an extension of an already compressed format ({@code .zip}, {@code .jar}, {@code .png}, {@code .ogg} and so on,
+ * recognised through {@link ContentType}) are stored. Other entries are judged by the Shannon entropy of a
+ * {@link #SAMPLE_SIZE} byte sample: nearly random data is stored, dense binary data gets the fastest level
+ * and everything else the configured level.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class AdaptiveCompressionStrategy implements CompressionStrategy {
+
+    /**
+     * Number of bytes used to estimate the entropy of an entry
+     */
+    public static final int SAMPLE_SIZE = 16 * 1024;
+
+    /**
+     * Entries smaller than this are always deflated, the headers cost more than any saving
+     */
+    public static final int MIN_STORED_SIZE = 512;
+
+    private static final Set<ContentType> COMPRESSED_TYPES = Set.of(
+            ContentType.IMAGE_AVIF, ContentType.IMAGE_GIF, ContentType.IMAGE_JPEG, ContentType.IMAGE_PNG, ContentType.IMAGE_WEBP,
+            ContentType.AUDIO_AAC, ContentType.AUDIO_MPEG, ContentType.AUDIO_OGA, ContentType.AUDIO_OPUS, ContentType.AUDIO_WEBA,
+            ContentType.VIDEO_MP4, ContentType.VIDEO_MPEG, ContentType.VIDEO_OGG, ContentType.VIDEO_WEBM,
+            ContentType.FONT_WOFF, ContentType.FONT_WOFF2,
+            ContentType.APPLICATION_BZ, ContentType.APPLICATION_BZ2, ContentType.APPLICATION_DOCX, ContentType.APPLICATION_EPUB,
+            ContentType.APPLICATION_GZ, ContentType.APPLICATION_JAR, ContentType.APPLICATION_RAR, ContentType.APPLICATION_ZIP,
+            ContentType.APPLICATION_X_ZIP_COMPRESSED, ContentType.APPLICATION_7Z);
+
+    /**
+     * Compressed formats {@link ContentType} does not know about
+     */
+    private static final Set<String> EXTRA_EXTENSIONS = Set.of("xz", "zst", "lz4", "tgz", "apk", "mcpack", "mcworld", "mcaddon", "aes", "cha");
+
+    private final int level;
+    private final double storedEntropy;
+    private final double fastEntropy;
+    private final Set<String> storedExtensions;
+
+    /**
+     * @param level level used for entries which compress well
+     */
+    public AdaptiveCompressionStrategy(final int level) {
+        this(level, 7.5, 6.0);
+    }
+
+    /**
+     * @param level         level used for entries which compress well
+     * @param storedEntropy entropy in bits per byte from which entries are stored
+     * @param fastEntropy   entropy in bits per byte from which entries are deflated with level 1
+     */
+    public AdaptiveCompressionStrategy(final int level, final double storedEntropy, final double fastEntropy) {
+        this.level = level;
+        this.storedEntropy = storedEntropy;
+        this.fastEntropy = fastEntropy;
+        this.storedExtensions = new HashSet<>(EXTRA_EXTENSIONS);
+
+        for (final ContentType contentType : COMPRESSED_TYPES) {
+            for (final String extension : contentType.getExtensions()) {
+                this.storedExtensions.add(extension.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    @Override
+    public int selectLevel(final String entryName, final long size, final byte[] sample, final int sampleLength) {
+        if (size < MIN_STORED_SIZE) return this.level;
+
+        final int dot = entryName.lastIndexOf('.');
+        if (dot > entryName.lastIndexOf('/') && this.storedExtensions.contains(entryName.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+            return STORED;
+        }
+
+        if (sampleLength == 0) return this.level;
+
+        final double entropy = entropy(sample, 0, sampleLength);
+        if (entropy >= this.storedEntropy) return STORED;
+        if (entropy >= this.fastEntropy) return Math.min(this.level, 1);
+
+        return this.level;
+    }
+
+    @Override
+    public int getSampleSize() {
+        return SAMPLE_SIZE;
+    }
+
+    public int getLevel() {
+        return this.level;
+    }
+
+    /**
+     * Computes the Shannon entropy of a block, 0 for a block of identical bytes and 8 for uniformly random data
+     *
+     * @param data   bytes to inspect
+     * @param offset start of the block
+     * @param length length of the block
+     * @return Entropy in bits per byte
+     */
+    public static double entropy(final byte[] data, final int offset, final int length) {
+        if (length == 0) return 0;
+
+        final int[] counts = new int[256];
+        for (int i = offset; i < offset + length; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+
+        double entropy = 0;
+        for (final int count : counts) {
+            if (count == 0) continue;
+
+            final double probability = (double) count / length;
+            entropy -= probability * (Math.log(probability) / Math.log(2));
+        }
+
+        return entropy;
+    }
+}
@@ -0,0 +1,90 @@
+package pl.indianbartonka.util.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Decides how a single ZIP entry is compressed.
+ * <p>
+ * Called once per entry before any of its data is written. If {@link #getSampleSize()} is greater than zero,
+ * the strategy also receives up to that many bytes of the file, read by {@link #readSample(FileChannel, byte[], int)}.
+ * </p>
+ *
+ * @see AdaptiveCompressionStrategy
+ */
+@Since("0.0.9.5")
+@FunctionalInterface
+public interface CompressionStrategy {
+
+    /**
+     * Returned by {@link #selectLevel(String, long, byte[], int)} when the entry should be stored without compression
+     */
+    int STORED = -1;
+
+    /**
+     * Number of evenly spaced blocks {@link #readSample(FileChannel, byte[], int)} reads from large files
+     */
+    int SAMPLE_SLICES = 4;
+
+    /**
+     * Creates a strategy which deflates every entry with the same level
+     *
+     * @param level deflate level from 0 to 9
+     * @return strategy which ignores the entry
+     */
+    static CompressionStrategy fixed(final int level) {
+        return (entryName, size, sample, sampleLength) -> level;
+    }
+
+    /**
+     * @param entryName    name of the entry inside the archive
+     * @param size         uncompressed size of the entry
+     * @param sample       sample of the entry, empty when {@link #getSampleSize()} is 0
+     * @param sampleLength number of valid bytes in {@code sample}
+     * @return deflate level from 0 to 9 or {@link #STORED}
+     */
+    int selectLevel(String entryName, long size, byte[] sample, int sampleLength);
+
+    /**
+     * @return How many bytes of the file {@link #selectLevel(String, long, byte[], int)} wants to see
+     */
+    default int getSampleSize() {
+        return 0;
+    }
+
+    /**
+     * Reads a sample of a file: the first block and, for files larger than the sample, {@link #SAMPLE_SLICES} - 1
+     * more blocks spread evenly over the rest, so a compressible header does not hide random data behind it (or the other way round).
+     *
+     * @param channel    file to sample
+     * @param sample     buffer for the sample
+     * @param sampleSize maximum number of bytes to read
+     * @return Number of bytes read into {@code sample}
+     * @throws IOException If reading the file fails.
+     */
+    static int readSample(final FileChannel channel, final byte[] sample, final int sampleSize) throws IOException {
+        final long size = channel.size();
+        final int length = (int) Math.min(Math.min(sampleSize, sample.length), size);
+        if (length <= 0) return 0;
+
+        final int slices = size > length ? SAMPLE_SLICES : 1;
+        final int sliceLength = length / slices;
+        int read = 0;
+
+        for (int slice = 0; slice < slices; slice++) {
+            final long position = slice == 0 ? 0 : (size - sliceLength) * slice / (slices - 1);
+            final ByteBuffer buffer = ByteBuffer.wrap(sample, read, slice == slices - 1 ? length - read : sliceLength);
+
+            while (buffer.hasRemaining()) {
+                final int count = channel.read(buffer, position + buffer.position() - read);
+                if (count < 0) break;
+            }
+
+            read = buffer.position();
+        }
+
+        return read;
+    }
+}
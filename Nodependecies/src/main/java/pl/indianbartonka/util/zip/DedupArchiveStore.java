@@ -0,0 +1,611 @@
+package pl.indianbartonka.util.zip;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import pl.indianbartonka.util.ZipUtil;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Content-addressed store which keeps every distinct piece of data only once across any number of folder snapshots.
+ * <p>
+ * Files are cut into chunks with content-defined chunking: a gear rolling hash over the last 64 bytes decides where
+ * a chunk ends, so inserting or removing bytes only changes the chunks around the edit and the rest of the file
+ * still produces the same chunks. Chunks are at least {@link #MIN_CHUNK_SIZE}, at most {@link #MAX_CHUNK_SIZE} and
+ * {@link #MIN_CHUNK_SIZE} + 64 KiB on average.
+ * </p>
+ * <p>
+ * Every chunk is stored once as {@code chunks/<2 hex digits>/<SHA-256>}, deflated according to
+ * {@link ZipUtil#getCompressionStrategy()} or stored as it is when that is smaller. A snapshot is a small text index
+ * in {@code snapshots/<name>.index} listing the chunks of every file, so the store grows with the amount of distinct
+ * data instead of the number of snapshots. Hashing and compressing chunks runs on {@link #getParallelism()} threads,
+ * restoring verifies the hash of every chunk.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class DedupArchiveStore {
+
+    public static final int MIN_CHUNK_SIZE = 16 * 1024;
+    public static final int MAX_CHUNK_SIZE = 256 * 1024;
+
+    private static final long CUT_MASK = -1L << (64 - 16);
+    private static final long[] GEAR = gearTable();
+    private static final String INDEX_HEADER = "# IndianUtils dedup snapshot v1";
+    private static final String INDEX_EXTENSION = ".index";
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(DedupArchiveStore::newDigest);
+
+    private final File chunkDirectory;
+    private final File snapshotDirectory;
+    private final ZipResourcePool resourcePool;
+    private int parallelism;
+
+    /**
+     * @param storeDirectory directory holding the chunks and snapshot indexes, created when the first snapshot is written
+     */
+    public DedupArchiveStore(final File storeDirectory) {
+        this.chunkDirectory = new File(storeDirectory, "chunks");
+        this.snapshotDirectory = new File(storeDirectory, "snapshots");
+        this.resourcePool = ZipResourcePool.shared();
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Stores the content of a folder as a new snapshot, only chunks missing from the store are written
+     *
+     * @param sourceFolder folder to store
+     * @param name         name of the snapshot, letters, digits, {@code .}, {@code _} and {@code -} only
+     * @return Summary of the written snapshot.
+     * @throws IOException If the snapshot already exists, reading the folder or writing the store fails.
+     */
+    public DedupSnapshot snapshot(final File sourceFolder, final String name) throws IOException {
+        final File indexFile = this.getIndexFile(name);
+        if (!sourceFolder.isDirectory()) throw new IOException(sourceFolder + " is not a directory");
+        if (indexFile.exists()) throw new IOException("Snapshot " + name + " already exists");
+
+        Files.createDirectories(this.chunkDirectory.toPath());
+        Files.createDirectories(this.snapshotDirectory.toPath());
+
+        final List<IndexEntry> entries = new ArrayList<>();
+        final List<File> files = new ArrayList<>();
+        listFiles(sourceFolder, "", entries, files);
+
+        final Set<String> writtenChunks = ConcurrentHashMap.newKeySet();
+        final AtomicInteger newChunks = new AtomicInteger();
+        final AtomicLong storedBytes = new AtomicLong();
+        final ArrayDeque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+        final int maxInFlight = this.parallelism * 4;
+        final List<List<CompletableFuture<String>>> fileChunks = new ArrayList<>();
+        final ForkJoinPool pool = newPool(this.parallelism);
+
+        long totalBytes = 0;
+        int chunkCount = 0;
+
+        try {
+            int fileIndex = 0;
+            for (final IndexEntry entry : entries) {
+                if (entry.directory()) continue;
+
+                final List<CompletableFuture<String>> chunks = new ArrayList<>();
+                fileChunks.add(chunks);
+
+                try (final Chunker chunker = new Chunker(Files.newInputStream(files.get(fileIndex++).toPath()))) {
+                    while (true) {
+                        final byte[] chunk = this.resourcePool.acquireBuffer(MAX_CHUNK_SIZE);
+                        final int length = chunker.next(chunk);
+                        if (length < 0) {
+                            this.resourcePool.releaseBuffer(chunk);
+                            break;
+                        }
+
+                        while (inFlight.size() >= maxInFlight) {
+                            join(inFlight.poll());
+                        }
+
+                        final CompletableFuture<String> future = CompletableFuture.supplyAsync(
+                                () -> this.storeChunk(entry.path(), chunk, length, writtenChunks, newChunks, storedBytes), pool);
+                        chunks.add(future);
+                        inFlight.add(future);
+
+                        totalBytes += length;
+                        chunkCount++;
+                    }
+                }
+            }
+
+            final List<IndexEntry> resolved = new ArrayList<>();
+            int chunksIndex = 0;
+            for (final IndexEntry entry : entries) {
+                if (entry.directory()) {
+                    resolved.add(entry);
+                    continue;
+                }
+
+                final List<String> hashes = new ArrayList<>();
+                for (final CompletableFuture<String> future : fileChunks.get(chunksIndex++)) {
+                    hashes.add(join(future));
+                }
+                resolved.add(new IndexEntry(false, entry.path(), entry.size(), entry.lastModified(), hashes));
+            }
+
+            this.writeIndex(indexFile, resolved);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new DedupSnapshot(name, files.size(), totalBytes, chunkCount, newChunks.get(), storedBytes.get() + indexFile.length());
+    }
+
+    /**
+     * Restores a snapshot, the content of the stored folder is written directly into {@code targetDirectory}
+     *
+     * @param name            name of the snapshot
+     * @param targetDirectory directory the files are restored to
+     * @throws IOException If the snapshot does not exist, a chunk is missing or corrupted, or writing fails.
+     */
+    public void restore(final String name, final File targetDirectory) throws IOException {
+        final List<IndexEntry> entries = this.readIndex(this.getIndexFile(name));
+        final List<IndexEntry> directories = new ArrayList<>();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        final ForkJoinPool pool = newPool(this.parallelism);
+
+        Files.createDirectories(targetDirectory.toPath());
+
+        try {
+            for (final IndexEntry entry : entries) {
+                final File outputFile = new File(targetDirectory, entry.path().replace("/", File.separator));
+
+                if (entry.directory()) {
+                    Files.createDirectories(outputFile.toPath());
+                    directories.add(entry);
+                    continue;
+                }
+
+                Files.createDirectories(outputFile.getParentFile().toPath());
+                futures.add(CompletableFuture.runAsync(() -> this.restoreFile(entry, outputFile), pool));
+            }
+
+            for (final CompletableFuture<Void> future : futures) {
+                join(future);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        //Restoring files changes the modification time of their directories, so directories are done last
+        for (int i = directories.size() - 1; i >= 0; i--) {
+            final IndexEntry directory = directories.get(i);
+            new File(targetDirectory, directory.path().replace("/", File.separator)).setLastModified(directory.lastModified());
+        }
+    }
+
+    /**
+     * @return Names of all snapshots in alphabetical order
+     */
+    public List<String> getSnapshots() {
+        final File[] files = this.snapshotDirectory.listFiles();
+        if (files == null) return Collections.emptyList();
+
+        final List<String> names = new ArrayList<>();
+        for (final File file : files) {
+            final String fileName = file.getName();
+            if (fileName.endsWith(INDEX_EXTENSION)) names.add(fileName.substring(0, fileName.length() - INDEX_EXTENSION.length()));
+        }
+
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Removes the index of a snapshot, its chunks stay in the store until {@link #prune()}
+     *
+     * @param name name of the snapshot
+     * @return {@code true} if the snapshot existed
+     * @throws IOException If the index cannot be deleted.
+     */
+    public boolean deleteSnapshot(final String name) throws IOException {
+        return Files.deleteIfExists(this.getIndexFile(name).toPath());
+    }
+
+    /**
+     * Deletes chunks which are not used by any snapshot, must not run while a snapshot is being written
+     *
+     * @return Number of deleted chunks.
+     * @throws IOException If an index cannot be read or a chunk cannot be deleted.
+     */
+    public int prune() throws IOException {
+        final Set<String> used = new HashSet<>();
+        for (final String snapshot : this.getSnapshots()) {
+            for (final IndexEntry entry : this.readIndex(this.getIndexFile(snapshot))) {
+                used.addAll(entry.chunks());
+            }
+        }
+
+        int deleted = 0;
+        final File[] prefixes = this.chunkDirectory.listFiles();
+        if (prefixes == null) return 0;
+
+        for (final File prefix : prefixes) {
+            final File[] chunks = prefix.listFiles();
+            if (chunks == null) continue;
+
+            for (final File chunk : chunks) {
+                if (!used.contains(chunk.getName())) {
+                    Files.delete(chunk.toPath());
+                    deleted++;
+                }
+            }
+        }
+
+        return deleted;
+    }
+
+    public File getIndexFile(final String name) {
+        if (!NAME_PATTERN.matcher(name).matches()) throw new IllegalArgumentException("Invalid snapshot name: " + name);
+        return new File(this.snapshotDirectory, name + INDEX_EXTENSION);
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * @param parallelism number of threads hashing, compressing and restoring chunks
+     */
+    public void setParallelism(final int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    private String storeChunk(final String entryName, final byte[] data, final int length, final Set<String> writtenChunks,
+                              final AtomicInteger newChunks, final AtomicLong storedBytes) {
+        try {
+            final MessageDigest digest = SHA_256.get();
+            digest.update(data, 0, length);
+            final String hash = HexFormat.of().formatHex(digest.digest());
+
+            final File chunkFile = this.getChunkFile(hash);
+            if (writtenChunks.add(hash) && !chunkFile.exists()) {
+                storedBytes.addAndGet(this.writeChunk(chunkFile, entryName, data, length));
+                newChunks.incrementAndGet();
+            }
+
+            return hash;
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            this.resourcePool.releaseBuffer(data);
+        }
+    }
+
+    private long writeChunk(final File chunkFile, final String entryName, final byte[] data, final int length) throws IOException {
+        final CompressionStrategy strategy = ZipUtil.getCompressionStrategy();
+        final int level = strategy.selectLevel(entryName, length, data, Math.min(strategy.getSampleSize(), length));
+
+        byte[] output = null;
+        int outputLength = 0;
+
+        if (level != CompressionStrategy.STORED) {
+            final int deflateLevel = Math.max(0, Math.min(9, level));
+            final Deflater deflater = this.resourcePool.acquireDeflater(deflateLevel, true);
+            output = this.resourcePool.acquireBuffer(length);
+
+            try {
+                deflater.setInput(data, 0, length);
+                deflater.finish();
+                while (!deflater.finished() && outputLength < length) {
+                    outputLength += deflater.deflate(output, outputLength, length - outputLength);
+                }
+
+                //Incompressible chunk, storing it is smaller
+                if (!deflater.finished()) outputLength = -1;
+            } finally {
+                this.resourcePool.releaseDeflater(deflater, deflateLevel, true);
+            }
+        }
+
+        Files.createDirectories(chunkFile.getParentFile().toPath());
+        final File tempFile = new File(chunkFile.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+
+        try (final FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+            if (output != null && outputLength >= 0) {
+                outputStream.write(METHOD_DEFLATED);
+                outputStream.write(output, 0, outputLength);
+            } else {
+                outputStream.write(METHOD_STORED);
+                outputStream.write(data, 0, length);
+                outputLength = length;
+            }
+        } finally {
+            if (output != null) this.resourcePool.releaseBuffer(output);
+        }
+
+        Files.move(tempFile.toPath(), chunkFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return outputLength + 1L;
+    }
+
+    private void restoreFile(final IndexEntry entry, final File outputFile) {
+        final byte[] buffer = this.resourcePool.acquireBuffer(MAX_CHUNK_SIZE);
+
+        try {
+            try (final FileOutputStream outputStream = new FileOutputStream(outputFile)) {
+                for (final String hash : entry.chunks()) {
+                    final int length = this.readChunk(hash, buffer);
+                    outputStream.write(buffer, 0, length);
+                }
+            }
+
+            if (!outputFile.setLastModified(entry.lastModified())) {
+                throw new IOException("Cannot set the modification time of " + outputFile);
+            }
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            this.resourcePool.releaseBuffer(buffer);
+        }
+    }
+
+    private int readChunk(final String hash, final byte[] buffer) throws IOException {
+        final File chunkFile = this.getChunkFile(hash);
+        if (!chunkFile.exists()) throw new IOException("Chunk " + hash + " is missing from the store");
+
+        final byte[] stored = Files.readAllBytes(chunkFile.toPath());
+        if (stored.length == 0) throw new IOException("Chunk " + hash + " is empty");
+
+        final int length;
+        if (stored[0] == METHOD_STORED) {
+            length = stored.length - 1;
+            if (length > buffer.length) throw new IOException("Chunk " + hash + " is too large");
+            System.arraycopy(stored, 1, buffer, 0, length);
+        } else if (stored[0] == METHOD_DEFLATED) {
+            final Inflater inflater = this.resourcePool.acquireInflater(true);
+            try {
+                inflater.setInput(stored, 1, stored.length - 1);
+                int inflated = 0;
+                while (!inflater.finished() && inflated < buffer.length) {
+                    final int count = inflater.inflate(buffer, inflated, buffer.length - inflated);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    inflated += count;
+                }
+
+                if (!inflater.finished()) throw new IOException("Chunk " + hash + " is truncated");
+                length = inflated;
+            } catch (final DataFormatException exception) {
+                throw new IOException("Chunk " + hash + " is corrupted", exception);
+            } finally {
+                this.resourcePool.releaseInflater(inflater, true);
+            }
+        } else {
+            throw new IOException("Chunk " + hash + " has unknown method " + stored[0]);
+        }
+
+        final MessageDigest digest = SHA_256.get();
+        digest.update(buffer, 0, length);
+        if (!HexFormat.of().formatHex(digest.digest()).equals(hash)) throw new IOException("Chunk " + hash + " is corrupted");
+
+        return length;
+    }
+
+    private File getChunkFile(final String hash) {
+        return new File(new File(this.chunkDirectory, hash.substring(0, 2)), hash);
+    }
+
+    private List<IndexEntry> readIndex(final File indexFile) throws IOException {
+        if (!indexFile.exists()) throw new IOException("Snapshot index " + indexFile + " does not exist");
+
+        final List<IndexEntry> entries = new ArrayList<>();
+
+        try (final BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                if (line.startsWith("D\t")) {
+                    final String[] parts = line.split("\t", 3);
+                    if (parts.length != 3) throw new IOException("Malformed line in " + indexFile + ": " + line);
+
+                    entries.add(new IndexEntry(true, parts[2], 0, Long.parseLong(parts[1]), List.of()));
+                } else if (line.startsWith("F\t")) {
+                    final String[] parts = line.split("\t", 5);
+                    if (parts.length != 5) throw new IOException("Malformed line in " + indexFile + ": " + line);
+
+                    final List<String> chunks = parts[3].equals("-") ? List.of() : Arrays.asList(parts[3].split(","));
+                    entries.add(new IndexEntry(false, parts[4], Long.parseLong(parts[1]), Long.parseLong(parts[2]), chunks));
+                } else {
+                    throw new IOException("Malformed line in " + indexFile + ": " + line);
+                }
+            }
+        } catch (final NumberFormatException exception) {
+            throw new IOException("Malformed snapshot index " + indexFile, exception);
+        }
+
+        return entries;
+    }
+
+    private void writeIndex(final File indexFile, final List<IndexEntry> entries) throws IOException {
+        final File tempFile = new File(indexFile.getPath() + ".tmp");
+
+        try (final BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(INDEX_HEADER);
+            writer.newLine();
+
+            for (final IndexEntry entry : entries) {
+                if (entry.directory()) {
+                    writer.write("D\t" + entry.lastModified() + "\t" + entry.path());
+                } else {
+                    writer.write("F\t" + entry.size() + "\t" + entry.lastModified() + "\t"
+                            + (entry.chunks().isEmpty() ? "-" : String.join(",", entry.chunks())) + "\t" + entry.path());
+                }
+                writer.newLine();
+            }
+        }
+
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void listFiles(final File folder, final String prefix, final List<IndexEntry> entries, final List<File> files) {
+        final File[] children = folder.listFiles();
+        if (children == null) return;
+
+        Arrays.sort(children);
+        for (final File child : children) {
+            final String path = prefix + child.getName();
+
+            if (child.isDirectory()) {
+                entries.add(new IndexEntry(true, path, 0, child.lastModified(), List.of()));
+                listFiles(child, path + "/", entries, files);
+            } else {
+                entries.add(new IndexEntry(false, path, child.length(), child.lastModified(), List.of()));
+                files.add(child);
+            }
+        }
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (final CompletionException exception) {
+            if (exception.getCause() instanceof final UncheckedIOException uncheckedIOException) throw uncheckedIOException.getCause();
+            throw exception;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    /**
+     * Random but fixed values for every byte, changing them would change every chunk boundary
+     */
+    private static long[] gearTable() {
+        final long[] table = new long[256];
+        long seed = 0x494E4449414E5554L;
+
+        for (int i = 0; i < table.length; i++) {
+            //SplitMix64
+            seed += 0x9E3779B97F4A7C15L;
+            long value = seed;
+            value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+            value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+            table[i] = value ^ (value >>> 31);
+        }
+
+        return table;
+    }
+
+    private static ForkJoinPool newPool(final int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Dedup-Worker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Finds content-defined chunk boundaries in a stream
+     */
+    private static final class Chunker implements Closeable {
+
+        private final InputStream inputStream;
+        private final byte[] buffer;
+        private int position;
+        private int limit;
+        private boolean ended;
+
+        private Chunker(final InputStream inputStream) {
+            this.inputStream = inputStream;
+            this.buffer = new byte[MAX_CHUNK_SIZE * 2];
+        }
+
+        /**
+         * Copies the next chunk into {@code target}, which must hold {@link #MAX_CHUNK_SIZE} bytes
+         *
+         * @return Length of the chunk or {@code -1} at the end of the stream
+         */
+        private int next(final byte[] target) throws IOException {
+            if (this.limit - this.position < MAX_CHUNK_SIZE && !this.ended) this.fill();
+
+            final int available = this.limit - this.position;
+            if (available == 0) return -1;
+
+            final int length = cutPoint(this.buffer, this.position, available);
+            System.arraycopy(this.buffer, this.position, target, 0, length);
+            this.position += length;
+
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.inputStream.close();
+        }
+
+        private void fill() throws IOException {
+            System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+            this.limit -= this.position;
+            this.position = 0;
+
+            while (this.limit < this.buffer.length) {
+                final int read = this.inputStream.read(this.buffer, this.limit, this.buffer.length - this.limit);
+                if (read < 0) {
+                    this.ended = true;
+                    return;
+                }
+                this.limit += read;
+            }
+        }
+
+        private static int cutPoint(final byte[] data, final int offset, final int length) {
+            if (length <= MIN_CHUNK_SIZE) return length;
+
+            final int end = offset + Math.min(length, MAX_CHUNK_SIZE);
+            long hash = 0;
+
+            //Bytes before the minimum size cannot end a chunk, so they are not hashed at all
+            for (int i = offset + MIN_CHUNK_SIZE; i < end; i++) {
+                hash = (hash << 1) + GEAR[data[i] & 0xFF];
+                if ((hash & CUT_MASK) == 0) return i + 1 - offset;
+            }
+
+            return end - offset;
+        }
+    }
+
+    private record IndexEntry(boolean directory, String path, long size, long lastModified, List<String> chunks) {
+    }
+}
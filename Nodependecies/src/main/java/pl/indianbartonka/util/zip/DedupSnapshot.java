@@ -0,0 +1,17 @@
+package pl.indianbartonka.util.zip;
+
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Summary of a snapshot written by {@link DedupArchiveStore}
+ *
+ * @param name        name of the snapshot
+ * @param fileCount   number of files in the snapshot
+ * @param totalBytes  uncompressed size of all files
+ * @param chunkCount  number of chunks the files were cut into
+ * @param newChunks   number of chunks which were not in the store yet
+ * @param storedBytes bytes added to the store by this snapshot, including its index
+ */
+@Since("0.0.9.5")
+public record DedupSnapshot(String name, int fileCount, long totalBytes, int chunkCount, int newChunks, long storedBytes) {
+}
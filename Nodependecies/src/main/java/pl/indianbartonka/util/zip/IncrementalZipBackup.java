@@ -0,0 +1,332 @@
+package pl.indianbartonka.util.zip;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.BufferUtil;
+import pl.indianbartonka.util.ZipUtil;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Incremental ZIP backups of a single folder.
+ * <p>
+ * Every backup is a pair of files in the backup directory: {@code <name>-<index>.zip} holding only the files which
+ * changed since the previous backup and {@code <name>-<index>.manifest} describing the whole folder at that moment
+ * (path, size, last modification time, CRC32C and the index of the archive that holds the content).
+ * A file whose size and modification time did not change is not read at all, a file which was only touched
+ * is hashed and skipped if its CRC32C is unchanged. Backup time and disk usage therefore scale with the amount
+ * of changed data instead of the size of the folder.
+ * </p>
+ * <p>
+ * Restoring reads a single manifest and extracts every file from the archive named in it,
+ * which merges the base archive with its chain of deltas. Files removed from the folder are simply absent from newer manifests.
+ * The manifest is written last, so an interrupted backup leaves the previous one as the latest complete backup.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class IncrementalZipBackup {
+
+    private static final String MANIFEST_HEADER = "# IndianUtils incremental backup manifest v1";
+    private static final String MANIFEST_EXTENSION = ".manifest";
+    private static final String ARCHIVE_EXTENSION = ".zip";
+
+    private final File sourceFolder;
+    private final File backupDirectory;
+    private final String name;
+    private final Pattern manifestPattern;
+    private int parallelism;
+
+    /**
+     * @param sourceFolder    folder to back up
+     * @param backupDirectory directory where archives and manifests are stored
+     */
+    public IncrementalZipBackup(final File sourceFolder, final File backupDirectory) {
+        this.sourceFolder = sourceFolder;
+        this.backupDirectory = backupDirectory;
+        this.name = sourceFolder.getName();
+        this.manifestPattern = Pattern.compile(Pattern.quote(this.name) + "-(\\d+)" + Pattern.quote(MANIFEST_EXTENSION));
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Backs up the files which changed since the last backup, or the whole folder if there is no backup yet
+     *
+     * @return The created archive, or {@code null} if nothing changed since the last backup.
+     * @throws IOException If reading the folder or writing the backup fails.
+     */
+    public @Nullable File backup() throws IOException {
+        return this.backup(false);
+    }
+
+    /**
+     * Backs up the whole folder as a new base, later incremental backups are relative to it
+     *
+     * @return The created archive.
+     * @throws IOException If reading the folder or writing the backup fails.
+     */
+    public File backupFull() throws IOException {
+        return this.backup(true);
+    }
+
+    /**
+     * Restores the folder as it was during the latest backup
+     *
+     * @param targetDirectory directory the files are extracted to, they end up in {@code targetDirectory/<folder name>}
+     * @throws IOException If there is no backup or extracting fails.
+     */
+    public void restore(final File targetDirectory) throws IOException {
+        final int latest = this.getLatestIndex();
+        if (latest < 0) throw new IOException("There is no backup of " + this.sourceFolder + " in " + this.backupDirectory);
+
+        this.restore(targetDirectory, latest);
+    }
+
+    /**
+     * Restores the folder as it was during the given backup
+     *
+     * @param targetDirectory directory the files are extracted to, they end up in {@code targetDirectory/<folder name>}
+     * @param index           index of the backup, see {@link #getIndexes()}
+     * @throws IOException If the backup does not exist or extracting fails.
+     */
+    public void restore(final File targetDirectory, final int index) throws IOException {
+        final Map<String, ManifestEntry> manifest = this.readManifest(index);
+        final Map<Integer, List<ManifestEntry>> byArchive = new TreeMap<>();
+
+        for (final ManifestEntry entry : manifest.values()) {
+            byArchive.computeIfAbsent(entry.archive(), key -> new ArrayList<>()).add(entry);
+        }
+
+        final File restoreRoot = new File(targetDirectory, this.name);
+        byte[] buffer = new byte[0];
+
+        for (final Map.Entry<Integer, List<ManifestEntry>> archiveEntries : byArchive.entrySet()) {
+            final File archive = this.getArchiveFile(archiveEntries.getKey());
+            if (!archive.exists()) throw new IOException("Backup chain is broken, missing archive " + archive);
+
+            try (final ZipFile zipFile = new ZipFile(archive)) {
+                for (final ManifestEntry entry : archiveEntries.getValue()) {
+                    final ZipEntry zipEntry = zipFile.getEntry(this.name + "/" + entry.path());
+                    if (zipEntry == null) throw new IOException("Archive " + archive + " does not contain " + entry.path());
+
+                    final File outputFile = new File(restoreRoot, entry.path().replace("/", File.separator));
+                    Files.createDirectories(outputFile.getParentFile().toPath());
+
+                    if (buffer.length < BufferUtil.calculateOptimalBufferSize(entry.size())) {
+                        buffer = new byte[BufferUtil.calculateOptimalBufferSize(entry.size())];
+                    }
+
+                    try (final InputStream inputStream = zipFile.getInputStream(zipEntry);
+                         final FileOutputStream outputStream = new FileOutputStream(outputFile)) {
+                        int length;
+                        while ((length = inputStream.read(buffer)) > 0) {
+                            outputStream.write(buffer, 0, length);
+                        }
+                    }
+
+                    if (!outputFile.setLastModified(entry.lastModified())) {
+                        throw new IOException("Cannot set the modification time of " + outputFile);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Indexes of all complete backups in ascending order
+     */
+    public List<Integer> getIndexes() {
+        final File[] files = this.backupDirectory.listFiles();
+        if (files == null) return Collections.emptyList();
+
+        final List<Integer> indexes = new ArrayList<>();
+        for (final File file : files) {
+            final Matcher matcher = this.manifestPattern.matcher(file.getName());
+            if (matcher.matches()) indexes.add(Integer.parseInt(matcher.group(1)));
+        }
+
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * @return Index of the latest complete backup or {@code -1} if there is none
+     */
+    public int getLatestIndex() {
+        final List<Integer> indexes = this.getIndexes();
+        return indexes.isEmpty() ? -1 : indexes.get(indexes.size() - 1);
+    }
+
+    public File getArchiveFile(final int index) {
+        return new File(this.backupDirectory, this.name + "-" + String.format("%04d", index) + ARCHIVE_EXTENSION);
+    }
+
+    public File getManifestFile(final int index) {
+        return new File(this.backupDirectory, this.name + "-" + String.format("%04d", index) + MANIFEST_EXTENSION);
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * @param parallelism number of threads compressing changed files
+     */
+    public void setParallelism(final int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    private @Nullable File backup(final boolean full) throws IOException {
+        if (!this.sourceFolder.isDirectory()) throw new IOException(this.sourceFolder + " is not a directory");
+        Files.createDirectories(this.backupDirectory.toPath());
+
+        final int latest = this.getLatestIndex();
+        final int index = latest + 1;
+        final Map<String, ManifestEntry> previous = (full || latest < 0) ? Collections.emptyMap() : this.readManifest(latest);
+        final Map<String, ManifestEntry> current = new LinkedHashMap<>();
+        final List<File> changedFiles = new ArrayList<>();
+        final List<String> changedPaths = new ArrayList<>();
+
+        final List<String> paths = new ArrayList<>();
+        final List<File> files = new ArrayList<>();
+        listFiles(this.sourceFolder, "", paths, files);
+
+        byte[] buffer = new byte[0];
+        for (int i = 0; i < files.size(); i++) {
+            final File file = files.get(i);
+            final String path = paths.get(i);
+            final long size = file.length();
+            final long lastModified = file.lastModified();
+            final ManifestEntry old = previous.get(path);
+
+            if (old != null && old.size() == size && old.lastModified() == lastModified) {
+                current.put(path, old);
+                continue;
+            }
+
+            if (buffer.length < BufferUtil.calculateOptimalBufferSize(size)) {
+                buffer = new byte[BufferUtil.calculateOptimalBufferSize(size)];
+            }
+
+            final int crc = crc32c(file, buffer);
+            if (old != null && old.size() == size && old.crc() == crc) {
+                current.put(path, new ManifestEntry(path, size, lastModified, crc, old.archive()));
+                continue;
+            }
+
+            current.put(path, new ManifestEntry(path, size, lastModified, crc, index));
+            changedFiles.add(file);
+            changedPaths.add(path);
+        }
+
+        if (!full && latest >= 0 && changedFiles.isEmpty() && current.keySet().equals(previous.keySet())) {
+            return null;
+        }
+
+        final File archive = this.getArchiveFile(index);
+        try (final ParallelZipWriter zipWriter = new ParallelZipWriter(new FileOutputStream(archive), ZipUtil.getCompressionStrategy(), this.parallelism)) {
+            for (int i = 0; i < changedFiles.size(); i++) {
+                zipWriter.addFile(changedFiles.get(i), this.name + "/" + changedPaths.get(i));
+            }
+        } catch (final IOException | RuntimeException exception) {
+            Files.deleteIfExists(archive.toPath());
+            throw exception;
+        }
+
+        this.writeManifest(index, current.values());
+        return archive;
+    }
+
+    private Map<String, ManifestEntry> readManifest(final int index) throws IOException {
+        final File manifestFile = this.getManifestFile(index);
+        if (!manifestFile.exists()) throw new IOException("Backup manifest " + manifestFile + " does not exist");
+
+        final Map<String, ManifestEntry> manifest = new LinkedHashMap<>();
+
+        try (final BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                final String[] parts = line.split("\t", 5);
+                if (parts.length != 5) throw new IOException("Malformed line in " + manifestFile + ": " + line);
+
+                final ManifestEntry entry = new ManifestEntry(parts[4], Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                        Integer.parseUnsignedInt(parts[3], 16), Integer.parseInt(parts[0]));
+                manifest.put(entry.path(), entry);
+            }
+        } catch (final NumberFormatException exception) {
+            throw new IOException("Malformed backup manifest " + manifestFile, exception);
+        }
+
+        return manifest;
+    }
+
+    private void writeManifest(final int index, final Iterable<ManifestEntry> entries) throws IOException {
+        final File manifestFile = this.getManifestFile(index);
+        final File tempFile = new File(manifestFile.getPath() + ".tmp");
+
+        try (final BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(MANIFEST_HEADER);
+            writer.newLine();
+
+            for (final ManifestEntry entry : entries) {
+                writer.write(entry.archive() + "\t" + entry.size() + "\t" + entry.lastModified() + "\t"
+                        + Integer.toHexString(entry.crc()) + "\t" + entry.path());
+                writer.newLine();
+            }
+        }
+
+        Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void listFiles(final File folder, final String prefix, final List<String> paths, final List<File> files) {
+        final File[] children = folder.listFiles();
+        if (children == null) return;
+
+        for (final File child : children) {
+            if (child.isDirectory()) {
+                listFiles(child, prefix + child.getName() + "/", paths, files);
+            } else {
+                paths.add(prefix + child.getName());
+                files.add(child);
+            }
+        }
+    }
+
+    private static int crc32c(final File file, final byte[] buffer) throws IOException {
+        final CRC32C crc = new CRC32C();
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(byteBuffer.clear()) > 0) {
+                crc.update(byteBuffer.flip());
+            }
+        }
+
+        return (int) crc.getValue();
+    }
+
+    private record ManifestEntry(String path, long size, long lastModified, int crc, int archive) {
+    }
+}
@@ -0,0 +1,648 @@
+package pl.indianbartonka.util.zip;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Writes a standard ZIP archive while deflating entries on a {@link ForkJoinPool}.
+ * <p>
+ * Every file is split into {@link #CHUNK_SIZE} chunks which are compressed independently, each primed with the
+ * last 32 KiB of the previous chunk as a preset dictionary and terminated with a sync flush, so the concatenated
+ * chunks form one ordinary deflate stream (the same technique pigz uses). Chunk CRCs of deflated entries are merged
+ * with {@link #crc32Combine(long, long, long)}, so their data is read only once.
+ * </p>
+ * <p>
+ * A single thread (the one calling {@link #addFile(File, String)}) writes finished chunks in submission order,
+ * keeping at most a few chunks per worker in memory. Single-chunk entries get exact sizes in the local header,
+ * multi-chunk entries use a data descriptor. ZIP64 records are written only when sizes, offsets or the entry count require it.
+ * </p>
+ * <p>
+ * The method and level of every entry come from a {@link CompressionStrategy}. Stored entries are copied as they are,
+ * but their local header must carry the CRC of the whole file. For a stored entry spanning more than one chunk the
+ * first chunk task therefore makes an extra CRC pass over the file, so such entries are read twice.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class ParallelZipWriter implements Closeable {
+
+    /**
+     * Size of the uncompressed part of a file compressed by one task
+     */
+    public static final int CHUNK_SIZE = 1024 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    private final CountingOutputStream outputStream;
+    private final CompressionStrategy compressionStrategy;
+    private final ForkJoinPool pool;
+    private final ZipResourcePool resourcePool;
+    private final int maxInFlight;
+    private final ArrayDeque<CompletableFuture<Chunk>> inFlight;
+    private final List<FileEntry> entries;
+    private final List<FileEntry> openEntries;
+    private final byte[] scratch;
+    private byte[] sample;
+    private boolean finished;
+    private boolean failed;
+    private volatile boolean cancelled;
+    private ChunkListener chunkListener;
+
+    /**
+     * @param outputStream     stream the archive is written to, it is closed by {@link #close()}
+     * @param compressionLevel deflate level from 0 to 9
+     * @param parallelism      number of compression threads
+     */
+    public ParallelZipWriter(final OutputStream outputStream, final int compressionLevel, final int parallelism) {
+        this(outputStream, CompressionStrategy.fixed(compressionLevel), parallelism);
+    }
+
+    /**
+     * @param outputStream        stream the archive is written to, it is closed by {@link #close()}
+     * @param compressionStrategy decides the method and level of every entry
+     * @param parallelism         number of compression threads
+     */
+    public ParallelZipWriter(final OutputStream outputStream, final CompressionStrategy compressionStrategy, final int parallelism) {
+        this.outputStream = new CountingOutputStream(new BufferedOutputStream(outputStream, 1024 * 1024));
+        this.compressionStrategy = compressionStrategy;
+        this.resourcePool = ZipResourcePool.shared();
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), ParallelZipWriter::newWorker, null, false);
+        this.maxInFlight = Math.max(1, parallelism) * 4;
+        this.inFlight = new ArrayDeque<>();
+        this.entries = new ArrayList<>();
+        this.openEntries = new ArrayList<>();
+        this.scratch = new byte[8];
+        this.sample = new byte[0];
+    }
+
+    /**
+     * Schedules a file to be compressed as the next entry of the archive.
+     * Blocks while too many chunks are waiting to be written.
+     *
+     * @param file      The file to add.
+     * @param entryName The name of the entry inside the archive, using {@code /} as separator.
+     * @throws IOException If the file cannot be opened or a previously scheduled chunk failed.
+     */
+    public void addFile(final File file, final String entryName) throws IOException {
+        if (this.finished) throw new IllegalStateException("The archive has already been finished");
+        this.checkCancelled();
+
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        final long size = channel.size();
+        final int level;
+
+        try {
+            level = this.selectLevel(entryName, channel, size);
+        } catch (final IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+
+        final FileEntry entry = new FileEntry(entryName, channel, size,
+                (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE), toDosTime(file.lastModified()), level);
+        this.openEntries.add(entry);
+
+        for (int index = 0; index < entry.chunkCount; index++) {
+            while (this.inFlight.size() >= this.maxInFlight) {
+                this.writeNext();
+            }
+
+            final int chunkIndex = index;
+            this.inFlight.add(CompletableFuture.supplyAsync(() -> this.compress(entry, chunkIndex), this.pool));
+        }
+    }
+
+    /**
+     * Writes all remaining chunks and the central directory
+     *
+     * @throws IOException If compressing or writing any entry failed.
+     */
+    public void finish() throws IOException {
+        if (this.finished) return;
+
+        try {
+            while (!this.inFlight.isEmpty()) {
+                this.writeNext();
+            }
+
+            this.checkCancelled();
+            this.writeCentralDirectory();
+            this.outputStream.flush();
+            this.finished = true;
+        } catch (final IOException | RuntimeException exception) {
+            this.abort();
+            throw exception;
+        }
+    }
+
+    /**
+     * Finishes the archive if no error occurred, then closes the stream and stops the compression threads
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!this.failed) this.finish();
+        } finally {
+            this.abort();
+            this.outputStream.close();
+        }
+    }
+
+    public long getBytesWritten() {
+        return this.outputStream.count;
+    }
+
+    /**
+     * Stops writing the archive, the thread adding files or finishing the archive gets a {@link CancellationException}.
+     * The output is left incomplete and is not a valid archive.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Sets the callback notified on the writing thread after every chunk written to the output
+     */
+    void setChunkListener(final ChunkListener chunkListener) {
+        this.chunkListener = chunkListener;
+    }
+
+    private void checkCancelled() {
+        if (this.cancelled) {
+            this.abort();
+            throw new CancellationException("Writing the archive was cancelled");
+        }
+    }
+
+    private void writeNext() throws IOException {
+        this.checkCancelled();
+
+        final Chunk chunk;
+        try {
+            chunk = this.inFlight.poll().join();
+        } catch (final CompletionException | CancellationException exception) {
+            this.abort();
+            final Throwable cause = exception.getCause();
+            if (cause instanceof final UncheckedIOException uncheckedIOException) throw uncheckedIOException.getCause();
+            throw new IOException("Compressing a ZIP entry failed", cause == null ? exception : cause);
+        }
+
+        final FileEntry entry = chunk.entry;
+
+        if (chunk.index == 0) {
+            entry.offset = this.outputStream.count;
+            entry.descriptor = !entry.isStored() && entry.chunkCount > 1;
+
+            if (entry.isStored()) {
+                entry.crc = chunk.crc;
+                entry.compressedSize = entry.size;
+            } else if (!entry.descriptor) {
+                entry.crc = chunk.crc;
+                entry.compressedSize = chunk.length;
+            }
+
+            this.writeLocalHeader(entry);
+        }
+
+        this.outputStream.write(chunk.data, 0, chunk.length);
+        this.resourcePool.releaseBuffer(chunk.data);
+        if (this.chunkListener != null) this.chunkListener.onChunkWritten(entry.entryName, chunk.index, chunk.rawLength);
+
+        if (entry.descriptor) {
+            entry.crc = chunk.index == 0 ? chunk.crc : crc32Combine(entry.crc, chunk.crc, chunk.rawLength);
+            entry.compressedSize += chunk.length;
+        }
+
+        if (chunk.index == entry.chunkCount - 1) {
+            if (entry.descriptor) this.writeDataDescriptor(entry);
+            entry.channel.close();
+            this.openEntries.remove(entry);
+            this.entries.add(entry);
+        }
+    }
+
+    private int selectLevel(final String entryName, final FileChannel channel, final long size) throws IOException {
+        final int sampleSize = (int) Math.min(this.compressionStrategy.getSampleSize(), size);
+        if (this.sample.length < sampleSize) this.sample = new byte[sampleSize];
+
+        final int sampleLength = CompressionStrategy.readSample(channel, this.sample, sampleSize);
+
+        final int level = this.compressionStrategy.selectLevel(entryName, size, this.sample, sampleLength);
+        return level == CompressionStrategy.STORED ? level : Math.max(0, Math.min(9, level));
+    }
+
+    private Chunk compress(final FileEntry entry, final int index) {
+        final long position = (long) index * CHUNK_SIZE;
+        final int length = (int) Math.min(CHUNK_SIZE, entry.size - position);
+        final int dictionaryLength = entry.isStored() ? 0 : (int) Math.min(DICTIONARY_SIZE, position);
+        final byte[] input = this.resourcePool.acquireBuffer(dictionaryLength + length);
+
+        try {
+            readFully(entry.channel, ByteBuffer.wrap(input, 0, dictionaryLength + length), position - dictionaryLength);
+
+            //The local header of a stored entry needs the CRC of the whole file, so the first chunk computes it
+            if (entry.isStored()) {
+                final long crc = index == 0 && entry.chunkCount > 1 ? this.crc32(entry.channel, entry.size) : crc32(input, length);
+                return new Chunk(entry, index, input, length, crc, length);
+            }
+        } catch (final IOException exception) {
+            this.resourcePool.releaseBuffer(input);
+            throw new UncheckedIOException(exception);
+        }
+
+        final CRC32 crc32 = new CRC32();
+        crc32.update(input, dictionaryLength, length);
+
+        final Deflater deflater = this.resourcePool.acquireDeflater(entry.level, true);
+        byte[] output = this.resourcePool.acquireBuffer(length + (length >> 3) + 64);
+
+        try {
+            if (dictionaryLength > 0) deflater.setDictionary(input, 0, dictionaryLength);
+            deflater.setInput(input, dictionaryLength, length);
+
+            final boolean last = index == entry.chunkCount - 1;
+            if (last) deflater.finish();
+
+            int outputLength = 0;
+
+            while (true) {
+                if (outputLength == output.length) {
+                    final byte[] grown = this.resourcePool.acquireBuffer(output.length * 2);
+                    System.arraycopy(output, 0, grown, 0, outputLength);
+                    this.resourcePool.releaseBuffer(output);
+                    output = grown;
+                }
+
+                outputLength += deflater.deflate(output, outputLength, output.length - outputLength,
+                        last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+
+                //Sync flush is complete once deflater stops filling the whole buffer
+                if (last ? deflater.finished() : outputLength < output.length) break;
+            }
+
+            return new Chunk(entry, index, output, outputLength, crc32.getValue(), length);
+        } catch (final RuntimeException exception) {
+            this.resourcePool.releaseBuffer(output);
+            throw exception;
+        } finally {
+            this.resourcePool.releaseDeflater(deflater, entry.level, true);
+            this.resourcePool.releaseBuffer(input);
+        }
+    }
+
+    private void writeLocalHeader(final FileEntry entry) throws IOException {
+        final boolean zip64 = entry.size >= ZIP64_MAGIC;
+
+        this.writeInt(0x04034b50L);
+        this.writeShort(zip64 ? 45 : 20);
+        this.writeShort(entry.flags());
+        this.writeShort(entry.method());
+        this.writeInt(entry.dosTime);
+
+        if (entry.descriptor) {
+            this.writeInt(0);
+            this.writeInt(0);
+            this.writeInt(0);
+        } else {
+            this.writeInt(entry.crc);
+            this.writeInt(zip64 ? ZIP64_MAGIC : entry.compressedSize);
+            this.writeInt(zip64 ? ZIP64_MAGIC : entry.size);
+        }
+
+        this.writeShort(entry.name.length);
+        this.writeShort(zip64 ? 20 : 0);
+        this.outputStream.write(entry.name);
+
+        if (zip64) {
+            this.writeShort(0x0001);
+            this.writeShort(16);
+            this.writeLong(entry.descriptor ? 0 : entry.size);
+            this.writeLong(entry.descriptor ? 0 : entry.compressedSize);
+        }
+    }
+
+    private void writeDataDescriptor(final FileEntry entry) throws IOException {
+        this.writeInt(0x08074b50L);
+        this.writeInt(entry.crc);
+
+        if (entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC) {
+            this.writeLong(entry.compressedSize);
+            this.writeLong(entry.size);
+        } else {
+            this.writeInt(entry.compressedSize);
+            this.writeInt(entry.size);
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        final long centralDirectoryOffset = this.outputStream.count;
+
+        for (final FileEntry entry : this.entries) {
+            final boolean sizeOverflow = entry.size >= ZIP64_MAGIC;
+            final boolean compressedOverflow = entry.compressedSize >= ZIP64_MAGIC;
+            final boolean offsetOverflow = entry.offset >= ZIP64_MAGIC;
+            final int zip64Length = (sizeOverflow ? 8 : 0) + (compressedOverflow ? 8 : 0) + (offsetOverflow ? 8 : 0);
+            final int version = zip64Length > 0 ? 45 : 20;
+
+            this.writeInt(0x02014b50L);
+            this.writeShort(version);
+            this.writeShort(version);
+            this.writeShort(entry.flags());
+            this.writeShort(entry.method());
+            this.writeInt(entry.dosTime);
+            this.writeInt(entry.crc);
+            this.writeInt(compressedOverflow ? ZIP64_MAGIC : entry.compressedSize);
+            this.writeInt(sizeOverflow ? ZIP64_MAGIC : entry.size);
+            this.writeShort(entry.name.length);
+            this.writeShort(zip64Length > 0 ? zip64Length + 4 : 0);
+            this.writeShort(0);
+            this.writeShort(0);
+            this.writeShort(0);
+            this.writeInt(0);
+            this.writeInt(offsetOverflow ? ZIP64_MAGIC : entry.offset);
+            this.outputStream.write(entry.name);
+
+            if (zip64Length > 0) {
+                this.writeShort(0x0001);
+                this.writeShort(zip64Length);
+                if (sizeOverflow) this.writeLong(entry.size);
+                if (compressedOverflow) this.writeLong(entry.compressedSize);
+                if (offsetOverflow) this.writeLong(entry.offset);
+            }
+        }
+
+        final long centralDirectoryEnd = this.outputStream.count;
+        final long centralDirectorySize = centralDirectoryEnd - centralDirectoryOffset;
+        final int count = this.entries.size();
+
+        if (count >= ZIP64_MAGIC_COUNT || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectorySize >= ZIP64_MAGIC) {
+            this.writeInt(0x06064b50L);
+            this.writeLong(44);
+            this.writeShort(45);
+            this.writeShort(45);
+            this.writeInt(0);
+            this.writeInt(0);
+            this.writeLong(count);
+            this.writeLong(count);
+            this.writeLong(centralDirectorySize);
+            this.writeLong(centralDirectoryOffset);
+
+            this.writeInt(0x07064b50L);
+            this.writeInt(0);
+            this.writeLong(centralDirectoryEnd);
+            this.writeInt(1);
+        }
+
+        this.writeInt(0x06054b50L);
+        this.writeShort(0);
+        this.writeShort(0);
+        this.writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        this.writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        this.writeInt(Math.min(centralDirectorySize, ZIP64_MAGIC));
+        this.writeInt(Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+        this.writeShort(0);
+    }
+
+    private void abort() {
+        this.failed = true;
+
+        CompletableFuture<Chunk> future;
+        while ((future = this.inFlight.poll()) != null) {
+            future.cancel(false);
+        }
+
+        this.pool.shutdownNow();
+
+        for (final FileEntry entry : this.openEntries) {
+            try {
+                entry.channel.close();
+            } catch (final IOException ignored) {
+            }
+        }
+        this.openEntries.clear();
+    }
+
+    private void writeShort(final int value) throws IOException {
+        this.scratch[0] = (byte) value;
+        this.scratch[1] = (byte) (value >>> 8);
+        this.outputStream.write(this.scratch, 0, 2);
+    }
+
+    private void writeInt(final long value) throws IOException {
+        for (int i = 0; i < 4; i++) {
+            this.scratch[i] = (byte) (value >>> (i * 8));
+        }
+        this.outputStream.write(this.scratch, 0, 4);
+    }
+
+    private void writeLong(final long value) throws IOException {
+        for (int i = 0; i < 8; i++) {
+            this.scratch[i] = (byte) (value >>> (i * 8));
+        }
+        this.outputStream.write(this.scratch, 0, 8);
+    }
+
+    private static long crc32(final byte[] data, final int length) {
+        final CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, length);
+        return crc32.getValue();
+    }
+
+    private long crc32(final FileChannel channel, final long size) throws IOException {
+        final CRC32 crc32 = new CRC32();
+        final byte[] array = this.resourcePool.acquireBuffer(CHUNK_SIZE);
+        final ByteBuffer buffer = ByteBuffer.wrap(array, 0, CHUNK_SIZE);
+        long position = 0;
+
+        try {
+            while (position < size) {
+                buffer.clear().limit((int) Math.min(CHUNK_SIZE, size - position));
+                readFully(channel, buffer, position);
+                position += buffer.flip().remaining();
+                crc32.update(buffer);
+            }
+        } finally {
+            this.resourcePool.releaseBuffer(array);
+        }
+
+        return crc32.getValue();
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        long current = position;
+
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, current);
+            if (read < 0) throw new EOFException("The file got shorter while it was being compressed");
+            current += read;
+        }
+    }
+
+    /**
+     * Converts a timestamp to the MS-DOS date and time format used in ZIP headers
+     */
+    static long toDosTime(final long millis) {
+        final LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (dateTime.getYear() < 1980) return (1 << 21) | (1 << 16);
+
+        return ((long) (dateTime.getYear() - 1980) << 25) | ((long) dateTime.getMonthValue() << 21) | ((long) dateTime.getDayOfMonth() << 16)
+                | ((long) dateTime.getHour() << 11) | ((long) dateTime.getMinute() << 5) | (dateTime.getSecond() >> 1);
+    }
+
+    /**
+     * Computes the CRC-32 of two concatenated blocks from their separate CRCs (port of zlib's {@code crc32_combine})
+     *
+     * @param crc1   CRC of the first block
+     * @param crc2   CRC of the second block
+     * @param length length of the second block in bytes
+     * @return CRC of both blocks
+     */
+    public static long crc32Combine(long crc1, final long crc2, long length) {
+        if (length <= 0) return crc1;
+
+        final long[] even = new long[32];
+        final long[] odd = new long[32];
+
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length & 1) != 0) crc1 = gf2MatrixTimes(even, crc1);
+            length >>= 1;
+            if (length == 0) break;
+
+            gf2MatrixSquare(odd, even);
+            if ((length & 1) != 0) crc1 = gf2MatrixTimes(odd, crc1);
+            length >>= 1;
+        } while (length != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(final long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) sum ^= matrix[i];
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(final long[] square, final long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    private static ForkJoinWorkerThread newWorker(final ForkJoinPool pool) {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Zip-Worker-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static final class FileEntry {
+
+        private final String entryName;
+        private final byte[] name;
+        private final FileChannel channel;
+        private final long size;
+        private final int chunkCount;
+        private final long dosTime;
+        private final int level;
+        private long offset;
+        private long crc;
+        private long compressedSize;
+        private boolean descriptor;
+
+        private FileEntry(final String entryName, final FileChannel channel, final long size, final int chunkCount, final long dosTime, final int level) {
+            this.entryName = entryName;
+            this.name = entryName.getBytes(StandardCharsets.UTF_8);
+            this.channel = channel;
+            this.size = size;
+            this.chunkCount = chunkCount;
+            this.dosTime = dosTime;
+            this.level = level;
+        }
+
+        private boolean isStored() {
+            return this.level == CompressionStrategy.STORED;
+        }
+
+        private int method() {
+            return this.isStored() ? ZipEntry.STORED : ZipEntry.DEFLATED;
+        }
+
+        private int flags() {
+            //Bit 11: UTF-8 names, bit 3: sizes and CRC follow the data
+            return 0x0800 | (this.descriptor ? 0x0008 : 0);
+        }
+    }
+
+    @FunctionalInterface
+    interface ChunkListener {
+
+        void onChunkWritten(String entryName, int chunkIndex, long uncompressedLength);
+    }
+
+    private record Chunk(FileEntry entry, int index, byte[] data, int length, long crc, int rawLength) {
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(final OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            this.out.write(bytes, offset, length);
+            this.count += length;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package pl.indianbartonka.util.zip;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Reads single entries of a ZIP archive from a {@link SeekableByteChannel} through its central directory.
+ * <p>
+ * {@link java.util.zip.ZipFile} needs a plain file on disk. This reader only reads the end of the archive and the entries
+ * that are requested, so on top of a {@link pl.indianbartonka.util.encrypt.SeekableDecryptingChannel} one file can be
+ * restored from a large encrypted backup without decrypting the rest. ZIP64 archives are supported, the reader is not thread-safe.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class SeekableZipReader implements Closeable {
+
+    private static final int END_HEADER_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final SeekableByteChannel channel;
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param channel channel with the archive, it is closed together with the reader
+     * @throws IOException If the channel does not contain a valid ZIP archive.
+     */
+    public SeekableZipReader(final SeekableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.entries = new LinkedHashMap<>();
+        this.readCentralDirectory();
+    }
+
+    public Set<String> getEntryNames() {
+        return Collections.unmodifiableSet(this.entries.keySet());
+    }
+
+    public boolean hasEntry(final String name) {
+        return this.entries.containsKey(name);
+    }
+
+    /**
+     * @param name entry name
+     * @return Uncompressed size of the entry.
+     * @throws IOException If the archive has no such entry.
+     */
+    public long getSize(final String name) throws IOException {
+        return this.getEntry(name).size();
+    }
+
+    /**
+     * Opens the data of an entry, only the compressed bytes of this entry are read from the channel
+     *
+     * @param name entry name
+     * @return Stream with the uncompressed data, it has to be closed.
+     * @throws IOException If the archive has no such entry or its local header is invalid.
+     */
+    public InputStream getInputStream(final String name) throws IOException {
+        final Entry entry = this.getEntry(name);
+        final ByteBuffer localHeader = this.read(entry.localHeaderOffset(), 30);
+        if (localHeader.getInt(0) != 0x04034b50) throw new IOException("Invalid local header of " + name);
+
+        final long dataOffset = entry.localHeaderOffset() + 30 + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+        final InputStream raw = new RangeInputStream(dataOffset, entry.compressedSize());
+
+        if (entry.method() == ZipEntry.STORED) return raw;
+        if (entry.method() != ZipEntry.DEFLATED) throw new IOException("Unsupported compression method " + entry.method() + " of " + name);
+
+        final Inflater inflater = ZipResourcePool.shared().acquireInflater(true);
+        return new InflaterInputStream(raw, inflater, 64 * 1024) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (this.closed) return;
+                this.closed = true;
+                super.close();
+                ZipResourcePool.shared().releaseInflater(inflater, true);
+            }
+        };
+    }
+
+    /**
+     * Extracts an entry to a file and verifies its CRC-32
+     *
+     * @param name       entry name
+     * @param outputFile file to write, it is replaced
+     * @return Number of bytes written.
+     * @throws IOException If reading fails or the checksum does not match.
+     */
+    public long extract(final String name, final File outputFile) throws IOException {
+        final Entry entry = this.getEntry(name);
+        final File parent = outputFile.getParentFile();
+        if (parent != null) Files.createDirectories(parent.toPath());
+
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = ZipResourcePool.shared().acquireBuffer(64 * 1024);
+        long written = 0;
+
+        try (final InputStream inputStream = this.getInputStream(name);
+             final OutputStream outputStream = new FileOutputStream(outputFile)) {
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, length);
+                outputStream.write(buffer, 0, length);
+                written += length;
+            }
+        } finally {
+            ZipResourcePool.shared().releaseBuffer(buffer);
+        }
+
+        if (written != entry.size() || crc.getValue() != entry.crc()) {
+            throw new IOException("Entry " + name + " is corrupted, size or CRC-32 does not match");
+        }
+
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private Entry getEntry(final String name) throws IOException {
+        final Entry entry = this.entries.get(name);
+        if (entry == null) throw new IOException("No entry " + name + " in the archive");
+        return entry;
+    }
+
+    private void readCentralDirectory() throws IOException {
+        final long size = this.channel.size();
+        if (size < END_HEADER_SIZE) throw new IOException("Not a ZIP archive, it is too small");
+
+        final int tailLength = (int) Math.min(size, END_HEADER_SIZE + MAX_COMMENT_SIZE);
+        final ByteBuffer tail = this.read(size - tailLength, tailLength);
+
+        int end = -1;
+        for (int i = tailLength - END_HEADER_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == 0x06054b50) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) throw new IOException("Not a ZIP archive, the end of central directory record is missing");
+
+        long entryCount = tail.getShort(end + 10) & 0xFFFF;
+        long directorySize = tail.getInt(end + 12) & ZIP64_MAGIC;
+        long directoryOffset = tail.getInt(end + 16) & ZIP64_MAGIC;
+
+        // ZIP64 archives keep the real values in a record located just before the end record
+        if (entryCount == 0xFFFF || directorySize == ZIP64_MAGIC || directoryOffset == ZIP64_MAGIC) {
+            final long endPosition = size - tailLength + end;
+            if (endPosition < 20) throw new IOException("ZIP64 end of central directory locator is missing");
+
+            final ByteBuffer locator = this.read(endPosition - 20, 20);
+            if (locator.getInt(0) != 0x07064b50) throw new IOException("ZIP64 end of central directory locator is missing");
+
+            final ByteBuffer zip64End = this.read(locator.getLong(8), 56);
+            if (zip64End.getInt(0) != 0x06064b50) throw new IOException("Invalid ZIP64 end of central directory record");
+
+            entryCount = zip64End.getLong(32);
+            directorySize = zip64End.getLong(40);
+            directoryOffset = zip64End.getLong(48);
+        }
+
+        if (directorySize > Integer.MAX_VALUE) throw new IOException("Central directory is too large");
+        final ByteBuffer directory = this.read(directoryOffset, (int) directorySize);
+
+        int position = 0;
+        for (long i = 0; i < entryCount; i++) {
+            if (directory.getInt(position) != 0x02014b50) throw new IOException("Invalid central directory entry " + i);
+
+            final int method = directory.getShort(position + 10) & 0xFFFF;
+            final long crc = directory.getInt(position + 16) & ZIP64_MAGIC;
+            long compressedSize = directory.getInt(position + 20) & ZIP64_MAGIC;
+            long uncompressedSize = directory.getInt(position + 24) & ZIP64_MAGIC;
+            final int nameLength = directory.getShort(position + 28) & 0xFFFF;
+            final int extraLength = directory.getShort(position + 30) & 0xFFFF;
+            final int commentLength = directory.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = directory.getInt(position + 42) & ZIP64_MAGIC;
+
+            final byte[] nameBytes = new byte[nameLength];
+            directory.get(position + 46, nameBytes);
+            final String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // The ZIP64 extra field lists only the values which did not fit, in this order
+            int extra = position + 46 + nameLength;
+            final int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                final int id = directory.getShort(extra) & 0xFFFF;
+                final int length = directory.getShort(extra + 2) & 0xFFFF;
+
+                if (id == 0x0001) {
+                    int field = extra + 4;
+                    if (uncompressedSize == ZIP64_MAGIC) {
+                        uncompressedSize = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC) {
+                        compressedSize = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MAGIC) localHeaderOffset = directory.getLong(field);
+                }
+
+                extra += 4 + length;
+            }
+
+            if (!name.endsWith("/")) {
+                this.entries.put(name, new Entry(method, crc, compressedSize, uncompressedSize, localHeaderOffset));
+            }
+            position = extraEnd + commentLength;
+        }
+    }
+
+    private ByteBuffer read(final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        this.channel.position(position);
+
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer) < 0) throw new IOException("Archive ended unexpectedly");
+        }
+
+        return buffer.flip();
+    }
+
+    private record Entry(int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+    }
+
+    /**
+     * Reads a part of the channel, the position is set before every read so several streams can be used one after another
+     */
+    private final class RangeInputStream extends InputStream {
+
+        private long position;
+        private long remaining;
+
+        private RangeInputStream(final long position, final long length) {
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return this.read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (this.remaining <= 0) return -1;
+
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, (int) Math.min(length, this.remaining));
+            SeekableZipReader.this.channel.position(this.position);
+            final int read = SeekableZipReader.this.channel.read(buffer);
+            if (read < 0) throw new IOException("Archive ended inside an entry");
+
+            this.position += read;
+            this.remaining -= read;
+            return read;
+        }
+    }
+}
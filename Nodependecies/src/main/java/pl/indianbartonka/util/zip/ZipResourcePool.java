@@ -0,0 +1,227 @@
+package pl.indianbartonka.util.zip;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Thread-safe pool of {@link Deflater} and {@link Inflater} instances and I/O buffers shared by all ZIP operations.
+ * <p>
+ * Creating a {@link Deflater} allocates native zlib state of a few hundred kilobytes and large buffers put pressure
+ * on the garbage collector, so zipping thousands of small files spends a surprising part of its time on setup.
+ * Released objects are kept in bounded queues and handed out again, objects that do not fit are discarded
+ * ({@link Deflater#end()} / {@link Inflater#end()} is called on them).
+ * </p>
+ * <p>
+ * Buffers are grouped in power-of-two size classes from {@link #MIN_BUFFER_SIZE} to {@link #MAX_BUFFER_SIZE},
+ * a class keeps at most {@link #MAX_CLASS_BYTES} of idle buffers. A buffer returned by {@link #acquireBuffer(int)}
+ * may be larger than requested.
+ * </p>
+ */
+@Since("0.0.9.5")
+public final class ZipResourcePool {
+
+    public static final int MIN_BUFFER_SIZE = 8 * 1024;
+    public static final int MAX_BUFFER_SIZE = 2 * 1024 * 1024;
+    public static final int MAX_CLASS_BYTES = 32 * 1024 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    private static final int MAX_SHIFT = Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE);
+    private static final ZipResourcePool SHARED = new ZipResourcePool(Runtime.getRuntime().availableProcessors() * 4);
+
+    private final List<BlockingQueue<Deflater>> deflaters;
+    private final List<BlockingQueue<Inflater>> inflaters;
+    private final List<BlockingQueue<byte[]>> buffers;
+    private final AtomicLong created;
+    private final AtomicLong reused;
+    private volatile boolean enabled;
+
+    /**
+     * @param capacity maximum number of idle deflaters for every level, inflaters and buffers of one size class
+     */
+    public ZipResourcePool(final int capacity) {
+        final int size = Math.max(1, capacity);
+
+        //Levels 0-9 and DEFAULT_COMPRESSION, each with and without the zlib wrapper
+        this.deflaters = createQueues(22, i -> size);
+        this.inflaters = createQueues(2, i -> size);
+        this.buffers = createQueues(MAX_SHIFT - MIN_SHIFT + 1, i -> Math.max(1, Math.min(size, MAX_CLASS_BYTES >> (MIN_SHIFT + i))));
+
+        this.created = new AtomicLong();
+        this.reused = new AtomicLong();
+        this.enabled = true;
+    }
+
+    /**
+     * @return Pool used by {@link pl.indianbartonka.util.ZipUtil} and the classes in this package
+     */
+    public static ZipResourcePool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param level  deflate level from 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param nowrap {@code true} for raw deflate data as used in ZIP and GZIP
+     * @return Reset deflater, its level must not be changed before it is released
+     */
+    public Deflater acquireDeflater(final int level, final boolean nowrap) {
+        if (this.enabled) {
+            final Deflater deflater = this.deflaters.get(deflaterIndex(level, nowrap)).poll();
+            if (deflater != null) {
+                this.reused.incrementAndGet();
+                return deflater;
+            }
+        }
+
+        this.created.incrementAndGet();
+        return new Deflater(level, nowrap);
+    }
+
+    /**
+     * Resets the deflater and keeps it for the next {@link #acquireDeflater(int, boolean)} with the same arguments
+     *
+     * @param deflater deflater from {@link #acquireDeflater(int, boolean)}, it must not be used afterwards
+     * @param level    level it was acquired with
+     * @param nowrap   nowrap it was acquired with
+     */
+    public void releaseDeflater(final Deflater deflater, final int level, final boolean nowrap) {
+        if (this.enabled) {
+            deflater.reset();
+            if (this.deflaters.get(deflaterIndex(level, nowrap)).offer(deflater)) return;
+        }
+
+        deflater.end();
+    }
+
+    /**
+     * @param nowrap {@code true} for raw deflate data as used in ZIP and GZIP
+     * @return Reset inflater
+     */
+    public Inflater acquireInflater(final boolean nowrap) {
+        if (this.enabled) {
+            final Inflater inflater = this.inflaters.get(nowrap ? 1 : 0).poll();
+            if (inflater != null) {
+                this.reused.incrementAndGet();
+                return inflater;
+            }
+        }
+
+        this.created.incrementAndGet();
+        return new Inflater(nowrap);
+    }
+
+    /**
+     * @param inflater inflater from {@link #acquireInflater(boolean)}, it must not be used afterwards
+     * @param nowrap   nowrap it was acquired with
+     */
+    public void releaseInflater(final Inflater inflater, final boolean nowrap) {
+        if (this.enabled) {
+            inflater.reset();
+            if (this.inflaters.get(nowrap ? 1 : 0).offer(inflater)) return;
+        }
+
+        inflater.end();
+    }
+
+    /**
+     * @param minSize minimum length of the buffer
+     * @return Buffer of at least {@code minSize} bytes with undefined content
+     */
+    public byte[] acquireBuffer(final int minSize) {
+        if (!this.enabled || minSize > MAX_BUFFER_SIZE) {
+            this.created.incrementAndGet();
+            return new byte[minSize];
+        }
+
+        final int shift = bufferShift(minSize);
+        final byte[] buffer = this.buffers.get(shift - MIN_SHIFT).poll();
+        if (buffer != null) {
+            this.reused.incrementAndGet();
+            return buffer;
+        }
+
+        this.created.incrementAndGet();
+        return new byte[1 << shift];
+    }
+
+    /**
+     * @param buffer buffer from {@link #acquireBuffer(int)}, buffers of other sizes are ignored
+     */
+    public void releaseBuffer(final byte[] buffer) {
+        final int length = buffer.length;
+        if (!this.enabled || length < MIN_BUFFER_SIZE || length > MAX_BUFFER_SIZE || Integer.bitCount(length) != 1) return;
+
+        this.buffers.get(Integer.numberOfTrailingZeros(length) - MIN_SHIFT).offer(buffer);
+    }
+
+    /**
+     * Ends all idle deflaters and inflaters and drops idle buffers
+     */
+    public void clear() {
+        for (final BlockingQueue<Deflater> queue : this.deflaters) {
+            Deflater deflater;
+            while ((deflater = queue.poll()) != null) deflater.end();
+        }
+
+        for (final BlockingQueue<Inflater> queue : this.inflaters) {
+            Inflater inflater;
+            while ((inflater = queue.poll()) != null) inflater.end();
+        }
+
+        for (final BlockingQueue<byte[]> queue : this.buffers) {
+            queue.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * @param enabled {@code false} makes every acquire allocate a new object and every release discard it, the pool is cleared
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) this.clear();
+    }
+
+    /**
+     * @return Number of deflaters, inflaters and buffers which had to be allocated
+     */
+    public long getCreated() {
+        return this.created.get();
+    }
+
+    /**
+     * @return Number of deflaters, inflaters and buffers taken from the pool
+     */
+    public long getReused() {
+        return this.reused.get();
+    }
+
+    private static int deflaterIndex(final int level, final boolean nowrap) {
+        final int levelIndex = level == Deflater.DEFAULT_COMPRESSION ? 10 : level;
+        if (levelIndex < 0 || levelIndex > 10) throw new IllegalArgumentException("Invalid compression level: " + level);
+
+        return levelIndex * 2 + (nowrap ? 1 : 0);
+    }
+
+    private static int bufferShift(final int size) {
+        if (size <= MIN_BUFFER_SIZE) return MIN_SHIFT;
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    private static <T> List<BlockingQueue<T>> createQueues(final int count, final IntUnaryOperator capacity) {
+        final List<BlockingQueue<T>> queues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            queues.add(new ArrayBlockingQueue<>(capacity.applyAsInt(i)));
+        }
+        return List.copyOf(queues);
+    }
+}
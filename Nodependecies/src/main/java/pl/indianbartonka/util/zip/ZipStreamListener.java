@@ -0,0 +1,20 @@
+package pl.indianbartonka.util.zip;
+
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Callbacks of a {@link ZipStreamTask}, all of them are called on the thread running {@link ZipStreamTask#zip()}
+ */
+@Since("0.0.9.5")
+public interface ZipStreamListener {
+
+    void onStart(int fileCount, long totalBytes);
+
+    void onEntry(String entryName);
+
+    void onProgress(int progress, long processedBytes, long totalBytes);
+
+    void onEnd(long bytesWritten);
+
+    void onCancel();
+}
@@ -0,0 +1,204 @@
+package pl.indianbartonka.util.zip;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.jetbrains.annotations.Nullable;
+import pl.indianbartonka.util.ZipUtil;
+import pl.indianbartonka.util.annotation.Since;
+
+/**
+ * Streams folders and files as a ZIP archive straight into an {@link OutputStream} or {@link WritableByteChannel},
+ * for example an HTTP request body or an encrypting stream, without writing the archive to disk first.
+ * <p>
+ * Memory use is bounded: only a few compressed chunks per thread are kept at once, and when the output is slower
+ * than compression the thread calling {@link #zip()} blocks on the write and stops scheduling new chunks.
+ * The output is flushed but not closed. Folders get the same entry names as {@link ZipUtil#zipFolder(String, String)},
+ * single files are put in the root of the archive.
+ * </p>
+ */
+@Since("0.0.9.5")
+public class ZipStreamTask {
+
+    private final List<File> sources;
+    private final OutputStream outputStream;
+    private final CompressionStrategy compressionStrategy;
+    private final int parallelism;
+    private final ZipStreamListener listener;
+    private volatile ParallelZipWriter zipWriter;
+    private volatile boolean cancelled;
+    private volatile boolean running;
+    private volatile boolean finished;
+    private volatile long processedBytes;
+    private volatile long totalBytes;
+    private volatile long bytesWritten;
+    private int lastProgress;
+
+    public ZipStreamTask(final List<File> sources, final OutputStream outputStream, final CompressionStrategy compressionStrategy,
+                         final int parallelism, @Nullable final ZipStreamListener listener) {
+        this.sources = List.copyOf(sources);
+        this.outputStream = outputStream;
+        this.compressionStrategy = compressionStrategy;
+        this.parallelism = Math.max(1, parallelism);
+        this.listener = listener;
+        this.lastProgress = -1;
+    }
+
+    public ZipStreamTask(final List<File> sources, final OutputStream outputStream, @Nullable final ZipStreamListener listener) {
+        this(sources, outputStream, ZipUtil.getCompressionStrategy(), Runtime.getRuntime().availableProcessors(), listener);
+    }
+
+    public ZipStreamTask(final List<File> sources, final WritableByteChannel channel, @Nullable final ZipStreamListener listener) {
+        this(sources, Channels.newOutputStream(channel), listener);
+    }
+
+    /**
+     * Writes the archive, blocking until it is complete
+     *
+     * @return Number of bytes written to the output
+     * @throws IOException           If reading a file or writing the output fails.
+     * @throws CancellationException If {@link #cancel()} was called, the output then holds an incomplete archive.
+     */
+    public long zip() throws IOException {
+        if (this.running || this.finished) throw new IllegalStateException("Task can only be run once");
+        this.running = true;
+
+        final List<File> files = new ArrayList<>();
+        final List<String> entryNames = new ArrayList<>();
+
+        try {
+            for (final File source : this.sources) {
+                if (source.isDirectory()) {
+                    listFiles(source, source.getName(), files, entryNames);
+                } else {
+                    files.add(source);
+                    entryNames.add(source.getName());
+                }
+            }
+
+            for (final File file : files) {
+                this.totalBytes += file.length();
+            }
+
+            if (this.listener != null) this.listener.onStart(files.size(), this.totalBytes);
+
+            //The stream belongs to the caller, finishing the archive only flushes it
+            final OutputStream notClosing = new FilterOutputStream(this.outputStream) {
+                @Override
+                public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+                    this.out.write(bytes, offset, length);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    this.flush();
+                }
+            };
+
+            try (final ParallelZipWriter writer = new ParallelZipWriter(notClosing, this.compressionStrategy, this.parallelism)) {
+                this.zipWriter = writer;
+                writer.setChunkListener(this::onChunkWritten);
+                if (this.cancelled) writer.cancel();
+
+                for (int i = 0; i < files.size(); i++) {
+                    writer.addFile(files.get(i), entryNames.get(i));
+                }
+
+                writer.finish();
+                this.bytesWritten = writer.getBytesWritten();
+            }
+        } catch (final CancellationException exception) {
+            if (this.listener != null) this.listener.onCancel();
+            throw exception;
+        } finally {
+            this.running = false;
+            this.finished = true;
+        }
+
+        if (this.listener != null) this.listener.onEnd(this.bytesWritten);
+        return this.bytesWritten;
+    }
+
+    /**
+     * Stops the task as soon as the chunk being written is done
+     */
+    public void cancel() {
+        this.cancelled = true;
+
+        final ParallelZipWriter writer = this.zipWriter;
+        if (writer != null) writer.cancel();
+    }
+
+    public List<File> getSources() {
+        return this.sources;
+    }
+
+    public long getProcessedBytes() {
+        return this.processedBytes;
+    }
+
+    public long getTotalBytes() {
+        return this.totalBytes;
+    }
+
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    private void onChunkWritten(final String entryName, final int chunkIndex, final long uncompressedLength) {
+        this.processedBytes += uncompressedLength;
+
+        if (this.listener == null) return;
+        if (chunkIndex == 0) this.listener.onEntry(entryName);
+
+        final int progress = this.totalBytes == 0 ? 100 : (int) (this.processedBytes * 100 / this.totalBytes);
+        if (progress != this.lastProgress) {
+            this.lastProgress = progress;
+            this.listener.onProgress(progress, this.processedBytes, this.totalBytes);
+        }
+    }
+
+    private static void listFiles(final File folder, final String parentName, final List<File> files, final List<String> entryNames) {
+        final File[] children = folder.listFiles();
+        if (children == null) return;
+
+        for (final File child : children) {
+            if (child.isDirectory()) {
+                listFiles(child, parentName + "/" + child.getName(), files, entryNames);
+            } else {
+                files.add(child);
+                entryNames.add(parentName + "/" + child.getName());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ZipStreamTask (" +
+                "sources=" + this.sources +
+                ", processedBytes=" + this.processedBytes +
+                ", totalBytes=" + this.totalBytes +
+                ", cancelled=" + this.cancelled +
+                ", running=" + this.running +
+                ", finished=" + this.finished +
+                ')';
+    }
+}
@@ -1,15 +1,31 @@
 package pl.indianbartonka.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import pl.indianbartonka.util.encrypt.BatchEncryptor;
+import pl.indianbartonka.util.encrypt.BatchListener;
+import pl.indianbartonka.util.encrypt.ChannelCipherEngine;
 import pl.indianbartonka.util.encrypt.EncryptedFile;
 import pl.indianbartonka.util.encrypt.Encryptor;
+import pl.indianbartonka.util.encrypt.SegmentedAeadCipher;
 import pl.indianbartonka.util.encrypt.aes.AESEncryptor;
 import pl.indianbartonka.util.encrypt.aes.AESSettings;
 import pl.indianbartonka.util.exception.encryption.DecryptException;
@@ -61,4 +77,273 @@ public class AesEncryptorTest {
             exception.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parallelCtrMatchesSequential() throws IOException, EncryptException, DecryptException {
+        final Path workDir = Files.createTempDirectory("ParallelAes");
+        final File file = workDir.resolve("backup.bin").toFile();
+        final byte[] data = new byte[13 * 1024 * 1024 + 37];
+        new Random(19).nextBytes(data);
+        Files.write(file.toPath(), data);
+
+        //Licznik bliski przepełnienia sprawdza przeniesienie między bajtami IV
+        final byte[] iv = new byte[16];
+        Arrays.fill(iv, 8, 16, (byte) 0xFF);
+        final AESEncryptor sequential = new AESEncryptor(AESSettings.AESMode.CTR, AESSettings.AESPadding.NO_PADDING, new IvParameterSpec(iv));
+        final AESEncryptor parallel = new AESEncryptor(AESSettings.AESMode.CTR, AESSettings.AESPadding.NO_PADDING, new IvParameterSpec(iv));
+        parallel.setParallelism(4);
+
+        final byte[] expected = Files.readAllBytes(sequential.encryptFile(file, this.secretKey).encryptedFile().toPath());
+        final File encrypted = parallel.encryptFile(file, this.secretKey).encryptedFile();
+        Assertions.assertArrayEquals(expected, Files.readAllBytes(encrypted.toPath()), "Wynik równoległy powinien być identyczny");
+
+        Files.delete(file.toPath());
+        Assertions.assertArrayEquals(data, Files.readAllBytes(parallel.decryptFile(encrypted, this.secretKey).toPath()));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void segmentedGcmDetectsTamperingAndTruncation() throws IOException, EncryptException, DecryptException {
+        final Path workDir = Files.createTempDirectory("SegmentedAes");
+        final File file = workDir.resolve("backup.bin").toFile();
+        final byte[] data = new byte[5 * SegmentedAeadCipher.DEFAULT_SEGMENT_SIZE + 77];
+        new Random(29).nextBytes(data);
+        Files.write(file.toPath(), data);
+
+        final AESEncryptor segmented = new AESEncryptor(AESSettings.AESMode.GCM, AESSettings.AESPadding.NO_PADDING, this.ivParameterSpec);
+        segmented.setSegmented(true);
+        segmented.setParallelism(3);
+
+        final File encrypted = segmented.encryptFile(file, this.secretKey).encryptedFile();
+        Assertions.assertTrue(SegmentedAeadCipher.isSegmented(encrypted), "Plik powinien mieć nagłówek formatu segmentowego");
+
+        //Odszyfrowanie rozpoznaje format po nagłówku, bez włączania go w ustawieniach
+        final AESEncryptor reader = new AESEncryptor(AESSettings.AESMode.GCM, AESSettings.AESPadding.NO_PADDING, this.ivParameterSpec);
+        Files.delete(file.toPath());
+        Assertions.assertArrayEquals(data, Files.readAllBytes(reader.decryptFile(encrypted, this.secretKey).toPath()));
+
+        final byte[] original = Files.readAllBytes(encrypted.toPath());
+        try (final RandomAccessFile randomAccessFile = new RandomAccessFile(encrypted, "rw")) {
+            randomAccessFile.seek(SegmentedAeadCipher.HEADER_SIZE + 2L * SegmentedAeadCipher.DEFAULT_SEGMENT_SIZE + 5);
+            randomAccessFile.write(randomAccessFile.read() ^ 1);
+        }
+        Assertions.assertThrows(DecryptException.class, () -> reader.decryptFile(encrypted, this.secretKey), "Zmieniony segment powinien zostać wykryty");
+        Assertions.assertFalse(file.exists(), "Po błędzie nie powinien zostać częściowo odszyfrowany plik");
+
+        //Obcięcie dokładnie na granicy segmentu też musi zostać wykryte
+        final int segmentWithTag = SegmentedAeadCipher.DEFAULT_SEGMENT_SIZE + SegmentedAeadCipher.TAG_SIZE;
+        Files.write(encrypted.toPath(), Arrays.copyOf(original, SegmentedAeadCipher.HEADER_SIZE + 3 * segmentWithTag));
+        Assertions.assertThrows(DecryptException.class, () -> reader.decryptFile(encrypted, this.secretKey), "Obcięty plik powinien zostać wykryty");
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void segmentedRejectsTamperedSegmentSize() throws IOException {
+        final Path workDir = Files.createTempDirectory("SegmentedHeader");
+        final File file = workDir.resolve("backup.bin").toFile();
+        final File encrypted = workDir.resolve("backup.bin.seg").toFile();
+        final File decrypted = workDir.resolve("backup.out").toFile();
+        Files.write(file.toPath(), new byte[100_000]);
+
+        final SegmentedAeadCipher cipher = new SegmentedAeadCipher(SegmentedAeadCipher.Algorithm.AES_GCM, this.secretKey);
+        cipher.encryptFile(file, encrypted, 1);
+        final byte[] original = Files.readAllBytes(encrypted.toPath());
+
+        //Rozmiar segmentu z nagłówka nie jest jeszcze uwierzytelniony, nie może posłużyć do zaalokowania ogromnego bufora
+        for (final int segmentSize : new int[]{Integer.MAX_VALUE, SegmentedAeadCipher.MAX_SEGMENT_SIZE + 1, -1, 0}) {
+            final byte[] tampered = original.clone();
+            ByteBuffer.wrap(tampered, 6, 4).putInt(segmentSize);
+            Files.write(encrypted.toPath(), tampered);
+
+            Assertions.assertThrows(IOException.class, () -> cipher.decryptFile(encrypted, decrypted, 2), "Rozmiar " + segmentSize);
+            Assertions.assertThrows(IOException.class, () -> cipher.newDecryptingStream(new ByteArrayInputStream(tampered)).readAllBytes());
+
+            final AESEncryptor gcm = new AESEncryptor(AESSettings.AESMode.GCM, AESSettings.AESPadding.NO_PADDING, this.ivParameterSpec);
+            Assertions.assertThrows(DecryptException.class, () -> gcm.openDecryptingChannel(encrypted, this.secretKey).close());
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new SegmentedAeadCipher(SegmentedAeadCipher.Algorithm.AES_GCM, this.secretKey, SegmentedAeadCipher.MAX_SEGMENT_SIZE + 1));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void byteApisReuseCipher() throws EncryptException, DecryptException {
+        final AESEncryptor cbc = new AESEncryptor(AESSettings.AESMode.CBC, AESSettings.AESPadding.PKCS5_PADDING, AESSettings.generateIV(AESSettings.AESMode.CBC));
+        final Random random = new Random(31);
+
+        for (int i = 0; i < 200; i++) {
+            final byte[] token = new byte[random.nextInt(100)];
+            random.nextBytes(token);
+
+            final byte[] encrypted = cbc.encrypt(token, this.secretKey);
+            Assertions.assertEquals(cbc.getOutputSize(token.length, true), encrypted.length, "Rozmiar z dopełnieniem powinien się zgadzać");
+            Assertions.assertArrayEquals(token, cbc.decrypt(encrypted, this.secretKey));
+        }
+
+        //Bufory bezpośrednie i zapis od podanej pozycji bufora wyjściowego
+        final ByteBuffer input = ByteBuffer.allocateDirect(64);
+        input.put("Jestem Sigma🎤🎤".getBytes(StandardCharsets.UTF_8)).flip();
+        final int plainLength = input.remaining();
+        final ByteBuffer encrypted = ByteBuffer.allocateDirect(cbc.getOutputSize(plainLength, true));
+        Assertions.assertEquals(encrypted.capacity(), cbc.encrypt(input, encrypted, this.secretKey));
+
+        final ByteBuffer decrypted = ByteBuffer.allocate(8 + encrypted.capacity());
+        decrypted.position(8);
+        Assertions.assertEquals(plainLength, cbc.decrypt(encrypted.flip(), decrypted, this.secretKey));
+        Assertions.assertEquals("Jestem Sigma🎤🎤", new String(decrypted.array(), 8, plainLength, StandardCharsets.UTF_8));
+
+        //GCM nie pozwala użyć ponownie tego samego IV w jednej instancji, pamięć podręczna musi to obsłużyć
+        final byte[] first = this.encryptor.encrypt(new byte[]{1, 2, 3}, this.secretKey);
+        Assertions.assertArrayEquals(first, this.encryptor.encrypt(new byte[]{1, 2, 3}, this.secretKey));
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, this.encryptor.decrypt(first, this.secretKey));
+        Assertions.assertEquals("Zażółć gęślą jaźń", this.encryptor.decryptText(this.encryptor.encryptText("Zażółć gęślą jaźń", this.secretKey), this.secretKey));
+    }
+
+    @Test
+    public void channelEngineMatchesCipher() throws Exception {
+        final Path workDir = Files.createTempDirectory("ChannelAes");
+        final File file = workDir.resolve("backup.bin").toFile();
+        final byte[] data = new byte[3 * ChannelCipherEngine.BUFFER_SIZE + 5];
+        new Random(37).nextBytes(data);
+
+        //Tryb z dopełnieniem oraz GCM, który przy odszyfrowaniu trzyma cały plik do sprawdzenia znacznika
+        for (final AESSettings.AESMode mode : new AESSettings.AESMode[]{AESSettings.AESMode.CBC, AESSettings.AESMode.GCM}) {
+            final AESSettings.AESPadding padding = mode == AESSettings.AESMode.GCM ? AESSettings.AESPadding.NO_PADDING : AESSettings.AESPadding.PKCS5_PADDING;
+            final IvParameterSpec iv = AESSettings.generateIV(mode);
+            final AESEncryptor aesEncryptor = new AESEncryptor(mode, padding, iv);
+            Files.write(file.toPath(), data);
+
+            final Cipher cipher = AESSettings.createCipher(mode, padding, this.secretKey, iv, true);
+            final File encrypted = aesEncryptor.encryptFile(file, this.secretKey).encryptedFile();
+            Assertions.assertArrayEquals(cipher.doFinal(data), Files.readAllBytes(encrypted.toPath()), "Szyfrogram powinien być taki sam jak z Cipher.doFinal");
+
+            Files.delete(file.toPath());
+            Assertions.assertArrayEquals(data, Files.readAllBytes(aesEncryptor.decryptFile(encrypted, this.secretKey).toPath()));
+
+            if (mode == AESSettings.AESMode.GCM) {
+                final SecretKey wrongKey = AESSettings.generateKey(AESSettings.AESKeySize.AES_256);
+                Assertions.assertThrows(DecryptException.class, () -> aesEncryptor.decryptFile(encrypted, wrongKey), "Zły klucz powinien zostać wykryty");
+            }
+        }
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void batchEncryptResumesFromJournal() throws IOException, EncryptException, DecryptException {
+        final Path workDir = Files.createTempDirectory("BatchAes");
+        final Map<Path, byte[]> contents = new HashMap<>();
+        final Random random = new Random(41);
+
+        for (int i = 0; i < 12; i++) {
+            final Path file = workDir.resolve("dir" + (i % 3)).resolve("file" + i + ".bin");
+            Files.createDirectories(file.getParent());
+            final byte[] data = new byte[random.nextInt(200_000)];
+            random.nextBytes(data);
+            Files.write(file, data);
+            contents.put(file, data);
+        }
+
+        final AESEncryptor aesEncryptor = new AESEncryptor(AESSettings.AESMode.CTR, AESSettings.AESPadding.NO_PADDING, AESSettings.generateIV(AESSettings.AESMode.CTR));
+        final BatchEncryptor batchEncryptor = new BatchEncryptor(aesEncryptor, 3);
+
+        //Przerwanie po piątym pliku, dziennik powinien zapamiętać ukończone pliki
+        batchEncryptor.setListener(new BatchListener() {
+            @Override
+            public void onStart(final int fileCount, final long totalBytes) {
+                Assertions.assertEquals(12, fileCount);
+            }
+
+            @Override
+            public void onProgress(final File file, final int doneFiles, final int fileCount, final long doneBytes, final long totalBytes) {
+                if (doneFiles == 5) throw new IllegalStateException("Przerwanie");
+            }
+        });
+        Assertions.assertThrows(EncryptException.class, () -> batchEncryptor.encryptDirectory(workDir.toFile(), this.secretKey));
+
+        final File journal = batchEncryptor.getJournalFile(workDir.toFile(), true);
+        Assertions.assertTrue(journal.exists(), "Dziennik powinien zostać po przerwaniu");
+
+        //Pliki z dziennika nie powinny zostać zaszyfrowane ponownie
+        final List<String> journalLines = Files.readAllLines(journal.toPath());
+        Assertions.assertFalse(journalLines.isEmpty());
+        for (final String line : journalLines) {
+            Assertions.assertTrue(workDir.resolve(line.split("\t")[3]).toFile().setLastModified(1_000_000L));
+        }
+
+        batchEncryptor.setListener(null);
+        final List<EncryptedFile> manifest = batchEncryptor.encryptDirectory(workDir.toFile(), this.secretKey);
+        Assertions.assertEquals(12, manifest.size());
+        Assertions.assertFalse(journal.exists(), "Dziennik powinien zostać usunięty po ukończeniu");
+
+        long resumed = 0;
+        for (final EncryptedFile encryptedFile : manifest) {
+            if (encryptedFile.encryptedFile().lastModified() == 1_000_000L) resumed++;
+        }
+        Assertions.assertEquals(journalLines.size(), resumed);
+
+        for (final Path file : contents.keySet()) {
+            Files.delete(file);
+        }
+
+        final List<File> decrypted = aesEncryptor.decryptDirectory(workDir.toFile(), this.secretKey, 2);
+        Assertions.assertEquals(12, decrypted.size());
+        for (final Map.Entry<Path, byte[]> entry : contents.entrySet()) {
+            Assertions.assertArrayEquals(entry.getValue(), Files.readAllBytes(entry.getKey()), "Zawartość po odszyfrowaniu powinna się zgadzać");
+        }
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void seekableChannelDecryptsRandomReads() throws IOException, EncryptException, DecryptException {
+        final Path workDir = Files.createTempDirectory("SeekableAes");
+        final File file = workDir.resolve("backup.bin").toFile();
+        final byte[] data = new byte[700_000 + 3];
+        final Random random = new Random(47);
+        random.nextBytes(data);
+
+        final byte[] iv = new byte[16];
+        Arrays.fill(iv, 8, 16, (byte) 0xFF);
+        final AESEncryptor ctr = new AESEncryptor(AESSettings.AESMode.CTR, AESSettings.AESPadding.NO_PADDING, new IvParameterSpec(iv));
+        final AESEncryptor gcm = new AESEncryptor(AESSettings.AESMode.GCM, AESSettings.AESPadding.NO_PADDING, this.ivParameterSpec);
+        gcm.setSegmented(true);
+
+        //Tryb licznikowy i format segmentowy, odczyty w losowych miejscach i po kolei
+        for (final AESEncryptor aesEncryptor : List.of(ctr, gcm)) {
+            Files.write(file.toPath(), data);
+            final File encrypted = aesEncryptor.encryptFile(file, this.secretKey).encryptedFile();
+
+            try (final SeekableByteChannel channel = aesEncryptor.openDecryptingChannel(encrypted, this.secretKey)) {
+                Assertions.assertEquals(data.length, channel.size());
+
+                for (int i = 0; i < 100; i++) {
+                    final int position = random.nextInt(data.length);
+                    final ByteBuffer buffer = ByteBuffer.allocate(random.nextInt(100_000) + 1);
+                    channel.position(position);
+
+                    while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                        //Odczyt do zapełnienia bufora lub końca pliku
+                    }
+
+                    final int expectedLength = Math.min(buffer.capacity(), data.length - position);
+                    Assertions.assertEquals(expectedLength, buffer.position());
+                    Assertions.assertArrayEquals(Arrays.copyOfRange(data, position, position + expectedLength),
+                            Arrays.copyOf(buffer.array(), expectedLength), "Odczyt od pozycji " + position);
+                }
+
+                channel.position(data.length);
+                Assertions.assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+            }
+        }
+
+        final AESEncryptor cbc = new AESEncryptor(AESSettings.AESMode.CBC, AESSettings.AESPadding.PKCS5_PADDING, AESSettings.generateIV(AESSettings.AESMode.CBC));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> cbc.openDecryptingChannel(file, this.secretKey));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+}
@@ -1,6 +1,7 @@
 package pl.indianbartonka.util;
 
 import java.awt.Color;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import pl.indianbartonka.util.color.AnsiColor;
 
@@ -68,4 +69,29 @@ public class AnsiColorTest {
 
         System.out.println("RGB Color: " + rgbColor + AnsiColor.convertMinecraftColors(rgbColor + "Test"));
     }
+
+    @Test
+    public void testSinglePassTranslation() {
+        final String plain = "Zwykły tekst bez kolorów";
+        Assertions.assertSame(plain, AnsiColor.convertMinecraftColors(plain));
+        Assertions.assertSame(plain, AnsiColor.removeColors(plain));
+
+        Assertions.assertEquals(AnsiColor.BRIGHT_GREEN + "Zielony" + AnsiColor.RESET + " tekst" + AnsiColor.RESET,
+                AnsiColor.convertMinecraftColors("&aZielony&r tekst"));
+        Assertions.assertEquals("&" + AnsiColor.BRIGHT_GREEN + "x & y#" + AnsiColor.RESET,
+                AnsiColor.convertMinecraftColors("&&ax & y#"));
+        Assertions.assertEquals("#" + AnsiColor.BLUE_BACKGROUND + "tło" + AnsiColor.RESET,
+                AnsiColor.convertMinecraftColors("###1tło"));
+
+        Assertions.assertEquals("Zielony tekst", AnsiColor.removeColors("&aZielony" + AnsiColor.RED + " tekst##f"));
+        Assertions.assertEquals("RGB", AnsiColor.removeColors(AnsiColor.fromRGB(1, 2, 3) + "RGB"));
+        Assertions.assertEquals("Zielony" + AnsiColor.RED, AnsiColor.removeMinecraftColors("&aZielony" + AnsiColor.RED));
+        Assertions.assertEquals("&aZielony", AnsiColor.removeAnsiColors("&aZielony" + AnsiColor.RED));
+
+        final StringBuilder builder = new StringBuilder("> ");
+        Assertions.assertTrue(AnsiColor.removeColors("&cBłąd", builder));
+        Assertions.assertEquals("> Błąd", builder.toString());
+        Assertions.assertFalse(AnsiColor.convertMinecraftColors("bez", builder));
+        Assertions.assertEquals("> Błądbez", builder.toString());
+    }
 }
@@ -1,8 +1,16 @@
 package pl.indianbartonka.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import org.junit.jupiter.api.Assertions;
@@ -10,6 +18,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import pl.indianbartonka.util.encrypt.EncryptedFile;
 import pl.indianbartonka.util.encrypt.Encryptor;
+import pl.indianbartonka.util.encrypt.SegmentedAeadCipher;
 import pl.indianbartonka.util.encrypt.aes.AESSettings;
 import pl.indianbartonka.util.encrypt.cha.ChaChaEncryptor;
 import pl.indianbartonka.util.encrypt.cha.ChaChaSettings;
@@ -62,4 +71,87 @@ public class ChaChaEncryptorTest {
             exception.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parallelChaCha20MatchesSequential() throws IOException, EncryptException, DecryptException {
+        final Path workDir = Files.createTempDirectory("ParallelChaCha");
+        final File file = workDir.resolve("backup.bin").toFile();
+        final byte[] data = new byte[9 * 1024 * 1024 + 101];
+        new Random(23).nextBytes(data);
+        Files.write(file.toPath(), data);
+
+        final SecretKey key = ChaChaSettings.decodeKey("XfMjx8FOEc1LKb2q1aM9YoSpSwvYejA8W//FjAVkuDI=");
+        final ChaChaEncryptor sequential = new ChaChaEncryptor(ChaChaSettings.ChaChaMode.CHACHA20, this.ivParameterSpec);
+        final ChaChaEncryptor parallel = new ChaChaEncryptor(ChaChaSettings.ChaChaMode.CHACHA20, this.ivParameterSpec);
+        parallel.setParallelism(3);
+
+        final byte[] expected = Files.readAllBytes(sequential.encryptFile(file, key).encryptedFile().toPath());
+        final File encrypted = parallel.encryptFile(file, key).encryptedFile();
+        Assertions.assertArrayEquals(expected, Files.readAllBytes(encrypted.toPath()), "Wynik równoległy powinien być identyczny");
+
+        Files.delete(file.toPath());
+        Assertions.assertArrayEquals(data, Files.readAllBytes(parallel.decryptFile(encrypted, key).toPath()));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void segmentedStreamRoundTrip() throws IOException {
+        final SegmentedAeadCipher cipher = new SegmentedAeadCipher(SegmentedAeadCipher.Algorithm.CHACHA20_POLY1305, ChaChaSettings.generateKey(), 1024);
+
+        //Pusty strumień, pełne segmenty i ostatni krótszy segment
+        for (final int size : new int[]{0, 1024, 3 * 1024, 3 * 1024 + 17}) {
+            final byte[] data = new byte[size];
+            new Random(size).nextBytes(data);
+
+            final ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+            try (final OutputStream outputStream = cipher.newEncryptingStream(encrypted)) {
+                outputStream.write(data, 0, size / 2);
+                outputStream.write(data, size / 2, size - size / 2);
+            }
+
+            final byte[] encryptedBytes = encrypted.toByteArray();
+            final int segments = Math.max(1, (size + 1023) / 1024);
+            Assertions.assertEquals(SegmentedAeadCipher.HEADER_SIZE + size + segments * SegmentedAeadCipher.TAG_SIZE, encryptedBytes.length);
+
+            try (final InputStream inputStream = cipher.newDecryptingStream(new ByteArrayInputStream(encryptedBytes))) {
+                Assertions.assertArrayEquals(data, inputStream.readAllBytes(), "Odszyfrowane dane powinny być identyczne");
+            }
+
+            if (size >= 2048) {
+                //Segment pierwszy przechodzi, błąd pojawia się dopiero przy zmienionym drugim
+                final byte[] tampered = encryptedBytes.clone();
+                tampered[SegmentedAeadCipher.HEADER_SIZE + 1040 + 3] ^= 1;
+                try (final InputStream inputStream = cipher.newDecryptingStream(new ByteArrayInputStream(tampered))) {
+                    Assertions.assertEquals(1024, inputStream.readNBytes(1024).length);
+                    Assertions.assertThrows(IOException.class, inputStream::read, "Zmieniony segment powinien zostać wykryty");
+                }
+
+                final byte[] truncated = Arrays.copyOf(encryptedBytes, SegmentedAeadCipher.HEADER_SIZE + 2 * 1040);
+                try (final InputStream inputStream = cipher.newDecryptingStream(new ByteArrayInputStream(truncated))) {
+                    Assertions.assertThrows(IOException.class, inputStream::readAllBytes, "Obcięty strumień powinien zostać wykryty");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void byteApisDetectTampering() throws EncryptException, DecryptException {
+        final SecretKey key = ChaChaSettings.generateKey();
+
+        for (int i = 0; i < 50; i++) {
+            //Nowy nonce dla każdej wiadomości, jak przy tokenach sesji
+            this.encryptor.setIvParameterSpec(ChaChaSettings.generateIV(ChaChaSettings.ChaChaMode.CHACHA20_POLY1305));
+            final byte[] token = ("token-" + i).getBytes();
+
+            final byte[] encrypted = this.encryptor.encrypt(token, key);
+            Assertions.assertEquals(token.length + 16, encrypted.length);
+            Assertions.assertArrayEquals(token, this.encryptor.decrypt(encrypted, key));
+
+            encrypted[0] ^= 1;
+            Assertions.assertThrows(DecryptException.class, () -> this.encryptor.decrypt(encrypted, key), "Zmieniony szyfrogram powinien zostać wykryty");
+        }
+
+        this.encryptor.setIvParameterSpec(this.ivParameterSpec);
+    }
+}
@@ -1,10 +1,35 @@
 package pl.indianbartonka.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.indianbartonka.util.logger.LogRecord;
+import pl.indianbartonka.util.logger.LogRenderer;
+import pl.indianbartonka.util.logger.LogState;
 import pl.indianbartonka.util.logger.Logger;
+import pl.indianbartonka.util.logger.config.LogFormat;
 import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+import pl.indianbartonka.util.logger.config.OverflowPolicy;
+import pl.indianbartonka.util.logger.file.LogArchiver;
+import pl.indianbartonka.util.logger.file.LogFileSink;
+import pl.indianbartonka.util.logger.file.LogSinkHandler;
+import pl.indianbartonka.util.logger.format.LogEntry;
+import pl.indianbartonka.util.logger.format.LogReader;
+import pl.indianbartonka.util.logger.metrics.MetricsSnapshot;
 
 public class LoggerTest {
 
@@ -73,4 +98,513 @@ public class LoggerTest {
         final java.util.logging.Logger jul = java.util.logging.Logger.getLogger("JUL");
         jul.info("okejjj " + MathUtil.RANDOM.nextInt(5));
     }
+
+    @Test
+    public void testAsyncLogging(@TempDir final File logsDir) throws InterruptedException {
+        final LoggerConfiguration loggerConfiguration = LoggerConfiguration.builder()
+                .setLogName("AsyncLog-" + DateUtil.getFixedDate())
+                .setLogsPath(logsDir.getPath())
+                .setLoggingToFile(true)
+                .setAsync(true)
+                .setAsyncQueueSize(64)
+                .setOverflowPolicy(OverflowPolicy.DROP_OLDEST)
+                .build();
+
+        final Logger asyncLogger = new Logger(loggerConfiguration) {
+        };
+        final Logger prefixed = asyncLogger.prefixed("Async");
+        final Logger temp = asyncLogger.tempLogger("AsyncTemp");
+
+        Assertions.assertNotNull(asyncLogger.getAsyncWriter());
+        Assertions.assertSame(asyncLogger.getAsyncWriter(), prefixed.getAsyncWriter());
+        Assertions.assertSame(asyncLogger.getAsyncWriter(), temp.getAsyncWriter());
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final int threadNumber = i;
+            final Thread thread = new Thread(() -> {
+                for (int j = 0; j < 250; j++) {
+                    prefixed.info("&aWątek&b " + threadNumber + "&r log&e " + j);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (final Thread thread : threads) thread.join();
+
+        temp.info("Koniec");
+        asyncLogger.flush();
+
+        Assertions.assertEquals(0, asyncLogger.getAsyncWriter().size());
+
+        asyncLogger.getAsyncWriter().shutdown();
+        Assertions.assertFalse(asyncLogger.getAsyncWriter().isRunning());
+        asyncLogger.info("Zapis po zamknięciu wątku");
+    }
+
+    @Test
+    public void testLogRenderer() {
+        final ZoneId zone = DateUtil.getDefaultZone();
+        DateUtil.setZone(ZoneOffset.UTC);
+
+        try {
+            final LogRecord prefixed = new LogRecord(LogState.INFO, 3_723_004_000_000L, "main", 1, "Test", "Hello", null, true, true, true);
+            Assertions.assertEquals("&a[01:02:03:004] &e[&7main&r&e] (&fTest&e) &1INFO &rHello", LogRenderer.render(prefixed).toString());
+
+            final LogRecord root = new LogRecord(LogState.ERROR, 3_723_999_000_000L, "main", 1, null, "Hello", null, true, true, true);
+            Assertions.assertEquals("&a[01:02:03:999] &e[&7main&r&e]&r &8ERROR &rHello", LogRenderer.render(root).toString());
+
+            final LogRecord plain = new LogRecord(LogState.NONE, 0, "main", 1, null, "Hello", null, false, true, true);
+            Assertions.assertEquals("Hello", LogRenderer.render(plain).toString());
+        } finally {
+            DateUtil.setZone(zone);
+        }
+    }
+
+    @Test
+    public void testLazyLogging() {
+        final AtomicInteger evaluations = new AtomicInteger();
+
+        this.logger.setDebug(false);
+        Assertions.assertFalse(this.logger.isEnabled(LogState.DEBUG));
+        Assertions.assertTrue(this.logger.isEnabled(LogState.INFO));
+
+        this.logger.debugLazy(() -> "Nie powinno się wykonać " + evaluations.incrementAndGet());
+        Assertions.assertEquals(0, evaluations.get());
+
+        this.logger.infoLazy(() -> "Leniwy log " + evaluations.incrementAndGet());
+        Assertions.assertEquals(1, evaluations.get());
+
+        this.logger.setDebug(true);
+        this.logger.debugLazy(() -> "Debug włączony " + evaluations.incrementAndGet());
+        Assertions.assertEquals(2, evaluations.get());
+
+        this.logger.info("Szablon {} z {} argumentami", "testowy", 2);
+        this.logger.error("Szablon z wyjątkiem {}", "testowy", new IllegalStateException("Test"));
+    }
+
+    @Test
+    public void testTemplateFormatting() {
+        Assertions.assertEquals("a 1 b 2", LogRenderer.format("a {} b {}", 1, 2));
+        Assertions.assertEquals("a 1 b {}", LogRenderer.format("a {} b {}", 1));
+        Assertions.assertEquals("bez argumentów {}", LogRenderer.format("bez argumentów {}"));
+
+        final Exception exception = new Exception("Test");
+        Assertions.assertSame(exception, LogRenderer.extractThrowable("a {}", 1, exception));
+        Assertions.assertSame(exception, LogRenderer.extractThrowable("a {} {}", 1, exception));
+        Assertions.assertEquals("a 1 java.lang.Exception: Test", LogRenderer.format("a {} {}", 1, exception));
+        Assertions.assertNull(LogRenderer.extractThrowable("a {}", 1, 2));
+    }
+
+    @Test
+    public void testThrowableTemplates(@TempDir final File logsDir) throws IOException {
+        final Logger templateLogger = new Logger(LoggerConfiguration.builder()
+                .setLogName("Templates")
+                .setLogsPath(logsDir.getPath())
+                .setLoggingToFile(true)
+                .build()) {
+        };
+
+        try (templateLogger) {
+            //Bez leniwych przeciążeń null nie jest już niejednoznaczny
+            templateLogger.info(null);
+            templateLogger.error("Połączenie z {} zerwane", new IllegalStateException("Pierwszy"));
+            templateLogger.warning("Pobieranie {} nieudane", "plik.zip", new IllegalStateException("Drugi"));
+            templateLogger.infoLazy(() -> "Leniwy {}", new IllegalStateException("Trzeci"));
+        }
+
+        final String content = Files.readString(templateLogger.getLogFile().toPath());
+        Assertions.assertTrue(content.contains("Połączenie z java.lang.IllegalStateException: Pierwszy zerwane\n"), "Wyjątek powinien wypełnić {}");
+        Assertions.assertTrue(content.contains("Pobieranie plik.zip nieudane\n"));
+        Assertions.assertTrue(content.contains("Leniwy {}\n"), "Leniwy log nie jest szablonem");
+
+        for (final String message : List.of("Pierwszy", "Drugi", "Trzeci")) {
+            final String header = "java.lang.IllegalStateException: " + message + "\n";
+            final int index = content.indexOf(header);
+            Assertions.assertTrue(index != -1 && content.startsWith("\tat ", index + header.length()), "Brak stack trace dla: " + message);
+        }
+    }
+
+    @Test
+    public void testLogRotation(@TempDir final File logsDir) throws IOException {
+
+        final LoggerConfiguration loggerConfiguration = LoggerConfiguration.builder()
+                .setLogName("Rotation")
+                .setLogsPath(logsDir.getPath())
+                .setLoggingToFile(true)
+                .setMaxLogSize(2048)
+                .setMaxArchivedLogs(3)
+                .build();
+
+        final Logger rotatingLogger = new Logger(loggerConfiguration) {
+        };
+
+        for (int i = 0; i < 500; i++) {
+            rotatingLogger.instantLogToFile("Linia numer " + i + " która powinna trafić do któregoś z plików");
+        }
+        rotatingLogger.flush();
+
+        final LogArchiver archiver = rotatingLogger.getFileSink().getArchiver();
+        Assertions.assertNotNull(archiver);
+        archiver.awaitArchiving();
+
+        final List<File> archived = archiver.getArchivedFiles();
+        Assertions.assertEquals(loggerConfiguration.getMaxArchivedLogs(), archived.size(), "Powinny zostać tylko 3 najnowsze archiwa");
+        Assertions.assertTrue(archived.stream().allMatch(file -> file.getName().endsWith(".log.gz")));
+        Assertions.assertFalse(archived.contains(rotatingLogger.getLogFile()), "Aktualny plik logów nie jest archiwum");
+
+        //Aktualny plik nie może zostać usunięty razem ze starymi archiwami
+        Assertions.assertTrue(rotatingLogger.getLogFile().exists(), "Aktualny plik logów powinien istnieć");
+        rotatingLogger.instantLogToFile("Linia po rotacji");
+        rotatingLogger.flush();
+        Assertions.assertTrue(Files.readString(rotatingLogger.getLogFile().toPath()).contains("Linia po rotacji"));
+        Assertions.assertTrue(rotatingLogger.getLogFile().length() <= 2048 + 128);
+    }
+
+    @Test
+    public void testJulLogsAfterRotation(@TempDir final File logsDir) throws IOException {
+        final LoggerConfiguration loggerConfiguration = LoggerConfiguration.builder()
+                .setLogName("JulRotation")
+                .setLogsPath(logsDir.getPath())
+                .setMaxLogSize(1024 * 1024)
+                .setCompressArchivedLogs(false)
+                .build();
+
+        final File logFile = new File(logsDir, "JulRotation.log");
+        final java.util.logging.Logger jul = java.util.logging.Logger.getLogger("JulRotation");
+        jul.setUseParentHandlers(false);
+
+        try (final LogFileSink sink = new LogFileSink(logFile, loggerConfiguration)) {
+            final LogSinkHandler handler = new LogSinkHandler(sink);
+            jul.addHandler(handler);
+
+            try {
+                jul.info("Przed rotacją");
+                sink.requestRollOver();
+                jul.info("Po rotacji");
+                handler.flush();
+            } finally {
+                jul.removeHandler(handler);
+            }
+
+            Objects.requireNonNull(sink.getArchiver()).awaitArchiving();
+        }
+
+        //Log JUL po rotacji musi trafić do aktualnego pliku a nie do archiwum
+        final String current = Files.readString(logFile.toPath());
+        Assertions.assertTrue(current.contains("Po rotacji"));
+        Assertions.assertFalse(current.contains("Przed rotacją"));
+
+        final List<File> archived = new LogArchiver(logsDir, loggerConfiguration).getArchivedFiles();
+        Assertions.assertEquals(1, archived.size());
+        Assertions.assertTrue(Files.readString(archived.get(0).toPath()).contains("Przed rotacją"));
+    }
+
+    @Test
+    public void testCloseReleasesFileSink(@TempDir final File logsDir) throws IOException {
+
+        final LoggerConfiguration loggerConfiguration = LoggerConfiguration.builder()
+                .setLogName("Close")
+                .setLogsPath(logsDir.getPath())
+                .setLoggingToFile(true)
+                .setLogJULtoFile(true)
+                .setMaxLogSize(1024 * 1024)
+                .setFlushBytes(64 * 1024)
+                .setFlushIntervalMillis(100)
+                .build();
+
+        final Logger closingLogger = new Logger(loggerConfiguration) {
+        };
+        final Logger child = closingLogger.prefixed("Dziecko");
+        final LogFileSink sink = closingLogger.getFileSink();
+        final long flushers = countThreads("Log-Flusher");
+
+        child.info("Log dziecka");
+        child.close();
+        Assertions.assertFalse(sink.isClosed(), "Dziecko współdzieli plik z rodzicem i nie może go zamknąć");
+
+        closingLogger.info("Ostatni log");
+        closingLogger.close();
+        closingLogger.close();
+
+        Assertions.assertTrue(sink.isClosed());
+        final String content = Files.readString(closingLogger.getLogFile().toPath());
+        Assertions.assertTrue(content.contains("Log dziecka") && content.contains("Ostatni log"), "Bufor powinien zostać zapisany przy zamknięciu");
+
+        for (final java.util.logging.Handler handler : java.util.logging.Logger.getLogger("").getHandlers()) {
+            Assertions.assertFalse(handler instanceof final LogSinkHandler sinkHandler && sinkHandler.getSink() == sink);
+        }
+
+        //Wątek zapisujący bufor kończy się po zamknięciu
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (countThreads("Log-Flusher") >= flushers && System.currentTimeMillis() < deadline) {
+            ThreadUtil.sleep(20L);
+        }
+        Assertions.assertTrue(countThreads("Log-Flusher") < flushers);
+    }
+
+    private static long countThreads(final String namePrefix) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && thread.getName().startsWith(namePrefix))
+                .count();
+    }
+
+    @Test
+    public void testBatchedFileSink(@TempDir final File logsDir) throws IOException {
+
+        final LoggerConfiguration loggerConfiguration = LoggerConfiguration.builder()
+                .setLogName("Sink")
+                .setLogsPath(logsDir.getPath())
+                .setLoggingToFile(true)
+                .setFlushBytes(1024 * 1024)
+                .setFlushIntervalMillis(0)
+                .build();
+
+        final Logger sinkLogger = new Logger(loggerConfiguration) {
+        };
+
+        sinkLogger.instantLogToFile("Ta linia czeka w buforze");
+        Assertions.assertEquals(0, sinkLogger.getLogFile().length());
+
+        sinkLogger.error("Błąd zapisuje bufor od razu");
+        Assertions.assertTrue(Files.readString(sinkLogger.getLogFile().toPath()).contains("Błąd zapisuje bufor od razu"));
+
+        final int lines = 10_000;
+        final File channelFile = new File(logsDir, "Sink-Channel.log");
+        final LogFileSink sink = new LogFileSink(channelFile, loggerConfiguration);
+        try (sink) {
+            for (int i = 0; i < lines; i++) {
+                sink.writeLine("Linia numer " + i);
+                sink.endRecord(LogState.INFO);
+            }
+        }
+
+        //Zamknięcie zapisuje bufor i zwalnia plik
+        Assertions.assertTrue(sink.isClosed());
+        final List<String> written = Files.readAllLines(channelFile.toPath());
+        Assertions.assertEquals(lines, written.size());
+        Assertions.assertEquals("Linia numer " + (lines - 1), written.get(lines - 1));
+        Assertions.assertThrows(IOException.class, () -> sink.writeLine("Zapis po zamknięciu"));
+        Assertions.assertTrue(channelFile.delete(), "Plik powinien zostać zwolniony po zamknięciu");
+    }
+
+    @Test
+    public void testStructuredLogFormats(@TempDir final File logsDir) throws IOException {
+
+        for (final LogFormat logFormat : List.of(LogFormat.JSON, LogFormat.BINARY)) {
+            final LoggerConfiguration loggerConfiguration = LoggerConfiguration.builder()
+                    .setLogName("Structured-" + logFormat)
+                    .setLogsPath(logsDir.getPath())
+                    .setLoggingToFile(true)
+                    .setLogFormat(logFormat)
+                    .build();
+
+            final Logger structuredLogger = new Logger(loggerConfiguration, "Ingest") {
+            };
+
+            structuredLogger.info("&aZażółć \"gęślą\"\njaźń\t\\ 😀");
+            structuredLogger.error("Błąd {}", 42, new IllegalStateException("Testowy wyjątek"));
+            structuredLogger.flush();
+
+            final List<LogEntry> entries = new ArrayList<>();
+            try (final LogReader logReader = LogReader.open(structuredLogger.getLogFile(), logFormat)) {
+                logReader.forEach(entries::add);
+            }
+
+            Assertions.assertEquals(2, entries.size(), logFormat.name());
+
+            final LogEntry info = entries.get(0);
+            Assertions.assertEquals(LogState.INFO, info.logState());
+            Assertions.assertEquals("Ingest", info.loggerPrefix());
+            Assertions.assertEquals("Zażółć \"gęślą\"\njaźń\t\\ 😀", info.message());
+            Assertions.assertEquals(Thread.currentThread().getId(), info.threadId());
+            Assertions.assertEquals(Thread.currentThread().getName(), info.threadName());
+            Assertions.assertNull(info.throwable());
+            Assertions.assertTrue(Math.abs(System.currentTimeMillis() - info.epochNanos() / 1_000_000L) < 60_000);
+
+            final LogEntry error = entries.get(1);
+            Assertions.assertEquals(LogState.ERROR, error.logState());
+            Assertions.assertEquals("Błąd 42", error.message());
+            Assertions.assertNotNull(error.throwable());
+            Assertions.assertTrue(error.throwable().startsWith("java.lang.IllegalStateException: Testowy wyjątek"));
+        }
+    }
+
+    @Test
+    public void testLogReaderTruncatedFile(@TempDir final Path logsDir) throws IOException {
+        for (final LogFormat logFormat : List.of(LogFormat.JSON, LogFormat.BINARY)) {
+            final byte[] bytes = writeStructuredLogs(logsDir, logFormat);
+
+            //Ostatni log ucięty w trakcie zapisu, reader ma skończyć na poprzednim
+            for (final int cut : new int[]{2, 5, 20}) {
+                final List<LogEntry> entries = readEntries(Arrays.copyOf(bytes, bytes.length - cut), logFormat);
+                Assertions.assertEquals(1, entries.size(), logFormat + " ucięte o " + cut);
+                Assertions.assertEquals("Pierwszy", entries.get(0).message());
+            }
+        }
+    }
+
+    @Test
+    public void testLogReaderCorruptFile(@TempDir final Path logsDir) throws IOException {
+        final byte[] binary = writeStructuredLogs(logsDir, LogFormat.BINARY);
+
+        //Długość rekordu (4) + czas (8), dalej bajt poziomu
+        final byte[] badLevel = binary.clone();
+        badLevel[12] = 0x7F;
+        final IOException levelException = Assertions.assertThrows(IOException.class, () -> readEntries(badLevel, LogFormat.BINARY));
+        Assertions.assertTrue(levelException.getMessage().contains("pozycji 0"), levelException.getMessage());
+
+        //Długość tekstu wychodząca poza rekord
+        final byte[] badString = binary.clone();
+        badString[21] = 0x7F;
+        Assertions.assertThrows(IOException.class, () -> readEntries(badString, LogFormat.BINARY));
+
+        final byte[] badLength = binary.clone();
+        badLength[0] = (byte) 0x80;
+        Assertions.assertThrows(IOException.class, () -> readEntries(badLength, LogFormat.BINARY));
+
+        final String valid = new String(writeStructuredLogs(logsDir, LogFormat.JSON), StandardCharsets.UTF_8);
+        for (final String corrupt : List.of("{\"time\":1,\"level\":99}", "{\"time\":", "{\"message\":\"\\u12", "[]")) {
+            final byte[] bytes = (corrupt + "\n" + valid).getBytes(StandardCharsets.UTF_8);
+            final IOException exception = Assertions.assertThrows(IOException.class, () -> readEntries(bytes, LogFormat.JSON), corrupt);
+            Assertions.assertTrue(exception.getMessage().contains("linii 1"), exception.getMessage());
+        }
+    }
+
+    private static byte[] writeStructuredLogs(final Path logsDir, final LogFormat logFormat) throws IOException {
+        final Logger structuredLogger = new Logger(LoggerConfiguration.builder()
+                .setLogName("Reader-" + logFormat)
+                .setLogsPath(logsDir.toString())
+                .setLoggingToFile(true)
+                .setLogFormat(logFormat)
+                .build()) {
+        };
+
+        try (structuredLogger) {
+            structuredLogger.info("Pierwszy");
+            structuredLogger.info("Drugi");
+        }
+
+        return Files.readAllBytes(structuredLogger.getLogFile().toPath());
+    }
+
+    private static List<LogEntry> readEntries(final byte[] bytes, final LogFormat logFormat) throws IOException {
+        final List<LogEntry> entries = new ArrayList<>();
+        try (final LogReader logReader = new LogReader(new ByteArrayInputStream(bytes), logFormat)) {
+            logReader.forEach(entries::add);
+        }
+        return entries;
+    }
+
+    @Test
+    public void testLogLimiting(@TempDir final File logsDir) throws IOException {
+
+        final Logger rateLogger = new Logger(LoggerConfiguration.builder()
+                .setLogName("Rate")
+                .setLogsPath(logsDir.getPath())
+                .setLoggingToFile(true)
+                .setRateLimit(5)
+                .build()) {
+        };
+
+        for (int i = 0; i < 1000; i++) {
+            rateLogger.instantLogToFile("Ten sam błąd połączenia");
+            rateLogger.info("Próba {} nieudana", i);
+        }
+        rateLogger.flush();
+
+        final List<String> rateLines = Files.readAllLines(rateLogger.getLogFile().toPath());
+        //Pętla może trafić na przełom sekundy, wtedy limit wpuści jeszcze raz po 5 logów
+        Assertions.assertTrue(rateLines.size() >= 10 && rateLines.size() <= 20, "Linii: " + rateLines.size());
+
+        final Logger collapseLogger = new Logger(LoggerConfiguration.builder()
+                .setLogName("Collapse")
+                .setLogsPath(logsDir.getPath())
+                .setLoggingToFile(true)
+                .setCollapseRepeatedLogs(true)
+                .setStackTraceDedupMillis(60_000)
+                .build()) {
+        };
+
+        for (int i = 0; i < 50; i++) {
+            collapseLogger.instantLogToFile("Powtarzający się log");
+        }
+        collapseLogger.instantLogToFile("Inny log");
+
+        final Exception exception = new IllegalStateException("Serwer nie odpowiada");
+        collapseLogger.instantLogToFile("Pierwszy wyjątek");
+        collapseLogger.logThrowable(exception);
+        collapseLogger.instantLogToFile("Drugi wyjątek");
+        collapseLogger.logThrowable(exception);
+        collapseLogger.flush();
+
+        final String collapsed = Files.readString(collapseLogger.getLogFile().toPath());
+        Assertions.assertEquals(1, collapsed.split("Powtarzający się log", -1).length - 1);
+        Assertions.assertTrue(collapsed.contains("Ostatni log powtórzył się 49 razy"));
+        Assertions.assertTrue(collapsed.substring(0, collapsed.indexOf("Drugi wyjątek")).contains("\tat "));
+        Assertions.assertFalse(collapsed.substring(collapsed.indexOf("Drugi wyjątek")).contains("\tat "));
+        Assertions.assertTrue(collapsed.contains("wypisany wcześniej"));
+    }
+
+    @Test
+    public void testLoggerMetrics(@TempDir final File logsDir) {
+        final Logger metricsLogger = new Logger(LoggerConfiguration.builder()
+                .setLogName("Metrics")
+                .setLogsPath(logsDir.getPath())
+                .setLoggingToFile(true)
+                .setRateLimit(2)
+                .build()) {
+        };
+
+        final Logger childLogger = metricsLogger.prefixed("Pobieranie");
+
+        for (int i = 0; i < 3; i++) metricsLogger.info("Informacja " + i);
+        for (int i = 0; i < 5; i++) childLogger.error("Pobieranie nieudane");
+        metricsLogger.flush();
+
+        final MetricsSnapshot snapshot = metricsLogger.snapshotMetrics();
+        Assertions.assertEquals(3, snapshot.getEvents(LogState.INFO));
+        Assertions.assertEquals(2, snapshot.getEvents(LogState.ERROR));
+        Assertions.assertEquals(3, snapshot.suppressedEvents());
+        Assertions.assertEquals(5, snapshot.writes());
+        Assertions.assertTrue(snapshot.bytesWritten() > 0);
+        Assertions.assertEquals(2, childLogger.snapshotMetrics().getTotalEvents());
+
+        final List<String> prometheus = metricsLogger.exportMetrics().lines().toList();
+
+        Assertions.assertTrue(prometheus.contains("# TYPE indianutils_logger_events_total counter"));
+        Assertions.assertEquals(List.of(
+                "indianutils_logger_events_total{logger=\"root\",level=\"NONE\"} 0",
+                "indianutils_logger_events_total{logger=\"root\",level=\"INFO\"} 3",
+                "indianutils_logger_events_total{logger=\"root\",level=\"ALERT\"} 0",
+                "indianutils_logger_events_total{logger=\"root\",level=\"CRITICAL\"} 0",
+                "indianutils_logger_events_total{logger=\"root\",level=\"ERROR\"} 0",
+                "indianutils_logger_events_total{logger=\"root\",level=\"DEBUG\"} 0",
+                "indianutils_logger_events_total{logger=\"root\",level=\"WARNING\"} 0",
+                "indianutils_logger_events_total{logger=\"Pobieranie\",level=\"NONE\"} 0",
+                "indianutils_logger_events_total{logger=\"Pobieranie\",level=\"INFO\"} 0",
+                "indianutils_logger_events_total{logger=\"Pobieranie\",level=\"ALERT\"} 0",
+                "indianutils_logger_events_total{logger=\"Pobieranie\",level=\"CRITICAL\"} 0",
+                "indianutils_logger_events_total{logger=\"Pobieranie\",level=\"ERROR\"} 2",
+                "indianutils_logger_events_total{logger=\"Pobieranie\",level=\"DEBUG\"} 0",
+                "indianutils_logger_events_total{logger=\"Pobieranie\",level=\"WARNING\"} 0"
+        ), metricLines(prometheus, "indianutils_logger_events_total{"));
+        Assertions.assertEquals(List.of(
+                "indianutils_logger_suppressed_events_total{logger=\"root\"} 0",
+                "indianutils_logger_suppressed_events_total{logger=\"Pobieranie\"} 3"
+        ), metricLines(prometheus, "indianutils_logger_suppressed_events_total{"));
+        Assertions.assertEquals(List.of(
+                "indianutils_logger_writes_total{logger=\"root\"} 3",
+                "indianutils_logger_writes_total{logger=\"Pobieranie\"} 2"
+        ), metricLines(prometheus, "indianutils_logger_writes_total{"));
+        Assertions.assertEquals(List.of("indianutils_logger_bytes_written_total " + snapshot.bytesWritten()),
+                metricLines(prometheus, "indianutils_logger_bytes_written_total "));
+        Assertions.assertEquals(List.of("indianutils_logger_dropped_events_total 0"),
+                metricLines(prometheus, "indianutils_logger_dropped_events_total "));
+    }
+
+    private static List<String> metricLines(final List<String> lines, final String prefix) {
+        return lines.stream().filter(line -> line.startsWith(prefix)).toList();
+    }
 }
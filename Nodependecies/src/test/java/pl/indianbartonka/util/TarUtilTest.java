@@ -0,0 +1,198 @@
+package pl.indianbartonka.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.indianbartonka.util.logger.Logger;
+import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+import pl.indianbartonka.util.tar.ParallelGzipOutputStream;
+import pl.indianbartonka.util.tar.TarEntry;
+import pl.indianbartonka.util.tar.TarWriter;
+
+public class TarUtilTest {
+
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    @BeforeEach
+    void setUp() {
+        final LoggerConfiguration loggerConfiguration = LoggerConfiguration.builder()
+                .setLogsPath(System.getProperty("user.dir") + File.separator + "logs")
+                .setLogName("TarLog").setLoggingToFile(true).setLogJULtoFile(true).setDebug(true).build();
+
+        final Logger logger = new Logger(loggerConfiguration) {
+        };
+
+        TarUtil.init(logger, 6);
+    }
+
+    @Test
+    public void testTarRoundTrip() throws IOException {
+        final Path workDir = Files.createTempDirectory("Tar");
+        final Map<String, byte[]> expected = createSource(workDir);
+
+        for (final String archiveName : List.of("server.tar", "server.tar.gz")) {
+            final File archive = TarUtil.tarFolder(workDir.resolve("source").toString(), workDir.resolve(archiveName).toString(), 4);
+            final Path target = workDir.resolve("out-" + archiveName);
+
+            TarUtil.untarFile(archive.getPath(), target.toString(), true);
+            Assertions.assertFalse(archive.exists(), "Archiwum powinno zostać usunięte.");
+
+            assertExtracted(target, expected);
+        }
+    }
+
+    @Test
+    public void testMultiMemberGzip() throws IOException {
+        final byte[] data = new byte[300_000];
+        new Random(3).nextBytes(data);
+        System.arraycopy("Powtarzalny tekst ".repeat(5000).getBytes(StandardCharsets.UTF_8), 0, data, 0, 90_000);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (final ParallelGzipOutputStream gzipOutputStream = new ParallelGzipOutputStream(outputStream, 6, 3, 64 * 1024)) {
+            gzipOutputStream.write(data, 0, 1000);
+            gzipOutputStream.write(data, 1000, data.length - 1000);
+        }
+
+        //GZIPInputStream czyta wszystkie człony jeden po drugim
+        try (final GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Assertions.assertArrayEquals(data, gzipInputStream.readAllBytes());
+        }
+
+        final ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(empty, 6, 2).close();
+        try (final GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(empty.toByteArray()))) {
+            Assertions.assertEquals(0, gzipInputStream.readAllBytes().length);
+        }
+    }
+
+    @Test
+    public void testUntarSkipFiles() throws IOException {
+        final Path workDir = Files.createTempDirectory("TarSkip");
+        createSource(workDir);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final long written = TarUtil.tarFolder(workDir.resolve("source").toString(), outputStream, true);
+        Assertions.assertEquals(outputStream.size(), written);
+
+        final Path target = workDir.resolve("out");
+        final Path config = target.resolve("source/config.properties");
+        Files.createDirectories(config.getParent());
+        Files.writeString(config, "zmieniony=true");
+
+        TarUtil.untar(new ByteArrayInputStream(outputStream.toByteArray()), target.toString(), List.of(config.toString()));
+
+        Assertions.assertEquals("zmieniony=true", Files.readString(config), "Pominięty plik nie powinien zostać nadpisany.");
+        Assertions.assertTrue(Files.exists(target.resolve("source/data/random.bin")));
+    }
+
+    @Test
+    public void testUntarRejectsSymlinkEscape() throws IOException {
+        if (!POSIX) return;
+
+        final Path workDir = Files.createTempDirectory("TarSymlink");
+        final Path victim = Files.createDirectories(workDir.resolve("victim"));
+        final Path target = workDir.resolve("out");
+
+        //Link wskazujący poza katalog docelowy, a potem plik zapisywany przez ten link
+        final byte[] linkThenFile = createArchive(
+                symlinkEntry("link", victim.toString()),
+                fileEntry("link/x.txt"));
+        Assertions.assertThrows(IOException.class, () -> TarUtil.untar(new ByteArrayInputStream(linkThenFile), target.toString(), null));
+
+        //Link względny wychodzący poza katalog docelowy
+        final byte[] relativeLink = createArchive(symlinkEntry("link", "../victim"), fileEntry("link/x.txt"));
+        Assertions.assertThrows(IOException.class, () -> TarUtil.untar(new ByteArrayInputStream(relativeLink), target.toString(), null));
+
+        //Link istniejący już na dysku też nie może wyprowadzić zapisu poza katalog docelowy
+        Files.createDirectories(target);
+        Files.createSymbolicLink(target.resolve("existing"), victim);
+        final byte[] throughExisting = createArchive(fileEntry("existing/x.txt"));
+        Assertions.assertThrows(IOException.class, () -> TarUtil.untar(new ByteArrayInputStream(throughExisting), target.toString(), null));
+
+        //Twardy link do pliku poza katalogiem docelowym
+        Files.writeString(victim.resolve("secret.txt"), "tajne");
+        final byte[] hardLink = createArchive(new TarEntry("copy.txt", TarEntry.TYPE_HARD_LINK, 0644, 0, 0, "", "", 0, System.currentTimeMillis(), "existing/secret.txt"));
+        Assertions.assertThrows(IOException.class, () -> TarUtil.untar(new ByteArrayInputStream(hardLink), target.toString(), null));
+
+        try (final var files = Files.list(victim)) {
+            Assertions.assertEquals(List.of(victim.resolve("secret.txt")), files.toList(), "Nic nie powinno zostać zapisane poza katalogiem docelowym.");
+        }
+    }
+
+    private static TarEntry symlinkEntry(final String name, final String linkName) {
+        return new TarEntry(name, TarEntry.TYPE_SYMLINK, 0777, 0, 0, "", "", 0, System.currentTimeMillis(), linkName);
+    }
+
+    private static TarEntry fileEntry(final String name) {
+        return new TarEntry(name, TarEntry.TYPE_FILE, 0644, 0, 0, "", "", 3, System.currentTimeMillis(), "");
+    }
+
+    private static byte[] createArchive(final TarEntry... entries) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (final TarWriter tarWriter = new TarWriter(outputStream)) {
+            for (final TarEntry entry : entries) {
+                tarWriter.putEntry(entry, new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static Map<String, byte[]> createSource(final Path workDir) throws IOException {
+        final Map<String, byte[]> expected = new HashMap<>();
+        final byte[] randomBytes = new byte[1024 * 1024 + 777];
+        new Random(5).nextBytes(randomBytes);
+
+        final String longName = "source/" + "bardzo_dlugi_katalog/".repeat(6) + "plik_z_nazwa_dluzsza_niz_sto_znakow.txt";
+
+        expected.put("source/config.properties", "server-port=19132\n".getBytes(StandardCharsets.UTF_8));
+        expected.put("source/data/random.bin", randomBytes);
+        expected.put("source/data/empty.txt", new byte[0]);
+        expected.put("source/start.sh", "#!/bin/sh\necho start\n".getBytes(StandardCharsets.UTF_8));
+        expected.put(longName, "Długa nazwa".getBytes(StandardCharsets.UTF_8));
+
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            final Path path = workDir.resolve(entry.getKey());
+            Files.createDirectories(path.getParent());
+            Files.write(path, entry.getValue());
+        }
+
+        Files.createDirectories(workDir.resolve("source/empty"));
+
+        if (POSIX) {
+            Files.setPosixFilePermissions(workDir.resolve("source/start.sh"), PosixFilePermissions.fromString("rwxr-x---"));
+            Files.createSymbolicLink(workDir.resolve("source/random-link.bin"), Path.of("data/random.bin"));
+        }
+
+        return expected;
+    }
+
+    private static void assertExtracted(final Path target, final Map<String, byte[]> expected) throws IOException {
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            Assertions.assertArrayEquals(entry.getValue(), Files.readAllBytes(target.resolve(entry.getKey())), entry.getKey());
+        }
+
+        Assertions.assertTrue(Files.isDirectory(target.resolve("source/empty")), "Pusty folder powinien zostać odtworzony.");
+
+        if (POSIX) {
+            Assertions.assertEquals("rwxr-x---", PosixFilePermissions.toString(Files.getPosixFilePermissions(target.resolve("source/start.sh"))));
+
+            final Path link = target.resolve("source/random-link.bin");
+            Assertions.assertTrue(Files.isSymbolicLink(link), "Link symboliczny powinien zostać zachowany.");
+            Assertions.assertEquals(Path.of("data/random.bin"), Files.readSymbolicLink(link));
+        }
+    }
+}
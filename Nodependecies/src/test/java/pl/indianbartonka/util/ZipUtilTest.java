@@ -1,12 +1,49 @@
 package pl.indianbartonka.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import javax.crypto.SecretKey;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import pl.indianbartonka.util.encrypt.SegmentedAeadCipher;
+import pl.indianbartonka.util.encrypt.aes.AESEncryptor;
+import pl.indianbartonka.util.encrypt.aes.AESSettings;
+import pl.indianbartonka.util.exception.encryption.DecryptException;
 import pl.indianbartonka.util.logger.Logger;
 import pl.indianbartonka.util.logger.config.LoggerConfiguration;
+import pl.indianbartonka.util.zip.AdaptiveCompressionStrategy;
+import pl.indianbartonka.util.zip.CompressionStrategy;
+import pl.indianbartonka.util.zip.DedupArchiveStore;
+import pl.indianbartonka.util.zip.DedupSnapshot;
+import pl.indianbartonka.util.zip.IncrementalZipBackup;
+import pl.indianbartonka.util.zip.SeekableZipReader;
+import pl.indianbartonka.util.zip.ZipResourcePool;
+import pl.indianbartonka.util.zip.ZipStreamListener;
+import pl.indianbartonka.util.zip.ZipStreamTask;
 
 public class ZipUtilTest {
 
@@ -53,4 +90,550 @@ public class ZipUtilTest {
         final File unzippedDir = new File(UNZIP_DIR);
         Assertions.assertTrue(unzippedDir.exists(), "Folder po wypakowaniu powinien istnieć.");
     }
+
+    @Test
+    public void testParallelZipFolder() throws IOException {
+        final Path workDir = Files.createTempDirectory("ParallelZip");
+        final File sourceDir = new File(workDir.toFile(), "source");
+        final Map<String, byte[]> expected = new HashMap<>();
+        final Random random = new Random(7);
+
+        final byte[] text = "Linia logu która dobrze się kompresuje\n".repeat(100_000).getBytes(StandardCharsets.UTF_8);
+        final byte[] randomBytes = new byte[2 * 1024 * 1024 + 123];
+        random.nextBytes(randomBytes);
+
+        expected.put("source/text.txt", text);
+        expected.put("source/data/random.bin", randomBytes);
+        expected.put("source/data/empty.txt", new byte[0]);
+        expected.put("source/data/deep/small.txt", "Jestem Sigma🎤".getBytes(StandardCharsets.UTF_8));
+
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            final File file = new File(workDir.toFile(), entry.getKey());
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), entry.getValue());
+        }
+
+        final File zipFile = ZipUtil.zipFolderParallel(sourceDir.getPath(), new File(workDir.toFile(), "parallel.zip").getPath(), 4);
+
+        try (final ZipFile archive = new ZipFile(zipFile)) {
+            Assertions.assertEquals(expected.size(), archive.size());
+
+            for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                final ZipEntry zipEntry = archive.getEntry(entry.getKey());
+                Assertions.assertNotNull(zipEntry, entry.getKey());
+
+                try (final InputStream inputStream = archive.getInputStream(zipEntry)) {
+                    Assertions.assertArrayEquals(entry.getValue(), inputStream.readAllBytes(), entry.getKey());
+                }
+            }
+        }
+
+        //ZipInputStream czyta archiwum po kolei i sprawdza CRC każdego wpisu
+        int entries = 0;
+        try (final ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(zipFile.toPath()))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                Assertions.assertArrayEquals(expected.get(zipEntry.getName()), zipInputStream.readAllBytes(), zipEntry.getName());
+                entries++;
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), entries);
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void testParallelUnzipFile() throws IOException {
+        final Path workDir = Files.createTempDirectory("ParallelUnzip");
+        final File sourceDir = new File(workDir.toFile(), "source");
+        final File targetDir = new File(workDir.toFile(), "target");
+        final Map<String, byte[]> expected = new HashMap<>();
+        final Random random = new Random(11);
+
+        for (int i = 0; i < 20; i++) {
+            final byte[] data = new byte[random.nextInt(300_000)];
+            random.nextBytes(data);
+            expected.put("source/dir" + (i % 4) + "/file" + i + ".bin", data);
+        }
+        expected.put("source/empty.txt", new byte[0]);
+
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            final File file = new File(workDir.toFile(), entry.getKey());
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), entry.getValue());
+        }
+
+        final File zipFile = ZipUtil.zipFolder(sourceDir.getPath(), new File(workDir.toFile(), "sequential.zip").getPath());
+
+        //Plik z listy skipFiles ma zostać nietknięty, a za duży istniejący plik przycięty do rozmiaru wpisu
+        final File skipped = new File(targetDir, "source/dir0/file0.bin");
+        final File overwritten = new File(targetDir, "source/dir1/file1.bin");
+        Files.createDirectories(skipped.getParentFile().toPath());
+        Files.createDirectories(overwritten.getParentFile().toPath());
+        Files.writeString(skipped.toPath(), "stare");
+        Files.write(overwritten.toPath(), new byte[400_000]);
+
+        ZipUtil.unzipFileParallel(zipFile.getPath(), targetDir.getPath(), true, List.of(skipped.getPath()), 4);
+
+        Assertions.assertFalse(zipFile.exists());
+        Assertions.assertEquals("stare", Files.readString(skipped.toPath()));
+
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            final File file = new File(targetDir, entry.getKey());
+            if (file.equals(skipped)) continue;
+
+            Assertions.assertArrayEquals(entry.getValue(), Files.readAllBytes(file.toPath()), entry.getKey());
+        }
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void testParallelUnzipRejectsUnsafeEntries() throws IOException {
+        final Path workDir = Files.createTempDirectory("ParallelUnzipSlip");
+        final Path targetDir = workDir.resolve("target");
+
+        //Wpis wychodzący poza katalog docelowy
+        final File slipZip = createZip(workDir.resolve("slip.zip"), "ok.txt", "../../uciekinier.txt");
+        Assertions.assertThrows(IOException.class, () -> ZipUtil.unzipFileParallel(slipZip.getPath(), targetDir.toString(), false, null, 2));
+        Assertions.assertFalse(Files.exists(workDir.resolve("uciekinier.txt")));
+        Assertions.assertFalse(Files.exists(workDir.getParent().resolve("uciekinier.txt")));
+
+        //Dwa wpisy rozpakowywane do tego samego pliku
+        final File duplicateZip = createZip(workDir.resolve("duplicate.zip"), "dir/plik.txt", "dir/../dir/plik.txt");
+        Assertions.assertThrows(IOException.class, () -> ZipUtil.unzipFileParallel(duplicateZip.getPath(), targetDir.toString(), false, null, 2));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void testUnzipStreamRejectsUnsafeEntries() throws IOException {
+        final Path workDir = Files.createTempDirectory("UnzipSlip");
+        final Path targetDir = workDir.resolve("target");
+
+        for (final String entryName : List.of("../uciekinier.txt", "dir/../../uciekinier.txt", workDir.resolve("absolutny.txt").toString())) {
+            final File zipFile = createZip(workDir.resolve("slip.zip"), entryName);
+
+            try (final InputStream inputStream = Files.newInputStream(zipFile.toPath())) {
+                Assertions.assertThrows(IOException.class, () -> ZipUtil.unzip(inputStream, targetDir.toString(), null), entryName);
+            }
+        }
+
+        Assertions.assertFalse(Files.exists(workDir.resolve("uciekinier.txt")));
+        Assertions.assertFalse(Files.exists(workDir.resolve("absolutny.txt")));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    private static File createZip(final Path zipPath, final String... entryNames) throws IOException {
+        try (final ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(zipPath))) {
+            for (final String entryName : entryNames) {
+                zipOutputStream.putNextEntry(new ZipEntry(entryName));
+                zipOutputStream.write(entryName.getBytes(StandardCharsets.UTF_8));
+                zipOutputStream.closeEntry();
+            }
+        }
+        return zipPath.toFile();
+    }
+
+    @Test
+    public void testIncrementalBackup() throws IOException {
+        final Path workDir = Files.createTempDirectory("IncrementalBackup");
+        final File sourceDir = new File(workDir.toFile(), "server");
+        final File backupDir = new File(workDir.toFile(), "backups");
+        final Random random = new Random(3);
+
+        final File world = new File(sourceDir, "world/region.bin");
+        final File config = new File(sourceDir, "config.yml");
+        final File touched = new File(sourceDir, "touched.txt");
+        final File removed = new File(sourceDir, "removed.txt");
+        final byte[] worldData = new byte[3 * 1024 * 1024];
+        random.nextBytes(worldData);
+
+        Files.createDirectories(world.getParentFile().toPath());
+        Files.write(world.toPath(), worldData);
+        Files.writeString(config.toPath(), "port: 19132");
+        Files.writeString(touched.toPath(), "bez zmian");
+        Files.writeString(removed.toPath(), "zaraz zniknę");
+
+        final IncrementalZipBackup backup = new IncrementalZipBackup(sourceDir, backupDir);
+        final File base = backup.backup();
+        Assertions.assertNotNull(base);
+        Assertions.assertNull(backup.backup(), "Bez zmian nie powinna powstać nowa kopia");
+
+        Files.writeString(config.toPath(), "port: 19133");
+        Assertions.assertTrue(config.setLastModified(config.lastModified() + 2000));
+        Assertions.assertTrue(touched.setLastModified(touched.lastModified() + 2000));
+        Files.writeString(new File(sourceDir, "world/new.txt").toPath(), "nowy plik");
+        Files.delete(removed.toPath());
+
+        final File delta = backup.backup();
+        Assertions.assertNotNull(delta);
+        Assertions.assertEquals(List.of(0, 1), backup.getIndexes());
+
+        try (final ZipFile zipFile = new ZipFile(delta)) {
+            Assertions.assertEquals(2, zipFile.size(), "Kopia przyrostowa powinna zawierać tylko zmienione pliki");
+            Assertions.assertNotNull(zipFile.getEntry("server/config.yml"));
+            Assertions.assertNotNull(zipFile.getEntry("server/world/new.txt"));
+        }
+
+        final File latest = new File(workDir.toFile(), "latest");
+        backup.restore(latest);
+        Assertions.assertArrayEquals(worldData, Files.readAllBytes(new File(latest, "server/world/region.bin").toPath()));
+        Assertions.assertEquals("port: 19133", Files.readString(new File(latest, "server/config.yml").toPath()));
+        Assertions.assertEquals("bez zmian", Files.readString(new File(latest, "server/touched.txt").toPath()));
+        Assertions.assertEquals("nowy plik", Files.readString(new File(latest, "server/world/new.txt").toPath()));
+        Assertions.assertFalse(new File(latest, "server/removed.txt").exists());
+
+        final File first = new File(workDir.toFile(), "first");
+        backup.restore(first, 0);
+        Assertions.assertEquals("port: 19132", Files.readString(new File(first, "server/config.yml").toPath()));
+        Assertions.assertEquals("zaraz zniknę", Files.readString(new File(first, "server/removed.txt").toPath()));
+        Assertions.assertFalse(new File(first, "server/world/new.txt").exists());
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void testDedupStore() throws IOException {
+        final Path workDir = Files.createTempDirectory("DedupStore");
+        final File sourceDir = new File(workDir.toFile(), "server");
+        final DedupArchiveStore store = new DedupArchiveStore(new File(workDir.toFile(), "store"));
+        final Random random = new Random(11);
+
+        final byte[] worldData = new byte[4 * 1024 * 1024];
+        random.nextBytes(worldData);
+        final File world = new File(sourceDir, "world/region.bin");
+        final File plugin = new File(sourceDir, "plugins/plugin.jar");
+
+        Files.createDirectories(world.getParentFile().toPath());
+        Files.createDirectories(plugin.getParentFile().toPath());
+        Files.createDirectories(new File(sourceDir, "empty").toPath());
+        Files.write(world.toPath(), worldData);
+        Files.write(plugin.toPath(), "Ta sama wtyczka w każdej kopii\n".repeat(20_000).getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(sourceDir, "empty.txt").toPath(), new byte[0]);
+
+        final DedupSnapshot first = store.snapshot(sourceDir, "first");
+        Assertions.assertEquals(3, first.fileCount());
+        //Powtarzający się tekst wtyczki daje identyczne fragmenty, zapisane tylko raz
+        Assertions.assertTrue(first.newChunks() < first.chunkCount());
+
+        //Wstawienie bajtów w środek pliku przesuwa resztę danych, ale granice fragmentów zależą od treści
+        final byte[] changedWorld = new byte[worldData.length + 100];
+        System.arraycopy(worldData, 0, changedWorld, 0, 2_000_000);
+        System.arraycopy(worldData, 2_000_000, changedWorld, 2_000_100, worldData.length - 2_000_000);
+        Files.write(world.toPath(), changedWorld);
+
+        final DedupSnapshot second = store.snapshot(sourceDir, "second");
+        Assertions.assertTrue(second.newChunks() <= 3, "Nowych fragmentów: " + second.newChunks());
+        Assertions.assertTrue(second.storedBytes() * 5 < first.storedBytes(), "Druga kopia powinna zająć dużo mniej miejsca");
+        Assertions.assertEquals(List.of("first", "second"), store.getSnapshots());
+
+        final File restoredFirst = new File(workDir.toFile(), "restoredFirst");
+        store.restore("first", restoredFirst);
+        Assertions.assertArrayEquals(worldData, Files.readAllBytes(new File(restoredFirst, "world/region.bin").toPath()));
+        Assertions.assertArrayEquals(Files.readAllBytes(plugin.toPath()), Files.readAllBytes(new File(restoredFirst, "plugins/plugin.jar").toPath()));
+        Assertions.assertEquals(0, new File(restoredFirst, "empty.txt").length());
+        Assertions.assertTrue(new File(restoredFirst, "empty").isDirectory());
+
+        final File restoredSecond = new File(workDir.toFile(), "restoredSecond");
+        store.restore("second", restoredSecond);
+        Assertions.assertArrayEquals(changedWorld, Files.readAllBytes(new File(restoredSecond, "world/region.bin").toPath()));
+
+        Assertions.assertTrue(store.deleteSnapshot("first"));
+        Assertions.assertEquals(second.newChunks(), store.prune(), "Usunięte powinny zostać tylko fragmenty starej wersji");
+        store.restore("second", new File(workDir.toFile(), "afterPrune"));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void testAdaptiveCompression() throws IOException {
+        final Path workDir = Files.createTempDirectory("AdaptiveZip");
+        final File sourceDir = new File(workDir.toFile(), "mixed");
+        final Map<String, byte[]> expected = new HashMap<>();
+        final Map<String, Integer> methods = new HashMap<>();
+        final Random random = new Random(5);
+
+        final byte[] randomBytes = new byte[2 * 1024 * 1024 + 17];
+        random.nextBytes(randomBytes);
+        final byte[] text = "Tekst który warto kompresować\n".repeat(5000).getBytes(StandardCharsets.UTF_8);
+
+        expected.put("mixed/random.dat", randomBytes);
+        methods.put("mixed/random.dat", ZipEntry.STORED);
+        expected.put("mixed/textures/stone.png", text);
+        methods.put("mixed/textures/stone.png", ZipEntry.STORED);
+        expected.put("mixed/server.log", text);
+        methods.put("mixed/server.log", ZipEntry.DEFLATED);
+        expected.put("mixed/tiny.jar", new byte[]{1, 2, 3});
+        methods.put("mixed/tiny.jar", ZipEntry.DEFLATED);
+
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            final File file = new File(workDir.toFile(), entry.getKey());
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), entry.getValue());
+        }
+
+        Assertions.assertTrue(AdaptiveCompressionStrategy.entropy(randomBytes, 0, 16384) > 7.9);
+        Assertions.assertTrue(AdaptiveCompressionStrategy.entropy(text, 0, 16384) < 5);
+
+        ZipUtil.setCompressionStrategy(new AdaptiveCompressionStrategy(9));
+        try {
+            final File sequential = ZipUtil.zipFolder(sourceDir.getPath(), new File(workDir.toFile(), "sequential.zip").getPath());
+            final File parallel = ZipUtil.zipFolderParallel(sourceDir.getPath(), new File(workDir.toFile(), "parallel.zip").getPath(), 4);
+
+            for (final File zip : List.of(sequential, parallel)) {
+                try (final ZipFile archive = new ZipFile(zip)) {
+                    for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                        final ZipEntry zipEntry = archive.getEntry(entry.getKey());
+                        Assertions.assertEquals(methods.get(entry.getKey()), zipEntry.getMethod(), zip.getName() + " " + entry.getKey());
+
+                        try (final InputStream inputStream = archive.getInputStream(zipEntry)) {
+                            Assertions.assertArrayEquals(entry.getValue(), inputStream.readAllBytes(), entry.getKey());
+                        }
+                    }
+                }
+
+                try (final ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(zip.toPath()))) {
+                    ZipEntry zipEntry;
+                    while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                        Assertions.assertArrayEquals(expected.get(zipEntry.getName()), zipInputStream.readAllBytes(), zipEntry.getName());
+                    }
+                }
+            }
+        } finally {
+            ZipUtil.setCompressionStrategy(null);
+        }
+
+        Assertions.assertEquals(ZipUtil.getCompressionLevel(), ZipUtil.getCompressionStrategy().selectLevel("a.png", 1_000_000, new byte[0], 0));
+        Assertions.assertEquals(CompressionStrategy.STORED, new AdaptiveCompressionStrategy(5).selectLevel("a.PNG", 1_000_000, new byte[0], 0));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void testZipToStream() throws IOException {
+        final Path workDir = Files.createTempDirectory("ZipStream");
+        final File sourceDir = new File(workDir.toFile(), "upload");
+        final File single = new File(workDir.toFile(), "single.txt");
+        final Map<String, byte[]> expected = new HashMap<>();
+        final Random random = new Random(9);
+
+        final byte[] big = new byte[5 * 1024 * 1024];
+        random.nextBytes(big);
+        expected.put("upload/big.bin", big);
+        expected.put("upload/logs/latest.log", "log\n".repeat(1000).getBytes(StandardCharsets.UTF_8));
+        expected.put("single.txt", "pojedynczy".getBytes(StandardCharsets.UTF_8));
+
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            final File file = new File(workDir.toFile(), entry.getKey());
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), entry.getValue());
+        }
+
+        final AtomicInteger entries = new AtomicInteger();
+        final AtomicInteger lastProgress = new AtomicInteger(-1);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final ZipStreamTask task = new ZipStreamTask(List.of(sourceDir, single), outputStream, new TestZipStreamListener() {
+            @Override
+            public void onEntry(final String entryName) {
+                entries.incrementAndGet();
+            }
+
+            @Override
+            public void onProgress(final int progress, final long processedBytes, final long totalBytes) {
+                Assertions.assertTrue(progress > lastProgress.get());
+                lastProgress.set(progress);
+            }
+        });
+
+        final long written = task.zip();
+        Assertions.assertEquals(outputStream.size(), written);
+        Assertions.assertEquals(3, entries.get());
+        Assertions.assertEquals(100, lastProgress.get());
+        Assertions.assertEquals(task.getTotalBytes(), task.getProcessedBytes());
+
+        int found = 0;
+        try (final ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                Assertions.assertArrayEquals(expected.get(zipEntry.getName()), zipInputStream.readAllBytes(), zipEntry.getName());
+                found++;
+            }
+        }
+        Assertions.assertEquals(3, found);
+
+        final ByteArrayOutputStream channelOutput = new ByteArrayOutputStream();
+        Assertions.assertEquals(ZipUtil.zipFolder(sourceDir.getPath(), Channels.newChannel(channelOutput)), channelOutput.size());
+
+        //Anulowanie w trakcie pierwszego wpisu
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final ZipStreamTask[] cancelledTask = new ZipStreamTask[1];
+        cancelledTask[0] = new ZipStreamTask(List.of(sourceDir), new ByteArrayOutputStream(), new TestZipStreamListener() {
+            @Override
+            public void onEntry(final String entryName) {
+                cancelledTask[0].cancel();
+            }
+
+            @Override
+            public void onCancel() {
+                cancelled.set(true);
+            }
+        });
+
+        Assertions.assertThrows(CancellationException.class, cancelledTask[0]::zip);
+        Assertions.assertTrue(cancelled.get());
+        Assertions.assertTrue(cancelledTask[0].isCancelled());
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    private static class TestZipStreamListener implements ZipStreamListener {
+
+        @Override
+        public void onStart(final int fileCount, final long totalBytes) {
+        }
+
+        @Override
+        public void onEntry(final String entryName) {
+        }
+
+        @Override
+        public void onProgress(final int progress, final long processedBytes, final long totalBytes) {
+        }
+
+        @Override
+        public void onEnd(final long bytesWritten) {
+        }
+
+        @Override
+        public void onCancel() {
+        }
+    }
+
+    @Test
+    public void testResourcePool() throws DataFormatException {
+        final ZipResourcePool pool = new ZipResourcePool(2);
+
+        final byte[] buffer = pool.acquireBuffer(10_000);
+        Assertions.assertEquals(16 * 1024, buffer.length);
+        pool.releaseBuffer(buffer);
+        Assertions.assertSame(buffer, pool.acquireBuffer(9_000));
+        Assertions.assertEquals(ZipResourcePool.MAX_BUFFER_SIZE + 1, pool.acquireBuffer(ZipResourcePool.MAX_BUFFER_SIZE + 1).length);
+
+        final byte[] data = "Jestem Sigma ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        final byte[] compressed = new byte[data.length];
+        final byte[] restored = new byte[data.length];
+
+        //Ten sam deflater użyty dwa razy musi dać ten sam wynik
+        for (int i = 0; i < 2; i++) {
+            final Deflater deflater = pool.acquireDeflater(9, true);
+            deflater.setInput(data);
+            deflater.finish();
+            final int compressedLength = deflater.deflate(compressed);
+            Assertions.assertTrue(deflater.finished());
+            pool.releaseDeflater(deflater, 9, true);
+
+            final Inflater inflater = pool.acquireInflater(true);
+            inflater.setInput(compressed, 0, compressedLength);
+            Assertions.assertEquals(data.length, inflater.inflate(restored));
+            pool.releaseInflater(inflater, true);
+
+            Assertions.assertArrayEquals(data, restored);
+        }
+
+        Assertions.assertEquals(3, pool.getReused());
+
+        pool.setEnabled(false);
+        final byte[] unpooled = pool.acquireBuffer(10_000);
+        Assertions.assertEquals(10_000, unpooled.length);
+        pool.releaseBuffer(unpooled);
+        Assertions.assertNotSame(unpooled, pool.acquireBuffer(10_000));
+    }
+
+    @Test
+    public void testEncryptedZipRoundTrip() throws IOException {
+        final Path workDir = Files.createTempDirectory("EncryptedZip");
+        final File sourceDir = new File(workDir.toFile(), "backup");
+        final File targetDir = new File(workDir.toFile(), "restore");
+        final Map<String, byte[]> expected = new HashMap<>();
+        final Random random = new Random(43);
+
+        for (int i = 0; i < 10; i++) {
+            final byte[] data = new byte[random.nextInt(400_000)];
+            random.nextBytes(data);
+            expected.put("backup/dir" + (i % 3) + "/file" + i + ".bin", data);
+        }
+        expected.put("backup/world.txt", "Jestem Sigma ".repeat(10_000).getBytes(StandardCharsets.UTF_8));
+
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            final File file = new File(workDir.toFile(), entry.getKey());
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), entry.getValue());
+        }
+
+        final SegmentedAeadCipher cipher = new SegmentedAeadCipher(SegmentedAeadCipher.Algorithm.AES_GCM, AESSettings.generateKey(AESSettings.AESKeySize.AES_256));
+        final File encrypted = ZipUtil.zipFolderEncrypted(sourceDir.getPath(), new File(workDir.toFile(), "backup.zip.aes"), cipher, 3);
+        Assertions.assertTrue(SegmentedAeadCipher.isSegmented(encrypted));
+        Assertions.assertFalse(new File(encrypted.getPath() + ".tmp").exists(), "Plik tymczasowy powinien zostać przeniesiony");
+
+        ZipUtil.unzipEncrypted(encrypted, targetDir.getPath(), cipher, null);
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            Assertions.assertArrayEquals(entry.getValue(), Files.readAllBytes(new File(targetDir, entry.getKey()).toPath()), entry.getKey());
+        }
+
+        //Uszkodzony koniec archiwum (katalog centralny) też musi zostać wykryty
+        try (final RandomAccessFile randomAccessFile = new RandomAccessFile(encrypted, "rw")) {
+            randomAccessFile.seek(randomAccessFile.length() - 40);
+            randomAccessFile.write(randomAccessFile.read() ^ 1);
+        }
+        FileUtil.deleteFile(targetDir);
+        Assertions.assertThrows(IOException.class, () -> ZipUtil.unzipEncrypted(encrypted, targetDir.getPath(), cipher, null));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
+
+    @Test
+    public void testExtractSingleEntryFromEncryptedZip() throws IOException, DecryptException {
+        final Path workDir = Files.createTempDirectory("SeekableZip");
+        final File sourceDir = new File(workDir.toFile(), "backup");
+        final Map<String, byte[]> expected = new HashMap<>();
+        final Random random = new Random(53);
+
+        for (int i = 0; i < 8; i++) {
+            final byte[] data = new byte[random.nextInt(500_000)];
+            random.nextBytes(data);
+            expected.put("backup/dir" + (i % 2) + "/file" + i + ".bin", data);
+        }
+        expected.put("backup/server.properties", "motd=Jestem Sigma\n".repeat(5000).getBytes(StandardCharsets.UTF_8));
+
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            final File file = new File(workDir.toFile(), entry.getKey());
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), entry.getValue());
+        }
+
+        //Zwykły zip czytany przez kanał pliku
+        final File zipFile = ZipUtil.zipFolder(sourceDir.getPath(), new File(workDir.toFile(), "backup.zip").getPath());
+        try (final SeekableZipReader reader = new SeekableZipReader(Files.newByteChannel(zipFile.toPath()))) {
+            Assertions.assertEquals(expected.keySet(), reader.getEntryNames());
+        }
+
+        //Zaszyfrowana kopia, odczytany zostaje tylko jeden wpis
+        final AESEncryptor aesEncryptor = new AESEncryptor(AESSettings.AESMode.GCM, AESSettings.AESPadding.NO_PADDING, AESSettings.generateIV(AESSettings.AESMode.GCM));
+        final SecretKey key = AESSettings.generateKey(AESSettings.AESKeySize.AES_256);
+        final File encrypted = ZipUtil.zipFolderEncrypted(sourceDir.getPath(), new File(workDir.toFile(), "backup.zip.aes"),
+                new SegmentedAeadCipher(SegmentedAeadCipher.Algorithm.AES_GCM, key), 2);
+
+        final File restored = new File(workDir.toFile(), "restored.properties");
+        try (final SeekableByteChannel channel = aesEncryptor.openDecryptingChannel(encrypted, key);
+             final SeekableZipReader reader = new SeekableZipReader(channel)) {
+            Assertions.assertEquals(expected.keySet(), reader.getEntryNames());
+            Assertions.assertEquals(expected.get("backup/server.properties").length, reader.extract("backup/server.properties", restored));
+        }
+
+        Assertions.assertArrayEquals(expected.get("backup/server.properties"), Files.readAllBytes(restored.toPath()));
+
+        FileUtil.deleteFile(workDir.toFile());
+    }
 }